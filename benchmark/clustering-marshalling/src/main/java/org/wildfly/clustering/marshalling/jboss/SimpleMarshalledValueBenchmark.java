@@ -0,0 +1,166 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.marshalling.jboss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.Marshalling;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.SimpleDataOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Replication of a {@link SimpleMarshalledValue}, i.e. the marshalling of its object followed by the write of its serialized form to the replication stream.
+ * <p/>
+ * {@code legacy} reproduces the previous implementation, which marshalled into a {@link ByteArrayOutputStream} and copied the result via {@link ByteArrayOutputStream#toByteArray()}.
+ * {@code predicted} is the current implementation, which marshals into an array pre-sized from the last serialized size of the same class, and writes it without copying.
+ * Run with {@code -prof gc} to compare the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleMarshalledValueBenchmark {
+
+    public enum Attribute {
+        ID() {
+            @Override
+            Object create() {
+                return UUID.randomUUID();
+            }
+        },
+        SMALL_MAP() {
+            @Override
+            Object create() {
+                return createMap(8);
+            }
+        },
+        LARGE_MAP() {
+            @Override
+            Object create() {
+                return createMap(512);
+            }
+        },
+        BYTES() {
+            @Override
+            Object create() {
+                return new byte[16384];
+            }
+        },
+        ;
+        abstract Object create();
+
+        static Serializable createMap(int size) {
+            HashMap<String, String> map = new HashMap<>();
+            for (int i = 0; i < size; ++i) {
+                map.put(Integer.toString(i), UUID.randomUUID().toString());
+            }
+            return map;
+        }
+    }
+
+    @Param
+    private Attribute attribute;
+
+    private MarshallingContext context;
+    private SimpleMarshalledValue<Object> value;
+    // Stands in for the replication stream
+    private DataOutput output;
+
+    @Setup
+    public void setup() {
+        MarshallingConfigurationRepository repository = new MarshallingConfigurationRepository() {
+            @Override
+            public int getCurrentMarshallingVersion() {
+                return 0;
+            }
+
+            @Override
+            public MarshallingConfiguration getMarshallingConfiguration(int version) {
+                return new MarshallingConfiguration();
+            }
+        };
+        this.context = new SimpleMarshallingContext(Marshalling.getMarshallerFactory("river", Marshalling.class.getClassLoader()), repository, SimpleMarshalledValueBenchmark.class.getClassLoader());
+        this.value = new SimpleMarshalledValue<>(this.attribute.create(), this.context);
+        this.output = new DataOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @Benchmark
+    public void legacy() throws IOException {
+        byte[] bytes = this.marshal(this.value.peek());
+        this.output.writeInt(bytes.length);
+        this.output.write(bytes);
+    }
+
+    @Benchmark
+    public void predicted() throws IOException {
+        this.value.writeTo(this.output);
+    }
+
+    private byte[] marshal(Object object) throws IOException {
+        int version = this.context.getCurrentVersion();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ClassLoader loader = WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(this.context.getClassLoader());
+        try (SimpleDataOutput data = new SimpleDataOutput(Marshalling.createByteOutput(output))) {
+            IndexExternalizer.VARIABLE.writeData(data, version);
+            try (Marshaller marshaller = this.context.createMarshaller(version)) {
+                marshaller.start(data);
+                marshaller.writeObject(object);
+                marshaller.finish();
+                return output.toByteArray();
+            }
+        } finally {
+            WildFlySecurityManager.setCurrentContextClassLoaderPrivileged(loader);
+        }
+    }
+}
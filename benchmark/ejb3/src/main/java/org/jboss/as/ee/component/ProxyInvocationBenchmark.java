@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ee.component;
+
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.naming.ManagedReference;
+import org.jboss.ejb.client.SessionID;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatch of a local view invocation by {@link ProxyInvocationHandler}, up to the first client interceptor.
+ * <p/>
+ * Run with {@code -prof gc}: gc.alloc.rate.norm is the per-call allocation of the view layer, i.e. the interceptor
+ * context and whatever the handler adds to it. Add {@code -jvmArgsAppend -XX:-DoEscapeAnalysis} to count what a real,
+ * deeper interceptor chain allocates; with this shallow chain some allocations are otherwise scalar replaced. A stateful
+ * view carries its session id as view instance data.
+ * <p/>
+ * This class lives in the component package since completing the construction of a client instance is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyInvocationBenchmark {
+
+    private static final Interceptor TERMINAL = new Interceptor() {
+        @Override
+        public Object processInvocation(InterceptorContext context) {
+            return context.getParameters()[0];
+        }
+    };
+
+    private static final Interceptor CONTEXT_DATA_TERMINAL = new Interceptor() {
+        @Override
+        public Object processInvocation(InterceptorContext context) {
+            context.getContextData().put("benchmark", Boolean.TRUE);
+            return context.getParameters()[0];
+        }
+    };
+
+    @Param({ "stateless", "stateful" })
+    String view;
+
+    @Param({ "false", "true" })
+    boolean writeContextData;
+
+    private final Object proxy = new Object();
+    private final Object[] args = new Object[] { 1 };
+    private Method method;
+    private ProxyInvocationHandler handler;
+
+    @Setup
+    public void setup() throws Exception {
+        this.method = Comparable.class.getMethod("compareTo", Object.class);
+        // same map type as the client interceptors of a view
+        Map<Method, Interceptor> interceptors = new IdentityHashMap<>();
+        interceptors.put(this.method, this.writeContextData ? CONTEXT_DATA_TERMINAL : TERMINAL);
+        ComponentView componentView = new StubComponentView(mock(Component.class));
+        ComponentClientInstance instance = new ComponentClientInstance();
+        if (this.view.equals("stateful")) {
+            instance.setViewInstanceData(SessionID.class, SessionID.createSessionID(new byte[] { 1, 2, 3, 4 }));
+        }
+        instance.constructionComplete();
+        this.handler = new ProxyInvocationHandler(interceptors, instance, componentView);
+    }
+
+    @Benchmark
+    public Object invoke() throws Throwable {
+        return this.handler.invoke(this.proxy, this.method, this.args);
+    }
+
+    /**
+     * Not a mock, since the handler consults the view on every call.
+     */
+    private static class StubComponentView implements ComponentView {
+        private final Component component;
+
+        StubComponentView(Component component) {
+            this.component = component;
+        }
+
+        @Override
+        public Component getComponent() {
+            return this.component;
+        }
+
+        @Override
+        public ManagedReference createInstance() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ManagedReference createInstance(Map<Object, Object> contextData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object invoke(InterceptorContext interceptorContext) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<?> getProxyClass() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Class<?> getViewClass() {
+            return Comparable.class;
+        }
+
+        @Override
+        public Set<Method> getViewMethods() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Method getMethod(String name, String descriptor) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T> T getPrivateData(Class<T> clazz) {
+            return null;
+        }
+
+        @Override
+        public boolean isAsynchronous(Method method) {
+            return false;
+        }
+    }
+}
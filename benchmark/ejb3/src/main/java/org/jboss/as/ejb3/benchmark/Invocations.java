@@ -0,0 +1,62 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+
+import org.jboss.as.ee.component.Component;
+import org.jboss.as.ejb3.component.MethodIntf;
+import org.jboss.invocation.InterceptorContext;
+
+/**
+ * Creates interceptor contexts the way a local view proxy does for every invocation.
+ */
+final class Invocations {
+
+    static final Method INCREMENT;
+
+    static {
+        try {
+            INCREMENT = CounterBean.class.getMethod("increment", int.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Invocations() {
+    }
+
+    /**
+     * @see org.jboss.as.ee.component.ProxyInvocationHandler#invoke(Object, Method, Object[])
+     */
+    static InterceptorContext createContext(Component component) {
+        InterceptorContext context = new InterceptorContext();
+        context.putPrivateData(Component.class, component);
+        context.putPrivateData(MethodIntf.class, MethodIntf.LOCAL);
+        context.setParameters(new Object[] { 1 });
+        context.setMethod(INCREMENT);
+        context.setContextData(new HashMap<String, Object>());
+        context.setBlockingCaller(true);
+        return context;
+    }
+}
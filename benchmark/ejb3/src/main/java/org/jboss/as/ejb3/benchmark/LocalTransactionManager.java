@@ -0,0 +1,200 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.transaction.HeuristicMixedException;
+import javax.transaction.HeuristicRollbackException;
+import javax.transaction.InvalidTransactionException;
+import javax.transaction.NotSupportedException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+import javax.transaction.xa.XAResource;
+
+/**
+ * A resource-less, thread bound transaction manager.
+ * <p/>
+ * The benchmarks measure the cost of the container, not of the transaction manager, so transactions only track their
+ * status and synchronizations; completion runs the synchronizations and nothing else.
+ */
+public class LocalTransactionManager implements TransactionManager, TransactionSynchronizationRegistry {
+
+    private final ThreadLocal<LocalTransaction> current = new ThreadLocal<>();
+
+    @Override
+    public void begin() throws NotSupportedException, SystemException {
+        if (this.current.get() != null) {
+            throw new NotSupportedException();
+        }
+        this.current.set(new LocalTransaction());
+    }
+
+    @Override
+    public void commit() throws RollbackException, HeuristicMixedException, HeuristicRollbackException, SecurityException, IllegalStateException, SystemException {
+        this.required().commit();
+        this.current.remove();
+    }
+
+    @Override
+    public void rollback() throws IllegalStateException, SecurityException, SystemException {
+        this.required().rollback();
+        this.current.remove();
+    }
+
+    @Override
+    public int getStatus() throws SystemException {
+        return this.getTransactionStatus();
+    }
+
+    @Override
+    public Transaction getTransaction() throws SystemException {
+        return this.current.get();
+    }
+
+    @Override
+    public void setTransactionTimeout(int seconds) throws SystemException {
+        // Transactions never time out
+    }
+
+    @Override
+    public Transaction suspend() throws SystemException {
+        LocalTransaction tx = this.current.get();
+        this.current.remove();
+        return tx;
+    }
+
+    @Override
+    public void resume(Transaction tx) throws InvalidTransactionException, IllegalStateException, SystemException {
+        if (!(tx instanceof LocalTransaction)) {
+            throw new InvalidTransactionException();
+        }
+        this.current.set((LocalTransaction) tx);
+    }
+
+    @Override
+    public Object getTransactionKey() {
+        return this.current.get();
+    }
+
+    @Override
+    public void putResource(Object key, Object value) {
+        this.required().resources.put(key, value);
+    }
+
+    @Override
+    public Object getResource(Object key) {
+        return this.required().resources.get(key);
+    }
+
+    @Override
+    public void registerInterposedSynchronization(Synchronization sync) {
+        this.required().synchronizations.add(sync);
+    }
+
+    @Override
+    public int getTransactionStatus() {
+        LocalTransaction tx = this.current.get();
+        return (tx != null) ? tx.status : Status.STATUS_NO_TRANSACTION;
+    }
+
+    @Override
+    public void setRollbackOnly() {
+        this.required().setRollbackOnly();
+    }
+
+    @Override
+    public boolean getRollbackOnly() {
+        return this.required().status == Status.STATUS_MARKED_ROLLBACK;
+    }
+
+    private LocalTransaction required() {
+        LocalTransaction tx = this.current.get();
+        if (tx == null) {
+            throw new IllegalStateException();
+        }
+        return tx;
+    }
+
+    private static class LocalTransaction implements Transaction {
+        final List<Synchronization> synchronizations = new ArrayList<>(2);
+        final Map<Object, Object> resources = new HashMap<>();
+        int status = Status.STATUS_ACTIVE;
+
+        @Override
+        public void commit() throws RollbackException {
+            if (this.status == Status.STATUS_MARKED_ROLLBACK) {
+                this.rollback();
+                throw new RollbackException();
+            }
+            for (Synchronization sync : this.synchronizations) {
+                sync.beforeCompletion();
+            }
+            this.complete(Status.STATUS_COMMITTED);
+        }
+
+        @Override
+        public void rollback() {
+            this.complete(Status.STATUS_ROLLEDBACK);
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            this.status = Status.STATUS_MARKED_ROLLBACK;
+        }
+
+        @Override
+        public int getStatus() {
+            return this.status;
+        }
+
+        @Override
+        public boolean enlistResource(XAResource resource) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean delistResource(XAResource resource, int flag) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void registerSynchronization(Synchronization sync) {
+            this.synchronizations.add(sync);
+        }
+
+        private void complete(int status) {
+            this.status = status;
+            for (Synchronization sync : this.synchronizations) {
+                sync.afterCompletion(status);
+            }
+        }
+    }
+}
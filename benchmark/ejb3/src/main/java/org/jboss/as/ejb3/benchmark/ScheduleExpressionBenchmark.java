@@ -0,0 +1,130 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.ScheduleExpression;
+
+import org.jboss.as.ejb3.timerservice.schedule.CalendarBasedTimeout;
+import org.jboss.as.ejb3.timerservice.schedule.CompiledScheduleExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Computation of the next timeout of a calendar timer.
+ * <p/>
+ * {@code calendar} goes through the {@link java.util.Calendar} based API of {@link CalendarBasedTimeout}, as timer
+ * service callers did before schedule expressions were compiled; run it against the previous release for the
+ * baseline. {@code date} is the path taken by {@link org.jboss.as.ejb3.timerservice.CalendarTimerTask} after every
+ * timeout, and {@code compiled} is the bare {@link CompiledScheduleExpression}. {@code compile} measures the creation of
+ * a timer from an already compiled expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleExpressionBenchmark {
+
+    public enum Expression {
+        EVERY_TEN_SECONDS("*/10", "*", "*", "*", "*", "*"),
+        WEEKDAYS("0", "15", "8", "*", "Mon-Fri", "*"),
+        LAST_FRIDAY("0", "0", "23", "Last Fri", "*", "*"),
+        LEAP_DAY("0", "0", "0", "29", "*", "Feb"),
+        ;
+        final String second;
+        final String minute;
+        final String hour;
+        final String dayOfMonth;
+        final String dayOfWeek;
+        final String month;
+
+        Expression(String second, String minute, String hour, String dayOfMonth, String dayOfWeek, String month) {
+            this.second = second;
+            this.minute = minute;
+            this.hour = hour;
+            this.dayOfMonth = dayOfMonth;
+            this.dayOfWeek = dayOfWeek;
+            this.month = month;
+        }
+
+        ScheduleExpression create(String timezone) {
+            return new ScheduleExpression().second(this.second).minute(this.minute).hour(this.hour)
+                    .dayOfMonth(this.dayOfMonth).dayOfWeek(this.dayOfWeek).month(this.month).timezone(timezone);
+        }
+    }
+
+    @Param
+    Expression expression;
+
+    @Param({ "UTC", "Europe/Berlin" })
+    String timezone;
+
+    private ScheduleExpression schedule;
+    private CalendarBasedTimeout timeout;
+    private CompiledScheduleExpression compiled;
+    private long current;
+
+    @Setup
+    public void setup() {
+        this.schedule = this.expression.create(this.timezone);
+        this.timeout = new CalendarBasedTimeout(this.schedule);
+        this.compiled = CompiledScheduleExpression.compile(this.schedule);
+        this.current = new GregorianCalendar(2017, Calendar.MARCH, 15, 10, 30, 0).getTimeInMillis();
+    }
+
+    @Benchmark
+    public Calendar calendar() {
+        Calendar calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(this.current);
+        return this.timeout.getNextTimeout(calendar);
+    }
+
+    @Benchmark
+    public Date date() {
+        return this.timeout.getNextTimeout(new Date(this.current));
+    }
+
+    @Benchmark
+    public long compiled() {
+        return this.compiled.getNextTimeout(this.current + 1000);
+    }
+
+    @Benchmark
+    public CalendarBasedTimeout compile() {
+        return new CalendarBasedTimeout(this.schedule);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.LockType;
+import javax.ejb.TransactionAttributeType;
+
+import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ejb3.component.BenchmarkComponents;
+import org.jboss.as.ejb3.component.singleton.SingletonComponent;
+import org.jboss.as.ejb3.concurrency.ContainerManagedConcurrencyInterceptor;
+import org.jboss.as.ejb3.tx.CMTTxInterceptor;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.jboss.invocation.Interceptors;
+import org.jboss.invocation.SimpleInterceptorFactoryContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Invocation of a singleton session bean with container managed concurrency: transaction interceptor, concurrency
+ * interceptor ({@link org.jboss.as.ejb3.concurrency.EJBReadWriteLock}), bean.
+ * <p/>
+ * Each benchmark adds one interceptor on top of the previous one, so the cost of an interceptor is the difference
+ * between two consecutive benchmarks. Run with {@code -prof gc} for allocation/op and with {@code -t} to measure the
+ * lock under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingletonInvocationBenchmark {
+
+    @Param({ "REQUIRED", "SUPPORTS" })
+    TransactionAttributeType transactionAttribute;
+
+    @Param({ "READ", "WRITE" })
+    LockType lockType;
+
+    private SingletonComponent component;
+    private ComponentInstance instance;
+    private Interceptor locked;
+    private Interceptor transactional;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalTransactionManager tm = new LocalTransactionManager();
+        this.component = BenchmarkComponents.createSingletonComponent(CounterBean.class, this.transactionAttribute, this.lockType, tm, tm);
+        this.instance = this.component.createInstance();
+        Interceptor concurrency = new ContainerManagedConcurrencyInterceptor(this.component, Collections.emptyMap());
+        this.locked = Interceptors.getChainedInterceptor(Arrays.asList(concurrency, BeanMethodInterceptor.INSTANCE));
+        Interceptor tx = CMTTxInterceptor.FACTORY.create(new SimpleInterceptorFactoryContext());
+        this.transactional = Interceptors.getChainedInterceptor(Arrays.asList(tx, concurrency, BeanMethodInterceptor.INSTANCE));
+    }
+
+    @Benchmark
+    public Object bean() throws Exception {
+        return BeanMethodInterceptor.INSTANCE.processInvocation(this.createContext());
+    }
+
+    @Benchmark
+    public Object concurrency() throws Exception {
+        return this.locked.processInvocation(this.createContext());
+    }
+
+    @Benchmark
+    public Object transaction() throws Exception {
+        return this.transactional.processInvocation(this.createContext());
+    }
+
+    private InterceptorContext createContext() {
+        InterceptorContext context = Invocations.createContext(this.component);
+        // Normally done by the singleton instance association interceptor
+        context.putPrivateData(ComponentInstance.class, this.instance);
+        return context;
+    }
+}
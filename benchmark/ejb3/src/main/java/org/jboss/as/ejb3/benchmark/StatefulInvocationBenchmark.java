@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.TransactionAttributeType;
+
+import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ejb3.component.BenchmarkComponents;
+import org.jboss.as.ejb3.component.stateful.StatefulComponentInstanceInterceptor;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponent;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponentInstance;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionSynchronizationInterceptor;
+import org.jboss.as.ejb3.component.stateful.StatefulTimeoutInfo;
+import org.jboss.as.ejb3.tx.CMTTxInterceptor;
+import org.jboss.ejb.client.SessionID;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.jboss.invocation.Interceptors;
+import org.jboss.invocation.SimpleInterceptorFactoryContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Invocation of a stateful session bean cached by a {@link org.jboss.as.ejb3.cache.simple.SimpleCache}: transaction
+ * interceptor, component instance interceptor (cache lookup), synchronization interceptor (instance lock), bean.
+ * <p/>
+ * Each benchmark adds one interceptor on top of the previous one, so the cost of an interceptor is the difference
+ * between two consecutive benchmarks. Run with {@code -prof gc} for allocation/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatefulInvocationBenchmark {
+
+    @Param({ "REQUIRED", "SUPPORTS" })
+    TransactionAttributeType transactionAttribute;
+
+    /**
+     * The stateful timeout in minutes, a release schedules the expiration of the session unless the timeout is negative.
+     */
+    @Param({ "-1", "5" })
+    long statefulTimeout;
+
+    private ScheduledThreadPoolExecutor executor;
+    private StatefulSessionComponent component;
+    private SessionID sessionId;
+    private StatefulSessionComponentInstance instance;
+    private Interceptor synchronization;
+    private Interceptor cached;
+    private Interceptor transactional;
+
+    @Setup
+    public void setup() throws Exception {
+        this.executor = new ScheduledThreadPoolExecutor(1);
+        this.executor.setRemoveOnCancelPolicy(true);
+        LocalTransactionManager tm = new LocalTransactionManager();
+        this.component = BenchmarkComponents.createStatefulComponent(CounterBean.class, this.transactionAttribute, new StatefulTimeoutInfo(this.statefulTimeout, TimeUnit.MINUTES), this.executor, tm, tm);
+        this.instance = this.component.getCache().create();
+        this.sessionId = this.instance.getId();
+
+        SimpleInterceptorFactoryContext factoryContext = new SimpleInterceptorFactoryContext();
+        Interceptor sync = new StatefulSessionSynchronizationInterceptor(true);
+        this.synchronization = Interceptors.getChainedInterceptor(Arrays.asList(sync, BeanMethodInterceptor.INSTANCE));
+        Interceptor association = StatefulComponentInstanceInterceptor.FACTORY.create(factoryContext);
+        this.cached = Interceptors.getChainedInterceptor(Arrays.asList(association, sync, BeanMethodInterceptor.INSTANCE));
+        Interceptor tx = CMTTxInterceptor.FACTORY.create(factoryContext);
+        this.transactional = Interceptors.getChainedInterceptor(Arrays.asList(tx, association, sync, BeanMethodInterceptor.INSTANCE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.component.getCache().stop();
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    public Object bean() throws Exception {
+        InterceptorContext context = Invocations.createContext(this.component);
+        context.putPrivateData(ComponentInstance.class, this.instance);
+        return BeanMethodInterceptor.INSTANCE.processInvocation(context);
+    }
+
+    @Benchmark
+    public Object synchronization() throws Exception {
+        // The synchronization interceptor releases the instance to the cache, so it needs to be acquired first
+        this.component.getCache().get(this.sessionId);
+        InterceptorContext context = Invocations.createContext(this.component);
+        context.putPrivateData(ComponentInstance.class, this.instance);
+        return this.synchronization.processInvocation(context);
+    }
+
+    @Benchmark
+    public Object componentInstance() throws Exception {
+        InterceptorContext context = Invocations.createContext(this.component);
+        context.putPrivateData(SessionID.class, this.sessionId);
+        return this.cached.processInvocation(context);
+    }
+
+    @Benchmark
+    public Object transaction() throws Exception {
+        InterceptorContext context = Invocations.createContext(this.component);
+        context.putPrivateData(SessionID.class, this.sessionId);
+        return this.transactional.processInvocation(context);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.TransactionAttributeType;
+
+import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ejb3.component.BenchmarkComponents;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
+import org.jboss.as.ejb3.component.pool.PooledInstanceInterceptor;
+import org.jboss.as.ejb3.component.pool.StrictMaxPoolConfig;
+import org.jboss.as.ejb3.component.pool.StripedMaxPoolConfig;
+import org.jboss.as.ejb3.component.stateless.StatelessSessionComponent;
+import org.jboss.as.ejb3.tx.CMTTxInterceptor;
+import org.jboss.invocation.Interceptor;
+import org.jboss.invocation.InterceptorContext;
+import org.jboss.invocation.Interceptors;
+import org.jboss.invocation.SimpleInterceptorFactoryContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Invocation of a stateless session bean: transaction interceptor, pooled instance interceptor, bean.
+ * <p/>
+ * Each benchmark adds one interceptor on top of the previous one, so the cost of an interceptor is the difference
+ * between two consecutive benchmarks. Run with {@code -prof gc} for allocation/op and with {@code -t} to measure the
+ * pool under contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatelessInvocationBenchmark {
+
+    @Param({ "REQUIRED", "SUPPORTS" })
+    TransactionAttributeType transactionAttribute;
+
+    @Param({ "strict-max", "striped-max" })
+    String pool;
+
+    @Param("20")
+    int maxPoolSize;
+
+    private StatelessSessionComponent component;
+    private ComponentInstance instance;
+    private Interceptor pooled;
+    private Interceptor transactional;
+
+    @Setup
+    public void setup() throws Exception {
+        PoolConfig config = this.pool.equals("striped-max") ? new StripedMaxPoolConfig(this.pool, this.maxPoolSize, 5, TimeUnit.MINUTES) : new StrictMaxPoolConfig(this.pool, this.maxPoolSize, 5, TimeUnit.MINUTES);
+        LocalTransactionManager tm = new LocalTransactionManager();
+        this.component = BenchmarkComponents.createStatelessComponent(CounterBean.class, this.transactionAttribute, config, tm, tm);
+        this.instance = this.component.createInstance();
+        this.pooled = Interceptors.getChainedInterceptor(Arrays.asList(PooledInstanceInterceptor.INSTANCE, BeanMethodInterceptor.INSTANCE));
+        Interceptor tx = CMTTxInterceptor.FACTORY.create(new SimpleInterceptorFactoryContext());
+        this.transactional = Interceptors.getChainedInterceptor(Arrays.asList(tx, PooledInstanceInterceptor.INSTANCE, BeanMethodInterceptor.INSTANCE));
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.component.getPool().stop();
+    }
+
+    @Benchmark
+    public Object bean() throws Exception {
+        InterceptorContext context = Invocations.createContext(this.component);
+        context.putPrivateData(ComponentInstance.class, this.instance);
+        return BeanMethodInterceptor.INSTANCE.processInvocation(context);
+    }
+
+    @Benchmark
+    public Object pooledInstance() throws Exception {
+        return this.pooled.processInvocation(Invocations.createContext(this.component));
+    }
+
+    @Benchmark
+    public Object transaction() throws Exception {
+        return this.transactional.processInvocation(Invocations.createContext(this.component));
+    }
+}
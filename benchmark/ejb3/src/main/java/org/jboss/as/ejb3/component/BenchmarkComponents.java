@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.ejb.LockType;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.TransactionManager;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.jboss.as.ee.component.BasicComponentInstance;
+import org.jboss.as.ee.component.ComponentInstance;
+import org.jboss.as.ejb3.cache.Cache;
+import org.jboss.as.ejb3.cache.simple.SimpleCache;
+import org.jboss.as.ejb3.component.pool.PoolConfig;
+import org.jboss.as.ejb3.component.session.SessionBeanComponentCreateService;
+import org.jboss.as.ejb3.component.singleton.SingletonComponent;
+import org.jboss.as.ejb3.component.singleton.SingletonComponentCreateService;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponent;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponentCreateService;
+import org.jboss.as.ejb3.component.stateful.StatefulSessionComponentInstance;
+import org.jboss.as.ejb3.component.stateful.StatefulTimeoutInfo;
+import org.jboss.as.ejb3.component.stateless.StatelessSessionComponent;
+import org.jboss.as.ejb3.component.stateless.StatelessSessionComponentCreateService;
+import org.jboss.as.ejb3.deployment.ApplicationExceptions;
+import org.jboss.as.naming.ImmediateManagedReference;
+import org.jboss.ejb.client.SessionID;
+import org.jboss.invocation.Interceptors;
+import org.jboss.invocation.proxy.MethodIdentifier;
+import org.jboss.msc.value.InjectedValue;
+import org.jboss.msc.value.Values;
+
+/**
+ * Assembles real session bean components outside of a running server.
+ * <p/>
+ * The components are constructed from stubbed create services and are never started, so bean instances are created
+ * without injection or lifecycle callbacks. Everything consulted on the invocation path - transaction attributes, lock
+ * types, access timeouts, the pool and the cache - is the real implementation.
+ * <p/>
+ * This class lives in the component package since some of the create service accessors are package private.
+ */
+public final class BenchmarkComponents {
+
+    private static final long DEFAULT_ACCESS_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private BenchmarkComponents() {
+    }
+
+    /**
+     * Creates a stateless session bean component whose instances are taken from a pool created from the passed config.
+     */
+    public static StatelessSessionComponent createStatelessComponent(Class<?> beanClass, TransactionAttributeType txAttr, PoolConfig poolConfig, TransactionManager tm, TransactionSynchronizationRegistry tsr) {
+        StatelessSessionComponentCreateService service = mock(StatelessSessionComponentCreateService.class);
+        stub(service, beanClass, txAttr, tm, tsr);
+        when(service.getPoolConfig()).thenReturn(poolConfig);
+        return new StatelessSessionComponent(service) {
+            @Override
+            public ComponentInstance createInstance() {
+                return withBean(this.instantiateComponentInstance(Interceptors.getTerminalInterceptor(), Collections.emptyMap(), Collections.emptyMap()));
+            }
+        };
+    }
+
+    /**
+     * Creates a stateful session bean component backed by a {@link SimpleCache}.
+     */
+    public static StatefulSessionComponent createStatefulComponent(Class<?> beanClass, TransactionAttributeType txAttr, StatefulTimeoutInfo timeout, ScheduledExecutorService executor, TransactionManager tm, TransactionSynchronizationRegistry tsr) {
+        StatefulSessionComponentCreateService service = mock(StatefulSessionComponentCreateService.class);
+        stub(service, beanClass, txAttr, tm, tsr);
+        when(service.getDefaultAccessTimeoutService()).thenReturn(new DefaultAccessTimeoutService(DEFAULT_ACCESS_TIMEOUT));
+        return new StatefulSessionComponent(service) {
+            // The server environment is only needed for the strict affinity of new proxies
+            private final Cache<SessionID, StatefulSessionComponentInstance> cache = new SimpleCache<>(this, this, timeout, null, executor);
+
+            @Override
+            public Cache<SessionID, StatefulSessionComponentInstance> getCache() {
+                return this.cache;
+            }
+
+            @Override
+            public StatefulSessionComponentInstance createInstance() {
+                return (StatefulSessionComponentInstance) withBean(this.instantiateComponentInstance(Interceptors.getTerminalInterceptor(), Collections.emptyMap(), Collections.emptyMap()));
+            }
+        };
+    }
+
+    /**
+     * Creates a singleton session bean component with container managed concurrency using the passed bean level lock type.
+     */
+    public static SingletonComponent createSingletonComponent(Class<?> beanClass, TransactionAttributeType txAttr, LockType lockType, TransactionManager tm, TransactionSynchronizationRegistry tsr) {
+        SingletonComponentCreateService service = mock(SingletonComponentCreateService.class);
+        stub(service, beanClass, txAttr, tm, tsr);
+        when(service.getBeanLockType()).thenReturn(Collections.singletonMap(beanClass.getName(), lockType));
+        when(service.getDefaultAccessTimeoutService()).thenReturn(new DefaultAccessTimeoutService(DEFAULT_ACCESS_TIMEOUT));
+        return new SingletonComponent(service, Collections.emptyList()) {
+            @Override
+            public ComponentInstance createInstance() {
+                return withBean(this.instantiateComponentInstance(Interceptors.getTerminalInterceptor(), Collections.emptyMap(), Collections.emptyMap()));
+            }
+        };
+    }
+
+    private static void stub(SessionBeanComponentCreateService service, Class<?> beanClass, TransactionAttributeType txAttr, TransactionManager tm, TransactionSynchronizationRegistry tsr) {
+        when(service.getComponentName()).thenReturn(beanClass.getSimpleName());
+        doReturn(beanClass).when(service).getComponentClass();
+        when(service.getAsyncExecutorService()).thenReturn(new InjectedValue<>());
+        stub((EJBComponentCreateService) service, beanClass, txAttr, tm, tsr);
+    }
+
+    /**
+     * Mockito cannot stub package private methods, so this populates the fields backing them instead.
+     */
+    private static void stub(EJBComponentCreateService service, Class<?> beanClass, TransactionAttributeType txAttr, TransactionManager tm, TransactionSynchronizationRegistry tsr) {
+        List<InjectedValue<?>> injections = new ArrayList<>();
+        try {
+            for (Class<?> targetClass = EJBComponentCreateService.class; targetClass != Object.class; targetClass = targetClass.getSuperclass()) {
+                for (Field field : targetClass.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && field.getType() == InjectedValue.class) {
+                        InjectedValue<?> injection = new InjectedValue<>();
+                        set(service, field, injection);
+                        injections.add(injection);
+                    }
+                }
+            }
+            set(service, EJBComponentCreateService.class.getDeclaredField("applicationExceptions"), new ApplicationExceptions());
+            set(service, EJBComponentCreateService.class.getDeclaredField("txAttrs"), transactionAttributes(beanClass, txAttr));
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        service.getTransactionManagerInjector().inject(tm);
+        service.getTransactionSynchronizationRegistryInjector().inject(tsr);
+        // Anything else that is not injected resolves to null
+        for (InjectedValue<?> injection : injections) {
+            if (injection.getOptionalValue() == null) {
+                injection.setValue(Values.nullValue());
+            }
+        }
+    }
+
+    private static void set(Object target, Field field, Object value) throws IllegalAccessException {
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static Map<MethodTransactionAttributeKey, TransactionAttributeType> transactionAttributes(Class<?> beanClass, TransactionAttributeType txAttr) {
+        Map<MethodTransactionAttributeKey, TransactionAttributeType> txAttrs = new HashMap<>();
+        for (Method method : beanClass.getDeclaredMethods()) {
+            if (Modifier.isPublic(method.getModifiers())) {
+                txAttrs.put(new MethodTransactionAttributeKey(MethodIntf.BEAN, MethodIdentifier.getIdentifierForMethod(method)), txAttr);
+            }
+        }
+        return txAttrs;
+    }
+
+    private static BasicComponentInstance withBean(BasicComponentInstance instance) {
+        try {
+            instance.setInstanceData(BasicComponentInstance.INSTANCE_KEY, new ImmediateManagedReference(instance.getComponent().getComponentClass().newInstance()));
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return instance;
+    }
+}
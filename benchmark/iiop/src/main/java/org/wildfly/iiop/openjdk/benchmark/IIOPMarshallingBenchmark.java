@@ -0,0 +1,180 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.iiop.openjdk.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.omg.CORBA.ORB;
+import org.omg.CORBA_2_3.portable.InputStream;
+import org.omg.CORBA_2_3.portable.OutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.iiop.openjdk.rmi.marshal.CDRStream;
+import org.wildfly.iiop.openjdk.rmi.marshal.strategy.SkeletonStrategy;
+import org.wildfly.iiop.openjdk.rmi.marshal.strategy.StubStrategy;
+
+/**
+ * Marshalling round trip of an IIOP invocation through the CDR streams of a local, in-VM ORB: the stub writes the
+ * parameters, the skeleton reads them and writes the return value, which the stub reads back. No transport is
+ * involved, so the result is the marshalling share of the IIOP round trip latency.
+ * <p/>
+ * {@code plan} uses the marshallers computed once per method by {@link SkeletonStrategy} and {@link StubStrategy}, as
+ * the EJB servant does. {@code strategy} additionally creates the strategies for every invocation, i.e. it includes
+ * the lookup of the marshallers per parameter type. Run with {@code -prof gc} to get the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IIOPMarshallingBenchmark {
+
+    public enum Operation {
+        PING("ping") {
+            @Override
+            Object[] parameters() {
+                return new Object[0];
+            }
+        },
+        ADD("add", int.class, int.class) {
+            @Override
+            Object[] parameters() {
+                return new Object[] { 1, 2 };
+            }
+        },
+        ECHO("echo", String.class) {
+            @Override
+            Object[] parameters() {
+                return new Object[] { UUID.randomUUID().toString() };
+            }
+        },
+        SORT("sort", long[].class) {
+            @Override
+            Object[] parameters() {
+                long[] values = new long[256];
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = values.length - i;
+                }
+                return new Object[] { values };
+            }
+        },
+        COPY("copy", HashMap.class) {
+            @Override
+            Object[] parameters() {
+                HashMap<String, String> values = new HashMap<>();
+                for (int i = 0; i < 16; ++i) {
+                    values.put(Integer.toString(i), UUID.randomUUID().toString());
+                }
+                return new Object[] { values };
+            }
+        },
+        ;
+        private final String name;
+        private final Class<?>[] types;
+
+        Operation(String name, Class<?>... types) {
+            this.name = name;
+            this.types = types;
+        }
+
+        Method method() throws NoSuchMethodException {
+            return Calculator.class.getMethod(this.name, this.types);
+        }
+
+        abstract Object[] parameters();
+    }
+
+    @Param
+    private Operation operation;
+
+    private ORB orb;
+    private Method method;
+    private Object[] parameters;
+    private Object result;
+    private SkeletonStrategy skeleton;
+    private StubStrategy stub;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        Properties properties = new Properties();
+        properties.setProperty("org.omg.CORBA.ORBClass", "com.sun.corba.se.impl.orb.ORBImpl");
+        properties.setProperty("org.omg.CORBA.ORBSingletonClass", "com.sun.corba.se.impl.orb.ORBSingleton");
+        this.orb = ORB.init(new String[0], properties);
+        this.method = this.operation.method();
+        this.parameters = this.operation.parameters();
+        // Operations simply return their first parameter
+        this.result = (this.parameters.length > 0) ? this.parameters[0] : null;
+        this.skeleton = new SkeletonStrategy(this.method);
+        this.stub = createStub(this.method);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.orb.destroy();
+    }
+
+    @Benchmark
+    public Object plan() {
+        return this.roundTrip(this.stub, this.skeleton);
+    }
+
+    @Benchmark
+    public Object strategy() {
+        return this.roundTrip(createStub(this.method), new SkeletonStrategy(this.method));
+    }
+
+    private Object roundTrip(StubStrategy stub, SkeletonStrategy skeleton) {
+        OutputStream request = (OutputStream) this.orb.create_output_stream();
+        stub.writeParams(request, this.parameters);
+        Object[] parameters = skeleton.readParams((InputStream) request.create_input_stream());
+
+        OutputStream reply = (OutputStream) this.orb.create_output_stream();
+        if (skeleton.isNonVoid()) {
+            skeleton.writeRetval(reply, (parameters.length > 0) ? parameters[0] : this.result);
+        }
+        return stub.isNonVoid() ? stub.readRetval((InputStream) reply.create_input_stream()) : parameters;
+    }
+
+    private static StubStrategy createStub(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        String[] parameterTypes = new String[types.length];
+        for (int i = 0; i < types.length; ++i) {
+            parameterTypes[i] = CDRStream.abbrevFor(types[i]);
+        }
+        return StubStrategy.forMethod(parameterTypes, new String[0], new String[0], CDRStream.abbrevFor(method.getReturnType()), IIOPMarshallingBenchmark.class.getClassLoader());
+    }
+}
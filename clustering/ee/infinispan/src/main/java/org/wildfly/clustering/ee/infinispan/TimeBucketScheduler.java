@@ -0,0 +1,252 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.ee.infinispan;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.wildfly.clustering.ee.Batch;
+import org.wildfly.clustering.ee.Batcher;
+
+/**
+ * Expiration engine that groups scheduled items into time buckets, instead of scheduling a task per item.
+ * A single task, armed for the earliest non-empty bucket, expires all items of every due bucket.
+ * Each item expires within its own {@link TransactionBatch}, so that a failing item neither rolls back, nor repeats, the expiration of the others.
+ * Items expire at most one resolution after their scheduled time.
+ * @param <K> the item identifier type
+ */
+public class TimeBucketScheduler<K> implements AutoCloseable {
+
+    public static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(100);
+
+    private final Batcher<TransactionBatch> batcher;
+    private final Consumer<K> expirer;
+    private final BiConsumer<K, Throwable> failureHandler;
+    private final ScheduledExecutorService executor;
+    private final long resolution;
+
+    private final ConcurrentNavigableMap<Long, Bucket<K>> buckets = new ConcurrentSkipListMap<>();
+    // The bucket of each scheduled item, used to recognize stale entries of cancelled or rescheduled items
+    private final ConcurrentMap<K, Long> ticks = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private Future<?> future;
+    private long armedTick = Long.MAX_VALUE;
+    private boolean closed = false;
+
+    /**
+     * Creates a new scheduler.
+     * @param batcher creates the batch within which items expire
+     * @param expirer expires a given item
+     * @param failureHandler reports the failure to expire a given item
+     * @param executor executes the expiration task
+     */
+    public TimeBucketScheduler(Batcher<TransactionBatch> batcher, Consumer<K> expirer, BiConsumer<K, Throwable> failureHandler, ScheduledExecutorService executor) {
+        this(batcher, expirer, failureHandler, executor, DEFAULT_RESOLUTION);
+    }
+
+    public TimeBucketScheduler(Batcher<TransactionBatch> batcher, Consumer<K> expirer, BiConsumer<K, Throwable> failureHandler, ScheduledExecutorService executor, Duration resolution) {
+        this.batcher = batcher;
+        this.expirer = expirer;
+        this.failureHandler = failureHandler;
+        this.executor = executor;
+        this.resolution = Math.max(resolution.toMillis(), 1L);
+    }
+
+    /**
+     * Schedules the specified item to expire at the specified time, replacing any previous schedule of the same item.
+     * @param id an item identifier
+     * @param expiration the time at which the item expires
+     */
+    public void schedule(K id, Instant expiration) {
+        long millis = expiration.toEpochMilli();
+        // Round up, so that an item never expires early
+        long tick = (millis / this.resolution) + (((millis % this.resolution) > 0) ? 1 : 0);
+        Long previous = this.ticks.put(id, tick);
+        if ((previous != null) && (previous != tick)) {
+            Bucket<K> bucket = this.buckets.get(previous);
+            if (bucket != null) {
+                bucket.remove(id);
+            }
+        }
+        while (!this.buckets.computeIfAbsent(tick, key -> new Bucket<>()).add(id)) {
+            // The bucket was just closed, and removed, by the expiration task, so retry with a new bucket
+        }
+        this.arm(tick);
+    }
+
+    /**
+     * Cancels the expiration of the specified item.
+     * @param id an item identifier
+     */
+    public void cancel(K id) {
+        Long tick = this.ticks.remove(id);
+        if (tick != null) {
+            Bucket<K> bucket = this.buckets.get(tick);
+            if (bucket != null) {
+                bucket.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Cancels the expiration of all items matching the specified filter.
+     * @param filter an item filter
+     */
+    public void cancel(Predicate<K> filter) {
+        for (K id : this.ticks.keySet()) {
+            if (Thread.currentThread().isInterrupted()) break;
+            if (filter.test(id)) {
+                this.cancel(id);
+            }
+        }
+    }
+
+    /**
+     * @return the number of items currently scheduled to expire
+     */
+    public int getScheduledCount() {
+        return this.ticks.size();
+    }
+
+    @Override
+    public void close() {
+        Future<?> future = null;
+        synchronized (this) {
+            this.closed = true;
+            future = this.future;
+            this.future = null;
+        }
+        if (future != null) {
+            future.cancel(false);
+            if (!future.isDone()) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // Ignore
+                }
+            }
+        }
+        this.buckets.clear();
+        this.ticks.clear();
+    }
+
+    private synchronized void arm(long tick) {
+        if (this.closed || (tick >= this.armedTick)) {
+            return;
+        }
+        if (this.future != null) {
+            this.future.cancel(false);
+        }
+        long delay = Math.max(tick * this.resolution - System.currentTimeMillis(), 0L);
+        try {
+            Runnable task = this::expire;
+            this.future = this.executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+            this.armedTick = tick;
+        } catch (RejectedExecutionException e) {
+            // Executor was shutdown
+        }
+    }
+
+    private void expire() {
+        synchronized (this) {
+            this.armedTick = Long.MAX_VALUE;
+            this.future = null;
+        }
+        long now = System.currentTimeMillis() / this.resolution;
+        List<K> expired = new ArrayList<>();
+        for (Map.Entry<Long, Bucket<K>> entry = this.buckets.firstEntry(); (entry != null) && (entry.getKey() <= now); entry = this.buckets.firstEntry()) {
+            Long tick = entry.getKey();
+            if (this.buckets.remove(tick, entry.getValue())) {
+                for (K id : entry.getValue().close()) {
+                    // Skip items that were cancelled or rescheduled since
+                    if (this.ticks.remove(id, tick)) {
+                        expired.add(id);
+                    }
+                }
+            }
+        }
+        for (K id : expired) {
+            synchronized (this) {
+                if (this.closed) return;
+            }
+            this.expire(id);
+        }
+        Map.Entry<Long, Bucket<K>> next = this.buckets.firstEntry();
+        if (next != null) {
+            this.arm(next.getKey());
+        }
+    }
+
+    private void expire(K id) {
+        try (Batch batch = this.batcher.createBatch()) {
+            try {
+                this.expirer.accept(id);
+            } catch (Throwable e) {
+                batch.discard();
+                throw e;
+            }
+        } catch (Throwable e) {
+            this.failureHandler.accept(id, e);
+        }
+    }
+
+    private static class Bucket<K> {
+        private final Set<K> ids = new HashSet<>();
+        private boolean closed = false;
+
+        synchronized boolean add(K id) {
+            if (this.closed) return false;
+            this.ids.add(id);
+            return true;
+        }
+
+        synchronized void remove(K id) {
+            this.ids.remove(id);
+        }
+
+        synchronized Collection<K> close() {
+            this.closed = true;
+            return this.ids;
+        }
+    }
+}
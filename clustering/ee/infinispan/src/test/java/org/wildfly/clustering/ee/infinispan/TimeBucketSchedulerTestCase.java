@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.ee.infinispan;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.wildfly.clustering.ee.Batcher;
+
+/**
+ * Unit test for {@link TimeBucketScheduler}.
+ */
+public class TimeBucketSchedulerTestCase {
+    private final Batcher<TransactionBatch> batcher = mock(Batcher.class);
+    private final TransactionBatch batch = mock(TransactionBatch.class);
+    private final BiConsumer<String, Throwable> failureHandler = mock(BiConsumer.class);
+    private final List<String> expired = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void destroy() {
+        this.executor.shutdownNow();
+    }
+
+    private TimeBucketScheduler<String> createScheduler() {
+        when(this.batcher.createBatch()).thenReturn(this.batch);
+        return new TimeBucketScheduler<>(this.batcher, id -> {
+            if (id.startsWith("bad")) {
+                throw new IllegalStateException(id);
+            }
+            this.expired.add(id);
+        }, this.failureHandler, this.executor, Duration.ofMillis(50));
+    }
+
+    @Test
+    public void bucket() throws InterruptedException {
+        Instant expiration = Instant.now().plusMillis(100);
+        try (TimeBucketScheduler<String> scheduler = this.createScheduler()) {
+            scheduler.schedule("a", expiration);
+            scheduler.schedule("b", expiration);
+            scheduler.schedule("c", expiration.plusMillis(1));
+            assertEquals(3, scheduler.getScheduledCount());
+
+            TimeUnit.MILLISECONDS.sleep(500);
+
+            assertEquals(0, scheduler.getScheduledCount());
+        }
+        assertEquals(3, this.expired.size());
+        assertTrue(this.expired.containsAll(Arrays.asList("a", "b", "c")));
+        // Each item expires within its own batch
+        verify(this.batcher, times(3)).createBatch();
+        verify(this.batch, times(3)).close();
+    }
+
+    @Test
+    public void cancel() throws InterruptedException {
+        try (TimeBucketScheduler<String> scheduler = this.createScheduler()) {
+            scheduler.schedule("cancelled", Instant.now().plusMillis(100));
+            scheduler.schedule("filtered", Instant.now().plusMillis(100));
+            scheduler.schedule("rescheduled", Instant.now().plusMillis(100));
+            scheduler.schedule("rescheduled", Instant.now().plusSeconds(60));
+            scheduler.cancel("cancelled");
+            scheduler.cancel(id -> id.equals("filtered"));
+
+            TimeUnit.MILLISECONDS.sleep(500);
+
+            assertEquals(1, scheduler.getScheduledCount());
+        }
+        assertTrue(this.expired.isEmpty());
+        verify(this.batcher, never()).createBatch();
+    }
+
+    @Test
+    public void failure() throws InterruptedException {
+        Instant expiration = Instant.now().plusMillis(100);
+        try (TimeBucketScheduler<String> scheduler = this.createScheduler()) {
+            scheduler.schedule("good", expiration);
+            scheduler.schedule("bad", expiration);
+            scheduler.schedule("better", expiration);
+
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        // The failing item neither prevents, nor repeats, the expiration of the others
+        assertEquals(2, this.expired.size());
+        assertTrue(this.expired.containsAll(Arrays.asList("good", "better")));
+        verify(this.failureHandler).accept(eq("bad"), any(IllegalStateException.class));
+        verify(this.batch, times(1)).discard();
+    }
+
+    @Test
+    public void past() throws InterruptedException {
+        try (TimeBucketScheduler<String> scheduler = this.createScheduler()) {
+            scheduler.schedule("past", Instant.now().minusSeconds(1));
+
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        assertEquals(Collections.singletonList("past"), this.expired);
+    }
+}
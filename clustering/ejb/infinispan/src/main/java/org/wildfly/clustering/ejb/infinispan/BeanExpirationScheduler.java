@@ -21,14 +21,11 @@
  */
 package org.wildfly.clustering.ejb.infinispan;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 
-import org.wildfly.clustering.ee.Batch;
 import org.wildfly.clustering.ee.Batcher;
+import org.wildfly.clustering.ee.infinispan.TimeBucketScheduler;
 import org.wildfly.clustering.ee.infinispan.TransactionBatch;
 import org.wildfly.clustering.ejb.Time;
 import org.wildfly.clustering.ejb.infinispan.logging.InfinispanEjbLogger;
@@ -36,6 +33,7 @@ import org.wildfly.clustering.infinispan.spi.distribution.Locality;
 
 /**
  * Schedules a bean for expiration.
+ * Beans are grouped into time buckets, such that beans expiring at about the same time are removed by the same task.
  *
  * @author Paul Ferraro
  *
@@ -44,15 +42,15 @@ import org.wildfly.clustering.infinispan.spi.distribution.Locality;
  * @param <T> the bean type
  */
 public class BeanExpirationScheduler<G, I, T> implements Scheduler<I> {
-    final Map<I, Future<?>> expirationFutures = new ConcurrentHashMap<>();
-    final Batcher<TransactionBatch> batcher;
-    final BeanRemover<I, T> remover;
-    final ExpirationConfiguration<T> expiration;
+    private final TimeBucketScheduler<I> scheduler;
+    private final ExpirationConfiguration<T> expiration;
 
     public BeanExpirationScheduler(Batcher<TransactionBatch> batcher, BeanRemover<I, T> remover, ExpirationConfiguration<T> expiration) {
-        this.batcher = batcher;
-        this.remover = remover;
         this.expiration = expiration;
+        this.scheduler = new TimeBucketScheduler<>(batcher, id -> {
+            InfinispanEjbLogger.ROOT_LOGGER.tracef("Expiring stateful session bean %s", id);
+            remover.remove(id, expiration.getRemoveListener());
+        }, (id, e) -> InfinispanEjbLogger.ROOT_LOGGER.failedToExpireBean(e, id), expiration.getExecutor());
     }
 
     @Override
@@ -62,73 +60,22 @@ public class BeanExpirationScheduler<G, I, T> implements Scheduler<I> {
         if (value >= 0) {
             TimeUnit unit = timeout.getUnit();
             InfinispanEjbLogger.ROOT_LOGGER.tracef("Scheduling stateful session bean %s to expire in %d %s", id, value, unit);
-            Runnable task = new ExpirationTask(id);
-            // Make sure the expiration future map insertion happens before map removal (during task execution).
-            synchronized (task) {
-                this.expirationFutures.put(id, this.expiration.getExecutor().schedule(task, value, unit));
-            }
+            this.scheduler.schedule(id, Instant.now().plusMillis(unit.toMillis(value)));
         }
     }
 
     @Override
     public void cancel(I id) {
-        Future<?> future = this.expirationFutures.remove(id);
-        if (future != null) {
-            future.cancel(false);
-        }
+        this.scheduler.cancel(id);
     }
 
     @Override
     public void cancel(Locality locality) {
-        for (I id: this.expirationFutures.keySet()) {
-            if (Thread.currentThread().isInterrupted()) break;
-            if (!locality.isLocal(id)) {
-                this.cancel(id);
-            }
-        }
+        this.scheduler.cancel(id -> !locality.isLocal(id));
     }
 
     @Override
     public void close() {
-        for (Future<?> future: this.expirationFutures.values()) {
-            future.cancel(false);
-        }
-        for (Future<?> future: this.expirationFutures.values()) {
-            if (!future.isDone()) {
-                try {
-                    future.get();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } catch (ExecutionException e) {
-                    // Ignore
-                }
-            }
-        }
-        this.expirationFutures.clear();
-    }
-
-    private class ExpirationTask implements Runnable {
-        private final I id;
-
-        ExpirationTask(I id) {
-            this.id = id;
-        }
-
-        @Override
-        public void run() {
-            InfinispanEjbLogger.ROOT_LOGGER.tracef("Expiring stateful session bean %s", this.id);
-            try (Batch batch = BeanExpirationScheduler.this.batcher.createBatch()) {
-                try {
-                    BeanExpirationScheduler.this.remover.remove(this.id, BeanExpirationScheduler.this.expiration.getRemoveListener());
-                } catch (Throwable e) {
-                    InfinispanEjbLogger.ROOT_LOGGER.failedToExpireBean(e, this.id);
-                    batch.discard();
-                }
-            } finally {
-                synchronized (this) {
-                    BeanExpirationScheduler.this.expirationFutures.remove(this.id);
-                }
-            }
-        }
+        this.scheduler.close();
     }
 }
@@ -25,6 +25,7 @@ import java.security.PrivilegedAction;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -36,6 +37,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import org.infinispan.Cache;
+import org.infinispan.CacheStream;
 import org.infinispan.affinity.KeyAffinityService;
 import org.infinispan.affinity.KeyGenerator;
 import org.infinispan.commons.CacheException;
@@ -74,7 +76,7 @@ import org.wildfly.clustering.group.NodeFactory;
 import org.wildfly.clustering.infinispan.spi.affinity.KeyAffinityServiceFactory;
 import org.wildfly.clustering.infinispan.spi.distribution.ConsistentHashLocality;
 import org.wildfly.clustering.infinispan.spi.distribution.Locality;
-import org.wildfly.clustering.infinispan.spi.distribution.SimpleLocality;
+import org.wildfly.clustering.infinispan.spi.distribution.SegmentOwnership;
 import org.wildfly.clustering.registry.Registry;
 import org.wildfly.security.manager.WildFlySecurityManager;
 
@@ -180,7 +182,8 @@ public class InfinispanBeanManager<I, T> implements BeanManager<I, T, Transactio
         };
         this.dispatcher = this.dispatcherFactory.createCommandDispatcher(this.beanName + ".schedulers", this.schedulerContext);
         this.cache.addListener(this, this.filter, null);
-        this.schedule(new SimpleLocality(false), new ConsistentHashLocality(this.cache));
+        // Schedule all beans for which we are the primary owner
+        this.schedule(null, new ConsistentHashLocality(this.cache));
     }
 
     @Override
@@ -347,25 +350,37 @@ public class InfinispanBeanManager<I, T> implements BeanManager<I, T, Transactio
                 // Executor was shutdown
             }
         } else {
-            Locality oldLocality = new ConsistentHashLocality(localAddress, event.getConsistentHashAtStart());
-            try {
-                this.rehashFuture.set(this.executor.submit(() -> this.schedule(oldLocality, newLocality)));
-            } catch (RejectedExecutionException e) {
-                // Executor was shutdown
+            // Only beans of those segments for which we became the primary owner need to be scheduled
+            Set<Integer> segments = SegmentOwnership.getGainedPrimarySegments(localAddress, event.getConsistentHashAtStart(), event.getConsistentHashAtEnd());
+            if (!segments.isEmpty()) {
+                try {
+                    this.rehashFuture.set(this.executor.submit(() -> this.schedule(segments, newLocality)));
+                } catch (RejectedExecutionException e) {
+                    // Executor was shutdown
+                }
             }
         }
     }
 
-    private void schedule(Locality oldLocality, Locality newLocality) {
+    /**
+     * Schedules the beans in memory for which we are the primary owner.
+     * @param segments the segments whose beans should be scheduled, or null, to schedule beans of all segments
+     * @param locality the current locality
+     */
+    private void schedule(Set<Integer> segments, Locality locality) {
+        CacheStream<Map.Entry<BeanKey<I>, BeanEntry<I>>> entryStream = this.cache.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD).entrySet().stream();
+        if (segments != null) {
+            entryStream = entryStream.filterKeySegments(segments);
+        }
         // Iterate over beans in memory
-        try (Stream<Map.Entry<BeanKey<I>, BeanEntry<I>>> stream = this.cache.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD).entrySet().stream().filter(this.filter)) {
+        try (Stream<Map.Entry<BeanKey<I>, BeanEntry<I>>> stream = entryStream.filter(this.filter)) {
             Iterator<Map.Entry<BeanKey<I>, BeanEntry<I>>> entries = stream.iterator();
             while (entries.hasNext()) {
                 if (Thread.currentThread().isInterrupted()) break;
                 Map.Entry<BeanKey<I>, BeanEntry<I>> entry = entries.next();
                 BeanKey<I> key = entry.getKey();
-                // If we are the new primary owner of this bean then schedule expiration of this bean locally
-                if (this.filter.test(this.filter) && !oldLocality.isLocal(key) && newLocality.isLocal(key)) {
+                // If we are the primary owner of this bean then schedule expiration of this bean locally
+                if (locality.isLocal(key)) {
                     this.schedulerContext.getBeanScheduler().schedule(key.getId());
                     this.schedulerContext.getBeanGroupScheduler().schedule(entry.getValue().getGroupId());
                 }
@@ -0,0 +1,55 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.infinispan.spi.distribution;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.remoting.transport.Address;
+
+/**
+ * Compares the segment ownership of consistent hashes, e.g. before and after a rehash.
+ */
+public class SegmentOwnership {
+
+    private SegmentOwnership() {
+        // Hide
+    }
+
+    /**
+     * Returns the segments for which the specified member became the primary owner.
+     * @param address a cluster member
+     * @param start the consistent hash before the topology change, or null, if there was none
+     * @param end the consistent hash after the topology change
+     * @return a set of segments, empty if the specified member gained no primary ownership
+     */
+    public static Set<Integer> getGainedPrimarySegments(Address address, ConsistentHash start, ConsistentHash end) {
+        if ((address == null) || (end == null) || !end.getMembers().contains(address)) return Collections.emptySet();
+        Set<Integer> segments = new HashSet<>(end.getPrimarySegmentsForOwner(address));
+        if ((start != null) && (start.getNumSegments() == end.getNumSegments()) && start.getMembers().contains(address)) {
+            segments.removeAll(start.getPrimarySegmentsForOwner(address));
+        }
+        return segments;
+    }
+}
@@ -19,22 +19,60 @@
  * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
  * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
  */
-
 package org.jboss.as.clustering.jgroups.protocol;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
 import javax.sql.DataSource;
 
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.PhysicalAddress;
+import org.jgroups.View;
+import org.jgroups.annotations.ManagedAttribute;
+import org.jgroups.annotations.Property;
+import org.jgroups.protocols.PingData;
+import org.jgroups.util.Responses;
+import org.jgroups.util.UUID;
 import org.kohsuke.MetaInfServices;
 
 /**
  * Workaround for JGRP-2063.
+ * <p/>
+ * Optionally caches the contents of the discovery table, so that repeated discovery requests (e.g. during a cluster wide restart)
+ * do not each result in a query against the datasource. While caching is enabled, all rows written on a view change
+ * are written using a single batch within a single transaction.
  * @author Paul Ferraro
  */
 @MetaInfServices(CustomProtocol.class)
 public class JDBC_PING extends org.jgroups.protocols.JDBC_PING implements JDBCProtocol {
 
+    @Property(description = "Maximum time, in milliseconds, that the cached contents of the discovery table may be used to answer discovery requests. A value of 0 disables caching.")
+    protected long cache_staleness = 0;
+
+    @Property(description = "Maximum time, in milliseconds, subtracted at random from the cache staleness on each refresh, so that the members of a cluster do not query the datasource in lock step.")
+    protected long cache_jitter = 0;
+
     private volatile DataSource dataSource;
 
+    private volatile List<PingData> cache = null;
+    private volatile long cacheExpiration = 0;
+    // Indicates whether our own row is known to exist in the discovery table
+    private volatile boolean registered = false;
+
+    private final LongAdder discoveryQueries = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder viewUpdates = new LongAdder();
+
     public JDBC_PING() {
         // We need to set this to something arbitrary to trigger calling getDataSourceFromJNDI(...)
         this.datasource_jndi_name = this.getClass().getName();
@@ -49,4 +87,209 @@ public class JDBC_PING extends org.jgroups.protocols.JDBC_PING implements JDBCPr
     protected DataSource getDataSourceFromJNDI(String name) {
         return this.dataSource;
     }
+
+    @ManagedAttribute(name = "discovery_queries", description = "Number of queries of the discovery table")
+    public long getDiscoveryQueries() {
+        return this.discoveryQueries.sum();
+    }
+
+    @ManagedAttribute(name = "cache_hits", description = "Number of discovery requests answered from the cached contents of the discovery table")
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    @ManagedAttribute(name = "view_updates", description = "Number of batched updates of the discovery table following a view change")
+    public long getViewUpdates() {
+        return this.viewUpdates.sum();
+    }
+
+    @Override
+    public void stop() {
+        this.invalidate();
+        this.registered = false;
+        super.stop();
+    }
+
+    @Override
+    public void findMembers(List<Address> members, boolean initialDiscovery, Responses responses) {
+        if (this.cache_staleness <= 0) {
+            super.findMembers(members, initialDiscovery, responses);
+            return;
+        }
+        this.readAll(members, this.cluster_name, responses);
+        // Only (re)write our own row if it was missing from the table when last queried
+        if (!this.registered) {
+            this.writeOwnInformation(true);
+        }
+    }
+
+    @Override
+    protected void readAll(List<Address> members, String clustername, Responses responses) {
+        if (this.cache_staleness <= 0) {
+            this.discoveryQueries.increment();
+            super.readAll(members, clustername, responses);
+            return;
+        }
+        List<PingData> cache = this.getCache(clustername);
+        for (PingData data : cache) {
+            if ((members == null) || members.contains(data.getAddress())) {
+                responses.addResponse(data, false);
+                if ((this.local_addr != null) && !this.local_addr.equals(data.getAddress())) {
+                    this.addDiscoveryResponseToCaches(data.getAddress(), data.getLogicalName(), data.getPhysicalAddr());
+                }
+            }
+        }
+    }
+
+
+    @Override
+    protected synchronized void writeToDB(PingData data, String clustername, boolean overwrite) {
+        super.writeToDB(data, clustername, overwrite);
+        if (this.cache_staleness > 0) {
+            this.invalidate();
+        }
+    }
+
+    @Override
+    protected void handleView(View newView, View oldView, boolean coordChanged) {
+        if (this.cache_staleness <= 0) {
+            super.handleView(newView, oldView, coordChanged);
+            return;
+        }
+        List<Address> leftMembers = ((oldView != null) && (newView != null)) ? View.leftMembers(oldView, newView) : Collections.<Address>emptyList();
+        boolean clear = this.is_coord && this.clear_table_on_view_change;
+        boolean removeLeftMembers = this.is_coord && !this.clear_table_on_view_change && !leftMembers.isEmpty();
+        boolean write = coordChanged || this.clear_table_on_view_change;
+        if (clear || removeLeftMembers || write) {
+            this.updateView(clear, removeLeftMembers ? leftMembers : Collections.<Address>emptyList(), write ? this.createOwnPingData() : null);
+        }
+        if (this.info_writer_max_writes_after_view > 0) {
+            this.startInfoWriter();
+        }
+    }
+
+    /**
+     * Applies all changes to the discovery table resulting from a view change using a single batch, within a single transaction.
+     */
+    private synchronized void updateView(boolean clear, List<Address> leftMembers, PingData data) {
+        Connection connection = this.getConnection();
+        if (connection == null) return;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                if (clear) {
+                    try (PreparedStatement statement = connection.prepareStatement(this.clear_sql)) {
+                        statement.execute();
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(this.delete_single_sql)) {
+                    for (Address member : leftMembers) {
+                        statement.setString(1, addressAsString(member));
+                        statement.setString(2, this.cluster_name);
+                        statement.addBatch();
+                    }
+                    if (data != null) {
+                        // Upsert our own row, unless the table was just cleared
+                        if (!clear) {
+                            statement.setString(1, addressAsString(data.getAddress()));
+                            statement.setString(2, this.cluster_name);
+                            statement.addBatch();
+                        }
+                    }
+                    statement.executeBatch();
+                }
+                if (data != null) {
+                    try (PreparedStatement statement = connection.prepareStatement(this.insert_single_sql)) {
+                        statement.setString(1, addressAsString(data.getAddress()));
+                        statement.setString(2, this.cluster_name);
+                        statement.setBytes(3, this.serializeWithoutView(data));
+                        statement.executeUpdate();
+                    }
+                }
+                connection.commit();
+                this.registered = (data != null) || (!clear && this.registered);
+                this.viewUpdates.increment();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            this.log.error(String.format("Failed to update discovery table for view of %s", this.cluster_name), e);
+        } finally {
+            this.invalidate();
+            this.closeConnection(connection);
+        }
+    }
+
+    private PingData createOwnPingData() {
+        PhysicalAddress physicalAddress = (PhysicalAddress) this.down(new Event(Event.GET_PHYSICAL_ADDRESS, this.local_addr));
+        return new PingData(this.local_addr, this.is_server, UUID.get(this.local_addr), physicalAddress).coord(this.is_coord);
+    }
+
+    private List<PingData> getCache(String clustername) {
+        List<PingData> cache = this.cache;
+        if ((cache != null) && (System.nanoTime() - this.cacheExpiration < 0)) {
+            this.cacheHits.increment();
+            return cache;
+        }
+        synchronized (this) {
+            // Another thread may have refreshed the cache while we were waiting
+            cache = this.cache;
+            if ((cache != null) && (System.nanoTime() - this.cacheExpiration < 0)) {
+                this.cacheHits.increment();
+                return cache;
+            }
+            cache = this.query(clustername);
+            if (cache != null) {
+                long staleness = TimeUnit.MILLISECONDS.toNanos(this.cache_staleness);
+                long jitter = TimeUnit.MILLISECONDS.toNanos(Math.min(this.cache_jitter, this.cache_staleness));
+                this.cacheExpiration = System.nanoTime() + staleness - ((jitter > 0) ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+                this.cache = cache;
+                return cache;
+            }
+            return Collections.emptyList();
+        }
+    }
+
+    private void invalidate() {
+        this.cache = null;
+    }
+
+    /**
+     * Reads the contents of the discovery table for the specified cluster.
+     * @return a list of ping data, or null if the datasource could not be queried.
+     */
+    private List<PingData> query(String clustername) {
+        Connection connection = this.getConnection();
+        if (connection == null) return null;
+        this.discoveryQueries.increment();
+        try (PreparedStatement statement = connection.prepareStatement(this.select_all_pingdata_sql)) {
+            statement.setString(1, clustername);
+            List<PingData> result = new ArrayList<>();
+            boolean registered = false;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    try {
+                        PingData data = deserialize(resultSet.getBytes(1));
+                        if (data != null) {
+                            result.add(data);
+                            registered |= data.getAddress().equals(this.local_addr);
+                        }
+                    } catch (Exception e) {
+                        this.log.error(String.format("%s: failed deserializing row %d", this.local_addr, resultSet.getRow()), e);
+                    }
+                }
+            }
+            this.registered = registered;
+            return Collections.unmodifiableList(result);
+        } catch (SQLException e) {
+            this.log.error(String.format("Failed to read discovery table for %s", clustername), e);
+            return null;
+        } finally {
+            this.closeConnection(connection);
+        }
+    }
 }
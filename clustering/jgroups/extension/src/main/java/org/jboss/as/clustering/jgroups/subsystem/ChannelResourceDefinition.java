@@ -265,6 +265,7 @@ public class ChannelResourceDefinition extends ChildResourceDefinition {
 
         if (this.allowRuntimeOnlyRegistration) {
             new MetricHandler<>(new ChannelMetricExecutor(), ChannelMetric.class).register(registration);
+            new MetricHandler<>(new CommandDispatcherMetricExecutor(), CommandDispatcherMetric.class).register(registration);
         }
 
         new ForkResourceDefinition().register(registration);
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.clustering.jgroups.subsystem;
+
+import org.jboss.as.clustering.controller.Metric;
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+import org.wildfly.clustering.spi.CommandBatchMetrics;
+
+/**
+ * Enumerates management metrics for the commands batched by the command dispatcher factory of a channel.
+ */
+public enum CommandDispatcherMetric implements Metric<CommandBatchMetrics> {
+
+    BATCH_COUNT("dispatcher-batches", ModelType.LONG) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getBatchCount());
+        }
+    },
+    COMMAND_COUNT("dispatcher-batched-commands", ModelType.LONG) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getCommandCount());
+        }
+    },
+    MEAN_BATCH_SIZE("dispatcher-mean-batch-size", ModelType.DOUBLE) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getMeanBatchSize());
+        }
+    },
+    MAX_BATCH_SIZE("dispatcher-max-batch-size", ModelType.INT) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getMaxBatchSize());
+        }
+    },
+    MEAN_LATENCY("dispatcher-mean-batch-latency", ModelType.DOUBLE, MeasurementUnit.MILLISECONDS) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getMeanLatency());
+        }
+    },
+    MAX_LATENCY("dispatcher-max-batch-latency", ModelType.DOUBLE, MeasurementUnit.MILLISECONDS) {
+        @Override
+        public ModelNode execute(CommandBatchMetrics metrics) {
+            return new ModelNode(metrics.getMaxLatency());
+        }
+    },
+    ;
+    private final AttributeDefinition definition;
+
+    CommandDispatcherMetric(String name, ModelType type) {
+        this(name, type, null);
+    }
+
+    CommandDispatcherMetric(String name, ModelType type, MeasurementUnit unit) {
+        this.definition = new SimpleAttributeDefinitionBuilder(name, type, true).setMeasurementUnit(unit).setStorageRuntime().build();
+    }
+
+    @Override
+    public AttributeDefinition getDefinition() {
+        return this.definition;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.clustering.jgroups.protocol;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jgroups.Address;
+import org.jgroups.Event;
+import org.jgroups.View;
+import org.jgroups.stack.IpAddress;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.Responses;
+import org.jgroups.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link JDBC_PING}.
+ */
+public class JDBC_PINGTestCase {
+
+    private static final String CLUSTER = "cluster";
+
+    private final JdbcDataSource dataSource = new JdbcDataSource();
+    private Connection connection;
+
+    @Before
+    public void init() throws SQLException {
+        this.dataSource.setURL("jdbc:h2:mem:" + JDBC_PINGTestCase.class.getSimpleName());
+        // Keeps the in-memory database alive for the duration of the test
+        this.connection = this.dataSource.getConnection();
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("CREATE TABLE JGROUPSPING (own_addr varchar(200) NOT NULL, cluster_name varchar(200) NOT NULL, ping_data varbinary(5000) DEFAULT NULL, PRIMARY KEY (own_addr, cluster_name) )");
+        }
+    }
+
+    @After
+    public void destroy() throws SQLException {
+        this.connection.close();
+    }
+
+    @Test
+    public void uncached() throws Exception {
+        Address address = UUID.randomUUID();
+        JDBC_PING protocol = this.createProtocol(address, 0);
+
+        // First discovery request registers itself after querying
+        protocol.findMembers(null, true, new Responses(false));
+        assertEquals(1, this.count());
+
+        for (int i = 0; i < 2; ++i) {
+            Responses responses = new Responses(false);
+            protocol.findMembers(null, true, responses);
+            assertEquals(1, responses.size());
+        }
+
+        assertEquals(3, protocol.getDiscoveryQueries());
+        assertEquals(0, protocol.getCacheHits());
+    }
+
+    @Test
+    public void cached() throws Exception {
+        Address address1 = UUID.randomUUID();
+        Address address2 = UUID.randomUUID();
+        JDBC_PING protocol1 = this.createProtocol(address1, 60000);
+        JDBC_PING protocol2 = this.createProtocol(address2, 60000);
+
+        protocol1.setValue("is_coord", true);
+        protocol1.handleView(View.create(address1, 1, address1), null, true);
+        assertEquals(1, protocol1.getViewUpdates());
+        assertEquals(1, this.count());
+
+        // First discovery request must query the table, and register itself
+        Responses responses = new Responses(false);
+        protocol2.findMembers(null, true, responses);
+        assertEquals(1, responses.size());
+        assertEquals(2, this.count());
+
+        // Registration invalidates the cache, thus the next request must query again
+        responses = new Responses(false);
+        protocol2.findMembers(null, true, responses);
+        assertEquals(2, responses.size());
+
+        // Subsequent requests are served from the cache
+        for (int i = 0; i < 3; ++i) {
+            responses = new Responses(false);
+            protocol2.findMembers(null, false, responses);
+            assertEquals(2, responses.size());
+        }
+
+        assertEquals(2, protocol2.getDiscoveryQueries());
+        assertEquals(3, protocol2.getCacheHits());
+        assertEquals(2, this.count());
+
+        // Coordinator removes the row of the departed member
+        protocol1.handleView(View.create(address1, 2, address1), View.create(address1, 1, address1, address2), false);
+        assertEquals(2, protocol1.getViewUpdates());
+        assertEquals(1, this.count());
+    }
+
+    @Test
+    public void clearOnViewChange() throws Exception {
+        Address address1 = UUID.randomUUID();
+        Address address2 = UUID.randomUUID();
+        Address address3 = UUID.randomUUID();
+        JDBC_PING protocol1 = this.createProtocol(address1, 60000);
+        JDBC_PING protocol2 = this.createProtocol(address2, 60000);
+        JDBC_PING protocol3 = this.createProtocol(address3, 60000);
+
+        protocol2.findMembers(null, true, new Responses(false));
+        protocol3.findMembers(null, true, new Responses(false));
+        assertEquals(2, this.count());
+
+        protocol1.setValue("is_coord", true);
+        protocol1.setValue("clear_table_on_view_change", true);
+        protocol1.handleView(View.create(address1, 1, address1, address2), View.create(address2, 0, address2, address3), true);
+        assertEquals(1, protocol1.getViewUpdates());
+        assertEquals(1, this.count());
+
+        Responses responses = new Responses(false);
+        protocol1.findMembers(null, false, responses);
+        assertEquals(1, responses.size());
+        assertEquals(1, protocol1.getDiscoveryQueries());
+    }
+
+    private JDBC_PING createProtocol(Address address, long staleness) throws Exception {
+        IpAddress physicalAddress = new IpAddress(InetAddress.getLoopbackAddress(), 7600);
+        JDBC_PING protocol = new JDBC_PING();
+        protocol.setValue("local_addr", address);
+        protocol.setValue("cluster_name", CLUSTER);
+        protocol.setValue("connection_url", this.dataSource.getURL());
+        protocol.setValue("connection_username", "");
+        protocol.setValue("connection_password", "");
+        protocol.setValue("cache_staleness", staleness);
+        protocol.setValue("info_writer_max_writes_after_view", 0);
+        protocol.setDownProtocol(new Protocol() {
+            @Override
+            public Object down(Event event) {
+                return (event.getType() == Event.GET_PHYSICAL_ADDRESS) ? physicalAddress : Boolean.TRUE;
+            }
+        });
+        return protocol;
+    }
+
+    private int count() throws SQLException {
+        try (Statement statement = this.connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM JGROUPSPING")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
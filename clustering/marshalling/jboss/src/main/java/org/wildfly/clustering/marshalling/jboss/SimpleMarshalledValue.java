@@ -22,11 +22,11 @@
 
 package org.wildfly.clustering.marshalling.jboss;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.jboss.marshalling.Marshaller;
@@ -34,8 +34,8 @@ import org.jboss.marshalling.Marshalling;
 import org.jboss.marshalling.SimpleDataInput;
 import org.jboss.marshalling.SimpleDataOutput;
 import org.jboss.marshalling.Unmarshaller;
+import org.wildfly.clustering.marshalling.spi.ByteBufferMarshalledValue;
 import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
-import org.wildfly.clustering.marshalling.spi.MarshalledValue;
 import org.wildfly.security.manager.WildFlySecurityManager;
 
 /**
@@ -43,12 +43,15 @@ import org.wildfly.security.manager.WildFlySecurityManager;
  * This implementation does not preserve the hash code of its object in serialized form.
  * @author Paul Ferraro
  */
-public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingContext> {
+public class SimpleMarshalledValue<T> implements ByteBufferMarshalledValue<T, MarshallingContext> {
     private static final long serialVersionUID = -8852566958387608376L;
+    // Large enough for a variable length encoded version
+    private static final int VERSION_BUFFER_SIZE = 5;
 
     private transient volatile MarshallingContext context;
     private transient volatile T object;
-    private transient volatile byte[] bytes;
+    // Serialized form, only retained until the object is rehydrated
+    private transient volatile ByteBuffer buffer;
 
     public SimpleMarshalledValue(T object, MarshallingContext context) {
         this.context = context;
@@ -56,7 +59,11 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
     }
 
     SimpleMarshalledValue(byte[] bytes) {
-        this.bytes = bytes;
+        this((bytes != null) ? ByteBuffer.wrap(bytes) : null);
+    }
+
+    SimpleMarshalledValue(ByteBuffer buffer) {
+        this.buffer = buffer;
     }
 
     // Used for testing purposes only
@@ -64,26 +71,59 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
         return this.object;
     }
 
+    // Used for testing purposes only
     byte[] getBytes() throws IOException {
-        byte[] bytes = this.bytes;
-        if (bytes != null) return bytes;
-        if (this.object == null) return null;
+        ByteBuffer buffer = this.getBuffer();
+        if (buffer == null) return null;
+        return (buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) ? buffer.array() : Arrays.copyOfRange(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.arrayOffset() + buffer.limit());
+    }
+
+    /**
+     * Returns the serialized form of this value, backed by the array into which it was marshalled.
+     * Callers must not modify the returned buffer's content.
+     * @return a buffer whose remaining bytes are the serialized form, or null, if the object is null
+     * @throws IOException if the object could not be marshalled
+     */
+    @Override
+    public ByteBuffer getBuffer() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        if (buffer != null) return buffer.duplicate();
+        T object = this.object;
+        if (object == null) return null;
         int version = this.context.getCurrentVersion();
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        // Write directly into an array sized from previous values of the same class
+        SizePredictingByteOutput output = new SizePredictingByteOutput(object.getClass());
         ClassLoader loader = setThreadContextClassLoader(this.context.getClassLoader());
-        try (SimpleDataOutput data = new SimpleDataOutput(Marshalling.createByteOutput(output))) {
-            IndexExternalizer.VARIABLE.writeData(data, version);
+        try {
+            try (SimpleDataOutput data = new SimpleDataOutput(VERSION_BUFFER_SIZE, output)) {
+                IndexExternalizer.VARIABLE.writeData(data, version);
+            }
             try (Marshaller marshaller = this.context.createMarshaller(version)) {
-                marshaller.start(data);
-                marshaller.writeObject(this.object);
+                marshaller.start(output);
+                marshaller.writeObject(object);
                 marshaller.finish();
-                return output.toByteArray();
             }
+            return output.getBuffer();
         } finally {
             setThreadContextClassLoader(loader);
         }
     }
 
+    /**
+     * Writes the serialized form of this value, prefixed by its length, to the specified output, without copying it first.
+     * @param output a data output
+     * @throws IOException if the object could not be marshalled, or written
+     */
+    void writeTo(DataOutput output) throws IOException {
+        ByteBuffer buffer = this.getBuffer();
+        if (buffer != null) {
+            output.writeInt(buffer.remaining());
+            output.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            output.writeInt(0);
+        }
+    }
+
     /**
      * {@inheritDoc}
      * @see org.wildfly.clustering.marshalling.spi.MarshalledValue#get(java.lang.Object)
@@ -93,16 +133,16 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
     public synchronized T get(MarshallingContext context) throws IOException, ClassNotFoundException {
         if (this.object == null) {
             this.context = context;
-            if (this.bytes != null) {
-                ByteArrayInputStream input = new ByteArrayInputStream(this.bytes);
+            ByteBuffer buffer = this.buffer;
+            if (buffer != null) {
                 ClassLoader loader = setThreadContextClassLoader(this.context.getClassLoader());
-                try (SimpleDataInput data = new SimpleDataInput(Marshalling.createByteInput(input))) {
+                try (SimpleDataInput data = new SimpleDataInput(Marshalling.createByteInput(buffer.duplicate()))) {
                     int version = IndexExternalizer.VARIABLE.readData(data);
                     try (Unmarshaller unmarshaller = context.createUnmarshaller(version)) {
                         unmarshaller.start(data);
                         this.object = (T) unmarshaller.readObject();
                         unmarshaller.finish();
-                        this.bytes = null; // Free up memory
+                        this.buffer = null; // Free up memory
                     }
                 } finally {
                     setThreadContextClassLoader(loader);
@@ -132,9 +172,9 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
             return this.object.equals(value.object);
         }
         try {
-            byte[] us = this.getBytes();
-            byte[] them = value.getBytes();
-            return ((us != null) && (them != null)) ? Arrays.equals(us, them) : (us == them);
+            ByteBuffer us = this.getBuffer();
+            ByteBuffer them = value.getBuffer();
+            return ((us != null) && (them != null)) ? us.equals(them) : (us == them);
         } catch (IOException e) {
             throw new IllegalStateException(e);
         }
@@ -143,19 +183,13 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
     @Override
     public String toString() {
         if (this.object != null) return this.object.toString();
-        byte[] bytes = this.bytes;
-        return (bytes != null) ? bytes.toString() : null;
+        ByteBuffer buffer = this.buffer;
+        return (buffer != null) ? buffer.toString() : null;
     }
 
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
-        byte[] bytes = this.getBytes();
-        if (bytes != null) {
-            out.writeInt(bytes.length);
-            out.write(bytes);
-        } else {
-            out.writeInt(0);
-        }
+        this.writeTo(out);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -166,7 +200,7 @@ public class SimpleMarshalledValue<T> implements MarshalledValue<T, MarshallingC
             bytes = new byte[size];
             in.readFully(bytes);
         }
-        this.bytes = bytes;
+        this.buffer = (bytes != null) ? ByteBuffer.wrap(bytes) : null;
     }
 
     private static ClassLoader setThreadContextClassLoader(ClassLoader loader) {
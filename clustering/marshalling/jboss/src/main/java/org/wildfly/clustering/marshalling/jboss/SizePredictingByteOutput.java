@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.clustering.marshalling.jboss;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.marshalling.ByteOutput;
+
+/**
+ * {@link ByteOutput} that writes into a single array, pre-sized from the last serialized size of the same class.
+ * When the prediction holds, the serialized form is produced without any intermediate copies, and is exposed as-is via {@link #getBuffer()}.
+ */
+class SizePredictingByteOutput implements ByteOutput {
+
+    static final int DEFAULT_SIZE = 128;
+
+    private static final ClassValue<AtomicInteger> LAST_SIZES = new ClassValue<AtomicInteger>() {
+        @Override
+        protected AtomicInteger computeValue(Class<?> targetClass) {
+            return new AtomicInteger();
+        }
+    };
+
+    private final AtomicInteger lastSize;
+    private byte[] bytes;
+    private int size = 0;
+
+    SizePredictingByteOutput(Class<?> targetClass) {
+        this.lastSize = LAST_SIZES.get(targetClass);
+        this.bytes = new byte[predictSize(this.lastSize.get())];
+    }
+
+    private static int predictSize(int lastSize) {
+        // Allow a bit of headroom, so that a slightly larger object does not trigger a resize
+        return (lastSize > 0) ? lastSize + (lastSize >>> 3) : DEFAULT_SIZE;
+    }
+
+    /**
+     * Returns the bytes written so far, backed by the underlying array, and records their size for subsequent predictions.
+     * @return a buffer whose remaining bytes are the serialized form
+     */
+    ByteBuffer getBuffer() {
+        this.lastSize.set(this.size);
+        return ByteBuffer.wrap(this.bytes, 0, this.size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length << 1, capacity));
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        this.ensureCapacity(this.size + 1);
+        this.bytes[this.size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b) {
+        this.write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int offset, int length) {
+        this.ensureCapacity(this.size + length);
+        System.arraycopy(b, offset, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to flush
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+}
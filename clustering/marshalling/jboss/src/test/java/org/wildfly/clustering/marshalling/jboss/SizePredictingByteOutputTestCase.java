@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.clustering.marshalling.jboss;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SizePredictingByteOutput}.
+ */
+public class SizePredictingByteOutputTestCase {
+
+    @Test
+    public void grow() {
+        SizePredictingByteOutput output = new SizePredictingByteOutput(Grow.class);
+        byte[] bytes = new byte[SizePredictingByteOutput.DEFAULT_SIZE * 3];
+        Arrays.fill(bytes, (byte) 1);
+        output.write(0);
+        output.write(bytes);
+        output.write(bytes, 1, 2);
+
+        ByteBuffer buffer = output.getBuffer();
+        assertEquals(0, buffer.position());
+        assertEquals(bytes.length + 3, buffer.remaining());
+        assertEquals(0, buffer.get(0));
+        for (int i = 1; i < buffer.limit(); ++i) {
+            assertEquals(1, buffer.get(i));
+        }
+    }
+
+    @Test
+    public void predict() {
+        SizePredictingByteOutput output = new SizePredictingByteOutput(Predict.class);
+        assertEquals(SizePredictingByteOutput.DEFAULT_SIZE, output.getBuffer().capacity());
+        output.write(new byte[1000]);
+        assertEquals(1000, output.getBuffer().remaining());
+
+        // The next output for the same class should not need to grow
+        output = new SizePredictingByteOutput(Predict.class);
+        int capacity = output.getBuffer().capacity();
+        assertTrue(capacity >= 1000);
+        output.write(new byte[1050]);
+        ByteBuffer buffer = output.getBuffer();
+        assertEquals(capacity, buffer.capacity());
+        assertEquals(1050, buffer.remaining());
+
+        // Other classes are unaffected
+        assertEquals(SizePredictingByteOutput.DEFAULT_SIZE, new SizePredictingByteOutput(Object.class).getBuffer().capacity());
+    }
+
+    static class Grow {
+    }
+
+    static class Predict {
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.clustering.marshalling.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A marshalled value that exposes its serialized form.
+ * @param <T> the type of the marshalled object
+ * @param <C> the marshalling context
+ */
+public interface ByteBufferMarshalledValue<T, C> extends MarshalledValue<T, C> {
+
+    /**
+     * Returns the serialized form of this value, marshalling its object if necessary.
+     * Callers must not modify the returned buffer's content.
+     * @return a buffer whose remaining bytes are the serialized form, or null, if the object is null
+     * @throws IOException if the object could not be marshalled
+     */
+    ByteBuffer getBuffer() throws IOException;
+}
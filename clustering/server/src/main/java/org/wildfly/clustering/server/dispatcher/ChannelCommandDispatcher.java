@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -76,14 +77,24 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
     private final CommandMarshaller<C> marshaller;
     private final NodeFactory<Address> factory;
     private final long timeout;
+    private final CommandBatcher batcher;
     private final CommandDispatcher<C> localDispatcher;
     private final Runnable closeTask;
 
     public ChannelCommandDispatcher(MessageDispatcher dispatcher, CommandMarshaller<C> marshaller, NodeFactory<Address> factory, long timeout, CommandDispatcher<C> localDispatcher, Runnable closeTask) {
+        this(dispatcher, marshaller, factory, timeout, null, localDispatcher, closeTask);
+    }
+
+    /**
+     * Creates a command dispatcher that coalesces commands via the given batcher.
+     * @param batcher a command batcher, or null if every command should be sent as its own message
+     */
+    public ChannelCommandDispatcher(MessageDispatcher dispatcher, CommandMarshaller<C> marshaller, NodeFactory<Address> factory, long timeout, CommandBatcher batcher, CommandDispatcher<C> localDispatcher, Runnable closeTask) {
         this.dispatcher = dispatcher;
         this.marshaller = marshaller;
         this.factory = factory;
         this.timeout = timeout;
+        this.batcher = batcher;
         this.localDispatcher = localDispatcher;
         this.closeTask = closeTask;
     }
@@ -95,6 +106,23 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
 
     @Override
     public <R> Map<Node, CommandResponse<R>> executeOnCluster(Command<R, ? super C> command, Node... excludedNodes) throws CommandDispatcherException {
+        if (this.batcher != null) {
+            try {
+                Map<Address, CommandResponse<Object>> responses = this.batcher.submitOnCluster(getAddresses(excludedNodes), this.marshal(command)).get(this.timeout, TimeUnit.MILLISECONDS);
+                Map<Node, CommandResponse<R>> results = new HashMap<>();
+                for (Map.Entry<Address, CommandResponse<Object>> entry : responses.entrySet()) {
+                    @SuppressWarnings("unchecked")
+                    CommandResponse<R> response = (CommandResponse<R>) entry.getValue();
+                    results.put(this.factory.createNode(entry.getKey()), response);
+                }
+                return results;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommandDispatcherException(e);
+            } catch (Exception e) {
+                throw new CommandDispatcherException(e);
+            }
+        }
         Message message = this.createMessage(command);
         RequestOptions options = this.createRequestOptions(excludedNodes);
         try {
@@ -117,6 +145,36 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
 
     @Override
     public <R> Map<Node, Future<R>> submitOnCluster(Command<R, ? super C> command, Node... excludedNodes) throws CommandDispatcherException {
+        if (this.batcher != null) {
+            CompletableFuture<Map<Address, CommandResponse<Object>>> futureResponses = this.batcher.submitOnCluster(getAddresses(excludedNodes), this.marshal(command));
+            Set<Node> excluded = (excludedNodes != null) ? new HashSet<>(Arrays.asList(excludedNodes)) : Collections.<Node>emptySet();
+            Map<Node, Future<R>> results = new HashMap<>();
+            for (Address address: this.dispatcher.getChannel().getView().getMembers()) {
+                Node node = this.factory.createNode(address);
+                if (!excluded.contains(node)) {
+                    CompletableFuture<R> future = new CompletableFuture<>();
+                    futureResponses.whenComplete((responses, exception) -> {
+                        if (exception != null) {
+                            future.completeExceptionally(exception);
+                            return;
+                        }
+                        @SuppressWarnings("unchecked")
+                        CommandResponse<R> response = (CommandResponse<R>) responses.get(address);
+                        if (response == null) {
+                            future.cancel(false);
+                            return;
+                        }
+                        try {
+                            future.complete(response.get());
+                        } catch (ExecutionException e) {
+                            future.completeExceptionally(e.getCause());
+                        }
+                    });
+                    results.put(node, future);
+                }
+            }
+            return results;
+        }
         Map<Node, Future<R>> results = new ConcurrentHashMap<>();
         FutureListener<RspList<R>> listener = future -> {
             try {
@@ -188,6 +246,20 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
         if (this.isLocal(node)) {
             return this.localDispatcher.executeOnNode(command, node);
         }
+        if (this.batcher != null) {
+            try {
+                @SuppressWarnings("unchecked")
+                R result = (R) this.batcher.submitOnNode(getAddress(node), this.marshal(command)).get(this.timeout, TimeUnit.MILLISECONDS);
+                return new SimpleCommandResponse<>(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new SimpleCommandResponse<>(e);
+            } catch (ExecutionException e) {
+                return new SimpleCommandResponse<>(e);
+            } catch (TimeoutException e) {
+                return new SimpleCommandResponse<>(e);
+            }
+        }
         Message message = this.createMessage(command, node);
         RequestOptions options = this.createRequestOptions();
         try {
@@ -210,6 +282,11 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
         if (this.isLocal(node)) {
             return this.localDispatcher.submitOnNode(command, node);
         }
+        if (this.batcher != null) {
+            @SuppressWarnings("unchecked")
+            Future<R> future = (Future<R>) this.batcher.submitOnNode(getAddress(node), this.marshal(command));
+            return future;
+        }
         Message message = this.createMessage(command, node);
         RequestOptions options = this.createRequestOptions();
         try {
@@ -224,8 +301,12 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
     }
 
     private <R> Message createMessage(Command<R, ? super C> command, Node node) {
+        return new Message(getAddress(node), this.getLocalAddress(), this.marshal(command));
+    }
+
+    private <R> byte[] marshal(Command<R, ? super C> command) {
         try {
-            return new Message(getAddress(node), this.getLocalAddress(), this.marshaller.marshal(command));
+            return this.marshaller.marshal(command);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
@@ -239,20 +320,30 @@ public class ChannelCommandDispatcher<C> implements CommandDispatcher<C> {
         return (node instanceof Addressable) ? ((Addressable) node).getAddress() : null;
     }
 
+    private static Address[] getAddresses(Node... nodes) {
+        if ((nodes == null) || (nodes.length == 0)) return null;
+        Address[] addresses = new Address[nodes.length];
+        for (int i = 0; i < nodes.length; ++i) {
+            addresses[i] = getAddress(nodes[i]);
+        }
+        return addresses;
+    }
+
     private RequestOptions createRequestOptions(Node... excludedNodes) {
         RequestOptions options = this.createRequestOptions();
-        if ((excludedNodes != null) && (excludedNodes.length > 0)) {
-            Address[] addresses = new Address[excludedNodes.length];
-            for (int i = 0; i < excludedNodes.length; ++i) {
-                addresses[i] = getAddress(excludedNodes[i]);
-            }
+        Address[] addresses = getAddresses(excludedNodes);
+        if (addresses != null) {
             options.setExclusionList(addresses);
         }
         return options;
     }
 
     private RequestOptions createRequestOptions() {
-        return new RequestOptions(ResponseMode.GET_ALL, this.timeout, false, FILTER, Message.Flag.DONT_BUNDLE, Message.Flag.OOB);
+        return createRequestOptions(this.timeout);
+    }
+
+    static RequestOptions createRequestOptions(long timeout) {
+        return new RequestOptions(ResponseMode.GET_ALL, timeout, false, FILTER, Message.Flag.DONT_BUNDLE, Message.Flag.OOB);
     }
 
     static <R> CommandResponse<R> createCommandResponse(Rsp<R> response) {
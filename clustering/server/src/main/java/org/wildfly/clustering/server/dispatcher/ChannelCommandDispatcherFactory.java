@@ -23,6 +23,8 @@ package org.wildfly.clustering.server.dispatcher;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,11 +32,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -48,9 +54,11 @@ import org.jgroups.MembershipListener;
 import org.jgroups.MergeView;
 import org.jgroups.Message;
 import org.jgroups.View;
+import org.jgroups.blocks.AsyncRequestHandler;
 import org.jgroups.blocks.MessageDispatcher;
 import org.jgroups.blocks.RequestCorrelator;
 import org.jgroups.blocks.RequestHandler;
+import org.jgroups.blocks.Response;
 import org.jgroups.stack.Protocol;
 import org.wildfly.clustering.dispatcher.Command;
 import org.wildfly.clustering.dispatcher.CommandDispatcher;
@@ -63,6 +71,7 @@ import org.wildfly.clustering.server.group.JGroupsNodeFactory;
 import org.wildfly.clustering.service.concurrent.ClassLoaderThreadFactory;
 import org.wildfly.clustering.service.concurrent.ServiceExecutor;
 import org.wildfly.clustering.service.concurrent.StampedLockServiceExecutor;
+import org.wildfly.clustering.spi.CommandBatchMetrics;
 import org.wildfly.security.manager.WildFlySecurityManager;
 
 /**
@@ -71,21 +80,38 @@ import org.wildfly.security.manager.WildFlySecurityManager;
  * all of which will share the same {@link MessageDispatcher} instance.
  * @author Paul Ferraro
  */
-public class ChannelCommandDispatcherFactory implements CommandDispatcherFactory, RequestHandler, AutoCloseable, Group, MembershipListener {
+public class ChannelCommandDispatcherFactory implements CommandDispatcherFactory, CommandBatchMetrics, AsyncRequestHandler, AutoCloseable, Group, MembershipListener {
 
     private static ThreadFactory createThreadFactory(Class<?> targetClass) {
         PrivilegedAction<ThreadFactory> action = () -> new JBossThreadFactory(new ThreadGroup(targetClass.getSimpleName()), Boolean.FALSE, null, "%G - %t", null, null);
         return new ClassLoaderThreadFactory(WildFlySecurityManager.doUnchecked(action), targetClass.getClassLoader());
     }
 
+    /**
+     * Creates the executor of batched commands, bounded by the number of processors.
+     * Once all of its threads are busy, the receiving thread executes the command itself, as it does for an unbatched command.
+     */
+    private static ExecutorService createBatchExecutor(ThreadFactory factory) {
+        RejectedExecutionHandler handler = (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException();
+            }
+            task.run();
+        };
+        return new ThreadPoolExecutor(0, Runtime.getRuntime().availableProcessors(), 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), factory, handler);
+    }
+
     private final Map<Object, Optional<Object>> contexts = new ConcurrentHashMap<>();
     private final ServiceExecutor executor = new StampedLockServiceExecutor();
     private final Map<Listener, ExecutorService> listeners = new ConcurrentHashMap<>();
+    // Executes the commands of a batch concurrently, so that a slow command does not delay the others
+    private final ExecutorService batchExecutor = createBatchExecutor(createThreadFactory(this.getClass()));
     private final AtomicReference<View> view = new AtomicReference<>();
     private final JGroupsNodeFactory nodeFactory;
     private final MarshallingContext marshallingContext;
     private final MessageDispatcher dispatcher;
     private final long timeout;
+    private final CommandBatcher batcher;
 
     public ChannelCommandDispatcherFactory(ChannelCommandDispatcherFactoryConfiguration config) {
         this.nodeFactory = config.getNodeFactory();
@@ -105,13 +131,19 @@ public class ChannelCommandDispatcherFactory implements CommandDispatcherFactory
         this.dispatcher.setMembershipListener(this);
         this.dispatcher.asyncDispatching(true).start();
         this.view.compareAndSet(null, channel.getView());
+        this.batcher = CommandBatcher.create(this.dispatcher, ChannelCommandDispatcher.createRequestOptions(this.timeout));
     }
 
     @Override
     public void close() {
         this.executor.close(() -> {
+            if (this.batcher != null) {
+                this.batcher.close();
+            }
             this.dispatcher.stop();
             this.dispatcher.getChannel().setUpHandler(null);
+            PrivilegedAction<List<Runnable>> shutdown = () -> this.batchExecutor.shutdownNow();
+            WildFlySecurityManager.doUnchecked(shutdown);
             // Cleanup any stray listeners
             this.listeners.values().forEach(executor -> {
                 PrivilegedAction<List<Runnable>> action = () -> executor.shutdownNow();
@@ -121,29 +153,113 @@ public class ChannelCommandDispatcherFactory implements CommandDispatcherFactory
         });
     }
 
+    @Override
+    public long getBatchCount() {
+        return (this.batcher != null) ? this.batcher.getBatchCount() : 0L;
+    }
+
+    @Override
+    public long getCommandCount() {
+        return (this.batcher != null) ? this.batcher.getCommandCount() : 0L;
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        return (this.batcher != null) ? this.batcher.getMeanBatchSize() : 0d;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return (this.batcher != null) ? this.batcher.getMaxBatchSize() : 0;
+    }
+
+    @Override
+    public double getMeanLatency() {
+        return (this.batcher != null) ? this.batcher.getMeanLatency() : 0d;
+    }
+
+    @Override
+    public double getMaxLatency() {
+        return (this.batcher != null) ? this.batcher.getMaxLatency() : 0d;
+    }
+
     @Override
     public Object handle(Message message) throws Exception {
         try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(message.getRawBuffer(), message.getOffset(), message.getLength()))) {
             int version = IndexExternalizer.VARIABLE.readData(input);
-            try (Unmarshaller unmarshaller = this.marshallingContext.createUnmarshaller(version)) {
-                unmarshaller.start(Marshalling.createByteInput(input));
-                Object clientId = unmarshaller.readObject();
-                Optional<Object> context = this.contexts.get(clientId);
-                if (context == null) return NoSuchService.INSTANCE;
-                @SuppressWarnings("unchecked")
-                Command<Object, Object> command = (Command<Object, Object>) unmarshaller.readObject();
-                Callable<Optional<Object>> task = new Callable<Optional<Object>>() {
-                    @Override
-                    public Optional<Object> call() throws Exception {
-                        // Wrap in an Optional, since command execution might return null
-                        return Optional.ofNullable(command.execute(context.orElse(null)));
+            return (version == CommandBatcher.BATCH) ? this.handleBatch(input).join() : this.handle(version, input);
+        }
+    }
+
+    @Override
+    public void handle(Message message, Response response) throws Exception {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(message.getRawBuffer(), message.getOffset(), message.getLength()))) {
+            int version = IndexExternalizer.VARIABLE.readData(input);
+            if (version == CommandBatcher.BATCH) {
+                // Respond once the last command of the batch completed, without blocking the JGroups thread meanwhile
+                this.handleBatch(input).thenAccept(results -> {
+                    if (response != null) {
+                        response.send(results, false);
                     }
-                };
-                return this.executor.execute(task).orElse(Optional.of(NoSuchService.INSTANCE)).orElse(null);
+                });
+            } else {
+                Object result = this.handle(version, input);
+                if (response != null) {
+                    response.send(result, false);
+                }
             }
         }
     }
 
+    /**
+     * Executes the commands of a batch concurrently.
+     * @return the future results of the commands, in the order of the batch
+     */
+    private CompletableFuture<Object[]> handleBatch(DataInputStream input) throws IOException {
+        Object[] results = new Object[IndexExternalizer.VARIABLE.readData(input)];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[results.length];
+        for (int i = 0; i < results.length; ++i) {
+            // Each command is unmarshalled from its own stream, since an unmarshaller may read ahead
+            byte[] command = new byte[IndexExternalizer.VARIABLE.readData(input)];
+            input.readFully(command);
+            int index = i;
+            Runnable task = () -> {
+                try (DataInputStream commandInput = new DataInputStream(new ByteArrayInputStream(command))) {
+                    results[index] = this.handle(IndexExternalizer.VARIABLE.readData(commandInput), commandInput);
+                } catch (Exception e) {
+                    results[index] = new CommandFailure(e);
+                }
+            };
+            try {
+                futures[i] = CompletableFuture.runAsync(task, this.batchExecutor);
+            } catch (RejectedExecutionException e) {
+                // Factory was closed
+                results[i] = new CommandFailure(e);
+                futures[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+        return CompletableFuture.allOf(futures).thenApply(v -> results);
+    }
+
+    private Object handle(int version, InputStream input) throws Exception {
+        try (Unmarshaller unmarshaller = this.marshallingContext.createUnmarshaller(version)) {
+            unmarshaller.start(Marshalling.createByteInput(input));
+            Object clientId = unmarshaller.readObject();
+            Optional<Object> context = this.contexts.get(clientId);
+            if (context == null) return NoSuchService.INSTANCE;
+            @SuppressWarnings("unchecked")
+            Command<Object, Object> command = (Command<Object, Object>) unmarshaller.readObject();
+            Callable<Optional<Object>> task = new Callable<Optional<Object>>() {
+                @Override
+                public Optional<Object> call() throws Exception {
+                    // Wrap in an Optional, since command execution might return null
+                    return Optional.ofNullable(command.execute(context.orElse(null)));
+                }
+            };
+            return this.executor.execute(task).orElse(Optional.of(NoSuchService.INSTANCE)).orElse(null);
+        }
+    }
+
     @Override
     public Group getGroup() {
         return this;
@@ -154,7 +270,7 @@ public class ChannelCommandDispatcherFactory implements CommandDispatcherFactory
         this.contexts.put(id, Optional.ofNullable(context));
         CommandMarshaller<C> marshaller = new CommandDispatcherMarshaller<>(this.marshallingContext, id);
         CommandDispatcher<C> localDispatcher = new LocalCommandDispatcher<>(this.getLocalNode(), context);
-        return new ChannelCommandDispatcher<>(this.dispatcher, marshaller, this.nodeFactory, this.timeout, localDispatcher, () -> {
+        return new ChannelCommandDispatcher<>(this.dispatcher, marshaller, this.nodeFactory, this.timeout, this.batcher, localDispatcher, () -> {
             localDispatcher.close();
             this.contexts.remove(id);
         });
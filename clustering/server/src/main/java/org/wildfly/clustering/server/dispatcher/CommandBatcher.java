@@ -0,0 +1,418 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.server.dispatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.threads.JBossThreadFactory;
+import org.jgroups.Address;
+import org.jgroups.Message;
+import org.jgroups.blocks.MessageDispatcher;
+import org.jgroups.blocks.RequestOptions;
+import org.jgroups.util.FutureListener;
+import org.jgroups.util.Rsp;
+import org.jgroups.util.RspList;
+import org.wildfly.clustering.dispatcher.CommandResponse;
+import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
+import org.wildfly.clustering.spi.CommandBatchMetrics;
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Coalesces marshalled commands to the same destination into a single message.
+ * <p/>
+ * The first command for a destination opens a batch, which is sent once the batch window elapsed or the batch is full,
+ * whichever comes first. Commands for the cluster are only coalesced with commands excluding the same nodes. Batches
+ * are sent asynchronously, so several batches to the same destination may be in flight. The receiver executes the
+ * commands of a batch concurrently and responds with the results of all of them once the last one completed, which are
+ * then handed to the individual futures of the commands.
+ * <p/>
+ * A batch starts with {@value #BATCH} in place of the marshalling version of a single command, followed by the number
+ * of commands and each length-prefixed command. All members must enable batching, since older members cannot read
+ * batches.
+ */
+public class CommandBatcher implements CommandBatchMetrics, AutoCloseable {
+
+    /**
+     * System property defining the batch window in microseconds. Batching is disabled if undefined or zero.
+     * The results of a batch are returned together, so a batched command completes with the slowest command of its batch.
+     * The dispatcher timeout starts when the batch is sent: commands of a batch without a response by then fail with a
+     * {@link TimeoutException}, and callers waiting for a result give up after the timeout.
+     */
+    public static final String BATCH_WINDOW = "wildfly.clustering.dispatcher.batch-window";
+    /**
+     * System property defining the maximum number of commands per batch.
+     */
+    public static final String BATCH_SIZE = "wildfly.clustering.dispatcher.batch-size";
+
+    static final int BATCH = 0;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    private static ThreadFactory createThreadFactory() {
+        PrivilegedAction<ThreadFactory> action = () -> new JBossThreadFactory(new ThreadGroup(CommandBatcher.class.getSimpleName()), Boolean.FALSE, null, "%G - %t", null, null);
+        return WildFlySecurityManager.doUnchecked(action);
+    }
+
+    /**
+     * Creates a batcher for the given dispatcher if batching is enabled via {@link #BATCH_WINDOW}.
+     * @return a batcher, or null if every command should be sent as its own message
+     */
+    public static CommandBatcher create(MessageDispatcher dispatcher, RequestOptions options) {
+        long window = Long.parseLong(WildFlySecurityManager.getPropertyPrivileged(BATCH_WINDOW, "0"));
+        int size = Integer.parseInt(WildFlySecurityManager.getPropertyPrivileged(BATCH_SIZE, Integer.toString(DEFAULT_BATCH_SIZE)));
+        return ((window > 0) && (size > 1)) ? new CommandBatcher(dispatcher, options, window, TimeUnit.MICROSECONDS, size) : null;
+    }
+
+    private final MessageDispatcher dispatcher;
+    private final RequestOptions options;
+    private final long window;
+    private final int maxBatchSize;
+    private final ConcurrentMap<Destination, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder commandCount = new LongAdder();
+    private final AtomicInteger maxSize = new AtomicInteger();
+    private final LongAdder responseCount = new LongAdder();
+    private final LongAdder latency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    public CommandBatcher(MessageDispatcher dispatcher, RequestOptions options, long window, TimeUnit unit, int maxBatchSize) {
+        this.dispatcher = dispatcher;
+        this.options = options;
+        this.window = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, createThreadFactory());
+        executor.setRemoveOnCancelPolicy(true);
+        this.executor = executor;
+    }
+
+    @Override
+    public void close() {
+        PrivilegedAction<List<Runnable>> action = () -> this.executor.shutdownNow();
+        WildFlySecurityManager.doUnchecked(action);
+        // Send whatever is still pending
+        this.batches.values().forEach(this::flush);
+    }
+
+    /**
+     * Submits a marshalled command for execution on the given member.
+     * @return a future result of the command
+     */
+    public CompletableFuture<Object> submitOnNode(Address destination, byte[] command) {
+        return this.submit(new Destination(destination, Collections.emptySet()), command);
+    }
+
+    /**
+     * Submits a marshalled command for execution on every member but the excluded ones.
+     * @return a future map of the responses per member
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Map<Address, CommandResponse<Object>>> submitOnCluster(Address[] excluded, byte[] command) {
+        Set<Address> exclusions = ((excluded != null) && (excluded.length > 0)) ? new HashSet<>(Arrays.asList(excluded)) : Collections.emptySet();
+        CompletableFuture<?> future = this.submit(new Destination(null, exclusions), command);
+        return (CompletableFuture<Map<Address, CommandResponse<Object>>>) future;
+    }
+
+    private CompletableFuture<Object> submit(Destination destination, byte[] command) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        for (;;) {
+            Batch batch = this.batches.computeIfAbsent(destination, this::createBatch);
+            int size = batch.add(command, future);
+            if (size > 0) {
+                // Send immediately if the batch is full or if the batcher was closed
+                if ((size >= this.maxBatchSize) || this.executor.isShutdown()) {
+                    this.flush(batch);
+                }
+                return future;
+            }
+            // Batch was sent concurrently, open a new one
+        }
+    }
+
+    private Batch createBatch(Destination destination) {
+        Batch batch = new Batch(destination);
+        try {
+            this.executor.schedule(() -> this.flush(batch), this.window, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Batcher was closed, the batch is sent by submit(...)
+        }
+        return batch;
+    }
+
+    private void flush(Batch batch) {
+        List<Entry> entries = batch.close();
+        if (entries == null) return;
+        this.batches.remove(batch.destination, batch);
+        // The window may elapse before the first command was added
+        if (entries.isEmpty()) return;
+
+        int size = entries.size();
+        this.batchCount.increment();
+        this.commandCount.add(size);
+        this.maxSize.accumulateAndGet(size, Math::max);
+
+        Future<?> timeout = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream output = new DataOutputStream(bytes)) {
+                IndexExternalizer.VARIABLE.writeData(output, BATCH);
+                IndexExternalizer.VARIABLE.writeData(output, size);
+                for (Entry entry : entries) {
+                    IndexExternalizer.VARIABLE.writeData(output, entry.command.length);
+                    output.write(entry.command);
+                }
+            }
+            Address destination = batch.destination.address;
+            Message message = new Message(destination, this.dispatcher.getChannel().getAddress(), bytes.toByteArray());
+            long start = System.nanoTime();
+            timeout = this.scheduleTimeout(entries);
+            Future<?> scheduledTimeout = timeout;
+            if (destination != null) {
+                FutureListener<Object> listener = future -> this.complete(entries, getResults(future, size), start, scheduledTimeout);
+                this.dispatcher.sendMessageWithFuture(message, this.options, listener);
+            } else {
+                RequestOptions options = new RequestOptions(this.options);
+                if (!batch.destination.excluded.isEmpty()) {
+                    options.setExclusionList(batch.destination.excluded.toArray(new Address[batch.destination.excluded.size()]));
+                }
+                FutureListener<RspList<Object>> listener = future -> this.complete(entries, getResponses(future, size), start, scheduledTimeout);
+                this.dispatcher.castMessageWithFuture(null, message, options, listener);
+            }
+        } catch (Exception e) {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            entries.forEach(entry -> entry.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Fails the commands of a sent batch whose responses did not arrive within the timeout of the request options,
+     * since the futures of the dispatcher do not apply it.
+     * @return the scheduled timeout, or null if there is none
+     */
+    private Future<?> scheduleTimeout(List<Entry> entries) {
+        long timeout = this.options.getTimeout();
+        if (timeout <= 0) return null;
+        try {
+            return this.executor.schedule(() -> entries.forEach(entry -> entry.future.completeExceptionally(new TimeoutException())), timeout, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Batcher was closed, callers still bound their wait by the timeout
+            return null;
+        }
+    }
+
+    private void complete(List<Entry> entries, Object[] results, long start, Future<?> timeout) {
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        this.recordLatency(System.nanoTime() - start);
+        for (int i = 0; i < results.length; ++i) {
+            Entry entry = entries.get(i);
+            Object result = results[i];
+            if (result instanceof CommandFailure) {
+                entry.future.completeExceptionally(((CommandFailure) result).getCause());
+            } else if (result instanceof NoSuchService) {
+                // Same as an unbatched command, whose response is rejected by the response filter
+                entry.future.complete(null);
+            } else {
+                entry.future.complete(result);
+            }
+        }
+    }
+
+    private void recordLatency(long nanos) {
+        this.responseCount.increment();
+        this.latency.add(nanos);
+        this.maxLatency.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Splits the response of a member to a batch into the results of its commands.
+     */
+    private static Object[] getResults(Future<Object> future, int size) {
+        Object[] results = new Object[size];
+        try {
+            Object response = future.get();
+            if (response instanceof Object[]) {
+                return (Object[]) response;
+            }
+            // e.g. NoSuchService if the member does not know this fork
+            Arrays.fill(results, response);
+        } catch (ExecutionException e) {
+            Arrays.fill(results, new CommandFailure(e.getCause()));
+        } catch (Exception e) {
+            Arrays.fill(results, new CommandFailure(e));
+        }
+        return results;
+    }
+
+    /**
+     * Splits the responses of all members to a batch into the responses of its commands, per member.
+     * Members that did not respond, or do not know the target service, are omitted.
+     */
+    private static Object[] getResponses(Future<RspList<Object>> future, int size) {
+        Object[] results = new Object[size];
+        try {
+            RspList<Object> responses = future.get();
+            List<Map<Address, CommandResponse<Object>>> maps = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                Map<Address, CommandResponse<Object>> map = new HashMap<>();
+                maps.add(map);
+                results[i] = map;
+            }
+            for (Map.Entry<Address, Rsp<Object>> entry : responses.entrySet()) {
+                Rsp<Object> response = entry.getValue();
+                if (!response.wasReceived() || response.wasSuspected()) continue;
+                Address address = entry.getKey();
+                Object value = response.getValue();
+                for (int i = 0; i < size; ++i) {
+                    Object result = response.hasException() ? new CommandFailure(response.getException()) : (value instanceof Object[]) ? ((Object[]) value)[i] : value;
+                    if (result instanceof NoSuchService) continue;
+                    maps.get(i).put(address, (result instanceof CommandFailure) ? new SimpleCommandResponse<>(((CommandFailure) result).getCause()) : new SimpleCommandResponse<>(result));
+                }
+            }
+        } catch (ExecutionException e) {
+            Arrays.fill(results, new CommandFailure(e.getCause()));
+        } catch (Exception e) {
+            Arrays.fill(results, new CommandFailure(e));
+        }
+        return results;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return this.batchCount.sum();
+    }
+
+    @Override
+    public long getCommandCount() {
+        return this.commandCount.sum();
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        long batches = this.batchCount.sum();
+        return (batches > 0) ? (double) this.commandCount.sum() / batches : 0d;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return this.maxSize.get();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        long responses = this.responseCount.sum();
+        return (responses > 0) ? (double) this.latency.sum() / responses / TimeUnit.MILLISECONDS.toNanos(1) : 0d;
+    }
+
+    @Override
+    public double getMaxLatency() {
+        return (double) this.maxLatency.get() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static class Destination {
+        // null for the whole cluster
+        final Address address;
+        final Set<Address> excluded;
+
+        Destination(Address address, Set<Address> excluded) {
+            this.address = address;
+            this.excluded = excluded;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(this.address) * 31 + this.excluded.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Destination)) return false;
+            Destination destination = (Destination) object;
+            return Objects.equals(this.address, destination.address) && this.excluded.equals(destination.excluded);
+        }
+    }
+
+    private static class Entry {
+        final byte[] command;
+        final CompletableFuture<Object> future;
+
+        Entry(byte[] command, CompletableFuture<Object> future) {
+            this.command = command;
+            this.future = future;
+        }
+    }
+
+    private static class Batch {
+        final Destination destination;
+        private List<Entry> entries = new ArrayList<>();
+
+        Batch(Destination destination) {
+            this.destination = destination;
+        }
+
+        /**
+         * @return the size of the batch including the added command, or 0 if the batch was already sent
+         */
+        synchronized int add(byte[] command, CompletableFuture<Object> future) {
+            if (this.entries == null) return 0;
+            this.entries.add(new Entry(command, future));
+            return this.entries.size();
+        }
+
+        /**
+         * @return the commands to send, or null if the batch was already sent
+         */
+        synchronized List<Entry> close() {
+            List<Entry> entries = this.entries;
+            this.entries = null;
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.server.dispatcher;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.jgroups.Address;
+import org.jgroups.Channel;
+import org.jgroups.Message;
+import org.jgroups.blocks.MessageDispatcher;
+import org.jgroups.blocks.RequestOptions;
+import org.jgroups.util.FutureListener;
+import org.jgroups.util.Rsp;
+import org.jgroups.util.RspList;
+import org.jgroups.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.wildfly.clustering.dispatcher.CommandResponse;
+import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
+
+public class CommandBatcherTestCase {
+
+    private final Address local = UUID.randomUUID();
+    private final Address remote = UUID.randomUUID();
+    private final MessageDispatcher dispatcher = mock(MessageDispatcher.class);
+    private final RequestOptions options = ChannelCommandDispatcher.createRequestOptions(1000L);
+
+    private CommandBatcher batcher;
+
+    @Before
+    public void init() {
+        Channel channel = mock(Channel.class);
+        when(this.dispatcher.getChannel()).thenReturn(channel);
+        when(channel.getAddress()).thenReturn(this.local);
+    }
+
+    @After
+    public void destroy() {
+        this.batcher.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void node() throws Exception {
+        // Window long enough, so that only a full batch is sent
+        this.batcher = new CommandBatcher(this.dispatcher, this.options, 1, TimeUnit.MINUTES, 3);
+        Exception exception = new Exception();
+
+        CompletableFuture<Object> future1 = this.batcher.submitOnNode(this.remote, new byte[] { 1 });
+        CompletableFuture<Object> future2 = this.batcher.submitOnNode(this.remote, new byte[] { 2, 2 });
+        CompletableFuture<Object> future3 = this.batcher.submitOnNode(this.remote, new byte[] { 3, 3, 3 });
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<FutureListener<Object>> listener = ArgumentCaptor.forClass((Class<FutureListener<Object>>) (Class<?>) FutureListener.class);
+        verify(this.dispatcher).sendMessageWithFuture(message.capture(), any(RequestOptions.class), listener.capture());
+        assertEquals(this.remote, message.getValue().getDest());
+        List<byte[]> commands = parse(message.getValue());
+        assertEquals(3, commands.size());
+        assertArrayEquals(new byte[] { 2, 2 }, commands.get(1));
+        assertFalse(future1.isDone());
+
+        listener.getValue().futureDone(completed(new Object[] { "foo", new CommandFailure(exception), null }));
+
+        assertEquals("foo", future1.get());
+        try {
+            future2.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+        assertNull(future3.get());
+
+        assertEquals(1L, this.batcher.getBatchCount());
+        assertEquals(3L, this.batcher.getCommandCount());
+        assertEquals(3, this.batcher.getMaxBatchSize());
+        assertEquals(3d, this.batcher.getMeanBatchSize(), 0d);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void window() throws Exception {
+        this.batcher = new CommandBatcher(this.dispatcher, this.options, 10, TimeUnit.MILLISECONDS, 100);
+
+        CompletableFuture<Object> future = this.batcher.submitOnNode(this.remote, new byte[] { 1 });
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<FutureListener<Object>> listener = ArgumentCaptor.forClass((Class<FutureListener<Object>>) (Class<?>) FutureListener.class);
+        verify(this.dispatcher, timeout(5000)).sendMessageWithFuture(message.capture(), any(RequestOptions.class), listener.capture());
+        assertEquals(1, parse(message.getValue()).size());
+
+        // Member does not know the fork of this dispatcher
+        listener.getValue().futureDone(completed(NoSuchService.INSTANCE));
+        assertNull(future.get());
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        this.batcher = new CommandBatcher(this.dispatcher, ChannelCommandDispatcher.createRequestOptions(10L), 1, TimeUnit.MINUTES, 1);
+
+        // Response is never received
+        CompletableFuture<Object> future = this.batcher.submitOnNode(this.remote, new byte[] { 1 });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void noSuchService() throws Exception {
+        this.batcher = new CommandBatcher(this.dispatcher, this.options, 1, TimeUnit.MINUTES, 2);
+
+        CompletableFuture<Object> future1 = this.batcher.submitOnNode(this.remote, new byte[] { 1 });
+        CompletableFuture<Object> future2 = this.batcher.submitOnNode(this.remote, new byte[] { 2 });
+
+        ArgumentCaptor<FutureListener<Object>> listener = ArgumentCaptor.forClass((Class<FutureListener<Object>>) (Class<?>) FutureListener.class);
+        verify(this.dispatcher).sendMessageWithFuture(any(Message.class), any(RequestOptions.class), listener.capture());
+
+        // Target service is not registered on the member for the second command only
+        listener.getValue().futureDone(completed(new Object[] { "foo", NoSuchService.INSTANCE }));
+
+        assertEquals("foo", future1.get());
+        assertNull(future2.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void cluster() throws Exception {
+        this.batcher = new CommandBatcher(this.dispatcher, this.options, 1, TimeUnit.MINUTES, 2);
+        Address failing = UUID.randomUUID();
+        Address suspected = UUID.randomUUID();
+        Exception exception = new Exception();
+
+        CompletableFuture<Map<Address, CommandResponse<Object>>> future1 = this.batcher.submitOnCluster(null, new byte[] { 1 });
+        // Different exclusions go into a different batch
+        CompletableFuture<Map<Address, CommandResponse<Object>>> excluded = this.batcher.submitOnCluster(new Address[] { this.local }, new byte[] { 0 });
+        CompletableFuture<Map<Address, CommandResponse<Object>>> future2 = this.batcher.submitOnCluster(new Address[0], new byte[] { 2 });
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<FutureListener<RspList<Object>>> listener = ArgumentCaptor.forClass((Class<FutureListener<RspList<Object>>>) (Class<?>) FutureListener.class);
+        verify(this.dispatcher).castMessageWithFuture((Collection<Address>) isNull(), message.capture(), any(RequestOptions.class), listener.capture());
+        assertNull(message.getValue().getDest());
+        assertEquals(2, parse(message.getValue()).size());
+
+        RspList<Object> responses = new RspList<>();
+        Rsp<Object> response = new Rsp<>(this.remote);
+        response.setValue(new Object[] { "foo", NoSuchService.INSTANCE });
+        responses.put(this.remote, response);
+        responses.put(failing, new Rsp<>(failing, exception));
+        Rsp<Object> noResponse = new Rsp<>(suspected);
+        noResponse.setSuspected();
+        responses.put(suspected, noResponse);
+        listener.getValue().futureDone(completed(responses));
+
+        Map<Address, CommandResponse<Object>> results1 = future1.get();
+        assertEquals(2, results1.size());
+        assertEquals("foo", results1.get(this.remote).get());
+        try {
+            results1.get(failing).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+
+        Map<Address, CommandResponse<Object>> results2 = future2.get();
+        assertEquals(1, results2.size());
+        assertTrue(results2.containsKey(failing));
+
+        assertFalse(excluded.isDone());
+    }
+
+    private static List<byte[]> parse(Message message) throws IOException {
+        List<byte[]> commands = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(message.getRawBuffer(), message.getOffset(), message.getLength()))) {
+            assertEquals(CommandBatcher.BATCH, IndexExternalizer.VARIABLE.readData(input));
+            int size = IndexExternalizer.VARIABLE.readData(input);
+            for (int i = 0; i < size; ++i) {
+                byte[] command = new byte[IndexExternalizer.VARIABLE.readData(input)];
+                input.readFully(command);
+                commands.add(command);
+            }
+            assertEquals(-1, input.read());
+        }
+        return commands;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Future<T> completed(Object value) {
+        return (Future<T>) CompletableFuture.completedFuture(value);
+    }
+}
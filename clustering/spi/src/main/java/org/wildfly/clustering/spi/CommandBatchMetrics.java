@@ -0,0 +1,59 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.spi;
+
+/**
+ * Metrics of the commands coalesced into batches by a command dispatcher factory.
+ * All metrics are zero if the command dispatcher factory does not batch commands.
+ */
+public interface CommandBatchMetrics {
+
+    /**
+     * @return the number of batches sent
+     */
+    long getBatchCount();
+
+    /**
+     * @return the number of commands sent within batches
+     */
+    long getCommandCount();
+
+    /**
+     * @return the mean number of commands per batch
+     */
+    double getMeanBatchSize();
+
+    /**
+     * @return the largest number of commands sent within a single batch
+     */
+    int getMaxBatchSize();
+
+    /**
+     * @return the mean time in milliseconds between sending a batch and receiving all of its responses
+     */
+    double getMeanLatency();
+
+    /**
+     * @return the longest time in milliseconds between sending a batch and receiving all of its responses
+     */
+    double getMaxLatency();
+}
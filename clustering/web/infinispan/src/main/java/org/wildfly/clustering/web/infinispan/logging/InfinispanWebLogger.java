@@ -85,4 +85,8 @@ public interface InfinispanWebLogger extends BasicLogger {
     @LogMessage(level = WARN)
     @Message(id = 11, value = "Session %s is missing cache entry for attribute %s")
     void missingSessionAttributeCacheEntry(String sessionId, String attribute);
+
+    @LogMessage(level = WARN)
+    @Message(id = 12, value = "Failed to write the last access time of %d sessions")
+    void failedToFlushSessionAccessMetaData(@Cause Throwable cause, int sessions);
 }
@@ -46,6 +46,7 @@ import javax.servlet.http.HttpSessionBindingListener;
 import javax.servlet.http.HttpSessionEvent;
 
 import org.infinispan.Cache;
+import org.infinispan.CacheStream;
 import org.infinispan.commons.CacheException;
 import org.infinispan.context.Flag;
 import org.infinispan.distribution.DistributionManager;
@@ -75,7 +76,7 @@ import org.wildfly.clustering.group.NodeFactory;
 import org.wildfly.clustering.infinispan.spi.distribution.ConsistentHashLocality;
 import org.wildfly.clustering.infinispan.spi.distribution.Key;
 import org.wildfly.clustering.infinispan.spi.distribution.Locality;
-import org.wildfly.clustering.infinispan.spi.distribution.SimpleLocality;
+import org.wildfly.clustering.infinispan.spi.distribution.SegmentOwnership;
 import org.wildfly.clustering.web.IdentifierFactory;
 import org.wildfly.clustering.web.infinispan.logging.InfinispanWebLogger;
 import org.wildfly.clustering.web.session.ImmutableHttpSessionAdapter;
@@ -116,6 +117,7 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
     private final Locality locality;
     private final Recordable<ImmutableSession> recorder;
     private final ServletContext context;
+    private final SessionAccessMetaDataFlusher flusher;
     private final AtomicReference<Future<?>> rehashFuture = new AtomicReference<>();
 
     private volatile CommandDispatcher<Scheduler> dispatcher;
@@ -135,6 +137,7 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
         this.maxActiveSessions = configuration.getMaxActiveSessions();
         this.recorder = configuration.getInactiveSessionRecorder();
         this.context = configuration.getServletContext();
+        this.flusher = configuration.getAccessMetaDataFlusher();
     }
 
     @Override
@@ -144,6 +147,9 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
             this.recorder.reset();
         }
         this.identifierFactory.start();
+        if (this.flusher != null) {
+            this.flusher.start();
+        }
         final List<Scheduler> schedulers = new ArrayList<>(2);
         schedulers.add(new SessionExpirationScheduler(this.batcher, new ExpiredSessionRemover<>(this.factory, this.expirationListener)));
         if (this.maxActiveSessions >= 0) {
@@ -172,7 +178,8 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
         };
         this.dispatcher = this.dispatcherFactory.createCommandDispatcher(this.cache.getName() + ".schedulers", this.scheduler);
         this.cache.addListener(this, this.filter);
-        this.schedule(new SimpleLocality(false), this.locality);
+        // Schedule all sessions for which we are the primary owner
+        this.schedule(null, this.locality);
     }
 
     @Override
@@ -185,6 +192,9 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         } finally {
+            if (this.flusher != null) {
+                this.flusher.close();
+            }
             this.dispatcher.close();
             this.scheduler.close();
             this.identifierFactory.stop();
@@ -253,7 +263,7 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
             return null;
         }
         ImmutableSession session = this.factory.createImmutableSession(id, value);
-        if (session.getMetaData().isExpired()) {
+        if (this.isExpired(session.getMetaData())) {
             InfinispanWebLogger.ROOT_LOGGER.tracef("Session %s was found, but has expired", id);
             this.expirationListener.sessionExpired(session);
             this.factory.remove(id);
@@ -269,6 +279,11 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
         return new SchedulableSession(this.factory.createSession(id, value), session);
     }
 
+    private boolean isExpired(ImmutableSessionMetaData metaData) {
+        // If last access times are coalesced, the session might have been accessed on another node since the last flush
+        return (this.flusher != null) ? this.flusher.isExpired(metaData) : metaData.isExpired();
+    }
+
     @Override
     public Session<L> createSession(String id) {
         Map.Entry<MV, AV> entry = this.factory.createValue(id, null);
@@ -381,25 +396,37 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
                 // Executor was shutdown
             }
         } else {
-            Locality oldLocality = new ConsistentHashLocality(localAddress, event.getConsistentHashAtStart());
-            try {
-                this.rehashFuture.set(this.executor.submit(() -> this.schedule(oldLocality, newLocality)));
-            } catch (RejectedExecutionException e) {
-                // Executor was shutdown
+            // Only sessions of those segments for which we became the primary owner need to be scheduled
+            Set<Integer> segments = SegmentOwnership.getGainedPrimarySegments(localAddress, event.getConsistentHashAtStart(), event.getConsistentHashAtEnd());
+            if (!segments.isEmpty()) {
+                try {
+                    this.rehashFuture.set(this.executor.submit(() -> this.schedule(segments, newLocality)));
+                } catch (RejectedExecutionException e) {
+                    // Executor was shutdown
+                }
             }
         }
     }
 
-    private void schedule(Locality oldLocality, Locality newLocality) {
+    /**
+     * Schedules the sessions in memory for which we are the primary owner.
+     * @param segments the segments whose sessions should be scheduled, or null, to schedule sessions of all segments
+     * @param locality the current locality
+     */
+    private void schedule(Set<Integer> segments, Locality locality) {
         SessionMetaDataFactory<MV, L> metaDataFactory = this.factory.getMetaDataFactory();
+        CacheStream<Key<String>> keyStream = this.cache.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD).keySet().stream();
+        if (segments != null) {
+            keyStream = keyStream.filterKeySegments(segments);
+        }
         // Iterate over sessions in memory
-        try (Stream<Key<String>> stream = this.cache.getAdvancedCache().withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_LOAD).keySet().stream().filter(this.filter)) {
+        try (Stream<Key<String>> stream = keyStream.filter(this.filter)) {
             Iterator<Key<String>> keys = stream.iterator();
             while (keys.hasNext()) {
                 if (Thread.currentThread().isInterrupted()) break;
                 Key<String> key = keys.next();
-                // If we are the new primary owner of this session then schedule expiration of this session locally
-                if (this.filter.test(key) && !oldLocality.isLocal(key) && newLocality.isLocal(key)) {
+                // If we are the primary owner of this session then schedule expiration of this session locally
+                if (locality.isLocal(key)) {
                     String id = key.getValue();
                     try (Batch batch = this.batcher.createBatch()) {
                         try {
@@ -408,7 +435,6 @@ public class InfinispanSessionManager<MV, AV, L> implements SessionManager<L, Tr
                             if (value != null) {
                                 this.scheduler.schedule(id, metaDataFactory.createImmutableSessionMetaData(id, value));
                             }
-                            return;
                         } catch (CacheException e) {
                             batch.discard();
                         }
@@ -51,4 +51,5 @@ public interface InfinispanSessionManagerConfiguration {
     NodeFactory<Address> getNodeFactory();
     int getMaxActiveSessions();
     Recordable<ImmutableSession> getInactiveSessionRecorder();
+    SessionAccessMetaDataFlusher getAccessMetaDataFlusher();
 }
@@ -40,6 +40,7 @@ import org.wildfly.clustering.marshalling.spi.MarshalledValueMarshaller;
 import org.wildfly.clustering.web.IdentifierFactory;
 import org.wildfly.clustering.web.LocalContextFactory;
 import org.wildfly.clustering.web.infinispan.AffinityIdentifierFactory;
+import org.wildfly.clustering.web.infinispan.session.coarse.CoarseDeltaSessionAttributesFactory;
 import org.wildfly.clustering.web.infinispan.session.coarse.CoarseSessionAttributesFactory;
 import org.wildfly.clustering.web.infinispan.session.fine.FineSessionAttributesFactory;
 import org.wildfly.clustering.web.session.ImmutableSession;
@@ -70,6 +71,7 @@ public class InfinispanSessionManagerFactory<C extends Marshallability> implemen
         final CommandDispatcherFactory dispatcherFactory = this.config.getCommandDispatcherFactory();
         final NodeFactory<Address> nodeFactory = this.config.getNodeFactory();
         final int maxActiveSessions = this.config.getSessionManagerFactoryConfiguration().getMaxActiveSessions();
+        final SessionAccessMetaDataFlusher flusher = SessionAccessMetaDataFlusher.create(this.config.getCache(), batcher);
         InfinispanSessionManagerConfiguration config = new InfinispanSessionManagerConfiguration() {
             @Override
             public SessionExpirationListener getExpirationListener() {
@@ -120,12 +122,17 @@ public class InfinispanSessionManagerFactory<C extends Marshallability> implemen
             public Recordable<ImmutableSession> getInactiveSessionRecorder() {
                 return configuration.getInactiveSessionRecorder();
             }
+
+            @Override
+            public SessionAccessMetaDataFlusher getAccessMetaDataFlusher() {
+                return flusher;
+            }
         };
-        return new InfinispanSessionManager<>(this.createSessionFactory(properties, configuration.getLocalContextFactory()), config);
+        return new InfinispanSessionManager<>(this.createSessionFactory(properties, configuration.getLocalContextFactory(), flusher), config);
     }
 
-    private <L> SessionFactory<?, ?, L> createSessionFactory(CacheProperties properties, LocalContextFactory<L> localContextFactory) {
-        SessionMetaDataFactory<InfinispanSessionMetaData<L>, L> metaDataFactory = new InfinispanSessionMetaDataFactory<>(this.config.getCache(), properties);
+    private <L> SessionFactory<?, ?, L> createSessionFactory(CacheProperties properties, LocalContextFactory<L> localContextFactory, SessionAccessMetaDataFlusher flusher) {
+        SessionMetaDataFactory<InfinispanSessionMetaData<L>, L> metaDataFactory = new InfinispanSessionMetaDataFactory<>(this.config.getCache(), properties, flusher);
         return new InfinispanSessionFactory<>(metaDataFactory, this.createSessionAttributesFactory(properties), localContextFactory);
     }
 
@@ -139,6 +146,9 @@ public class InfinispanSessionManagerFactory<C extends Marshallability> implemen
                 return new FineSessionAttributesFactory<>(this.config.getCache(), this.config.getCache(), new MarshalledValueMarshaller<>(factory, context), properties);
             }
             case COARSE: {
+                if (CoarseDeltaSessionAttributesFactory.isEnabled()) {
+                    return new CoarseDeltaSessionAttributesFactory<>(this.config.getCache(), new MarshalledValueMarshaller<>(factory, context), properties);
+                }
                 return new CoarseSessionAttributesFactory<>(this.config.getCache(), new MarshalledValueMarshaller<>(factory, context), properties);
             }
             default: {
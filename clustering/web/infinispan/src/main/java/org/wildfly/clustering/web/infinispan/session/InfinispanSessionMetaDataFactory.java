@@ -39,13 +39,22 @@ public class InfinispanSessionMetaDataFactory<L> implements SessionMetaDataFacto
     private final Cache<SessionCreationMetaDataKey, SessionCreationMetaDataEntry<L>> findCreationMetaDataCache;
     private final Cache<SessionAccessMetaDataKey, SessionAccessMetaData> accessMetaDataCache;
     private final CacheProperties properties;
+    private final SessionAccessMetaDataFlusher flusher;
 
-    @SuppressWarnings("unchecked")
     public InfinispanSessionMetaDataFactory(Cache<? extends Key<String>, ?> cache, CacheProperties properties) {
+        this(cache, properties, null);
+    }
+
+    /**
+     * @param flusher coalesces last access time updates, or null to write them on every request
+     */
+    @SuppressWarnings("unchecked")
+    public InfinispanSessionMetaDataFactory(Cache<? extends Key<String>, ?> cache, CacheProperties properties, SessionAccessMetaDataFlusher flusher) {
         this.creationMetaDataCache = (Cache<SessionCreationMetaDataKey, SessionCreationMetaDataEntry<L>>) cache;
         this.findCreationMetaDataCache = properties.isLockOnRead() ? this.creationMetaDataCache.getAdvancedCache().withFlags(Flag.FORCE_WRITE_LOCK) : this.creationMetaDataCache;
         this.accessMetaDataCache = (Cache<SessionAccessMetaDataKey, SessionAccessMetaData>) cache;
         this.properties = properties;
+        this.flusher = flusher;
     }
 
     @Override
@@ -73,7 +82,12 @@ public class InfinispanSessionMetaDataFactory<L> implements SessionMetaDataFacto
         SessionCreationMetaDataKey key = new SessionCreationMetaDataKey(id);
         SessionCreationMetaDataEntry<L> creationMetaDataEntry = creationMetaDataCache.get(key);
         if (creationMetaDataEntry != null) {
-            SessionAccessMetaData accessMetaData = this.accessMetaDataCache.get(new SessionAccessMetaDataKey(id));
+            SessionAccessMetaDataKey accessMetaDataKey = new SessionAccessMetaDataKey(id);
+            // An update of the last access time made by this node that was not flushed yet is more recent than the cache entry
+            SessionAccessMetaData accessMetaData = (this.flusher != null) ? this.flusher.getPendingValue(accessMetaDataKey) : null;
+            if (accessMetaData == null) {
+                accessMetaData = this.accessMetaDataCache.get(accessMetaDataKey);
+            }
             if (accessMetaData != null) {
                 return new InfinispanSessionMetaData<>(creationMetaDataEntry.getMetaData(), accessMetaData, creationMetaDataEntry.getLocalContext());
             }
@@ -90,12 +104,16 @@ public class InfinispanSessionMetaDataFactory<L> implements SessionMetaDataFacto
         SessionCreationMetaData creationMetaData = new MutableSessionCreationMetaData(entry.getCreationMetaData(), creationMutator);
 
         SessionAccessMetaDataKey accessMetaDataKey = new SessionAccessMetaDataKey(id);
-        Mutator accessMutator = this.properties.isTransactional() && this.accessMetaDataCache.getAdvancedCache().getCacheEntry(accessMetaDataKey).isCreated() ? Mutator.PASSIVE : new CacheEntryMutator<>(this.accessMetaDataCache, accessMetaDataKey, entry.getAccessMetaData());
+        Mutator accessMutator = this.properties.isTransactional() && this.accessMetaDataCache.getAdvancedCache().getCacheEntry(accessMetaDataKey).isCreated() ? Mutator.PASSIVE : this.createAccessMutator(accessMetaDataKey, entry);
         SessionAccessMetaData accessMetaData = new MutableSessionAccessMetaData(entry.getAccessMetaData(), accessMutator);
 
         return new SimpleSessionMetaData(creationMetaData, accessMetaData);
     }
 
+    private Mutator createAccessMutator(SessionAccessMetaDataKey key, InfinispanSessionMetaData<L> entry) {
+        return (this.flusher != null) ? this.flusher.createMutator(key, entry.getAccessMetaData(), entry.getCreationMetaData()) : new CacheEntryMutator<>(this.accessMetaDataCache, key, entry.getAccessMetaData());
+    }
+
     @Override
     public ImmutableSessionMetaData createImmutableSessionMetaData(String id, InfinispanSessionMetaData<L> entry) {
         return new SimpleSessionMetaData(entry.getCreationMetaData(), entry.getAccessMetaData());
@@ -114,8 +132,12 @@ public class InfinispanSessionMetaDataFactory<L> implements SessionMetaDataFacto
     private boolean remove(String id, Cache<SessionCreationMetaDataKey, SessionCreationMetaDataEntry<L>> creationMetaDataCache) {
         SessionCreationMetaDataKey key = new SessionCreationMetaDataKey(id);
         if (!this.properties.isLockOnWrite() || creationMetaDataCache.getAdvancedCache().withFlags(Flag.ZERO_LOCK_ACQUISITION_TIMEOUT, Flag.FAIL_SILENTLY).lock(key)) {
+            SessionAccessMetaDataKey accessMetaDataKey = new SessionAccessMetaDataKey(id);
+            if (this.flusher != null) {
+                this.flusher.discard(accessMetaDataKey);
+            }
             creationMetaDataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).remove(key);
-            this.accessMetaDataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).remove(new SessionAccessMetaDataKey(id));
+            this.accessMetaDataCache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).remove(accessMetaDataKey);
             return true;
         }
         return false;
@@ -125,8 +147,12 @@ public class InfinispanSessionMetaDataFactory<L> implements SessionMetaDataFacto
     public boolean evict(String id) {
         SessionCreationMetaDataKey key = new SessionCreationMetaDataKey(id);
         if (this.findCreationMetaDataCache.getAdvancedCache().withFlags(EVICTION_FLAGS).get(key) != null) {
+            SessionAccessMetaDataKey accessMetaDataKey = new SessionAccessMetaDataKey(id);
+            if (this.flusher != null) {
+                this.flusher.flush(accessMetaDataKey);
+            }
             this.creationMetaDataCache.evict(key);
-            this.accessMetaDataCache.evict(new SessionAccessMetaDataKey(id));
+            this.accessMetaDataCache.evict(accessMetaDataKey);
             return true;
         }
         return false;
@@ -0,0 +1,253 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session;
+
+import java.security.PrivilegedAction;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
+import org.jboss.threads.JBossThreadFactory;
+import org.wildfly.clustering.ee.Batch;
+import org.wildfly.clustering.ee.Batcher;
+import org.wildfly.clustering.ee.Mutator;
+import org.wildfly.clustering.ee.infinispan.CacheEntryMutator;
+import org.wildfly.clustering.ee.infinispan.TransactionBatch;
+import org.wildfly.clustering.web.infinispan.logging.InfinispanWebLogger;
+import org.wildfly.clustering.web.session.ImmutableSessionMetaData;
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Coalesces last access time updates of sessions on this node and writes them to the cache in batches on a fixed
+ * interval, instead of writing them at the end of every request.
+ * <p/>
+ * The flush interval bounds how stale the last access time seen by other nodes can be. Updates of sessions whose
+ * max inactive interval is shorter than {@value #MAX_INACTIVE_INTERVAL_FACTOR} flush intervals are still written
+ * immediately, so a pending update is always replicated well before the primary owner expires the session.
+ * Removing a session discards its pending update, evicting it writes the pending update first. Pending updates only
+ * replace existing entries, so that a session removed by another node is never recreated.
+ */
+public class SessionAccessMetaDataFlusher implements AutoCloseable {
+
+    /**
+     * System property defining the flush interval in milliseconds. Coalescing is disabled if undefined or zero.
+     */
+    public static final String FLUSH_INTERVAL = "wildfly.clustering.web.access-flush-interval";
+
+    static final int MAX_INACTIVE_INTERVAL_FACTOR = 10;
+
+    private static ThreadFactory createThreadFactory() {
+        PrivilegedAction<ThreadFactory> action = () -> new JBossThreadFactory(new ThreadGroup(SessionAccessMetaDataFlusher.class.getSimpleName()), Boolean.FALSE, null, "%G - %t", null, null);
+        return WildFlySecurityManager.doUnchecked(action);
+    }
+
+    /**
+     * Creates a flusher for the given cache if coalescing is enabled via {@link #FLUSH_INTERVAL}.
+     * @return a flusher, or null if last access times should be written immediately
+     */
+    public static SessionAccessMetaDataFlusher create(Cache<SessionAccessMetaDataKey, SessionAccessMetaData> cache, Batcher<TransactionBatch> batcher) {
+        long interval = Long.parseLong(WildFlySecurityManager.getPropertyPrivileged(FLUSH_INTERVAL, "0"));
+        return (interval > 0) ? new SessionAccessMetaDataFlusher(cache, batcher, Duration.ofMillis(interval)) : null;
+    }
+
+    private final Cache<SessionAccessMetaDataKey, SessionAccessMetaData> cache;
+    private final Batcher<TransactionBatch> batcher;
+    private final Duration interval;
+    private final Duration minMaxInactiveInterval;
+    private final ConcurrentMap<SessionAccessMetaDataKey, SessionAccessMetaData> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder coalescedCount = new LongAdder();
+    private final LongAdder immediateCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+
+    private volatile ScheduledExecutorService executor;
+
+    public SessionAccessMetaDataFlusher(Cache<SessionAccessMetaDataKey, SessionAccessMetaData> cache, Batcher<TransactionBatch> batcher, Duration interval) {
+        this.cache = cache;
+        this.batcher = batcher;
+        this.interval = interval;
+        this.minMaxInactiveInterval = interval.multipliedBy(MAX_INACTIVE_INTERVAL_FACTOR);
+    }
+
+    public void start() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, createThreadFactory());
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        long millis = this.interval.toMillis();
+        executor.scheduleWithFixedDelay(this::flush, millis, millis, TimeUnit.MILLISECONDS);
+        this.executor = executor;
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService executor = this.executor;
+        if (executor != null) {
+            PrivilegedAction<Void> action = () -> {
+                executor.shutdown();
+                return null;
+            };
+            WildFlySecurityManager.doUnchecked(action);
+            try {
+                executor.awaitTermination(this.interval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Don't lose the last access time of sessions accessed since the last flush
+        this.flush();
+        InfinispanWebLogger.ROOT_LOGGER.debugf("%s: %d last access time updates coalesced into %d writes, %d written immediately", this.cache.getName(), this.coalescedCount.sum(), this.flushCount.sum(), this.immediateCount.sum());
+    }
+
+    /**
+     * Creates a mutator that defers the write of the specified access meta data to the next flush.
+     */
+    public Mutator createMutator(SessionAccessMetaDataKey key, SessionAccessMetaData value, SessionCreationMetaData creationMetaData) {
+        Mutator mutator = new CacheEntryMutator<>(this.cache, key, value);
+        return () -> {
+            Duration maxInactiveInterval = creationMetaData.getMaxInactiveInterval();
+            if (!maxInactiveInterval.isZero() && maxInactiveInterval.compareTo(this.minMaxInactiveInterval) < 0) {
+                this.immediateCount.increment();
+                mutator.mutate();
+            } else {
+                this.pending.put(key, value);
+                this.coalescedCount.increment();
+            }
+        };
+    }
+
+    /**
+     * Returns the access meta data of the specified session that was not yet written to the cache.
+     * @return a copy of the pending access meta data, or null if there is none
+     */
+    public SessionAccessMetaData getPendingValue(SessionAccessMetaDataKey key) {
+        SessionAccessMetaData value = this.pending.get(key);
+        if (value == null) return null;
+        SessionAccessMetaData copy = new SimpleSessionAccessMetaData();
+        copy.setLastAccessedDuration(value.getLastAccessedDuration());
+        return copy;
+    }
+
+    /**
+     * Discards the pending update of a session that is being removed, waiting for a flush in progress to complete so
+     * that it cannot recreate the entry.
+     */
+    public synchronized void discard(SessionAccessMetaDataKey key) {
+        this.pending.remove(key);
+    }
+
+    /**
+     * Writes the pending update of the specified session, if any.
+     */
+    public synchronized void flush(SessionAccessMetaDataKey key) {
+        SessionAccessMetaData value = this.pending.remove(key);
+        if (value != null) {
+            this.flushCount.increment();
+            this.cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES, Flag.FAIL_SILENTLY).replace(key, value);
+        }
+    }
+
+    /**
+     * Writes all pending updates to the cache using a single batch.
+     * Never throws, since an exception would cancel all subsequent scheduled flushes.
+     */
+    public synchronized void flush() {
+        if (this.pending.isEmpty()) return;
+        Map<SessionAccessMetaDataKey, SessionAccessMetaData> entries = new HashMap<>();
+        for (SessionAccessMetaDataKey key : this.pending.keySet()) {
+            // A concurrent update of the same session after this point is picked up by the next flush
+            SessionAccessMetaData value = this.pending.remove(key);
+            if (value != null) {
+                entries.put(key, value);
+            }
+        }
+        if (entries.isEmpty()) return;
+        InfinispanWebLogger.ROOT_LOGGER.tracef("Writing last access time of %d sessions", entries.size());
+        try {
+            try (Batch batch = this.batcher.createBatch()) {
+                try {
+                    AdvancedCache<SessionAccessMetaDataKey, SessionAccessMetaData> cache = this.cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES, Flag.FAIL_SILENTLY);
+                    for (Map.Entry<SessionAccessMetaDataKey, SessionAccessMetaData> entry : entries.entrySet()) {
+                        // Conditional write, so that we never recreate the entry of a session removed by another node
+                        cache.replace(entry.getKey(), entry.getValue());
+                    }
+                } catch (RuntimeException e) {
+                    batch.discard();
+                    throw e;
+                }
+            }
+            this.flushCount.increment();
+        } catch (RuntimeException e) {
+            InfinispanWebLogger.ROOT_LOGGER.failedToFlushSessionAccessMetaData(e, entries.size());
+            // Retry with the next flush, unless a session was accessed again in the meantime
+            for (Map.Entry<SessionAccessMetaDataKey, SessionAccessMetaData> entry : entries.entrySet()) {
+                this.pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the specified session expired, taking into account that its last access time may have been
+     * updated by another node within the last flush interval.
+     */
+    public boolean isExpired(ImmutableSessionMetaData metaData) {
+        Duration maxInactiveInterval = metaData.getMaxInactiveInterval();
+        return !maxInactiveInterval.isZero() ? metaData.getLastAccessedTime().plus(maxInactiveInterval).plus(this.interval).isBefore(Instant.now()) : false;
+    }
+
+    /**
+     * @return the number of last access time updates that were deferred to a batch
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.sum();
+    }
+
+    /**
+     * @return the number of batches written
+     */
+    public long getFlushCount() {
+        return this.flushCount.sum();
+    }
+
+    /**
+     * @return the number of last access time updates written immediately because of a short max inactive interval
+     */
+    public long getImmediateCount() {
+        return this.immediateCount.sum();
+    }
+
+    /**
+     * @return the number of cache writes avoided by coalescing
+     */
+    public long getSavedRoundTrips() {
+        return Math.max(0L, this.coalescedCount.sum() - this.flushCount.sum());
+    }
+}
@@ -25,19 +25,14 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 import org.jboss.threads.JBossThreadFactory;
-import org.wildfly.clustering.ee.Batch;
 import org.wildfly.clustering.ee.Batcher;
 import org.wildfly.clustering.ee.Remover;
+import org.wildfly.clustering.ee.infinispan.TimeBucketScheduler;
 import org.wildfly.clustering.ee.infinispan.TransactionBatch;
 import org.wildfly.clustering.infinispan.spi.distribution.Locality;
 import org.wildfly.clustering.web.infinispan.logging.InfinispanWebLogger;
@@ -45,14 +40,13 @@ import org.wildfly.clustering.web.session.ImmutableSessionMetaData;
 
 /**
  * Session expiration scheduler that eagerly expires sessions as soon as they are eligible.
+ * Sessions are grouped into time buckets, such that sessions expiring at about the same time are removed by the same task.
  * If/When Infinispan implements expiration notifications (ISPN-694), this will be obsolete.
  * @author Paul Ferraro
  */
 public class SessionExpirationScheduler implements Scheduler {
 
-    final Map<String, Future<?>> expirationFutures = new ConcurrentHashMap<>();
-    final Batcher<TransactionBatch> batcher;
-    final Remover<String> remover;
+    private final TimeBucketScheduler<String> scheduler;
     private final ScheduledExecutorService executor;
 
     public SessionExpirationScheduler(Batcher<TransactionBatch> batcher, Remover<String> remover) {
@@ -76,82 +70,36 @@ public class SessionExpirationScheduler implements Scheduler {
     }
 
     public SessionExpirationScheduler(Batcher<TransactionBatch> batcher, Remover<String> remover, ScheduledExecutorService executor) {
-        this.batcher = batcher;
-        this.remover = remover;
         this.executor = executor;
+        this.scheduler = new TimeBucketScheduler<>(batcher, id -> {
+            InfinispanWebLogger.ROOT_LOGGER.tracef("Expiring session %s", id);
+            remover.remove(id);
+        }, (id, e) -> InfinispanWebLogger.ROOT_LOGGER.failedToExpireSession(e, id), executor);
     }
 
     @Override
     public void cancel(String sessionId) {
-        Future<?> future = this.expirationFutures.remove(sessionId);
-        if (future != null) {
-            future.cancel(false);
-        }
+        this.scheduler.cancel(sessionId);
     }
 
     @Override
     public void schedule(String sessionId, ImmutableSessionMetaData metaData) {
         Duration maxInactiveInterval = metaData.getMaxInactiveInterval();
         if (!maxInactiveInterval.isZero()) {
-            Instant lastAccessed = metaData.getLastAccessedTime();
-            Duration delay = Duration.between(Instant.now(), lastAccessed.plus(maxInactiveInterval));
-            Runnable task = new ExpirationTask(sessionId);
-            long seconds = !delay.isNegative() ? delay.getSeconds() + 1 : 0;
-            InfinispanWebLogger.ROOT_LOGGER.tracef("Session %s will expire in %d sec", sessionId, seconds);
-            synchronized (task) {
-                this.expirationFutures.put(sessionId, this.executor.schedule(task, seconds, TimeUnit.SECONDS));
-            }
+            Instant expiration = metaData.getLastAccessedTime().plus(maxInactiveInterval);
+            InfinispanWebLogger.ROOT_LOGGER.tracef("Session %s will expire at %s", sessionId, expiration);
+            this.scheduler.schedule(sessionId, expiration);
         }
     }
 
     @Override
     public void cancel(Locality locality) {
-        for (String sessionId : this.expirationFutures.keySet()) {
-            if (Thread.currentThread().isInterrupted()) break;
-            if (!locality.isLocal(sessionId)) {
-                this.cancel(sessionId);
-            }
-        }
+        this.scheduler.cancel(sessionId -> !locality.isLocal(sessionId));
     }
 
     @Override
     public void close() {
+        this.scheduler.close();
         this.executor.shutdown();
-        this.expirationFutures.values().forEach(future -> future.cancel(false));
-        this.expirationFutures.values().stream().filter(future -> !future.isDone()).forEach(future -> {
-            try {
-                future.get();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                // Ignore
-            }
-        });
-        this.expirationFutures.clear();
-    }
-
-    private class ExpirationTask implements Runnable {
-        private final String id;
-
-        ExpirationTask(String id) {
-            this.id = id;
-        }
-
-        @Override
-        public void run() {
-            InfinispanWebLogger.ROOT_LOGGER.tracef("Expiring session %s", this.id);
-            try (Batch batch = SessionExpirationScheduler.this.batcher.createBatch()) {
-                try {
-                    SessionExpirationScheduler.this.remover.remove(this.id);
-                } catch (Throwable e) {
-                    InfinispanWebLogger.ROOT_LOGGER.failedToExpireSession(e, this.id);
-                    batch.discard();
-                }
-            } finally {
-                synchronized (this) {
-                    SessionExpirationScheduler.this.expirationFutures.remove(this.id);
-                }
-            }
-        }
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.infinispan.Cache;
+import org.infinispan.commons.marshall.NotSerializableException;
+import org.wildfly.clustering.ee.infinispan.CacheEntryMutator;
+import org.wildfly.clustering.ee.infinispan.CacheProperties;
+import org.wildfly.clustering.marshalling.spi.ByteBufferMarshalledValue;
+import org.wildfly.clustering.marshalling.spi.Marshaller;
+import org.wildfly.clustering.web.infinispan.session.SessionAttributes;
+import org.wildfly.clustering.web.session.SessionAttributeImmutability;
+
+/**
+ * Exposes session attributes for a coarse granularity session whose attributes are marshalled individually.
+ * On close, the serialized form of every attribute written, or read while not provably immutable, is compared to its
+ * digest as of its last replication, and only those attributes that actually changed are replicated. Attributes that
+ * are not marshalled have no serialized form to compare, and are always written.
+ * The cached entry may concurrently be read by other threads, so changes are made to a copy of it. On close, only the
+ * delta is written, which the cache merges into its current entry, so that changes written concurrently by other requests
+ * of the same session are retained.
+ */
+public class CoarseDeltaSessionAttributes<V> extends CoarseDeltaImmutableSessionAttributes<V> implements SessionAttributes {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final SessionAttributesKey key;
+    private final Cache<SessionAttributesKey, SessionAttributesEntry<V>> cache;
+    private final Marshaller<Object, V> marshaller;
+    private final CacheProperties properties;
+    private final Set<String> mutations = ConcurrentHashMap.newKeySet();
+    private final Set<String> removals = ConcurrentHashMap.newKeySet();
+
+    public CoarseDeltaSessionAttributes(SessionAttributesKey key, SessionAttributesEntry<V> entry, Cache<SessionAttributesKey, SessionAttributesEntry<V>> cache, Marshaller<Object, V> marshaller, CacheProperties properties) {
+        super(key.getValue(), new SessionAttributesEntry<>(new ConcurrentHashMap<>(entry.getAttributes()), new ConcurrentHashMap<>(entry.getDigests())), marshaller);
+        this.key = key;
+        this.cache = cache;
+        this.marshaller = marshaller;
+        this.properties = properties;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        Object value = super.getAttribute(name);
+        if ((value != null) && !SessionAttributeImmutability.INSTANCE.test(value)) {
+            this.mutations.add(name);
+        }
+        return value;
+    }
+
+    @Override
+    public Object setAttribute(String name, Object value) {
+        if (value == null) {
+            return this.removeAttribute(name);
+        }
+        if (this.properties.isMarshalling() && !this.marshaller.isMarshallable(value)) {
+            throw new IllegalArgumentException(new NotSerializableException(value.getClass().getName()));
+        }
+        V old = this.getEntry().getAttributes().put(name, this.marshaller.write(value));
+        this.removals.remove(name);
+        this.mutations.add(name);
+        return this.read(name, old);
+    }
+
+    @Override
+    public Object removeAttribute(String name) {
+        V old = this.getEntry().getAttributes().remove(name);
+        if (old != null) {
+            this.mutations.remove(name);
+            this.removals.add(name);
+        }
+        return this.read(name, old);
+    }
+
+    @Override
+    public void close() {
+        ConcurrentMap<String, V> attributes = this.getEntry().getAttributes();
+        ConcurrentMap<String, byte[]> digests = this.getEntry().getDigests();
+        Map<String, V> updates = new HashMap<>();
+        Map<String, byte[]> updatedDigests = new HashMap<>();
+        for (String name : this.mutations) {
+            V value = attributes.get(name);
+            if (value != null) {
+                byte[] digest = digest(value);
+                // Attributes whose serialized form did not change need not be replicated
+                if ((digest == null) || !Arrays.equals(digests.get(name), digest)) {
+                    updates.put(name, value);
+                    if (digest != null) {
+                        updatedDigests.put(name, digest);
+                    }
+                }
+            }
+        }
+        Set<String> removals = new HashSet<>(this.removals);
+        if (!updates.isEmpty() || !removals.isEmpty()) {
+            // Like a replicated delta, a written delta is merged by the cache into its current entry, under the lock of the entry
+            @SuppressWarnings("unchecked")
+            Cache<SessionAttributesKey, Object> cache = (Cache<SessionAttributesKey, Object>) (Cache<?, ?>) this.cache;
+            new CacheEntryMutator<>(cache, this.key, new SessionAttributesDelta<>(updates, updatedDigests, removals)).mutate();
+        }
+    }
+
+    /**
+     * Computes the digest of the serialized form held by the specified marshalled value.
+     * @return the digest, or null if the value is not marshalled, e.g. if the cache neither replicates nor persists it
+     */
+    static byte[] digest(Object value) {
+        if (!(value instanceof ByteBufferMarshalledValue)) return null;
+        try {
+            ByteBuffer buffer = ((ByteBufferMarshalledValue<?, ?>) value).getBuffer();
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            if (buffer != null) {
+                digest.update(buffer);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
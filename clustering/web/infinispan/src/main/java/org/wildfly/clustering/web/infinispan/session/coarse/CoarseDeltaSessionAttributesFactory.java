@@ -0,0 +1,114 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.infinispan.Cache;
+import org.infinispan.context.Flag;
+import org.wildfly.clustering.ee.infinispan.CacheProperties;
+import org.wildfly.clustering.marshalling.spi.InvalidSerializedFormException;
+import org.wildfly.clustering.marshalling.spi.Marshaller;
+import org.wildfly.clustering.web.infinispan.logging.InfinispanWebLogger;
+import org.wildfly.clustering.web.infinispan.session.SessionAttributes;
+import org.wildfly.clustering.web.infinispan.session.SessionAttributesFactory;
+import org.wildfly.clustering.web.session.ImmutableSessionAttributes;
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * {@link SessionAttributesFactory} for coarse granularity sessions, where all session attributes are stored in a single cache entry,
+ * but are marshalled individually, so that only the attributes that changed during a request are replicated.
+ * This trades the cost of serializing mutable attributes at the end of a request for replication bandwidth, which pays off for large sessions of which only a small part changes per request.
+ */
+public class CoarseDeltaSessionAttributesFactory<V> implements SessionAttributesFactory<SessionAttributesEntry<V>> {
+
+    /**
+     * System property that enables delta replication of coarse granularity sessions.
+     */
+    public static final String DELTA = "wildfly.clustering.web.coarse-delta";
+
+    /**
+     * Indicates whether coarse granularity sessions should replicate deltas, per {@link #DELTA}.
+     * @return true, if delta replication was enabled, false otherwise
+     */
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(WildFlySecurityManager.getPropertyPrivileged(DELTA, Boolean.FALSE.toString()));
+    }
+
+    private final Cache<SessionAttributesKey, SessionAttributesEntry<V>> cache;
+    private final Marshaller<Object, V> marshaller;
+    private final CacheProperties properties;
+
+    public CoarseDeltaSessionAttributesFactory(Cache<SessionAttributesKey, SessionAttributesEntry<V>> cache, Marshaller<Object, V> marshaller, CacheProperties properties) {
+        this.cache = cache;
+        this.marshaller = marshaller;
+        this.properties = properties;
+    }
+
+    @Override
+    public SessionAttributesEntry<V> createValue(String id, Void context) {
+        SessionAttributesEntry<V> entry = new SessionAttributesEntry<>(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        this.cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).put(new SessionAttributesKey(id), entry);
+        return entry;
+    }
+
+    @Override
+    public SessionAttributesEntry<V> findValue(String id) {
+        SessionAttributesEntry<V> entry = this.cache.get(new SessionAttributesKey(id));
+        if (entry != null) {
+            for (Map.Entry<String, V> attribute : entry.getAttributes().entrySet()) {
+                try {
+                    this.marshaller.read(attribute.getValue());
+                } catch (InvalidSerializedFormException e) {
+                    InfinispanWebLogger.ROOT_LOGGER.failedToActivateSessionAttribute(e, id, attribute.getKey());
+                    // If any attributes are invalid - remove them all
+                    this.remove(id);
+                    return null;
+                }
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public boolean remove(String id) {
+        this.cache.getAdvancedCache().withFlags(Flag.IGNORE_RETURN_VALUES).remove(new SessionAttributesKey(id));
+        return true;
+    }
+
+    @Override
+    public boolean evict(String id) {
+        this.cache.evict(new SessionAttributesKey(id));
+        return true;
+    }
+
+    @Override
+    public SessionAttributes createSessionAttributes(String id, SessionAttributesEntry<V> entry) {
+        return new CoarseDeltaSessionAttributes<>(new SessionAttributesKey(id), entry, this.cache, this.marshaller, this.properties);
+    }
+
+    @Override
+    public ImmutableSessionAttributes createImmutableSessionAttributes(String id, SessionAttributesEntry<V> entry) {
+        return new CoarseDeltaImmutableSessionAttributes<>(id, entry, this.marshaller);
+    }
+}
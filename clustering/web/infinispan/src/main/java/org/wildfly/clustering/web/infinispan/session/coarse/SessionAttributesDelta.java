@@ -0,0 +1,83 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.infinispan.atomic.Delta;
+import org.infinispan.atomic.DeltaAware;
+
+/**
+ * The changes made to a {@link SessionAttributesEntry} by a request, i.e. what is actually replicated.
+ */
+public class SessionAttributesDelta<V> implements Delta {
+    private final Map<String, V> updates;
+    private final Map<String, byte[]> digests;
+    private final Set<String> removals;
+
+    /**
+     * Creates a delta that replaces all attributes, as needed when an entry is created.
+     */
+    public SessionAttributesDelta(Map<String, V> attributes, Map<String, byte[]> digests) {
+        this(attributes, digests, Collections.emptySet());
+    }
+
+    public SessionAttributesDelta(Map<String, V> updates, Map<String, byte[]> digests, Set<String> removals) {
+        this.updates = updates;
+        this.digests = digests;
+        this.removals = removals;
+    }
+
+    public Map<String, V> getUpdates() {
+        return this.updates;
+    }
+
+    public Map<String, byte[]> getDigests() {
+        return this.digests;
+    }
+
+    public Set<String> getRemovals() {
+        return this.removals;
+    }
+
+    @Override
+    public DeltaAware merge(DeltaAware target) {
+        // Never modify the target in place, it may concurrently be read by other threads
+        @SuppressWarnings("unchecked")
+        SessionAttributesEntry<V> entry = (target instanceof SessionAttributesEntry) ? (SessionAttributesEntry<V>) target : null;
+        ConcurrentMap<String, V> attributes = (entry != null) ? new ConcurrentHashMap<>(entry.getAttributes()) : new ConcurrentHashMap<>();
+        ConcurrentMap<String, byte[]> digests = (entry != null) ? new ConcurrentHashMap<>(entry.getDigests()) : new ConcurrentHashMap<>();
+        for (String name : this.removals) {
+            attributes.remove(name);
+            digests.remove(name);
+        }
+        attributes.putAll(this.updates);
+        // An update without a digest invalidates the digest of the previous value
+        digests.keySet().removeAll(this.updates.keySet());
+        digests.putAll(this.digests);
+        return new SessionAttributesEntry<>(attributes, digests);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.kohsuke.MetaInfServices;
+import org.wildfly.clustering.marshalling.Externalizer;
+import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
+
+/**
+ * Externalizer for a {@link SessionAttributesDelta}.
+ */
+@MetaInfServices(Externalizer.class)
+public class SessionAttributesDeltaExternalizer<V> implements Externalizer<SessionAttributesDelta<V>> {
+
+    @Override
+    public void writeObject(ObjectOutput output, SessionAttributesDelta<V> delta) throws IOException {
+        Map<String, V> updates = delta.getUpdates();
+        Map<String, byte[]> digests = delta.getDigests();
+        IndexExternalizer.VARIABLE.writeData(output, updates.size());
+        for (Map.Entry<String, V> update : updates.entrySet()) {
+            String name = update.getKey();
+            output.writeUTF(name);
+            output.writeObject(update.getValue());
+            SessionAttributesEntryExternalizer.writeDigest(output, digests.get(name));
+        }
+        Set<String> removals = delta.getRemovals();
+        IndexExternalizer.VARIABLE.writeData(output, removals.size());
+        for (String name : removals) {
+            output.writeUTF(name);
+        }
+    }
+
+    @Override
+    public SessionAttributesDelta<V> readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+        int size = IndexExternalizer.VARIABLE.readData(input);
+        Map<String, V> updates = new HashMap<>(size);
+        Map<String, byte[]> digests = new HashMap<>(size);
+        for (int i = 0; i < size; ++i) {
+            String name = input.readUTF();
+            @SuppressWarnings("unchecked")
+            V value = (V) input.readObject();
+            updates.put(name, value);
+            byte[] digest = SessionAttributesEntryExternalizer.readDigest(input);
+            if (digest != null) {
+                digests.put(name, digest);
+            }
+        }
+        int removalCount = IndexExternalizer.VARIABLE.readData(input);
+        Set<String> removals = new HashSet<>(removalCount);
+        for (int i = 0; i < removalCount; ++i) {
+            removals.add(input.readUTF());
+        }
+        return new SessionAttributesDelta<>(updates, digests, removals);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Class<SessionAttributesDelta<V>> getTargetClass() {
+        return (Class<SessionAttributesDelta<V>>) (Class<?>) SessionAttributesDelta.class;
+    }
+}
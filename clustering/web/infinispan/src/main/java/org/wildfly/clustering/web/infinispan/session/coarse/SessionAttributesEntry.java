@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.util.concurrent.ConcurrentMap;
+
+import org.infinispan.atomic.Delta;
+import org.infinispan.atomic.DeltaAware;
+
+/**
+ * Cache entry of a coarse granularity session whose attributes are marshalled individually.
+ * When written to the cache, only its {@link #delta()}, i.e. the attributes whose serialized form changed, is replicated.
+ */
+public class SessionAttributesEntry<V> implements DeltaAware {
+    private final ConcurrentMap<String, V> attributes;
+    private final ConcurrentMap<String, byte[]> digests;
+    private final SessionAttributesDelta<V> delta;
+
+    public SessionAttributesEntry(ConcurrentMap<String, V> attributes, ConcurrentMap<String, byte[]> digests) {
+        this(attributes, digests, new SessionAttributesDelta<>(attributes, digests));
+    }
+
+    public SessionAttributesEntry(ConcurrentMap<String, V> attributes, ConcurrentMap<String, byte[]> digests, SessionAttributesDelta<V> delta) {
+        this.attributes = attributes;
+        this.digests = digests;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns the marshalled attributes of the session, by name.
+     * @return a map of marshalled attributes
+     */
+    public ConcurrentMap<String, V> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Returns the digest of the serialized form of each attribute, as of its last replication.
+     * @return a map of digests, by attribute name
+     */
+    public ConcurrentMap<String, byte[]> getDigests() {
+        return this.digests;
+    }
+
+    @Override
+    public Delta delta() {
+        return this.delta;
+    }
+
+    @Override
+    public void commit() {
+        // Each write uses a new entry, so there is never a delta to reset
+    }
+}
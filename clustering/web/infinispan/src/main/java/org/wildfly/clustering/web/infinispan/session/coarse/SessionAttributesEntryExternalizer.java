@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2013, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kohsuke.MetaInfServices;
+import org.wildfly.clustering.marshalling.Externalizer;
+import org.wildfly.clustering.marshalling.spi.IndexExternalizer;
+
+/**
+ * Externalizer for the full state of a {@link SessionAttributesEntry}, e.g. for state transfer or persistence.
+ */
+@MetaInfServices(Externalizer.class)
+public class SessionAttributesEntryExternalizer<V> implements Externalizer<SessionAttributesEntry<V>> {
+
+    @Override
+    public void writeObject(ObjectOutput output, SessionAttributesEntry<V> entry) throws IOException {
+        Map<String, V> attributes = entry.getAttributes();
+        Map<String, byte[]> digests = entry.getDigests();
+        IndexExternalizer.VARIABLE.writeData(output, attributes.size());
+        for (Map.Entry<String, V> attribute : attributes.entrySet()) {
+            String name = attribute.getKey();
+            output.writeUTF(name);
+            output.writeObject(attribute.getValue());
+            writeDigest(output, digests.get(name));
+        }
+    }
+
+    @Override
+    public SessionAttributesEntry<V> readObject(ObjectInput input) throws IOException, ClassNotFoundException {
+        int size = IndexExternalizer.VARIABLE.readData(input);
+        ConcurrentMap<String, V> attributes = new ConcurrentHashMap<>(size);
+        ConcurrentMap<String, byte[]> digests = new ConcurrentHashMap<>(size);
+        for (int i = 0; i < size; ++i) {
+            String name = input.readUTF();
+            @SuppressWarnings("unchecked")
+            V value = (V) input.readObject();
+            attributes.put(name, value);
+            byte[] digest = readDigest(input);
+            if (digest != null) {
+                digests.put(name, digest);
+            }
+        }
+        return new SessionAttributesEntry<>(attributes, digests);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Class<SessionAttributesEntry<V>> getTargetClass() {
+        return (Class<SessionAttributesEntry<V>>) (Class<?>) SessionAttributesEntry.class;
+    }
+
+    static void writeDigest(ObjectOutput output, byte[] digest) throws IOException {
+        if (digest != null) {
+            IndexExternalizer.VARIABLE.writeData(output, digest.length);
+            output.write(digest);
+        } else {
+            IndexExternalizer.VARIABLE.writeData(output, 0);
+        }
+    }
+
+    static byte[] readDigest(ObjectInput input) throws IOException {
+        int length = IndexExternalizer.VARIABLE.readData(input);
+        if (length == 0) return null;
+        byte[] digest = new byte[length];
+        input.readFully(digest);
+        return digest;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.junit.Test;
+import org.wildfly.clustering.ee.Batcher;
+import org.wildfly.clustering.ee.Mutator;
+import org.wildfly.clustering.ee.infinispan.TransactionBatch;
+import org.wildfly.clustering.web.session.ImmutableSessionMetaData;
+
+/**
+ * Unit test for {@link SessionAccessMetaDataFlusher}.
+ */
+public class SessionAccessMetaDataFlusherTestCase {
+
+    private final Cache<SessionAccessMetaDataKey, SessionAccessMetaData> cache = mock(Cache.class);
+    private final AdvancedCache<SessionAccessMetaDataKey, SessionAccessMetaData> advancedCache = mock(AdvancedCache.class);
+    private final Batcher<TransactionBatch> batcher = mock(Batcher.class);
+    private final TransactionBatch batch = mock(TransactionBatch.class);
+
+    private SessionAccessMetaDataFlusher createFlusher() {
+        when(this.cache.getCacheConfiguration()).thenReturn(new ConfigurationBuilder().build());
+        when(this.cache.getAdvancedCache()).thenReturn(this.advancedCache);
+        when(this.advancedCache.withFlags(Flag.IGNORE_RETURN_VALUES, Flag.FAIL_SILENTLY)).thenReturn(this.advancedCache);
+        when(this.batcher.createBatch()).thenReturn(this.batch);
+        return new SessionAccessMetaDataFlusher(this.cache, this.batcher, Duration.ofSeconds(1L));
+    }
+
+    @Test
+    public void coalesce() {
+        SessionAccessMetaDataFlusher flusher = this.createFlusher();
+        SessionCreationMetaData creationMetaData = mock(SessionCreationMetaData.class);
+        when(creationMetaData.getMaxInactiveInterval()).thenReturn(Duration.ofMinutes(30L));
+        SessionAccessMetaDataKey key = new SessionAccessMetaDataKey("session");
+        SessionAccessMetaData value = new SimpleSessionAccessMetaData();
+
+        Mutator mutator = flusher.createMutator(key, value, creationMetaData);
+        value.setLastAccessedDuration(Duration.ofSeconds(1L));
+        mutator.mutate();
+        value.setLastAccessedDuration(Duration.ofSeconds(2L));
+        mutator.mutate();
+
+        verifyZeroInteractions(this.advancedCache);
+
+        // Pending value is visible to subsequent requests on this node
+        SessionAccessMetaData pending = flusher.getPendingValue(key);
+        assertNotNull(pending);
+        assertEquals(Duration.ofSeconds(2L), pending.getLastAccessedDuration());
+
+        flusher.flush();
+
+        verify(this.advancedCache).replace(key, value);
+        verify(this.advancedCache, never()).put(key, value);
+        verify(this.batch).close();
+        assertNull(flusher.getPendingValue(key));
+        assertEquals(2L, flusher.getCoalescedCount());
+        assertEquals(1L, flusher.getFlushCount());
+        assertEquals(1L, flusher.getSavedRoundTrips());
+
+        // Nothing left to flush
+        flusher.flush();
+        assertEquals(1L, flusher.getFlushCount());
+    }
+
+    @Test
+    public void shortMaxInactiveInterval() {
+        SessionAccessMetaDataFlusher flusher = this.createFlusher();
+        SessionCreationMetaData creationMetaData = mock(SessionCreationMetaData.class);
+        when(creationMetaData.getMaxInactiveInterval()).thenReturn(Duration.ofSeconds(5L));
+        SessionAccessMetaDataKey key = new SessionAccessMetaDataKey("session");
+        SessionAccessMetaData value = new SimpleSessionAccessMetaData();
+
+        flusher.createMutator(key, value, creationMetaData).mutate();
+
+        verify(this.advancedCache).put(key, value);
+        assertNull(flusher.getPendingValue(key));
+        assertEquals(1L, flusher.getImmediateCount());
+    }
+
+    @Test
+    public void discard() {
+        SessionAccessMetaDataFlusher flusher = this.createFlusher();
+        SessionCreationMetaData creationMetaData = mock(SessionCreationMetaData.class);
+        when(creationMetaData.getMaxInactiveInterval()).thenReturn(Duration.ZERO);
+        SessionAccessMetaDataKey key = new SessionAccessMetaDataKey("session");
+
+        flusher.createMutator(key, new SimpleSessionAccessMetaData(), creationMetaData).mutate();
+        flusher.discard(key);
+        flusher.close();
+
+        verify(this.advancedCache, never()).replace(any(SessionAccessMetaDataKey.class), any(SessionAccessMetaData.class));
+    }
+
+    @Test
+    public void failedFlush() {
+        SessionAccessMetaDataFlusher flusher = this.createFlusher();
+        SessionCreationMetaData creationMetaData = mock(SessionCreationMetaData.class);
+        when(creationMetaData.getMaxInactiveInterval()).thenReturn(Duration.ZERO);
+        SessionAccessMetaDataKey key1 = new SessionAccessMetaDataKey("session1");
+        SessionAccessMetaDataKey key2 = new SessionAccessMetaDataKey("session2");
+        SessionAccessMetaData value1 = new SimpleSessionAccessMetaData();
+        SessionAccessMetaData value2 = new SimpleSessionAccessMetaData();
+
+        flusher.createMutator(key1, value1, creationMetaData).mutate();
+        flusher.createMutator(key2, value2, creationMetaData).mutate();
+
+        // e.g. commit failure
+        doThrow(new IllegalStateException()).doNothing().when(this.batch).close();
+
+        flusher.flush();
+
+        assertEquals(0L, flusher.getFlushCount());
+        assertNotNull(flusher.getPendingValue(key1));
+
+        // A more recent update must not be overwritten by the failed one
+        SessionAccessMetaData newValue = new SimpleSessionAccessMetaData();
+        newValue.setLastAccessedDuration(Duration.ofSeconds(1L));
+        flusher.createMutator(key2, newValue, creationMetaData).mutate();
+
+        flusher.flush();
+
+        assertEquals(1L, flusher.getFlushCount());
+        verify(this.advancedCache, times(2)).replace(key1, value1);
+        verify(this.advancedCache).replace(key2, newValue);
+        assertNull(flusher.getPendingValue(key1));
+        assertNull(flusher.getPendingValue(key2));
+    }
+
+    @Test
+    public void isExpired() {
+        SessionAccessMetaDataFlusher flusher = this.createFlusher();
+        ImmutableSessionMetaData metaData = mock(ImmutableSessionMetaData.class);
+        when(metaData.getMaxInactiveInterval()).thenReturn(Duration.ofMinutes(1L));
+
+        // Expired, but might have been accessed elsewhere within the last flush interval
+        when(metaData.getLastAccessedTime()).thenReturn(Instant.now().minus(Duration.ofMinutes(1L)).minusMillis(500L));
+        assertFalse(flusher.isExpired(metaData));
+
+        when(metaData.getLastAccessedTime()).thenReturn(Instant.now().minus(Duration.ofMinutes(1L)).minusSeconds(2L));
+        assertTrue(flusher.isExpired(metaData));
+
+        when(metaData.getMaxInactiveInterval()).thenReturn(Duration.ZERO);
+        assertFalse(flusher.isExpired(metaData));
+    }
+}
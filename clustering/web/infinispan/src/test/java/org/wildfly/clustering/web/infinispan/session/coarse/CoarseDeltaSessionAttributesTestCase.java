@@ -0,0 +1,278 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.clustering.web.infinispan.session.coarse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.infinispan.AdvancedCache;
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.wildfly.clustering.ee.infinispan.CacheProperties;
+import org.wildfly.clustering.marshalling.spi.ByteBufferMarshalledValue;
+import org.wildfly.clustering.marshalling.spi.Marshaller;
+
+/**
+ * Unit test for {@link CoarseDeltaSessionAttributes}.
+ */
+public class CoarseDeltaSessionAttributesTestCase {
+
+    private final Cache<SessionAttributesKey, SessionAttributesEntry<Object>> cache = mock(Cache.class);
+    private final AdvancedCache<SessionAttributesKey, SessionAttributesEntry<Object>> advancedCache = mock(AdvancedCache.class);
+    private final CacheProperties properties = mock(CacheProperties.class);
+    private final SessionAttributesKey key = new SessionAttributesKey("session");
+    private final SessionAttributesEntry<Object> entry = new SessionAttributesEntry<>(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    // Attributes are marshalled into values that expose their serialized form
+    private final Marshaller<Object, Object> marshaller = new Marshaller<Object, Object>() {
+        @Override
+        public Object read(Object value) {
+            return (value != null) ? ((TestMarshalledValue) value).object : null;
+        }
+
+        @Override
+        public Object write(Object value) {
+            return new TestMarshalledValue(value);
+        }
+
+        @Override
+        public boolean isMarshallable(Object object) {
+            return true;
+        }
+    };
+
+    // Attributes are passed through as themselves, as by a cache that neither replicates nor persists them
+    private final Marshaller<Object, Object> passThroughMarshaller = new Marshaller<Object, Object>() {
+        @Override
+        public Object read(Object value) {
+            return value;
+        }
+
+        @Override
+        public Object write(Object value) {
+            return value;
+        }
+
+        @Override
+        public boolean isMarshallable(Object object) {
+            return true;
+        }
+    };
+
+    private CoarseDeltaSessionAttributes<Object> createAttributes() {
+        return this.createAttributes(this.marshaller);
+    }
+
+    private CoarseDeltaSessionAttributes<Object> createAttributes(Marshaller<Object, Object> marshaller) {
+        when(this.cache.getCacheConfiguration()).thenReturn(new ConfigurationBuilder().build());
+        when(this.cache.getAdvancedCache()).thenReturn(this.advancedCache);
+        when(this.advancedCache.withFlags(Flag.IGNORE_RETURN_VALUES, Flag.FAIL_SILENTLY)).thenReturn(this.advancedCache);
+        return new CoarseDeltaSessionAttributes<>(this.key, this.entry, this.cache, marshaller, this.properties);
+    }
+
+    private void putAttribute(String name, Object value) {
+        Object marshalledValue = this.marshaller.write(value);
+        this.entry.getAttributes().put(name, marshalledValue);
+        this.entry.getDigests().put(name, CoarseDeltaSessionAttributes.digest(marshalledValue));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SessionAttributesDelta<Object> captureDelta() {
+        ArgumentCaptor<SessionAttributesDelta<Object>> captor = (ArgumentCaptor<SessionAttributesDelta<Object>>) (ArgumentCaptor<?>) ArgumentCaptor.forClass(SessionAttributesDelta.class);
+        // Only the delta is written, the cache merges it into its current entry
+        verify((AdvancedCache<SessionAttributesKey, Object>) (AdvancedCache<?, ?>) this.advancedCache).put(same(this.key), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void setAttribute() {
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes();
+        List<String> cart = new ArrayList<>(Collections.singletonList("item"));
+
+        attributes.setAttribute("cart", cart);
+        attributes.setAttribute("name", "value");
+        attributes.close();
+
+        SessionAttributesDelta<Object> delta = this.captureDelta();
+        assertEquals(2, delta.getUpdates().size());
+        assertSame(cart, this.marshaller.read(delta.getUpdates().get("cart")));
+        assertNotNull(delta.getDigests().get("cart"));
+        assertTrue(delta.getRemovals().isEmpty());
+        assertTrue(this.entry.getAttributes().isEmpty());
+        assertTrue(this.entry.getDigests().isEmpty());
+    }
+
+    @Test
+    public void unchangedAttribute() {
+        this.putAttribute("cart", new ArrayList<>(Collections.singletonList("item")));
+        this.putAttribute("other", new ArrayList<>(Collections.singletonList("other")));
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes();
+
+        // Reading a mutable attribute without changing it replicates nothing
+        assertNotNull(attributes.getAttribute("cart"));
+        attributes.close();
+
+        verify(this.advancedCache, never()).put(any(SessionAttributesKey.class), any(SessionAttributesEntry.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void mutatedAttribute() {
+        this.putAttribute("cart", new ArrayList<>(Collections.singletonList("item")));
+        this.putAttribute("other", new ArrayList<>(Collections.singletonList("other")));
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes();
+
+        ((List<String>) attributes.getAttribute("cart")).add("another item");
+        assertNotNull(attributes.getAttribute("other"));
+        attributes.removeAttribute("missing");
+        attributes.close();
+
+        // Only the mutated attribute is replicated
+        SessionAttributesDelta<Object> delta = this.captureDelta();
+        assertEquals(Collections.singleton("cart"), delta.getUpdates().keySet());
+        assertTrue(delta.getRemovals().isEmpty());
+    }
+
+    @Test
+    public void removeAttribute() {
+        this.putAttribute("name", "value");
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes();
+
+        assertEquals("value", attributes.removeAttribute("name"));
+        attributes.close();
+
+        SessionAttributesDelta<Object> delta = this.captureDelta();
+        assertTrue(delta.getUpdates().isEmpty());
+        assertEquals(Collections.singleton("name"), delta.getRemovals());
+        // The cached entry is never modified in place
+        assertEquals("value", this.marshaller.read(this.entry.getAttributes().get("name")));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void concurrentRequests() {
+        this.putAttribute("a", "1");
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes();
+        attributes.setAttribute("b", "2");
+
+        // Another request of the same session writes its own change, after this request read the entry
+        SessionAttributesEntry<Object> current = (SessionAttributesEntry<Object>) new SessionAttributesDelta<>(Collections.<String, Object>singletonMap("c", "3"), Collections.singletonMap("c", new byte[] { 3 }), Collections.<String>emptySet()).merge(this.entry);
+        attributes.close();
+
+        // Merged into the entry current at the time of the write, the delta of this request retains the other change
+        SessionAttributesEntry<Object> merged = (SessionAttributesEntry<Object>) this.captureDelta().merge(current);
+        assertEquals("1", this.marshaller.read(merged.getAttributes().get("a")));
+        assertEquals("2", this.marshaller.read(merged.getAttributes().get("b")));
+        assertEquals("3", merged.getAttributes().get("c"));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void mergeWithoutDigest() {
+        this.putAttribute("a", "1");
+        SessionAttributesDelta<Object> delta = new SessionAttributesDelta<>(Collections.singletonMap("a", "2"), Collections.<String, byte[]>emptyMap(), Collections.<String>emptySet());
+
+        SessionAttributesEntry<Object> merged = (SessionAttributesEntry<Object>) delta.merge(this.entry);
+
+        // The digest of the previous value no longer applies
+        assertEquals("2", merged.getAttributes().get("a"));
+        assertTrue(merged.getDigests().isEmpty());
+    }
+
+    @Test
+    public void passThroughAttribute() {
+        this.entry.getAttributes().put("cart", new ArrayList<>(Collections.singletonList("item")));
+        CoarseDeltaSessionAttributes<Object> attributes = this.createAttributes(this.passThroughMarshaller);
+        Object value = new Object();
+
+        // Attributes that are not marshalled need not be serializable, and are always written
+        attributes.setAttribute("value", value);
+        assertNotNull(attributes.getAttribute("cart"));
+        attributes.close();
+
+        SessionAttributesDelta<Object> delta = this.captureDelta();
+        assertEquals(2, delta.getUpdates().size());
+        assertSame(value, delta.getUpdates().get("value"));
+        assertTrue(delta.getDigests().isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void merge() {
+        this.entry.getAttributes().put("a", "1");
+        this.entry.getAttributes().put("b", "2");
+        SessionAttributesDelta<Object> delta = new SessionAttributesDelta<>(Collections.singletonMap("c", "3"), Collections.singletonMap("c", new byte[] { 3 }), Collections.singleton("a"));
+
+        SessionAttributesEntry<Object> merged = (SessionAttributesEntry<Object>) delta.merge(this.entry);
+
+        assertEquals(2, merged.getAttributes().size());
+        assertEquals("2", merged.getAttributes().get("b"));
+        assertEquals("3", merged.getAttributes().get("c"));
+        assertNotNull(merged.getDigests().get("c"));
+        // The merge target is left untouched
+        assertEquals(2, this.entry.getAttributes().size());
+        assertTrue(this.entry.getAttributes().containsKey("a"));
+    }
+
+    @SuppressWarnings("serial")
+    static class TestMarshalledValue implements ByteBufferMarshalledValue<Object, Void> {
+        final Object object;
+
+        TestMarshalledValue(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public Object get(Void context) {
+            return this.object;
+        }
+
+        @Override
+        public ByteBuffer getBuffer() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(this.object);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+}
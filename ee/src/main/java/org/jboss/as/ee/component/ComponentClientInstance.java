@@ -26,6 +26,8 @@ public class ComponentClientInstance implements Serializable {
 
     private final Map<Object, Object> contextInformation = new HashMap<Object, Object>();
     private volatile boolean constructionComplete = false;
+    // alternating keys and values of the context information, captured once construction is complete
+    private transient volatile Object[] contextEntries;
 
     public Object getViewInstanceData(final Object key) {
         return contextInformation.get(key);
@@ -39,13 +41,35 @@ public class ComponentClientInstance implements Serializable {
     }
 
     void prepareInterceptorContext(InterceptorContext interceptorContext){
+        Object[] entries = contextEntries;
+        if (entries == null) {
+            if (!constructionComplete) {
+                for(Map.Entry<Object, Object> entry : contextInformation.entrySet()) {
+                    interceptorContext.putPrivateData(entry.getKey(), entry.getValue());
+                }
+                return;
+            }
+            // also the case after deserialization
+            entries = contextEntries = captureContextEntries();
+        }
+        for (int i = 0; i < entries.length; i += 2) {
+            interceptorContext.putPrivateData(entries[i], entries[i + 1]);
+        }
+    }
+
+    private Object[] captureContextEntries() {
+        final Object[] entries = new Object[contextInformation.size() * 2];
+        int i = 0;
         for(Map.Entry<Object, Object> entry : contextInformation.entrySet()) {
-            interceptorContext.putPrivateData(entry.getKey(), entry.getValue());
+            entries[i++] = entry.getKey();
+            entries[i++] = entry.getValue();
         }
+        return entries;
     }
 
     void constructionComplete() {
         constructionComplete = true;
+        contextEntries = captureContextEntries();
     }
 
 }
@@ -24,7 +24,6 @@ package org.jboss.as.ee.component;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.jboss.invocation.Interceptor;
@@ -38,6 +37,7 @@ import org.jboss.invocation.InterceptorContext;
 public final class ProxyInvocationHandler implements InvocationHandler {
 
     private final Map<Method, Interceptor> interceptors;
+    private final Component component;
     private final ComponentView componentView;
     private final ComponentClientInstance instance;
 
@@ -51,6 +51,7 @@ public final class ProxyInvocationHandler implements InvocationHandler {
     public ProxyInvocationHandler(final Map<Method, Interceptor> interceptors, ComponentClientInstance instance, ComponentView componentView) {
         this.interceptors = interceptors;
         this.instance = instance;
+        this.component = componentView.getComponent();
         this.componentView = componentView;
     }
 
@@ -63,13 +64,13 @@ public final class ProxyInvocationHandler implements InvocationHandler {
         final InterceptorContext context = new InterceptorContext();
         // special location for original proxy
         context.putPrivateData(Object.class, proxy);
-        context.putPrivateData(Component.class, componentView.getComponent());
+        context.putPrivateData(Component.class, component);
         context.putPrivateData(ComponentView.class, componentView);
         instance.prepareInterceptorContext(context);
         context.setParameters(args);
         context.setMethod(method);
         // setup the public context data
-        context.setContextData(new HashMap<String, Object>());
+        context.setContextData(new LazyContextData());
         context.setBlockingCaller(true);
         return interceptor.processInvocation(context);
     }
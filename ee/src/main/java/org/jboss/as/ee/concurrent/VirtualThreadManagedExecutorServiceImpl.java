@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.glassfish.enterprise.concurrent.ContextServiceImpl;
+import org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl;
+import org.glassfish.enterprise.concurrent.internal.ManagedFutureTask;
+import org.wildfly.extension.requestcontroller.ControlPoint;
+
+/**
+ * A managed executor service which runs each task on a new virtual thread, instead of on a bounded thread pool.
+ * <p/>
+ * Tasks are still submitted as {@link ManagedFutureTask}s, so context propagation, task listeners and control point
+ * suspension behave exactly as with {@link ManagedExecutorServiceImpl}. Since virtual threads are not created by the
+ * {@link ManagedThreadFactoryImpl}, they are not tracked as hung threads, thus the hung task threshold has no effect.
+ */
+public class VirtualThreadManagedExecutorServiceImpl extends ManagedExecutorServiceImpl {
+
+    private final ExecutorService executor;
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder completedTaskCount = new LongAdder();
+
+    public VirtualThreadManagedExecutorServiceImpl(String name, ManagedThreadFactoryImpl managedThreadFactory, long hungTaskThreshold, boolean longRunningTasks, ExecutorService executor, ContextServiceImpl contextService, RejectPolicy rejectPolicy, ControlPoint controlPoint) {
+        // The thread pool of the superclass is never used, thus never starts any thread
+        super(name, managedThreadFactory, hungTaskThreshold, longRunningTasks, 0, 1, 0L, TimeUnit.MILLISECONDS, 0L, 0, contextService, rejectPolicy, controlPoint);
+        this.executor = executor;
+    }
+
+    /**
+     * Creates an executor service which starts a new virtual thread for each task.
+     *
+     * @param name the prefix of the names of the virtual threads
+     * @return a new executor service, or null if virtual threads are not supported by the runtime
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        // Virtual threads are only available since Java 21, so must be accessed reflectively
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // e.g. Java 19/20 without --enable-preview throws an UnsupportedOperationException
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // Route through submit(...), which wraps the command, and eventually calls executeManagedFutureTask(...)
+        this.submit(command);
+    }
+
+    @Override
+    protected void executeManagedFutureTask(ManagedFutureTask<?> task) {
+        task.submitted();
+        this.executor.execute(new ManagedTask(task));
+        this.taskCount.increment();
+    }
+
+    /**
+     * Returns the virtual thread executor, to which the shutdown and termination of this executor service apply.
+     * The unused thread pool of the superclass never starts a thread, so is deliberately not shut down.
+     */
+    @Override
+    protected ExecutorService getThreadPoolExecutor() {
+        return this.executor;
+    }
+
+    @Override
+    public long getTaskCount() {
+        return this.taskCount.sum();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return this.completedTaskCount.sum();
+    }
+
+    /**
+     * Performs the work the managed thread pool does in its before/after execute callbacks.
+     */
+    private class ManagedTask implements Runnable {
+        private final ManagedFutureTask<?> task;
+
+        ManagedTask(ManagedFutureTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            Thread thread = Thread.currentThread();
+            Throwable exception = null;
+            this.task.setupContext();
+            this.task.starting(thread);
+            try {
+                this.task.run();
+            } catch (RuntimeException | Error e) {
+                exception = e;
+                throw e;
+            } finally {
+                completedTaskCount.increment();
+                try {
+                    this.task.done(exception);
+                } finally {
+                    this.task.resetContext();
+                }
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.glassfish.enterprise.concurrent.ContextServiceImpl;
 import org.glassfish.enterprise.concurrent.ManagedExecutorServiceAdapter;
 import org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl;
 import org.jboss.as.ee.concurrent.ManagedExecutorServiceImpl;
+import org.jboss.as.ee.concurrent.VirtualThreadManagedExecutorServiceImpl;
 import org.jboss.as.ee.logging.EeLogger;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.StartContext;
@@ -36,6 +37,7 @@ import org.jboss.msc.value.InjectedValue;
 import org.wildfly.extension.requestcontroller.ControlPoint;
 import org.wildfly.extension.requestcontroller.RequestController;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -61,6 +63,7 @@ public class ManagedExecutorServiceService extends EEConcurrentAbstractService<M
     private final int queueCapacity;
     private final InjectedValue<ContextServiceImpl> contextService = new InjectedValue<>();
     private final AbstractManagedExecutorService.RejectPolicy rejectPolicy;
+    private final boolean virtualThreads;
     private final InjectedValue<RequestController> requestController = new InjectedValue<>();
     private ControlPoint controlPoint;
 
@@ -76,9 +79,10 @@ public class ManagedExecutorServiceService extends EEConcurrentAbstractService<M
      * @param threadLifeTime
      * @param queueCapacity
      * @param rejectPolicy
+     * @param virtualThreads if true, and supported by the runtime, tasks run on virtual threads instead of the thread pool
      * @see ManagedExecutorServiceImpl#ManagedExecutorServiceImpl(String, org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl, long, boolean, int, int, long, java.util.concurrent.TimeUnit, long, int, org.glassfish.enterprise.concurrent.ContextServiceImpl, org.glassfish.enterprise.concurrent.AbstractManagedExecutorService.RejectPolicy, org.wildfly.extension.requestcontroller.ControlPoint)
      */
-    public ManagedExecutorServiceService(String name, String jndiName, long hungTaskThreshold, boolean longRunningTasks, int corePoolSize, int maxPoolSize, long keepAliveTime, TimeUnit keepAliveTimeUnit, long threadLifeTime, int queueCapacity, AbstractManagedExecutorService.RejectPolicy rejectPolicy) {
+    public ManagedExecutorServiceService(String name, String jndiName, long hungTaskThreshold, boolean longRunningTasks, int corePoolSize, int maxPoolSize, long keepAliveTime, TimeUnit keepAliveTimeUnit, long threadLifeTime, int queueCapacity, AbstractManagedExecutorService.RejectPolicy rejectPolicy, boolean virtualThreads) {
         super(jndiName);
         this.name = name;
         this.managedThreadFactoryInjectedValue = new InjectedValue<>();
@@ -91,6 +95,7 @@ public class ManagedExecutorServiceService extends EEConcurrentAbstractService<M
         this.threadLifeTime = threadLifeTime;
         this.queueCapacity = queueCapacity;
         this.rejectPolicy = rejectPolicy;
+        this.virtualThreads = virtualThreads;
     }
 
     @Override
@@ -105,7 +110,18 @@ public class ManagedExecutorServiceService extends EEConcurrentAbstractService<M
         if(requestController.getOptionalValue() != null) {
             controlPoint = requestController.getValue().getControlPoint(name, "managed-executor-service");
         }
-        executorService = new ManagedExecutorServiceImpl(name, managedThreadFactory, hungTaskThreshold, longRunningTasks, corePoolSize, maxPoolSize, keepAliveTime, keepAliveTimeUnit, threadLifeTime, queueCapacity, contextService.getOptionalValue(), rejectPolicy, controlPoint);
+        ExecutorService virtualThreadExecutor = null;
+        if (virtualThreads) {
+            virtualThreadExecutor = VirtualThreadManagedExecutorServiceImpl.newVirtualThreadPerTaskExecutor("EE-ManagedExecutorService-" + name);
+            if (virtualThreadExecutor == null) {
+                EeLogger.ROOT_LOGGER.virtualThreadsNotSupported(name);
+            }
+        }
+        if (virtualThreadExecutor != null) {
+            executorService = new VirtualThreadManagedExecutorServiceImpl(name, managedThreadFactory, hungTaskThreshold, longRunningTasks, virtualThreadExecutor, contextService.getOptionalValue(), rejectPolicy, controlPoint);
+        } else {
+            executorService = new ManagedExecutorServiceImpl(name, managedThreadFactory, hungTaskThreshold, longRunningTasks, corePoolSize, maxPoolSize, keepAliveTime, keepAliveTimeUnit, threadLifeTime, queueCapacity, contextService.getOptionalValue(), rejectPolicy, controlPoint);
+        }
 
     }
 
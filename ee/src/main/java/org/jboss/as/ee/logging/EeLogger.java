@@ -1109,4 +1109,13 @@ public interface EeLogger extends BasicLogger {
     @Message(id = 114, value = "Class does not implement all of the provided interfaces")
     IllegalArgumentException classDoesNotImplementAllInterfaces();
 
+    /**
+     * Logs a warning message indicating virtual threads are not available, thus the managed executor service will use a thread pool.
+     *
+     * @param name the name of the managed executor service
+     */
+    @LogMessage(level = WARN)
+    @Message(id = 115, value = "Virtual threads are not supported by this runtime, managed executor service %s will use a thread pool instead")
+    void virtualThreadsNotSupported(String name);
+
 }
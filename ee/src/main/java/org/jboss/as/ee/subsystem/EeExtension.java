@@ -64,7 +64,7 @@ public class EeExtension implements Extension {
     public static final String SUBSYSTEM_NAME = "ee";
     private static final String RESOURCE_NAME = EeExtension.class.getPackage().getName() + ".LocalDescriptions";
 
-    private static final ModelVersion CURRENT_MODEL_VERSION = ModelVersion.create(4, 0, 0);
+    private static final ModelVersion CURRENT_MODEL_VERSION = ModelVersion.create(4, 1, 0);
 
     protected static final PathElement PATH_SUBSYSTEM = PathElement.pathElement(ModelDescriptionConstants.SUBSYSTEM, SUBSYSTEM_NAME);
 
@@ -110,6 +110,7 @@ public class EeExtension implements Extension {
         context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.EE_2_0.getUriString(), EESubsystemParser20.INSTANCE);
         context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.EE_3_0.getUriString(), EESubsystemParser20.INSTANCE);
         context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.EE_4_0.getUriString(), EESubsystemParser40.INSTANCE);
+        context.setSubsystemXmlMapping(SUBSYSTEM_NAME, Namespace.EE_4_1.getUriString(), EESubsystemParser41.INSTANCE);
         context.setProfileParsingCompletionHandler(new BeanValidationProfileParsingCompletionHandler());
     }
 
@@ -117,8 +118,15 @@ public class EeExtension implements Extension {
         final ModelVersion v1_0_0 = ModelVersion.create(1, 0, 0);
         final ModelVersion v1_1_0 = ModelVersion.create(1, 1, 0);
         final ModelVersion v3_0_0 = ModelVersion.create(3, 0, 0);
+        final ModelVersion v4_0_0 = ModelVersion.create(4, 0, 0);
         ChainedTransformationDescriptionBuilder chainedBuilder = TransformationDescriptionBuilder.Factory.createChainedSubystemInstance(subsystem.getSubsystemVersion());
-        ResourceTransformationDescriptionBuilder builder_3_0 = chainedBuilder.createBuilder(subsystem.getSubsystemVersion(), v3_0_0);
+
+        // 4.1.0 --> 4.0.0
+        ResourceTransformationDescriptionBuilder builder_4_0 = chainedBuilder.createBuilder(subsystem.getSubsystemVersion(), v4_0_0);
+        ManagedExecutorServiceResourceDefinition.INSTANCE.registerTransformers_4_1(builder_4_0);
+
+        // 4.0.0 --> 3.0.0
+        ResourceTransformationDescriptionBuilder builder_3_0 = chainedBuilder.createBuilder(v4_0_0, v3_0_0);
 
         ManagedExecutorServiceResourceDefinition.INSTANCE.registerTransformers_4_0(builder_3_0);
         ManagedScheduledExecutorServiceResourceDefinition.INSTANCE.registerTransformers_4_0(builder_3_0);
@@ -150,7 +158,8 @@ public class EeExtension implements Extension {
         chainedBuilder.buildAndRegister(subsystem, new ModelVersion[] {
                 v1_0_0,
                 v1_1_0,
-                v3_0_0
+                v3_0_0,
+                v4_0_0
         });
     }
 
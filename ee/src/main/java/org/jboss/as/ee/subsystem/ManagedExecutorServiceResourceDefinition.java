@@ -40,6 +40,7 @@ import org.jboss.as.controller.operations.validation.StringLengthValidator;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.Resource;
+import org.jboss.as.controller.transform.description.DiscardAttributeChecker;
 import org.jboss.as.controller.transform.description.RejectAttributeChecker;
 import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
 import org.jboss.as.ee.logging.EeLogger;
@@ -61,6 +62,7 @@ public class ManagedExecutorServiceResourceDefinition extends SimpleResourceDefi
     public static final String KEEPALIVE_TIME = "keepalive-time";
     public static final String QUEUE_LENGTH = "queue-length";
     public static final String REJECT_POLICY = "reject-policy";
+    public static final String VIRTUAL_THREADS = "virtual-threads";
 
     public static final SimpleAttributeDefinition JNDI_NAME_AD =
             new SimpleAttributeDefinitionBuilder(JNDI_NAME, ModelType.STRING, false)
@@ -136,8 +138,14 @@ public class ManagedExecutorServiceResourceDefinition extends SimpleResourceDefi
                     .setValidator(EnumValidator.create(AbstractManagedExecutorService.RejectPolicy.class, true, true))
                     .build();
 
+    public static final SimpleAttributeDefinition VIRTUAL_THREADS_AD =
+            new SimpleAttributeDefinitionBuilder(VIRTUAL_THREADS, ModelType.BOOLEAN, true)
+                    .setAllowExpression(true)
+                    .setDefaultValue(new ModelNode(false))
+                    .setFlags(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+                    .build();
 
-    static final SimpleAttributeDefinition[] ATTRIBUTES = {JNDI_NAME_AD, CONTEXT_SERVICE_AD, THREAD_FACTORY_AD, HUNG_TASK_THRESHOLD_AD, LONG_RUNNING_TASKS_AD, CORE_THREADS_AD, MAX_THREADS_AD, KEEPALIVE_TIME_AD, QUEUE_LENGTH_AD, REJECT_POLICY_AD};
+    static final SimpleAttributeDefinition[] ATTRIBUTES = {JNDI_NAME_AD, CONTEXT_SERVICE_AD, THREAD_FACTORY_AD, HUNG_TASK_THRESHOLD_AD, LONG_RUNNING_TASKS_AD, CORE_THREADS_AD, MAX_THREADS_AD, KEEPALIVE_TIME_AD, QUEUE_LENGTH_AD, REJECT_POLICY_AD, VIRTUAL_THREADS_AD};
 
     public static final ManagedExecutorServiceResourceDefinition INSTANCE = new ManagedExecutorServiceResourceDefinition();
 
@@ -153,6 +161,15 @@ public class ManagedExecutorServiceResourceDefinition extends SimpleResourceDefi
         }
     }
 
+    void registerTransformers_4_1(final ResourceTransformationDescriptionBuilder builder) {
+        final PathElement pathElement = getPathElement();
+        final ResourceTransformationDescriptionBuilder resourceBuilder = builder.addChildResource(pathElement);
+        resourceBuilder.getAttributeBuilder()
+                .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(false)), VIRTUAL_THREADS_AD)
+                .addRejectCheck(RejectAttributeChecker.DEFINED, VIRTUAL_THREADS_AD)
+                .end();
+    }
+
     void registerTransformers_4_0(final ResourceTransformationDescriptionBuilder builder) {
         final PathElement pathElement = getPathElement();
         final ResourceTransformationDescriptionBuilder resourceBuilder = builder.addChildResource(pathElement);
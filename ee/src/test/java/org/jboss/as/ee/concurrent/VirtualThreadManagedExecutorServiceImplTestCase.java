@@ -0,0 +1,109 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ee.concurrent;
+
+import static org.junit.Assert.*;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.enterprise.concurrent.AbstractManagedExecutorService.RejectPolicy;
+import org.glassfish.enterprise.concurrent.AbstractManagedThread;
+import org.glassfish.enterprise.concurrent.ManagedThreadFactoryImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link VirtualThreadManagedExecutorServiceImpl}.
+ * Uses a platform thread per task executor, since the runtime may not support virtual threads.
+ */
+public class VirtualThreadManagedExecutorServiceImplTestCase {
+
+    private final ManagedThreadFactoryImpl threadFactory = new ManagedThreadFactoryImpl("test");
+    private VirtualThreadManagedExecutorServiceImpl executor;
+
+    @Before
+    public void init() {
+        this.executor = new VirtualThreadManagedExecutorServiceImpl("test", this.threadFactory, 50L, false, Executors.newCachedThreadPool(), null, RejectPolicy.ABORT, null);
+    }
+
+    @After
+    public void destroy() {
+        this.executor.shutdownNow();
+        this.threadFactory.stop();
+    }
+
+    @Test
+    public void submit() throws Exception {
+        Thread caller = Thread.currentThread();
+        Future<Thread> future = this.executor.submit(Thread::currentThread);
+        Thread thread = future.get(5, TimeUnit.SECONDS);
+        assertNotSame(caller, thread);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        this.executor.execute(latch::countDown);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, this.executor.getTaskCount());
+        // Completion is counted after the future completes
+        for (int i = 0; (this.executor.getCompletedTaskCount() < 2) && (i < 100); ++i) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, this.executor.getCompletedTaskCount());
+        // The unused thread pool never creates a thread
+        Collection<AbstractManagedThread> threads = this.executor.getThreads();
+        assertTrue((threads == null) || threads.isEmpty());
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        this.executor.shutdown();
+        assertTrue(this.executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(this.executor.isTerminated());
+    }
+
+    @Test
+    public void unsupported() {
+        ExecutorService executor = VirtualThreadManagedExecutorServiceImpl.newVirtualThreadPerTaskExecutor("test");
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        if (supported) {
+            // Java 19/20 only support virtual threads as a preview feature
+            if (executor != null) {
+                executor.shutdown();
+            }
+        } else {
+            assertNull(executor);
+        }
+    }
+}
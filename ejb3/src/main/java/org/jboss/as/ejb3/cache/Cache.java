@@ -94,6 +94,20 @@ public interface Cache<K, V extends Identifiable<K>> extends AffinitySupport<K>,
 
     int getTotalSize();
 
+    /**
+     * @return the number of idle objects that were removed because their timeout elapsed, or 0 if not tracked by this cache
+     */
+    default long getExpiredCount() {
+        return 0;
+    }
+
+    /**
+     * @return the number of idle objects that were removed to honour the maximum size of this cache, or 0 if not tracked by this cache
+     */
+    default long getEvictedCount() {
+        return 0;
+    }
+
     /**
      * Checks whether the supplied {@link Throwable} is remotable meaning it can be safely sent to the client over the wire.
      */
@@ -22,13 +22,15 @@
 package org.jboss.as.ejb3.cache.simple;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.jboss.as.ejb3.cache.Cache;
 import org.jboss.as.ejb3.cache.Identifiable;
@@ -42,6 +44,11 @@ import org.wildfly.clustering.ejb.IdentifierFactory;
 
 /**
  * Simple {@link Cache} implementation using in-memory storage and eager expiration.
+ * <p/>
+ * Idle beans are kept in coarse time buckets, ordered by the time at which they expire, instead of scheduling a task
+ * per bean. A single reaper task removes the beans of every bucket whose time has passed. If the cache is bounded, the
+ * beans of the oldest buckets are the first to be removed once the cache grows beyond its maximum size. Since this
+ * cache does not support passivation, evicted beans are destroyed, exactly as if they had expired.
  *
  * @author Paul Ferraro
  *
@@ -50,48 +57,64 @@ import org.wildfly.clustering.ejb.IdentifierFactory;
  */
 public class SimpleCache<K, V extends Identifiable<K>> implements Cache<K, V> {
 
-    final Map<K, Future<?>> expirationFutures = new ConcurrentHashMap<>();
+    /**
+     * The coarsest granularity at which idle beans expire.
+     */
+    private static final long MAX_RESOLUTION = TimeUnit.SECONDS.toMillis(1);
+    /**
+     * The number of buckets a timeout is divided into, when it is shorter than 16 times {@link #MAX_RESOLUTION}.
+     */
+    private static final int BUCKETS_PER_TIMEOUT = 16;
+
     private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Bucket<K>> buckets = new ConcurrentSkipListMap<>();
     private final StatefulObjectFactory<V> factory;
     private final IdentifierFactory<K> identifierFactory;
-    private final StatefulTimeoutInfo timeout;
     private final ServerEnvironment environment;
     private final ScheduledExecutorService executor;
+    /**
+     * The idle timeout in milliseconds, or a negative value if idle beans never expire.
+     */
+    private final long timeout;
+    private final long resolution;
+    private final int maxSize;
+    private final LongAdder expiredCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private volatile Future<?> reaper;
 
     public SimpleCache(StatefulObjectFactory<V> factory, IdentifierFactory<K> identifierFactory, StatefulTimeoutInfo timeout, ServerEnvironment environment, ScheduledExecutorService executor) {
+        this(factory, identifierFactory, timeout, environment, executor, Integer.MAX_VALUE);
+    }
+
+    public SimpleCache(StatefulObjectFactory<V> factory, IdentifierFactory<K> identifierFactory, StatefulTimeoutInfo timeout, ServerEnvironment environment, ScheduledExecutorService executor, int maxSize) {
         this.factory = factory;
         this.identifierFactory = identifierFactory;
-        this.timeout = timeout;
         this.environment = environment;
         this.executor = executor;
+        this.timeout = (timeout != null) ? ((timeout.getValue() >= 0) ? timeout.getTimeUnit().toMillis(timeout.getValue()) : -1) : -1;
+        this.resolution = (this.timeout > 0) ? Math.max(1, Math.min(this.timeout / BUCKETS_PER_TIMEOUT, MAX_RESOLUTION)) : MAX_RESOLUTION;
+        this.maxSize = maxSize;
     }
 
     @Override
     public void start() {
-        // Do nothing
+        if ((this.timeout > 0) || (this.maxSize < Integer.MAX_VALUE)) {
+            this.reaper = this.executor.scheduleWithFixedDelay(() -> this.reap(this.currentTime()), this.resolution, this.resolution, TimeUnit.MILLISECONDS);
+        }
     }
 
     @Override
     public void stop() {
-        for (Future<?> future: this.expirationFutures.values()) {
-            future.cancel(true);
-        }
-        for (Future<?> future: this.expirationFutures.values()) {
-            if (!future.isCancelled() && !future.isDone()) {
-                try {
-                    future.get();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } catch (ExecutionException e) {
-                    // Ignore
-                }
-            }
+        Future<?> reaper = this.reaper;
+        if (reaper != null) {
+            reaper.cancel(false);
+            this.reaper = null;
         }
-        for(Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
-            this.factory.destroyInstance(entry.getValue().getValue());
+        for (Entry<V> entry : this.entries.values()) {
+            this.factory.destroyInstance(entry.getValue());
         }
-        this.expirationFutures.clear();
         this.entries.clear();
+        this.buckets.clear();
     }
 
     @Override
@@ -117,31 +140,40 @@ public class SimpleCache<K, V extends Identifiable<K>> implements Cache<K, V> {
         }
         V bean = this.factory.createInstance();
         this.entries.put(bean.getId(), new Entry<>(bean));
+        if (this.entries.size() > this.maxSize) {
+            this.evict();
+        }
         return bean;
     }
 
     @Override
     public void discard(V value) {
-        this.entries.remove(value.getId());
+        K id = value.getId();
+        Entry<V> entry = this.entries.remove(id);
+        if (entry != null) {
+            this.unlink(id, entry.invalidate());
+        }
     }
 
     @Override
     public void remove(K key) {
         Entry<V> entry = this.entries.remove(key);
         if (entry != null) {
+            this.unlink(key, entry.invalidate());
             this.factory.destroyInstance(entry.getValue());
         }
     }
 
     @Override
     public V get(K key) {
-        Future<?> future = this.expirationFutures.get(key);
-        if (future != null) {
-            future.cancel(true);
-        }
         Entry<V> entry = this.entries.get(key);
         if (entry == null) return null;
-        entry.use();
+        long tick = entry.use();
+        if (tick == Entry.INVALID) {
+            // Lost the race against the reaper
+            return null;
+        }
+        this.unlink(key, tick);
         return entry.getValue();
     }
 
@@ -154,20 +186,22 @@ public class SimpleCache<K, V extends Identifiable<K>> implements Cache<K, V> {
     public void release(V bean) {
         K id = bean.getId();
         Entry<V> entry = this.entries.get(id);
-        if ((entry != null) && entry.done()) {
-            if (this.timeout != null) {
-                long value = this.timeout.getValue();
-                if (value > 0) {
-                    TimeUnit unit = this.timeout.getTimeUnit();
-                    RemoveTask task = new RemoveTask(id);
-                    // Make sure the expiration future map insertion happens before map removal (during task execution).
-                    synchronized (task) {
-                        this.expirationFutures.put(id, this.executor.schedule(task, value, unit));
-                    }
-                } else if (value == 0) {
+        if (entry != null) {
+            if (this.timeout == 0) {
+                if (entry.done(Entry.ACTIVE)) {
                     // The EJB specification allows a 0 timeout, which means the bean is immediately eligible for removal.
                     // However, removing it directly is faster than scheduling it for immediate removal.
-                    remove(id);
+                    this.remove(id);
+                }
+            } else if ((this.timeout < 0) && (this.maxSize == Integer.MAX_VALUE)) {
+                // Idle beans never expire nor get evicted, so there is no need to track them
+                entry.done(Entry.ACTIVE);
+            } else {
+                // Without a timeout, beans are ordered by the time they were released, for the benefit of eviction
+                long now = this.currentTime();
+                long tick = (this.timeout > 0) ? (now + this.timeout + this.resolution - 1) / this.resolution : now / this.resolution;
+                if (entry.done(tick)) {
+                    this.link(id, tick);
                 }
             }
         }
@@ -188,36 +222,185 @@ public class SimpleCache<K, V extends Identifiable<K>> implements Cache<K, V> {
         return this.getCacheSize();
     }
 
-    class RemoveTask implements Runnable {
-        private final K key;
+    @Override
+    public long getExpiredCount() {
+        return this.expiredCount.sum();
+    }
+
+    @Override
+    public long getEvictedCount() {
+        return this.evictedCount.sum();
+    }
+
+    long currentTime() {
+        return System.currentTimeMillis();
+    }
 
-        RemoveTask(K key) {
-            this.key = key;
+    /**
+     * Removes the idle beans of every bucket whose time has passed.
+     * If idle beans do not expire, this only discards the empty buckets left behind by beans that were used again.
+     * @param now the current time in milliseconds
+     */
+    void reap(long now) {
+        long current = now / this.resolution;
+        if (this.timeout < 0) {
+            for (Map.Entry<Long, Bucket<K>> next : this.buckets.headMap(current).entrySet()) {
+                this.purge(next.getKey(), next.getValue());
+            }
+            return;
         }
+        for (Map.Entry<Long, Bucket<K>> next = this.buckets.firstEntry(); (next != null) && (next.getKey() <= current); next = this.buckets.firstEntry()) {
+            long tick = next.getKey();
+            Bucket<K> bucket = next.getValue();
+            if (this.buckets.remove(tick, bucket)) {
+                bucket.close();
+                for (K key : bucket.keys) {
+                    if (bucket.keys.remove(key) && this.expire(key, tick)) {
+                        this.expiredCount.increment();
+                    }
+                }
+            }
+        }
+    }
 
-        @Override
-        public synchronized void run() {
-            if (!Thread.currentThread().isInterrupted()) {
-                SimpleCache.this.remove(this.key);
+    /**
+     * Removes the idle beans of the oldest buckets until the cache no longer exceeds its maximum size.
+     */
+    private void evict() {
+        for (Map.Entry<Long, Bucket<K>> next = this.buckets.firstEntry(); (next != null) && (this.entries.size() > this.maxSize); next = this.buckets.higherEntry(next.getKey())) {
+            long tick = next.getKey();
+            Bucket<K> bucket = next.getValue();
+            for (K key : bucket.keys) {
+                if (this.entries.size() <= this.maxSize) return;
+                if (bucket.keys.remove(key) && this.expire(key, tick)) {
+                    this.evictedCount.increment();
+                }
             }
-            SimpleCache.this.expirationFutures.remove(this.key);
+            this.purge(tick, bucket);
+        }
+    }
+
+    /**
+     * Discards the specified bucket if it is empty.
+     */
+    private void purge(long tick, Bucket<K> bucket) {
+        if (bucket.keys.isEmpty() && this.buckets.remove(tick, bucket)) {
+            bucket.close();
+            // Move any bean that was released into this bucket in the meantime
+            for (K key : bucket.keys) {
+                if (bucket.keys.remove(key)) {
+                    this.link(key, tick);
+                }
+            }
+        }
+    }
+
+    private boolean expire(K key, long tick) {
+        Entry<V> entry = this.entries.get(key);
+        // The bean may have been used, or even expired and replaced, since it was added to this bucket
+        if ((entry != null) && entry.expire(tick) && this.entries.remove(key, entry)) {
+            this.factory.destroyInstance(entry.getValue());
+            return true;
+        }
+        return false;
+    }
+
+    private void link(K key, long tick) {
+        while (!this.buckets.computeIfAbsent(tick, t -> new Bucket<>()).add(key)) {
+            // The bucket was closed concurrently, retry with a new bucket
+        }
+    }
+
+    private void unlink(K key, long tick) {
+        if (tick != Entry.ACTIVE) {
+            Bucket<K> bucket = this.buckets.get(tick);
+            if (bucket != null) {
+                bucket.keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * The idle beans that expire within the same time slot.
+     */
+    static class Bucket<K> {
+        final Set<K> keys = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed = false;
+
+        /**
+         * Adds the specified key to this bucket, unless the bucket is already closed.
+         * Either this method or the thread closing the bucket will observe the key, but never both.
+         */
+        boolean add(K key) {
+            this.keys.add(key);
+            return !this.closed || !this.keys.remove(key);
+        }
+
+        void close() {
+            this.closed = true;
         }
     }
 
     static class Entry<V> {
+        static final long ACTIVE = Long.MIN_VALUE;
+        static final long INVALID = Long.MAX_VALUE;
+
         private final V value;
-        private final AtomicInteger usage = new AtomicInteger();
+        // All fields below are guarded by this
+        private int usage;
+        private long tick = ACTIVE;
+        private boolean valid = true;
 
         Entry(V value) {
             this.value = value;
         }
 
-        void use() {
-            this.usage.incrementAndGet();
+        /**
+         * Marks this entry as in use.
+         * @return the bucket this entry was idle in, {@link #ACTIVE} if it was already in use, or {@link #INVALID} if it was removed
+         */
+        synchronized long use() {
+            if (!this.valid) return INVALID;
+            this.usage += 1;
+            long tick = this.tick;
+            this.tick = ACTIVE;
+            return tick;
+        }
+
+        /**
+         * Releases one usage of this entry.
+         * @param tick the bucket the entry will be idle in, if this was its last usage
+         * @return true, if the entry is now idle
+         */
+        synchronized boolean done(long tick) {
+            this.usage -= 1;
+            if ((this.usage == 0) && this.valid) {
+                this.tick = tick;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Invalidates this entry, if it is still idle in the specified bucket.
+         */
+        synchronized boolean expire(long tick) {
+            if (this.valid && (this.usage == 0) && (this.tick == tick)) {
+                this.valid = false;
+                return true;
+            }
+            return false;
         }
 
-        boolean done() {
-            return this.usage.decrementAndGet() == 0;
+        /**
+         * Invalidates this entry unconditionally.
+         * @return the bucket this entry was idle in, or {@link #ACTIVE}
+         */
+        synchronized long invalidate() {
+            this.valid = false;
+            long tick = this.tick;
+            this.tick = ACTIVE;
+            return tick;
         }
 
         V getValue() {
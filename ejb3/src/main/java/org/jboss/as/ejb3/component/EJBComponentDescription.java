@@ -24,6 +24,7 @@ package org.jboss.as.ejb3.component;
 import static org.jboss.as.ejb3.subsystem.IdentityResourceDefinition.IDENTITY_CAPABILITY;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.rmi.Remote;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -367,7 +368,11 @@ public abstract class EJBComponentDescription extends ComponentDescription {
                     });
                 }
 
-                configuration.addComponentInterceptor(ExecutionTimeInterceptor.FACTORY, InterceptorOrder.Component.EJB_EXECUTION_TIME_INTERCEPTOR, true);
+                for (final Method method : configuration.getClassIndex().getClassMethods()) {
+                    if (Modifier.isPublic(method.getModifiers())) {
+                        configuration.addComponentInterceptor(method, ExecutionTimeInterceptor.factory(method), InterceptorOrder.Component.EJB_EXECUTION_TIME_INTERCEPTOR);
+                    }
+                }
                 configuration.getCreateDependencies().add(new DependencyConfigurator<EJBComponentCreateService>() {
                     @Override
                     public void configureDependency(ServiceBuilder<?> serviceBuilder, EJBComponentCreateService service) throws DeploymentUnitProcessingException {
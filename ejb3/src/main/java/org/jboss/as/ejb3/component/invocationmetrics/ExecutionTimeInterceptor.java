@@ -21,35 +21,69 @@
  */
 package org.jboss.as.ejb3.component.invocationmetrics;
 
+import java.lang.reflect.Method;
+
+import org.jboss.as.ee.component.Component;
+import org.jboss.as.ee.component.ComponentInterceptorFactory;
 import org.jboss.as.ejb3.component.EJBComponent;
-import org.jboss.as.ejb3.component.interceptors.AbstractEJBInterceptor;
-import org.jboss.invocation.ImmediateInterceptorFactory;
+import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorContext;
 import org.jboss.invocation.InterceptorFactory;
+import org.jboss.invocation.InterceptorFactoryContext;
 
 /**
  * @author <a href="mailto:cdewolf@redhat.com">Carlo de Wolf</a>
  */
-public class ExecutionTimeInterceptor extends AbstractEJBInterceptor {
-    public static final InterceptorFactory FACTORY = new ImmediateInterceptorFactory(new ExecutionTimeInterceptor());
+public class ExecutionTimeInterceptor implements Interceptor {
+
+    private final EJBComponent component;
+    private final Method method;
+    // resolved on the first invocation, so that only invoked methods are listed in the statistics
+    private volatile InvocationMetrics.Values values;
+
+    private ExecutionTimeInterceptor(final EJBComponent component, final Method method) {
+        this.component = component;
+        this.method = method;
+    }
 
-    private ExecutionTimeInterceptor() {
+    /**
+     * Creates a factory for the interceptor of the given component method. The statistics of the method are resolved
+     * once, on its first invocation, rather than on every invocation.
+     *
+     * @param method the component method
+     * @return the interceptor factory
+     */
+    public static InterceptorFactory factory(final Method method) {
+        return new ComponentInterceptorFactory() {
+            @Override
+            protected Interceptor create(final Component component, final InterceptorFactoryContext context) {
+                return new ExecutionTimeInterceptor((EJBComponent) component, method);
+            }
+        };
     }
 
     @Override
     public Object processInvocation(final InterceptorContext context) throws Exception {
-        final EJBComponent component = getComponent(context, EJBComponent.class);
         if (!component.isStatisticsEnabled())
             return context.proceed();
         final Long startWaitTime = (Long) context.getPrivateData(WaitTimeInterceptor.START_WAIT_TIME);
-        final long waitTime = startWaitTime != null && startWaitTime != 0L ? System.currentTimeMillis() - startWaitTime : 0L;
-        component.getInvocationMetrics().startInvocation();
-        final long start = System.currentTimeMillis();
+        final long start = System.nanoTime();
+        final long waitTime = startWaitTime != null ? start - startWaitTime : 0L;
+        final InvocationMetrics metrics = component.getInvocationMetrics();
+        metrics.startInvocation();
         try {
             return context.proceed();
         } finally {
-            final long executionTime = System.currentTimeMillis() - start;
-            component.getInvocationMetrics().finishInvocation(context.getMethod(), waitTime, executionTime);
+            metrics.finishInvocation(getValues(metrics), waitTime, System.nanoTime() - start);
+        }
+    }
+
+    private InvocationMetrics.Values getValues(final InvocationMetrics metrics) {
+        InvocationMetrics.Values values = this.values;
+        if (values == null) {
+            values = metrics.getValues(method);
+            this.values = values;
         }
+        return values;
     }
 }
@@ -22,76 +22,94 @@
 package org.jboss.as.ejb3.component.invocationmetrics;
 
 import java.lang.reflect.Method;
-import java.util.AbstractMap;
-import java.util.AbstractSet;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Invocation statistics of a component.
+ * <p/>
+ * Statistics are kept per method name in striped counters and a latency histogram. The {@link Values} of a method are
+ * created on its first invocation and then kept by its interceptor, so that recording an invocation neither looks up
+ * the method nor allocates, while only invoked methods are listed. Component totals are the sum over all methods.
+ * <p/>
+ * The number of concurrent invocations is a single exact counter, since its peak is compared on every invocation start.
+ * The peak is only written when it grows.
+ *
  * @author <a href="mailto:cdewolf@redhat.com">Carlo de Wolf</a>
  */
 public class InvocationMetrics {
     public static class Values {
-        final long invocations;
-        final long executionTime;
-        final long waitTime;
-
-        private Values(final long invocations, final long waitTime, final long executionTime) {
-            this.invocations = invocations;
-            this.executionTime = executionTime;
-            this.waitTime = waitTime;
+        private final LongAdder invocations = new LongAdder();
+        // in nanoseconds
+        private final LongAdder executionTime = new LongAdder();
+        private final LongAdder waitTime = new LongAdder();
+        private final LatencyHistogram executionTimes = new LatencyHistogram();
+
+        Values() {
+        }
+
+        void record(final long invocationWaitTime, final long invocationExecutionTime) {
+            invocations.increment();
+            waitTime.add(invocationWaitTime);
+            executionTime.add(invocationExecutionTime);
+            executionTimes.record(invocationExecutionTime);
         }
 
+        /**
+         * @return the total execution time in milliseconds
+         */
         public long getExecutionTime() {
-            return executionTime;
+            return TimeUnit.NANOSECONDS.toMillis(executionTime.sum());
+        }
+
+        /**
+         * Estimates the execution time below which the given fraction of invocations completed.
+         *
+         * @param quantile a value between 0 and 1, e.g. 0.99 for the 99th percentile
+         * @return the execution time in milliseconds, or 0 if there were no invocations
+         */
+        public double getExecutionTime(final double quantile) {
+            return executionTimes.getQuantile(quantile);
         }
 
         public long getInvocations() {
-            return invocations;
+            return invocations.sum();
         }
 
+        /**
+         * @return the total wait time in milliseconds
+         */
         public long getWaitTime() {
-            return waitTime;
+            return TimeUnit.NANOSECONDS.toMillis(waitTime.sum());
         }
     }
 
-    private final AtomicReference<Values> values = new AtomicReference<Values>(new Values(0, 0, 0));
-    private final AtomicLong concurrent = new AtomicLong(0);
-    private final AtomicLong peakConcurrent = new AtomicLong(0);
+    private static final AtomicLongFieldUpdater<InvocationMetrics> PEAK_CONCURRENT_UPDATER = AtomicLongFieldUpdater.newUpdater(InvocationMetrics.class, "peakConcurrent");
 
-    private final ConcurrentMap<String, AtomicReference<Values>> methods = new ConcurrentHashMap<String, AtomicReference<Values>>();
+    private final AtomicLong concurrent = new AtomicLong();
+    private volatile long peakConcurrent;
 
-    void finishInvocation(final Method method, final long invocationWaitTime, final long invocationExecutionTime) {
-        concurrent.decrementAndGet();
-        for(;;) {
-            final Values oldv = values.get();
-            final Values newv = new Values(oldv.invocations + 1, oldv.waitTime + invocationWaitTime, oldv.executionTime + invocationExecutionTime);
-            if (values.compareAndSet(oldv, newv))
-                break;
-        }
-        final AtomicReference<Values> methodValues = ref(methods, method.getName());
-        for (;;) {
-            final Values oldv = methodValues.get();
-            final Values newv = new Values(oldv.invocations + 1, oldv.waitTime + invocationWaitTime, oldv.executionTime + invocationExecutionTime);
-            if (methodValues.compareAndSet(oldv, newv))
-                break;
-        }
+    private final ConcurrentMap<String, Values> methods = new ConcurrentHashMap<String, Values>();
+
+    /**
+     * Returns the statistics of the given method, creating them if necessary. Overloaded methods share their statistics.
+     *
+     * @param method a method of the component
+     * @return the statistics of the method
+     */
+    Values getValues(final Method method) {
+        return methods.computeIfAbsent(method.getName(), name -> new Values());
     }
 
-    private static AtomicReference<Values> ref(final ConcurrentMap<String, AtomicReference<Values>> map, final String key) {
-        AtomicReference<Values> ref = map.get(key);
-        if (ref == null) {
-            ref = new AtomicReference<Values>(new Values(0, 0, 0));
-            final AtomicReference<Values> prevRef = map.putIfAbsent(key, ref);
-            if (prevRef != null)
-                ref = prevRef;
-        }
-        return ref;
+    void finishInvocation(final Values methodValues, final long invocationWaitTime, final long invocationExecutionTime) {
+        concurrent.decrementAndGet();
+        methodValues.record(invocationWaitTime, invocationExecutionTime);
     }
 
     public long getConcurrent() {
@@ -99,76 +117,42 @@ public class InvocationMetrics {
     }
 
     public long getExecutionTime() {
-        return values.get().executionTime;
+        long executionTime = 0;
+        for (Values values : methods.values()) {
+            executionTime += values.executionTime.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(executionTime);
     }
 
     public long getInvocations() {
-        return values.get().invocations;
+        long invocations = 0;
+        for (Values values : methods.values()) {
+            invocations += values.getInvocations();
+        }
+        return invocations;
     }
 
     public Map<String, Values> getMethods() {
-        return new AbstractMap<String, Values>() {
-            @Override
-            public Set<Entry<String, Values>> entrySet() {
-                return new AbstractSet<Entry<String, Values>>() {
-                    @Override
-                    public Iterator<Entry<String, Values>> iterator() {
-                        final Iterator<Entry<String, AtomicReference<Values>>> delegate = methods.entrySet().iterator();
-                        return new Iterator<Entry<String, Values>>() {
-                            @Override
-                            public boolean hasNext() {
-                                return delegate.hasNext();
-                            }
-
-                            @Override
-                            public Entry<String, Values> next() {
-                                final Entry<String, AtomicReference<Values>> next = delegate.next();
-                                return new Entry<String, Values>() {
-                                    @Override
-                                    public String getKey() {
-                                        return next.getKey();
-                                    }
-
-                                    @Override
-                                    public Values getValue() {
-                                        return next.getValue().get();
-                                    }
-
-                                    @Override
-                                    public Values setValue(final Values value) {
-                                        throw new UnsupportedOperationException("NYI");
-                                    }
-                                };
-                            }
-
-                            @Override
-                            public void remove() {
-                                throw new UnsupportedOperationException("NYI");
-                            }
-                        };
-                    }
-
-                    @Override
-                    public int size() {
-                        return methods.size();
-                    }
-                };
-            }
-        };
+        return Collections.unmodifiableMap(methods);
     }
 
     public long getPeakConcurrent() {
-        return peakConcurrent.get();
+        return peakConcurrent;
     }
 
     public long getWaitTime() {
-        return values.get().waitTime;
+        long waitTime = 0;
+        for (Values values : methods.values()) {
+            waitTime += values.waitTime.sum();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(waitTime);
     }
 
     void startInvocation() {
         final long v = concurrent.incrementAndGet();
-        // concurrent might decrement here, but we take that missing peak for granted.
-        if (peakConcurrent.get() < v)
-            peakConcurrent.incrementAndGet();
+        long peak = peakConcurrent;
+        while (peak < v && !PEAK_CONCURRENT_UPDATER.compareAndSet(this, peak, v)) {
+            peak = peakConcurrent;
+        }
     }
 }
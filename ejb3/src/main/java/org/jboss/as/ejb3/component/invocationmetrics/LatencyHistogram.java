@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.invocationmetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Histogram of invocation latencies with log-linear microsecond buckets, in the spirit of an HDR histogram.
+ * <p/>
+ * Every power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so that recorded values are kept with a
+ * relative error of at most 12.5% over a range of microseconds to hours.
+ * <p/>
+ * Like a {@link java.util.concurrent.atomic.LongAdder}, counts are striped: a histogram starts with a single shard, and
+ * the number of shards is doubled, up to the number of processors, whenever a recording thread loses a race on its bucket.
+ * Threads are spread over the shards by their id and shards are summed on read, so threads recording the same latency
+ * into a contended histogram do not keep updating the same counter. Recording only allocates when the histogram grows.
+ */
+class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values of 2^36us (~19 hours) and above end up in the last bucket
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final int MAX_SHARDS = shardLimit(Runtime.getRuntime().availableProcessors());
+    private static final AtomicReferenceFieldUpdater<LatencyHistogram, AtomicLongArray[]> SHARDS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(LatencyHistogram.class, AtomicLongArray[].class, "shards");
+
+    private volatile AtomicLongArray[] shards = new AtomicLongArray[] { new AtomicLongArray(BUCKETS) };
+
+    /**
+     * Records the latency of a single invocation.
+     *
+     * @param latency the latency in nanoseconds
+     */
+    void record(long latency) {
+        final int bucket = bucket(Math.max(0L, TimeUnit.NANOSECONDS.toMicros(latency)));
+        final AtomicLongArray[] shards = this.shards;
+        final AtomicLongArray counts = shards[(int) Thread.currentThread().getId() & (shards.length - 1)];
+        final long count = counts.get(bucket);
+        if (!counts.compareAndSet(bucket, count, count + 1)) {
+            counts.incrementAndGet(bucket);
+            this.grow(shards);
+        }
+    }
+
+    private void grow(AtomicLongArray[] shards) {
+        if (shards.length < MAX_SHARDS) {
+            final AtomicLongArray[] grown = new AtomicLongArray[shards.length << 1];
+            System.arraycopy(shards, 0, grown, 0, shards.length);
+            for (int i = shards.length; i < grown.length; i++) {
+                grown[i] = new AtomicLongArray(BUCKETS);
+            }
+            // another thread may have grown the shards concurrently, in which case its shards are kept
+            SHARDS_UPDATER.compareAndSet(this, shards, grown);
+        }
+    }
+
+    /**
+     * Estimates the given quantile by linear interpolation within the matching bucket.
+     *
+     * @param quantile a value between 0 and 1
+     * @return the latency in milliseconds, or 0 if nothing was recorded
+     */
+    double getQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0L;
+        for (AtomicLongArray counts : this.shards) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = counts.get(i);
+                snapshot[i] += count;
+                total += count;
+            }
+        }
+        if (total == 0L) return 0d;
+
+        double rank = Math.max(1d, Math.ceil(quantile * total));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = snapshot[i];
+            if ((count > 0) && (cumulative + count >= rank)) {
+                double micros = lowerBound(i) + width(i) * (rank - cumulative) / count;
+                return micros / 1000d;
+            }
+            cumulative += count;
+        }
+        return 0d;
+    }
+
+    /**
+     * @return the smallest power of two not below the given number of processors
+     */
+    static int shardLimit(int processors) {
+        return (processors <= 1) ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    private static long width(int bucket) {
+        return (bucket < SUB_BUCKETS) ? 1L : 1L << (bucket / SUB_BUCKETS - 1);
+    }
+}
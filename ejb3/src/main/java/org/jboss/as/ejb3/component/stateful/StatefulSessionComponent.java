@@ -50,6 +50,7 @@ import org.jboss.as.ejb3.component.allowedmethods.AllowedMethodsInformation;
 import org.jboss.as.ejb3.component.session.SessionBeanComponent;
 import org.jboss.as.ejb3.concurrency.AccessTimeoutDetails;
 import org.jboss.as.ejb3.logging.EjbLogger;
+import org.jboss.as.ejb3.tx.LockStatistics;
 import org.jboss.as.naming.ManagedReference;
 import org.jboss.as.server.CurrentServiceContainer;
 import org.jboss.ejb.client.EJBClient;
@@ -108,6 +109,8 @@ public class StatefulSessionComponent extends SessionBeanComponent implements St
 
     private final TimerService timerService;
 
+    private final LockStatistics lockStatistics = new LockStatistics();
+
     /**
      * Construct a new instance.
      *
@@ -270,6 +273,13 @@ public class StatefulSessionComponent extends SessionBeanComponent implements St
         return this.cache;
     }
 
+    /**
+     * @return the wait statistics shared by the transaction locks of all instances of this component
+     */
+    public LockStatistics getLockStatistics() {
+        return this.lockStatistics;
+    }
+
     @Override
     public SessionID createIdentifier() {
         return new UUIDSessionID(UUID.randomUUID());
@@ -68,7 +68,7 @@ public class StatefulSessionComponentInstance extends SessionBeanComponentInstan
     /**
      * The transaction lock for the stateful bean
      */
-    private final OwnableReentrantLock lock = new OwnableReentrantLock();
+    private final OwnableReentrantLock lock;
 
     /**
      * true if this bean has been enrolled in a transaction
@@ -132,6 +132,7 @@ public class StatefulSessionComponentInstance extends SessionBeanComponentInstan
         this.prePassivate = component.getPrePassivate();
         this.postActivate = component.getPostActivate();
         this.ejb2XRemoveInterceptor = component.getEjb2XRemoveMethod();
+        this.lock = new OwnableReentrantLock(component.getLockStatistics());
     }
 
     protected void afterBegin() {
@@ -41,16 +41,21 @@ import static org.jboss.as.ejb3.logging.EjbLogger.ROOT_LOGGER;
 public class ContainerManagedConcurrencyInterceptor implements Interceptor {
 
     /**
-     * A spec compliant {@link org.jboss.as.ejb3.concurrency.EJBReadWriteLock}
+     * A spec compliant {@link org.jboss.as.ejb3.concurrency.EJBReadWriteLock} or {@link StripedReadWriteLock}
      */
-    private final ReadWriteLock readWriteLock = new EJBReadWriteLock();
+    private final ReadWriteLock readWriteLock;
 
     private final LockableComponent lockableComponent;
 
     private final Map<Method, Method> viewMethodToComponentMethodMap;
 
     public ContainerManagedConcurrencyInterceptor(LockableComponent component, Map<Method, Method> viewMethodToComponentMethodMap) {
+        this(component, viewMethodToComponentMethodMap, new EJBReadWriteLock());
+    }
+
+    public ContainerManagedConcurrencyInterceptor(LockableComponent component, Map<Method, Method> viewMethodToComponentMethodMap, ReadWriteLock readWriteLock) {
         this.viewMethodToComponentMethodMap = viewMethodToComponentMethodMap;
+        this.readWriteLock = readWriteLock;
         if (component == null) {
             throw EjbLogger.ROOT_LOGGER.componentIsNull(LockableComponent.class.getName());
         }
@@ -26,6 +26,7 @@ import org.jboss.as.ee.component.Component;
 import org.jboss.as.ee.component.ComponentInstanceInterceptorFactory;
 import org.jboss.invocation.Interceptor;
 import org.jboss.invocation.InterceptorFactoryContext;
+import org.wildfly.security.manager.WildFlySecurityManager;
 
 import java.lang.reflect.Method;
 import java.util.Map;
@@ -39,6 +40,14 @@ import java.util.Map;
  */
 public class ContainerManagedConcurrencyInterceptorFactory extends ComponentInstanceInterceptorFactory {
 
+    /**
+     * System property enabling the {@link StripedReadWriteLock} for container managed concurrency, which scales better
+     * for components whose methods are predominantly {@link javax.ejb.LockType#READ}
+     */
+    public static final String STRIPED_READ_LOCK = "org.jboss.as.ejb3.concurrency.striped-read-lock";
+
+    private static final boolean STRIPED = Boolean.parseBoolean(WildFlySecurityManager.getPropertyPrivileged(STRIPED_READ_LOCK, "false"));
+
     private final Map<Method, Method> viewMethodToComponentMethodMap;
 
     public ContainerManagedConcurrencyInterceptorFactory(Map<Method, Method> viewMethodToComponentMethodMap) {
@@ -54,7 +63,7 @@ public class ContainerManagedConcurrencyInterceptorFactory extends ComponentInst
             if(interceptor != null) {
                 return interceptor;
             }
-            interceptor = new ContainerManagedConcurrencyInterceptor((LockableComponent) component, viewMethodToComponentMethodMap);
+            interceptor = new ContainerManagedConcurrencyInterceptor((LockableComponent) component, viewMethodToComponentMethodMap, STRIPED ? new StripedReadWriteLock() : new EJBReadWriteLock());
             lockableComponent.setConcurrencyManagementInterceptor(interceptor);
             return interceptor;
         }
@@ -0,0 +1,314 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.as.ejb3.logging.EjbLogger;
+
+/**
+ * A {@link ReadWriteLock} for read-mostly components, with the same {@link javax.ejb.IllegalLoopbackException} semantics as
+ * {@link EJBReadWriteLock}.
+ * <p/>
+ * Readers announce themselves on a counter of their home stripe, each stripe living on its own cache line, and only
+ * back off if a writer is pending. An uncontended read lock therefore neither allocates nor writes to memory shared
+ * with readers on other cores. A writer flags itself as pending and waits for the reader counts of all stripes to
+ * drain. Read locks are reentrant, may be obtained by the thread holding the write lock, and do not wait for a
+ * pending writer if already held by the calling thread.
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+
+    // longs per stripe, so that every stripe counter occupies its own 128 byte block
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray readers;
+    private final int mask;
+
+    /**
+     * Keep track of the number of read locks held by this thread
+     */
+    private final ThreadLocal<ReadHolds> readHolds = ThreadLocal.withInitial(ReadHolds::new);
+
+    /**
+     * Serializes writers, and makes the write lock reentrant
+     */
+    private final ReentrantLock writer = new ReentrantLock();
+    private volatile boolean writing = false;
+
+    /**
+     * Only used by callers that need to wait, i.e. readers waiting for a writer and a writer waiting for readers
+     */
+    private final Lock mutex = new ReentrantLock();
+    private final Condition drained = this.mutex.newCondition();
+    private final Condition released = this.mutex.newCondition();
+
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+
+    public StripedReadWriteLock() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public StripedReadWriteLock(int concurrency) {
+        // round up to a power of two
+        int stripes = Integer.highestOneBit((Math.max(1, concurrency) << 1) - 1);
+        this.readers = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+    }
+
+    /**
+     * @see java.util.concurrent.locks.ReadWriteLock#readLock()
+     */
+    @Override
+    public Lock readLock() {
+        return this.readLock;
+    }
+
+    /**
+     * @see java.util.concurrent.locks.ReadWriteLock#writeLock()
+     */
+    @Override
+    public Lock writeLock() {
+        return this.writeLock;
+    }
+
+    /**
+     * @return the number of read locks currently held, by all threads
+     */
+    public long getReadLockCount() {
+        long count = 0;
+        for (int i = 0; i < this.readers.length(); i += PADDING) {
+            count += this.readers.get(i);
+        }
+        return count;
+    }
+
+    private int home() {
+        // spread sequential thread ids over the stripes
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (id >>> 32) & this.mask) * PADDING;
+    }
+
+    boolean tryAcquireRead(long nanos) throws InterruptedException {
+        final ReadHolds holds = this.readHolds.get();
+        final int stripe = this.home();
+        if ((holds.count > 0) || this.writer.isHeldByCurrentThread()) {
+            // Reentrant read, or read by the writer itself, must not wait
+            this.readers.incrementAndGet(stripe);
+            holds.count += 1;
+            return true;
+        }
+        final long deadline = System.nanoTime() + nanos;
+        for (;;) {
+            this.readers.incrementAndGet(stripe);
+            if (!this.writing) {
+                holds.count += 1;
+                return true;
+            }
+            // Back off, the pending writer might be waiting for our stripe to drain
+            this.releaseRead(stripe);
+            this.mutex.lockInterruptibly();
+            try {
+                while (this.writing) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    this.released.awaitNanos(remaining);
+                }
+            } finally {
+                this.mutex.unlock();
+            }
+        }
+    }
+
+    void releaseRead() {
+        final ReadHolds holds = this.readHolds.get();
+        if (holds.count == 0) {
+            throw new IllegalMonitorStateException();
+        }
+        holds.count -= 1;
+        this.releaseRead(this.home());
+    }
+
+    private void releaseRead(int stripe) {
+        this.readers.decrementAndGet(stripe);
+        if (this.writing) {
+            this.mutex.lock();
+            try {
+                this.drained.signal();
+            } finally {
+                this.mutex.unlock();
+            }
+        }
+    }
+
+    boolean tryAcquireWrite(long nanos) throws InterruptedException {
+        this.checkLoopback();
+        final long deadline = System.nanoTime() + nanos;
+        if (!this.writer.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        if (this.writer.getHoldCount() > 1) {
+            return true;
+        }
+        // Publish ourselves before counting readers, so that a concurrent reader either sees us or is counted
+        this.writing = true;
+        boolean acquired = false;
+        try {
+            this.mutex.lockInterruptibly();
+            try {
+                while (this.getReadLockCount() != 0L) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    this.drained.awaitNanos(remaining);
+                }
+            } finally {
+                this.mutex.unlock();
+            }
+            acquired = true;
+            return true;
+        } finally {
+            if (!acquired) {
+                this.releaseWrite();
+            }
+        }
+    }
+
+    void releaseWrite() {
+        if (!this.writer.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        if (this.writer.getHoldCount() == 1) {
+            this.writing = false;
+            this.mutex.lock();
+            try {
+                this.released.signalAll();
+            } finally {
+                this.mutex.unlock();
+            }
+        }
+        this.writer.unlock();
+    }
+
+    /**
+     * Ensures that the current thread doesn't hold any read locks. If
+     * the thread holds any read locks, this method throws a {@link javax.ejb.IllegalLoopbackException}.
+     */
+    private void checkLoopback() {
+        if (this.readHolds.get().count > 0) {
+            throw EjbLogger.ROOT_LOGGER.failToUpgradeToWriteLock();
+        }
+    }
+
+    private abstract static class StripedLock implements Lock {
+
+        abstract boolean tryAcquire(long nanos) throws InterruptedException;
+
+        @Override
+        public void lock() {
+            boolean interrupted = false;
+            try {
+                for (;;) {
+                    try {
+                        if (this.tryAcquire(Long.MAX_VALUE)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            while (!this.tryAcquire(Long.MAX_VALUE)) {
+                // retry
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return this.tryAcquire(0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return this.tryAcquire(unit.toNanos(time));
+        }
+
+        /**
+         * Not implemented
+         *
+         * @throws UnsupportedOperationException
+         */
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class ReadLock extends StripedLock {
+        @Override
+        boolean tryAcquire(long nanos) throws InterruptedException {
+            return StripedReadWriteLock.this.tryAcquireRead(nanos);
+        }
+
+        @Override
+        public void unlock() {
+            StripedReadWriteLock.this.releaseRead();
+        }
+    }
+
+    private class WriteLock extends StripedLock {
+        @Override
+        boolean tryAcquire(long nanos) throws InterruptedException {
+            return StripedReadWriteLock.this.tryAcquireWrite(nanos);
+        }
+
+        @Override
+        public void unlock() {
+            StripedReadWriteLock.this.releaseWrite();
+        }
+    }
+
+    private static class ReadHolds {
+        int count;
+    }
+}
@@ -3145,4 +3145,22 @@ public interface EjbLogger extends BasicLogger {
     @LogMessage(level = INFO)
     @Message(id = 493, value = "EJB subsystem suspension complete")
     void suspensionComplete();
+
+    @LogMessage(level = ERROR)
+    @Message(id = 494, value = "Timeout task %s failed")
+    void timeoutTaskFailed(Runnable task, @Cause Throwable cause);
+
+    @LogMessage(level = WARN)
+    @Message(id = 495, value = "Timer journal %s is truncated or corrupt at position %d, the remaining records of this segment are ignored")
+    void timerJournalTruncated(File segment, long position);
+
+    @Message(id = 496, value = "Bean instance pool %s is already defined as a %s")
+    OperationFailedException beanInstancePoolAlreadyDefined(String poolName, String poolType);
+
+    @LogMessage(level = WARN)
+    @Message(id = 497, value = "Discarding the changes of %d timer(s) of a transaction that was still active when the timer store stopped")
+    void discardedTimerChanges(int count);
+
+    @Message(id = 498, value = "The timer store stopped before the transaction completed, its timer changes were discarded")
+    IllegalStateException timerStoreStoppedBeforeCompletion();
 }
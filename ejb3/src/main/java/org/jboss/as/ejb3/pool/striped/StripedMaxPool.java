@@ -0,0 +1,314 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.pool.striped;
+
+import static org.jboss.as.ejb3.logging.EjbLogger.ROOT_LOGGER;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jboss.as.ejb3.logging.EjbLogger;
+import org.jboss.as.ejb3.pool.AbstractPool;
+import org.jboss.as.ejb3.pool.StatelessObjectFactory;
+
+/**
+ * A pool with a strict maximum size whose permits and idle instances are spread over a number of stripes.
+ * <p/>
+ * Each thread has a home stripe. Permits and instances are taken from the home stripe without locking; if the home
+ * stripe is exhausted the other stripes are scanned (work stealing) before the caller blocks. At most {@code maxSize}
+ * instances are in use at any point in time, exactly as with {@link org.jboss.as.ejb3.pool.strictmax.StrictMaxPool}.
+ *
+ * @param <T> the pooled type
+ */
+public class StripedMaxPool<T> extends AbstractPool<T> {
+
+    private final Stripe<T>[] stripes;
+    private final int mask;
+    /**
+     * The maximum number of instances allowed in use
+     */
+    private final int maxSize;
+    /**
+     * The time to wait for a permit once all stripes are exhausted.
+     */
+    private final long timeout;
+    private final TimeUnit timeUnit;
+
+    /**
+     * Only used by callers that found every stripe exhausted.
+     */
+    private final Lock lock = new ReentrantLock();
+    private final Condition permitReleased = this.lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    // contention counters
+    private final LongAdder stealCount = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    public StripedMaxPool(StatelessObjectFactory<T> factory, int maxSize, long timeout, TimeUnit timeUnit) {
+        this(factory, maxSize, timeout, timeUnit, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedMaxPool(StatelessObjectFactory<T> factory, int maxSize, long timeout, TimeUnit timeUnit, int concurrency) {
+        super(factory);
+        this.maxSize = maxSize;
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(concurrency, maxSize)));
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            // spread the permits as evenly as possible, the first stripes take the remainder
+            this.stripes[i] = new Stripe<>(maxSize / stripeCount + ((i < maxSize % stripeCount) ? 1 : 0));
+        }
+    }
+
+    public void discard(T ctx) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("Discard instance %s#%s", this, ctx);
+        }
+
+        this.releasePermit(this.home());
+
+        // Let the super do any other remove stuff
+        super.doRemove(ctx);
+    }
+
+    public int getCurrentSize() {
+        return getCreateCount() - getRemoveCount();
+    }
+
+    public int getAvailableCount() {
+        int available = 0;
+        for (Stripe<T> stripe : this.stripes) {
+            available += stripe.permits.get();
+        }
+        return available;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        throw EjbLogger.ROOT_LOGGER.methodNotImplemented();
+    }
+
+    /**
+     * @return the number of stripes permits and instances are spread over
+     */
+    public int getStripeCount() {
+        return this.stripes.length;
+    }
+
+    /**
+     * @return the number of times a permit or an instance had to be taken from a stripe other than the caller's own
+     */
+    public long getStealCount() {
+        return this.stealCount.sum();
+    }
+
+    /**
+     * @return the number of times a caller found every stripe exhausted and had to block
+     */
+    public long getWaitCount() {
+        return this.waitCount.sum();
+    }
+
+    /**
+     * @return the number of times a caller gave up waiting for a permit
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount.sum();
+    }
+
+    /**
+     * Get an instance without identity.
+     *
+     * @return Context /w instance
+     */
+    public T get() {
+        final int home = this.home();
+        if (!this.tryAcquirePermit(home)) {
+            this.acquirePermit(home);
+        }
+
+        T bean = this.pollInstance(home);
+        if (bean != null) {
+            //we found a bean instance in the pool, return it
+            return bean;
+        }
+
+        try {
+            // Pool is empty, create an instance
+            bean = create();
+        } finally {
+            if (bean == null) {
+                this.releasePermit(home);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * Return an instance after invocation.
+     *
+     * @param obj
+     */
+    public void release(T obj) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("%s/%s Free instance: %s", this.getAvailableCount(), maxSize, this);
+        }
+
+        final int home = this.home();
+        this.stripes[home].instances.add(obj);
+
+        this.releasePermit(home);
+    }
+
+    @Override
+    @Deprecated
+    public void remove(T ctx) {
+        if (ROOT_LOGGER.isTraceEnabled()) {
+            ROOT_LOGGER.tracef("Removing instance: %s#%s", this, ctx);
+        }
+
+        this.releasePermit(this.home());
+        // let the super do the other remove stuff
+        super.doRemove(ctx);
+    }
+
+    public void start() {
+        // nothing to do
+    }
+
+    public void stop() {
+        for (Stripe<T> stripe : this.stripes) {
+            for (T obj = stripe.instances.poll(); obj != null; obj = stripe.instances.poll()) {
+                destroy(obj);
+            }
+        }
+    }
+
+    private int home() {
+        // spread sequential thread ids over the stripes
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & this.mask;
+    }
+
+    private boolean tryAcquirePermit(int home) {
+        for (int i = 0; i < this.stripes.length; i++) {
+            if (this.stripes[(home + i) & this.mask].tryAcquire()) {
+                if (i > 0) {
+                    this.stealCount.increment();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void acquirePermit(int home) {
+        this.waitCount.increment();
+        long nanos = this.timeUnit.toNanos(this.timeout);
+        try {
+            this.lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            throw EjbLogger.ROOT_LOGGER.acquireSemaphoreInterrupted();
+        }
+        try {
+            // Publish ourselves before re-checking, so that a concurrent release either sees us or we see its permit
+            this.waiters.incrementAndGet();
+            try {
+                while (!this.tryAcquirePermit(home)) {
+                    if (nanos <= 0L) {
+                        this.timeoutCount.increment();
+                        throw EjbLogger.ROOT_LOGGER.failedToAcquirePermit(this.timeout, this.timeUnit);
+                    }
+                    nanos = this.permitReleased.awaitNanos(nanos);
+                }
+            } finally {
+                this.waiters.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            throw EjbLogger.ROOT_LOGGER.acquireSemaphoreInterrupted();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void releasePermit(int home) {
+        this.stripes[home].permits.incrementAndGet();
+        if (this.waiters.get() > 0) {
+            this.lock.lock();
+            try {
+                this.permitReleased.signal();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    private T pollInstance(int home) {
+        T bean = this.stripes[home].instances.poll();
+        if (bean != null) {
+            return bean;
+        }
+        for (int i = 1; i < this.stripes.length; i++) {
+            bean = this.stripes[(home + i) & this.mask].instances.poll();
+            if (bean != null) {
+                this.stealCount.increment();
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    private static final class Stripe<T> {
+        final AtomicInteger permits;
+        final Queue<T> instances = new ConcurrentLinkedQueue<>();
+
+        Stripe(int permits) {
+            this.permits = new AtomicInteger(permits);
+        }
+
+        boolean tryAcquire() {
+            for (;;) {
+                int current = this.permits.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (this.permits.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
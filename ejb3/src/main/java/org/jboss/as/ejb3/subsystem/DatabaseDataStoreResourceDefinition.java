@@ -88,6 +88,13 @@ public class DatabaseDataStoreResourceDefinition extends SimpleResourceDefinitio
                     .setDefaultValue(new ModelNode(true))
                     .build();
 
+    public static final SimpleAttributeDefinition WRITE_BEHIND =
+            new SimpleAttributeDefinitionBuilder(EJB3SubsystemModel.WRITE_BEHIND, ModelType.BOOLEAN, true)
+                    .setAllowExpression(true)
+                    .setFlags(AttributeAccess.Flag.RESTART_RESOURCE_SERVICES)
+                    .setDefaultValue(new ModelNode(false))
+                    .build();
+
     public static final Map<String, AttributeDefinition> ATTRIBUTES ;
 
     static {
@@ -97,6 +104,7 @@ public class DatabaseDataStoreResourceDefinition extends SimpleResourceDefinitio
         map.put(PARTITION.getName(), PARTITION);
         map.put(REFRESH_INTERVAL.getName(), REFRESH_INTERVAL);
         map.put(ALLOW_EXECUTION.getName(), ALLOW_EXECUTION);
+        map.put(WRITE_BEHIND.getName(), WRITE_BEHIND);
 
         ATTRIBUTES = Collections.unmodifiableMap(map);
     }
@@ -120,6 +128,14 @@ public class DatabaseDataStoreResourceDefinition extends SimpleResourceDefinitio
         db.getAttributeBuilder()
                 .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(-1)), REFRESH_INTERVAL)
                 .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(true)), ALLOW_EXECUTION)
-                .addRejectCheck(RejectAttributeChecker.DEFINED, REFRESH_INTERVAL, ALLOW_EXECUTION);
+                .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(false)), WRITE_BEHIND)
+                .addRejectCheck(RejectAttributeChecker.DEFINED, REFRESH_INTERVAL, ALLOW_EXECUTION, WRITE_BEHIND);
+    }
+
+    static void registerTransformers_3_0_0_and_4_0(ResourceTransformationDescriptionBuilder timerService) {
+        ResourceTransformationDescriptionBuilder db = timerService.addChildResource(EJB3SubsystemModel.DATABASE_DATA_STORE_PATH);
+        db.getAttributeBuilder()
+                .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(false)), WRITE_BEHIND)
+                .addRejectCheck(RejectAttributeChecker.DEFINED, WRITE_BEHIND);
     }
 }
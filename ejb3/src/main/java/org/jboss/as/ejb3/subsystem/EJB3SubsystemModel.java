@@ -73,6 +73,7 @@ public interface EJB3SubsystemModel {
     String DERIVE_SIZE = "derive-size";
 
     String STRICT_MAX_BEAN_INSTANCE_POOL = "strict-max-bean-instance-pool";
+    String STRIPED_MAX_BEAN_INSTANCE_POOL = "striped-max-bean-instance-pool";
 
     String MAX_THREADS = "max-threads";
     String KEEPALIVE_TIME = "keepalive-time";
@@ -99,6 +100,10 @@ public interface EJB3SubsystemModel {
     String TIMER_SERVICE = "timer-service";
     String THREAD_POOL = "thread-pool";
     String THREAD_POOL_NAME = "thread-pool-name";
+    String TIMEOUT_SCHEDULER = "timeout-scheduler";
+    String FIRED_TIMEOUTS = "fired-timeouts";
+    String AVERAGE_TIMEOUT_LAG = "average-timeout-lag";
+    String MAX_TIMEOUT_LAG = "max-timeout-lag";
     String DEFAULT = "default";
 
     String USE_QUALIFIED_NAME = "use-qualified-name";
@@ -133,6 +138,7 @@ public interface EJB3SubsystemModel {
     String PARTITION  = "partition";
     String REFRESH_INTERVAL = "refresh-interval";
     String ALLOW_EXECUTION = "allow-execution";
+    String WRITE_BEHIND = "write-behind";
 
     String STATIC_URLS = "static-urls";
 
@@ -299,13 +299,16 @@ public class EJB3SubsystemRootResourceDefinition extends SimpleResourceDefinitio
         // subsystem=ejb3/strict-max-bean-instance-pool=*
         subsystemRegistration.registerSubModel(StrictMaxPoolResourceDefinition.INSTANCE);
 
+        // subsystem=ejb3/striped-max-bean-instance-pool=*
+        subsystemRegistration.registerSubModel(StripedMaxPoolResourceDefinition.INSTANCE);
+
         subsystemRegistration.registerSubModel(CacheFactoryResourceDefinition.INSTANCE);
         subsystemRegistration.registerSubModel(PassivationStoreResourceDefinition.INSTANCE);
         subsystemRegistration.registerSubModel(FilePassivationStoreResourceDefinition.INSTANCE);
         subsystemRegistration.registerSubModel(ClusterPassivationStoreResourceDefinition.INSTANCE);
 
         // subsystem=ejb3/service=timerservice
-        subsystemRegistration.registerSubModel(new TimerServiceResourceDefinition(pathManager));
+        subsystemRegistration.registerSubModel(new TimerServiceResourceDefinition(pathManager, registerRuntimeOnly));
 
         // subsystem=ejb3/thread-pool=*
         subsystemRegistration.registerSubModel(UnboundedQueueThreadPoolResourceDefinition.create(EJB3SubsystemModel.THREAD_POOL,
@@ -366,6 +369,8 @@ public class EJB3SubsystemRootResourceDefinition extends SimpleResourceDefinitio
         EJB3RemoteResourceDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
         MdbDeliveryGroupResourceDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
         StrictMaxPoolResourceDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
+        StripedMaxPoolResourceDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
+        CacheFactoryResourceDefinition.registerTransformers(builder);
         ApplicationSecurityDomainDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
         IdentityResourceDefinition.registerTransformers_1_2_0_and_1_3_0(builder);
         builder.rejectChildResource(PathElement.pathElement(EJB3SubsystemModel.REMOTING_PROFILE));
@@ -388,6 +393,9 @@ public class EJB3SubsystemRootResourceDefinition extends SimpleResourceDefinitio
         MdbDeliveryGroupResourceDefinition.registerTransformers_3_0(builder);
         EJB3RemoteResourceDefinition.registerTransformers_3_0(builder);
         StrictMaxPoolResourceDefinition.registerTransformers_3_0_0(builder);
+        StripedMaxPoolResourceDefinition.registerTransformers_3_0_0(builder);
+        CacheFactoryResourceDefinition.registerTransformers(builder);
+        TimerServiceResourceDefinition.registerTransformers_3_0_0(builder);
         ApplicationSecurityDomainDefinition.registerTransformers_3_0_0(builder);
         IdentityResourceDefinition.registerTransformers_3_0_0(builder);
         TransformationDescription.Tools.register(builder.build(), subsystemRegistration, VERSION_3_0_0);
@@ -399,6 +407,9 @@ public class EJB3SubsystemRootResourceDefinition extends SimpleResourceDefinitio
         ApplicationSecurityDomainDefinition.registerTransformers_4_0(builder);
         IdentityResourceDefinition.registerTransformers_4_0(builder);
         RemotingProfileResourceDefinition.registerTransformers_4_0(builder);
+        StripedMaxPoolResourceDefinition.registerTransformers_4_0(builder);
+        CacheFactoryResourceDefinition.registerTransformers(builder);
+        TimerServiceResourceDefinition.registerTransformers_4_0(builder);
 
         builder.getAttributeBuilder().setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(new ModelNode(false)), EJB3SubsystemRootResourceDefinition.ALLOW_EJB_NAME_REGEX);
         builder.getAttributeBuilder().addRejectCheck(RejectAttributeChecker.DEFINED, EJB3SubsystemRootResourceDefinition.ALLOW_EJB_NAME_REGEX);
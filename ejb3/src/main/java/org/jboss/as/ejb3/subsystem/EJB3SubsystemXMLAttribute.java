@@ -92,12 +92,15 @@ public enum EJB3SubsystemXMLAttribute {
     @Deprecated SUBDIRECTORY_COUNT("subdirectory-count"),
 
     THREAD_POOL_NAME("thread-pool-name"),
+    TIMEOUT_SCHEDULER("timeout-scheduler"),
     TYPE("type"),
 
     USE_QUALIFIED_NAME("use-qualified-name"),
 
     VALUE("value"),
 
+    WRITE_BEHIND("write-behind"),
+
     ACTIVE("active"),
 
     EXECUTE_IN_WORKER("execute-in-worker"),
@@ -125,7 +125,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
             writer.writeEndElement();
         }
         // write the pools element
-        if (model.hasDefined(EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL)) {
+        if (model.hasDefined(EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL) || model.hasDefined(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL)) {
             // <pools>
             writer.writeStartElement(EJB3SubsystemXMLElement.POOLS.getLocalName());
             // <bean-instance-pools>
@@ -436,6 +436,17 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
                 writer.writeEndElement();
             }
         }
+        if (beanInstancePoolModelNode.hasDefined(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL)) {
+            final List<Property> stripedMaxPools = beanInstancePoolModelNode.get(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL).asPropertyList();
+            for (Property property : stripedMaxPools) {
+                // <striped-max-pool>
+                writer.writeStartElement(EJB3SubsystemXMLElement.STRIPED_MAX_POOL.getLocalName());
+                // contents of striped-max-pool, same attributes as strict-max-pool
+                this.writeStrictMaxPoolConfig(writer, property);
+                // </striped-max-pool>
+                writer.writeEndElement();
+            }
+        }
     }
 
     private void writeStrictMaxPoolConfig(final XMLExtendedStreamWriter writer, final Property strictMaxPoolModel) throws XMLStreamException {
@@ -458,6 +469,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
             writer.writeAttribute(EJB3SubsystemXMLAttribute.NAME.getLocalName(), property.getName());
             CacheFactoryResourceDefinition.PASSIVATION_STORE.marshallAsAttribute(cache, writer);
             writeAttribute(writer, cache, CacheFactoryResourceDefinition.ALIASES);
+            CacheFactoryResourceDefinition.MAX_SIZE.marshallAsAttribute(cache, writer);
             writer.writeEndElement();
         }
     }
@@ -527,6 +539,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
 
         TimerServiceResourceDefinition.THREAD_POOL_NAME.marshallAsAttribute(timerServiceModel, writer);
         TimerServiceResourceDefinition.DEFAULT_DATA_STORE.marshallAsAttribute(timerServiceModel, writer);
+        TimerServiceResourceDefinition.TIMEOUT_SCHEDULER.marshallAsAttribute(timerServiceModel, writer);
 
         writer.writeStartElement(EJB3SubsystemXMLElement.DATA_STORES.getLocalName());
         writeFileDataStores(writer, timerServiceModel);
@@ -547,6 +560,7 @@ public class EJB3SubsystemXMLPersister implements XMLElementWriter<SubsystemMars
                 DatabaseDataStoreResourceDefinition.PARTITION.marshallAsAttribute(store, writer);
                 DatabaseDataStoreResourceDefinition.REFRESH_INTERVAL.marshallAsAttribute(store, writer);
                 DatabaseDataStoreResourceDefinition.ALLOW_EXECUTION.marshallAsAttribute(store, writer);
+                DatabaseDataStoreResourceDefinition.WRITE_BEHIND.marshallAsAttribute(store, writer);
                 writer.writeEndElement();
             }
         }
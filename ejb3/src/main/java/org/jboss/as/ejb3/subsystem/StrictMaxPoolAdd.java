@@ -29,10 +29,14 @@ import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.PathAddress;
+import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.ServiceVerificationHandler;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
+import org.jboss.as.controller.registry.Resource;
 import org.jboss.as.ejb3.component.pool.PoolConfig;
+import org.jboss.as.ejb3.component.pool.StrictMaxPoolConfig;
 import org.jboss.as.ejb3.component.pool.StrictMaxPoolConfigService;
+import org.jboss.as.ejb3.logging.EjbLogger;
 import org.jboss.dmr.ModelNode;
 import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceController;
@@ -54,6 +58,18 @@ public class StrictMaxPoolAdd extends AbstractAddStepHandler {
     static final String IO_MAX_THREADS_RUNTIME_CAPABILITY_NAME = "org.wildfly.io.max-threads";
 
 
+    @Override
+    protected void populateModel(OperationContext context, ModelNode operation, Resource resource) throws OperationFailedException {
+        // strict and striped pools share the same service names, so a pool name can only be used by one of them
+        final PathAddress address = context.getCurrentAddress();
+        final PathElement path = address.getLastElement();
+        final String otherType = EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL.equals(path.getKey()) ? EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL : EJB3SubsystemModel.STRICT_MAX_BEAN_INSTANCE_POOL;
+        if (context.readResourceFromRoot(address.getParent(), false).hasChild(PathElement.pathElement(otherType, path.getValue()))) {
+            throw EjbLogger.ROOT_LOGGER.beanInstancePoolAlreadyDefined(path.getValue(), otherType);
+        }
+        super.populateModel(context, operation, resource);
+    }
+
     /**
      * Populate the <code>strictMaxPoolModel</code> from the <code>operation</code>
      *
@@ -86,7 +102,7 @@ public class StrictMaxPoolAdd extends AbstractAddStepHandler {
         final long timeout = StrictMaxPoolResourceDefinition.INSTANCE_ACQUISITION_TIMEOUT.resolveModelAttribute(context, strictMaxPoolModel).asLong();
         final String unit = StrictMaxPoolResourceDefinition.INSTANCE_ACQUISITION_TIMEOUT_UNIT.resolveModelAttribute(context, strictMaxPoolModel).asString();
         // create and install the service
-        final StrictMaxPoolConfigService poolConfigService = new StrictMaxPoolConfigService(poolName, maxPoolSize, derive, timeout, TimeUnit.valueOf(unit));
+        final StrictMaxPoolConfigService poolConfigService = new StrictMaxPoolConfigService(this.createPoolConfig(poolName, maxPoolSize, timeout, TimeUnit.valueOf(unit)), derive);
 
 
         final ServiceName serviceName = StrictMaxPoolConfigService.EJB_POOL_CONFIG_BASE_SERVICE_NAME.append(poolName);
@@ -103,4 +119,10 @@ public class StrictMaxPoolAdd extends AbstractAddStepHandler {
         return svcBuilder.install();
     }
 
+    /**
+     * Creates the configuration of the pools the installed service hands out to components.
+     */
+    StrictMaxPoolConfig createPoolConfig(String poolName, int maxPoolSize, long timeout, TimeUnit timeUnit) {
+        return new StrictMaxPoolConfig(poolName, maxPoolSize, timeout, timeUnit);
+    }
 }
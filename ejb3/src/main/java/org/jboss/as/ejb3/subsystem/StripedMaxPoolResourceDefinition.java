@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.ejb3.subsystem;
+
+import java.util.Collection;
+
+import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.OperationStepHandler;
+import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.ServiceRemoveStepHandler;
+import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.registry.OperationEntry;
+import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
+import org.jboss.as.ejb3.component.pool.StrictMaxPoolConfigService;
+
+/**
+ * {@link org.jboss.as.controller.ResourceDefinition} for a bean instance pool with a strict upper limit whose permits
+ * and idle instances are striped across CPUs. It accepts the same attributes as the
+ * {@link StrictMaxPoolResourceDefinition strict-max-bean-instance-pool}.
+ */
+public class StripedMaxPoolResourceDefinition extends SimpleResourceDefinition {
+
+    public static final StripedMaxPoolResourceDefinition INSTANCE = new StripedMaxPoolResourceDefinition();
+
+    private StripedMaxPoolResourceDefinition() {
+        super(PathElement.pathElement(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL),
+                EJB3Extension.getResourceDescriptionResolver(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL),
+                StripedMaxPoolAdd.INSTANCE, new ServiceRemoveStepHandler(StrictMaxPoolConfigService.EJB_POOL_CONFIG_BASE_SERVICE_NAME, StripedMaxPoolAdd.INSTANCE),
+                OperationEntry.Flag.RESTART_NONE, OperationEntry.Flag.RESTART_RESOURCE_SERVICES);
+    }
+
+    @Override
+    public void registerAttributes(ManagementResourceRegistration resourceRegistration) {
+        Collection<AttributeDefinition> ads = StrictMaxPoolResourceDefinition.ATTRIBUTES.values();
+        OperationStepHandler osh = new StrictMaxPoolWriteHandler(ads);
+        for (AttributeDefinition attr : ads) {
+            resourceRegistration.registerReadWriteAttribute(attr, null, osh);
+        }
+    }
+
+    static void registerTransformers_1_2_0_and_1_3_0(ResourceTransformationDescriptionBuilder parent) {
+        parent.rejectChildResource(INSTANCE.getPathElement());
+    }
+
+    static void registerTransformers_3_0_0(ResourceTransformationDescriptionBuilder parent) {
+        parent.rejectChildResource(INSTANCE.getPathElement());
+    }
+
+    static void registerTransformers_4_0(ResourceTransformationDescriptionBuilder parent) {
+        parent.rejectChildResource(INSTANCE.getPathElement());
+    }
+}
@@ -34,6 +34,7 @@ import org.jboss.as.ejb3.deployment.processors.AroundTimeoutAnnotationParsingPro
 import org.jboss.as.ejb3.deployment.processors.TimerServiceDeploymentProcessor;
 import org.jboss.as.ejb3.deployment.processors.annotation.TimerServiceAnnotationProcessor;
 import org.jboss.as.ejb3.deployment.processors.merging.TimerMethodMergingProcessor;
+import org.jboss.as.ejb3.timerservice.scheduler.TimeoutSchedulerService;
 import org.jboss.as.server.AbstractDeploymentChainStep;
 import org.jboss.as.server.DeploymentProcessorTarget;
 import org.jboss.as.server.deployment.Phase;
@@ -81,6 +82,7 @@ public class TimerServiceAdd extends AbstractBoottimeAddStepHandler {
         final String defaultDataStore = TimerServiceResourceDefinition.DEFAULT_DATA_STORE.resolveModelAttribute(context, model).asString();
         final String threadPoolName = TimerServiceResourceDefinition.THREAD_POOL_NAME.resolveModelAttribute(context, model).asString();
         final ServiceName threadPoolServiceName = EJB3SubsystemModel.BASE_THREAD_POOL_SERVICE_NAME.append(threadPoolName);
+        final TimeoutSchedulerService.Type schedulerType = TimeoutSchedulerService.Type.fromValue(TimerServiceResourceDefinition.TIMEOUT_SCHEDULER.resolveModelAttribute(context, model).asString());
 
         context.addStep(new AbstractDeploymentChainStep() {
             protected void execute(DeploymentProcessorTarget processorTarget) {
@@ -96,6 +98,11 @@ public class TimerServiceAdd extends AbstractBoottimeAddStepHandler {
         newControllers.add(context.getServiceTarget().addService(TimerServiceDeploymentProcessor.TIMER_SERVICE_NAME, new TimerValueService())
                 .install());
 
+        final TimeoutSchedulerService schedulerService = new TimeoutSchedulerService(schedulerType);
+        newControllers.add(context.getServiceTarget().addService(TimerServiceDeploymentProcessor.TIMEOUT_SCHEDULER_SERVICE_NAME, schedulerService)
+                .addDependency(TimerServiceDeploymentProcessor.TIMER_SERVICE_NAME, Timer.class, schedulerService.getTimerInjector())
+                .install());
+
     }
 
     private static final class TimerValueService implements Service<Timer> {
@@ -26,7 +26,9 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
 import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.PathAddress;
 import org.jboss.as.controller.PathElement;
@@ -35,6 +37,7 @@ import org.jboss.as.controller.ReloadRequiredWriteAttributeHandler;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
@@ -48,11 +51,17 @@ import org.jboss.as.controller.transform.PathAddressTransformer;
 import org.jboss.as.controller.transform.ResourceTransformationContext;
 import org.jboss.as.controller.transform.TransformationContext;
 import org.jboss.as.controller.transform.TransformationTarget;
+import org.jboss.as.controller.operations.validation.EnumValidator;
 import org.jboss.as.controller.transform.description.DiscardAttributeChecker;
+import org.jboss.as.controller.transform.description.RejectAttributeChecker;
 import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
+import org.jboss.as.ejb3.deployment.processors.TimerServiceDeploymentProcessor;
 import org.jboss.as.ejb3.logging.EjbLogger;
+import org.jboss.as.ejb3.timerservice.scheduler.TimeoutScheduler;
+import org.jboss.as.ejb3.timerservice.scheduler.TimeoutSchedulerService;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
+import org.jboss.msc.service.ServiceController;
 
 /**
  * {@link org.jboss.as.controller.ResourceDefinition} for the timer-service resource.
@@ -73,24 +82,52 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
                     //.setDefaultValue(new ModelNode("default-file-store")) //for backward compatibility!
                     .build();
 
+    static final SimpleAttributeDefinition TIMEOUT_SCHEDULER =
+            new SimpleAttributeDefinitionBuilder(EJB3SubsystemModel.TIMEOUT_SCHEDULER, ModelType.STRING, true)
+                    .setAllowExpression(true)
+                    .setDefaultValue(new ModelNode(TimeoutSchedulerService.Type.TIMER.toString()))
+                    .setValidator(EnumValidator.create(TimeoutSchedulerService.Type.class, true, true))
+                    .setFlags(AttributeAccess.Flag.RESTART_ALL_SERVICES)
+                    .build();
+
+    static final SimpleAttributeDefinition FIRED_TIMEOUTS =
+            new SimpleAttributeDefinitionBuilder(EJB3SubsystemModel.FIRED_TIMEOUTS, ModelType.LONG, true)
+                    .setStorageRuntime()
+                    .build();
+
+    static final SimpleAttributeDefinition AVERAGE_TIMEOUT_LAG =
+            new SimpleAttributeDefinitionBuilder(EJB3SubsystemModel.AVERAGE_TIMEOUT_LAG, ModelType.LONG, true)
+                    .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+                    .setStorageRuntime()
+                    .build();
+
+    static final SimpleAttributeDefinition MAX_TIMEOUT_LAG =
+            new SimpleAttributeDefinitionBuilder(EJB3SubsystemModel.MAX_TIMEOUT_LAG, ModelType.LONG, true)
+                    .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+                    .setStorageRuntime()
+                    .build();
+
     public static final Map<String, AttributeDefinition> ATTRIBUTES ;
 
     private final PathManager pathManager;
+    private final boolean registerRuntimeOnly;
 
     static {
         Map<String, AttributeDefinition> map = new LinkedHashMap<String, AttributeDefinition>();
         map.put(THREAD_POOL_NAME.getName(), THREAD_POOL_NAME);
         map.put(DEFAULT_DATA_STORE.getName(), DEFAULT_DATA_STORE);
+        map.put(TIMEOUT_SCHEDULER.getName(), TIMEOUT_SCHEDULER);
 
         ATTRIBUTES = Collections.unmodifiableMap(map);
     }
 
-    public TimerServiceResourceDefinition(final PathManager pathManager) {
+    public TimerServiceResourceDefinition(final PathManager pathManager, final boolean registerRuntimeOnly) {
         super(EJB3SubsystemModel.TIMER_SERVICE_PATH,
                 EJB3Extension.getResourceDescriptionResolver(EJB3SubsystemModel.TIMER_SERVICE),
                 TimerServiceAdd.INSTANCE, ReloadRequiredRemoveStepHandler.INSTANCE,
                 OperationEntry.Flag.RESTART_ALL_SERVICES, OperationEntry.Flag.RESTART_ALL_SERVICES);
         this.pathManager = pathManager;
+        this.registerRuntimeOnly = registerRuntimeOnly;
     }
 
 
@@ -99,6 +136,12 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
         for (AttributeDefinition attr : ATTRIBUTES.values()) {
             resourceRegistration.registerReadWriteAttribute(attr, null, new ReloadRequiredWriteAttributeHandler(attr));
         }
+        if (registerRuntimeOnly) {
+            TimeoutSchedulerMetricsHandler handler = new TimeoutSchedulerMetricsHandler();
+            resourceRegistration.registerMetric(FIRED_TIMEOUTS, handler);
+            resourceRegistration.registerMetric(AVERAGE_TIMEOUT_LAG, handler);
+            resourceRegistration.registerMetric(MAX_TIMEOUT_LAG, handler);
+        }
     }
 
     @Override
@@ -110,6 +153,7 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
 
     static void registerTransformers_1_2_0(ResourceTransformationDescriptionBuilder parent) {
         ResourceTransformationDescriptionBuilder timerService = parent.addChildResource(EJB3SubsystemModel.TIMER_SERVICE_PATH);
+        rejectTimeoutScheduler(timerService);
         registerDataStoreTransformers(timerService);
     }
 
@@ -138,9 +182,55 @@ public class TimerServiceResourceDefinition extends SimpleResourceDefinition {
 
     public static void registerTransformers_1_3_0(ResourceTransformationDescriptionBuilder parent) {
         ResourceTransformationDescriptionBuilder timerService = parent.addChildResource(EJB3SubsystemModel.TIMER_SERVICE_PATH);
+        rejectTimeoutScheduler(timerService);
         DatabaseDataStoreResourceDefinition.registerTransformers1_3_0(timerService);
     }
 
+    static void registerTransformers_3_0_0(ResourceTransformationDescriptionBuilder parent) {
+        ResourceTransformationDescriptionBuilder timerService = parent.addChildResource(EJB3SubsystemModel.TIMER_SERVICE_PATH);
+        rejectTimeoutScheduler(timerService);
+        DatabaseDataStoreResourceDefinition.registerTransformers_3_0_0_and_4_0(timerService);
+    }
+
+    static void registerTransformers_4_0(ResourceTransformationDescriptionBuilder parent) {
+        ResourceTransformationDescriptionBuilder timerService = parent.addChildResource(EJB3SubsystemModel.TIMER_SERVICE_PATH);
+        rejectTimeoutScheduler(timerService);
+        DatabaseDataStoreResourceDefinition.registerTransformers_3_0_0_and_4_0(timerService);
+    }
+
+    private static void rejectTimeoutScheduler(ResourceTransformationDescriptionBuilder timerService) {
+        // legacy hosts always use the java.util.Timer based scheduler
+        timerService.getAttributeBuilder()
+                .setDiscard(new DiscardAttributeChecker.DiscardAttributeValueChecker(TIMEOUT_SCHEDULER.getDefaultValue()), TIMEOUT_SCHEDULER)
+                .addRejectCheck(RejectAttributeChecker.DEFINED, TIMEOUT_SCHEDULER)
+                .end();
+    }
+
+    private static class TimeoutSchedulerMetricsHandler extends AbstractRuntimeOnlyHandler {
+
+        @Override
+        protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+            final String attributeName = operation.require(ModelDescriptionConstants.NAME).asString();
+            final ServiceController<?> controller = context.getServiceRegistry(false).getService(TimerServiceDeploymentProcessor.TIMEOUT_SCHEDULER_SERVICE_NAME);
+            final TimeoutScheduler scheduler = (controller != null && controller.getState() == ServiceController.State.UP) ? (TimeoutScheduler) controller.getValue() : null;
+            if (scheduler != null) {
+                switch (attributeName) {
+                    case EJB3SubsystemModel.FIRED_TIMEOUTS:
+                        context.getResult().set(scheduler.getFiredTimeouts());
+                        break;
+                    case EJB3SubsystemModel.AVERAGE_TIMEOUT_LAG:
+                        context.getResult().set(scheduler.getAverageLag());
+                        break;
+                    case EJB3SubsystemModel.MAX_TIMEOUT_LAG:
+                        context.getResult().set(scheduler.getMaxLag());
+                        break;
+                    default:
+                        throw EjbLogger.ROOT_LOGGER.unknownAttribute(attributeName);
+                }
+            }
+        }
+    }
+
     private static class DataStoreTransformer implements CombinedTransformer {
 
         private DataStoreTransformer() {
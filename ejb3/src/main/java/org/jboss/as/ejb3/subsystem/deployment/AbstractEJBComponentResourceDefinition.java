@@ -34,6 +34,7 @@ import org.jboss.as.controller.PrimitiveListAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinition;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.operations.validation.StringLengthValidator;
 import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
@@ -80,7 +81,22 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
             .build();
 
-    private static final AttributeDefinition METHODS = ObjectTypeAttributeDefinition.Builder.of("methods", EXECUTION_TIME, INVOCATIONS, WAIT_TIME)
+    private static final AttributeDefinition EXECUTION_TIME_P50 = new SimpleAttributeDefinitionBuilder("execution-time-p50", ModelType.DOUBLE)
+            .setUndefinedMetricValue(new ModelNode(0d))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EXECUTION_TIME_P99 = new SimpleAttributeDefinitionBuilder("execution-time-p99", ModelType.DOUBLE)
+            .setUndefinedMetricValue(new ModelNode(0d))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EXECUTION_TIME_P999 = new SimpleAttributeDefinitionBuilder("execution-time-p999", ModelType.DOUBLE)
+            .setUndefinedMetricValue(new ModelNode(0d))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition METHODS = ObjectTypeAttributeDefinition.Builder.of("methods", EXECUTION_TIME, EXECUTION_TIME_P50, EXECUTION_TIME_P99, EXECUTION_TIME_P999, INVOCATIONS, WAIT_TIME)
             .setAllowNull(true)
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
             .build();
@@ -112,6 +128,38 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
             .build();
 
+    private static final AttributeDefinition EXPIRED_COUNT = new SimpleAttributeDefinitionBuilder("expired-count", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition EVICTED_COUNT = new SimpleAttributeDefinitionBuilder("evicted-count", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition LOCK_WAIT_COUNT = new SimpleAttributeDefinitionBuilder("lock-wait-count", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition LOCK_WAIT_TIME = new SimpleAttributeDefinitionBuilder("lock-wait-time", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition LOCK_MAX_WAIT_TIME = new SimpleAttributeDefinitionBuilder("lock-max-wait-time", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setMeasurementUnit(MeasurementUnit.MILLISECONDS)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    private static final AttributeDefinition LOCK_TIMEOUT_COUNT = new SimpleAttributeDefinitionBuilder("lock-timeout-count", ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
     // Pool attributes
 
     public static final SimpleAttributeDefinition POOL_AVAILABLE_COUNT = new SimpleAttributeDefinitionBuilder("pool-available-count", ModelType.INT, false)
@@ -127,6 +175,13 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME).build();
     public static final SimpleAttributeDefinition POOL_MAX_SIZE = new SimpleAttributeDefinitionBuilder("pool-max-size", ModelType.INT, false)
             .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME).build();
+    // Contention counters, only defined for striped pools
+    public static final SimpleAttributeDefinition POOL_STEAL_COUNT = new SimpleAttributeDefinitionBuilder("pool-steal-count", ModelType.LONG, true)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME).build();
+    public static final SimpleAttributeDefinition POOL_WAIT_COUNT = new SimpleAttributeDefinitionBuilder("pool-wait-count", ModelType.LONG, true)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME).build();
+    public static final SimpleAttributeDefinition POOL_TIMEOUT_COUNT = new SimpleAttributeDefinitionBuilder("pool-timeout-count", ModelType.LONG, true)
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME).build();
 
     private final EJBComponentType componentType;
 
@@ -154,6 +209,9 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
             resourceRegistration.registerReadOnlyAttribute(POOL_REMOVE_COUNT, handler);
             resourceRegistration.registerReadOnlyAttribute(POOL_CURRENT_SIZE, handler);
             resourceRegistration.registerReadWriteAttribute(POOL_MAX_SIZE, handler, handler);
+            resourceRegistration.registerReadOnlyAttribute(POOL_STEAL_COUNT, handler);
+            resourceRegistration.registerReadOnlyAttribute(POOL_WAIT_COUNT, handler);
+            resourceRegistration.registerReadOnlyAttribute(POOL_TIMEOUT_COUNT, handler);
         }
 
         if (componentType.equals(EJBComponentType.STATEFUL)) {
@@ -175,6 +233,42 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
                     context.getResult().set(((StatefulSessionComponent)component).getCache().getTotalSize());
                 }
             });
+            resourceRegistration.registerMetric(EXPIRED_COUNT, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getCache().getExpiredCount());
+                }
+            });
+            resourceRegistration.registerMetric(EVICTED_COUNT, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getCache().getEvictedCount());
+                }
+            });
+            resourceRegistration.registerMetric(LOCK_WAIT_COUNT, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getLockStatistics().getWaitCount());
+                }
+            });
+            resourceRegistration.registerMetric(LOCK_WAIT_TIME, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getLockStatistics().getWaitTime());
+                }
+            });
+            resourceRegistration.registerMetric(LOCK_MAX_WAIT_TIME, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getLockStatistics().getMaxWaitTime());
+                }
+            });
+            resourceRegistration.registerMetric(LOCK_TIMEOUT_COUNT, new AbstractRuntimeMetricsHandler() {
+                @Override
+                protected void executeReadMetricStep(final OperationContext context, final ModelNode operation, final EJBComponent component) throws OperationFailedException {
+                    context.getResult().set(((StatefulSessionComponent)component).getLockStatistics().getTimeoutCount());
+                }
+            });
         }
 
         resourceRegistration.registerMetric(EXECUTION_TIME, new AbstractRuntimeMetricsHandler() {
@@ -209,6 +303,9 @@ public abstract class AbstractEJBComponentResourceDefinition extends SimpleResou
                     final InvocationMetrics.Values values = entry.getValue();
                     final ModelNode result = new ModelNode();
                     result.get("execution-time").set(values.getExecutionTime());
+                    result.get("execution-time-p50").set(values.getExecutionTime(0.5d));
+                    result.get("execution-time-p99").set(values.getExecutionTime(0.99d));
+                    result.get("execution-time-p999").set(values.getExecutionTime(0.999d));
                     result.get("invocations").set(values.getInvocations());
                     result.get("wait-time").set(values.getWaitTime());
                     context.getResult().get(entry.getKey()).set(result);
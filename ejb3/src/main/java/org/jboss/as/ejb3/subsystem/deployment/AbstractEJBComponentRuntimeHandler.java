@@ -38,6 +38,7 @@ import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.ejb3.logging.EjbLogger;
 import org.jboss.as.ejb3.component.EJBComponent;
 import org.jboss.as.ejb3.pool.Pool;
+import org.jboss.as.ejb3.pool.striped.StripedMaxPool;
 import org.jboss.as.ejb3.security.EJBSecurityMetaData;
 import org.jboss.dmr.ModelNode;
 import org.jboss.msc.service.ServiceController;
@@ -53,6 +54,9 @@ import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourc
 import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_MAX_SIZE;
 import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_NAME;
 import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_REMOVE_COUNT;
+import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_STEAL_COUNT;
+import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_TIMEOUT_COUNT;
+import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.POOL_WAIT_COUNT;
 import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.RUN_AS_ROLE;
 import static org.jboss.as.ejb3.subsystem.deployment.AbstractEJBComponentResourceDefinition.SECURITY_DOMAIN;
 
@@ -167,6 +171,24 @@ public abstract class AbstractEJBComponentRuntimeHandler<T extends EJBComponent>
             if (pool != null) {
                 result.set(pool.getMaxSize());
             }
+        } else if (hasPool && POOL_STEAL_COUNT.getName().equals(attributeName)) {
+            final Pool<?> pool = componentType.getPool(component);
+            final ModelNode result = context.getResult();
+            if (pool instanceof StripedMaxPool) {
+                result.set(((StripedMaxPool<?>) pool).getStealCount());
+            }
+        } else if (hasPool && POOL_WAIT_COUNT.getName().equals(attributeName)) {
+            final Pool<?> pool = componentType.getPool(component);
+            final ModelNode result = context.getResult();
+            if (pool instanceof StripedMaxPool) {
+                result.set(((StripedMaxPool<?>) pool).getWaitCount());
+            }
+        } else if (hasPool && POOL_TIMEOUT_COUNT.getName().equals(attributeName)) {
+            final Pool<?> pool = componentType.getPool(component);
+            final ModelNode result = context.getResult();
+            if (pool instanceof StripedMaxPool) {
+                result.set(((StripedMaxPool<?>) pool).getTimeoutCount());
+            }
         } else {
             // Bug; we were registered for an attribute but there is no code for handling it
             throw EjbLogger.ROOT_LOGGER.unknownAttribute(attributeName);
@@ -36,6 +36,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 
 import javax.ejb.EJBException;
@@ -62,6 +64,8 @@ import org.jboss.as.ejb3.component.stateful.CurrentSynchronizationCallback;
 import org.jboss.as.ejb3.context.CurrentInvocationContext;
 import org.jboss.as.ejb3.subsystem.deployment.TimerServiceResource;
 import org.jboss.as.ejb3.timerservice.persistence.TimerPersistence;
+import org.jboss.as.ejb3.timerservice.scheduler.ScheduledTimeout;
+import org.jboss.as.ejb3.timerservice.scheduler.TimeoutScheduler;
 import org.jboss.as.ejb3.timerservice.spi.ScheduleTimer;
 import org.jboss.as.ejb3.timerservice.spi.TimedObjectInvoker;
 import org.jboss.invocation.InterceptorContext;
@@ -100,7 +104,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
 
     private final InjectedValue<ExecutorService> executorServiceInjectedValue = new InjectedValue<ExecutorService>();
 
-    private final InjectedValue<java.util.Timer> timerInjectedValue = new InjectedValue<java.util.Timer>();
+    private final InjectedValue<TimeoutScheduler> timeoutSchedulerInjectedValue = new InjectedValue<TimeoutScheduler>();
 
     private final InjectedValue<TimedObjectInvoker> timedObjectInvoker = new InjectedValue<TimedObjectInvoker>();
 
@@ -117,12 +121,12 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
     /**
      * All timers which were created by this {@link TimerService}
      */
-    private final Map<String, TimerImpl> timers = Collections.synchronizedMap(new HashMap<String, TimerImpl>());
+    private final Map<String, TimerImpl> timers = new ConcurrentHashMap<String, TimerImpl>();
 
     /**
-     * Holds the {@link java.util.concurrent.Future} of each of the timer tasks that have been scheduled
+     * Holds the {@link Task} of each of the timers that have been scheduled
      */
-    private final Map<String, java.util.TimerTask> scheduledTimerFutures = new HashMap<String, java.util.TimerTask>();
+    private final ConcurrentMap<String, Task> scheduledTimerFutures = new ConcurrentHashMap<String, Task>();
 
     /**
      * Key that is used to store timers that are waiting on transaction completion in the transaction local
@@ -210,7 +214,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         this.transactionManager = null;
         IoUtils.safeClose(listenerHandle);
         listenerHandle = null;
-        timerInjectedValue.getValue().purge(); //WFLY-3823
+        timeoutSchedulerInjectedValue.getValue().purge(); //WFLY-3823
     }
 
 
@@ -399,12 +403,10 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         Object pk = currentPrimaryKey();
         final Set<Timer> activeTimers = new HashSet<Timer>();
         // get all active timers for this timerservice
-        synchronized (this.timers) {
-            for (final TimerImpl timer : this.timers.values()) {
-                if (timer.isActive()) {
-                    if (timer.getPrimaryKey() == null || timer.getPrimaryKey().equals(pk)) {
-                        activeTimers.add(timer);
-                    }
+        for (final TimerImpl timer : this.timers.values()) {
+            if (timer.isActive()) {
+                if (timer.getPrimaryKey() == null || timer.getPrimaryKey().equals(pk)) {
+                    activeTimers.add(timer);
                 }
             }
         }
@@ -855,63 +857,59 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
      * Creates and schedules a {@link TimerTask} for the next timeout of the passed <code>timer</code>
      */
     protected void scheduleTimeout(TimerImpl timer, boolean newTimer) {
-        synchronized (scheduledTimerFutures) {
-            if (!newTimer && !scheduledTimerFutures.containsKey(timer.getId())) {
-                //this timer has been cancelled by another thread. We just return
-                return;
-            }
+        if (!newTimer && !scheduledTimerFutures.containsKey(timer.getId())) {
+            //this timer has been cancelled by another thread. We just return
+            return;
+        }
 
-            Date nextExpiration = timer.getNextExpiration();
-            if (nextExpiration == null) {
-                EJB3_TIMER_LOGGER.nextExpirationIsNull(timer);
-                return;
-            }
-            // create the timer task
-            final TimerTask<?> timerTask = timer.getTimerTask();
-            // find out how long is it away from now
-            long delay = nextExpiration.getTime() - System.currentTimeMillis();
-            // if in past, then trigger immediately
-            if (delay < 0) {
-                delay = 0;
+        Date nextExpiration = timer.getNextExpiration();
+        if (nextExpiration == null) {
+            EJB3_TIMER_LOGGER.nextExpirationIsNull(timer);
+            return;
+        }
+        // create the timer task
+        final TimerTask<?> timerTask = timer.getTimerTask();
+        // find out how long is it away from now
+        // if in past, then trigger immediately
+        final long delay = Math.max(0, nextExpiration.getTime() - System.currentTimeMillis());
+        final long intervalDuration = timer.getInterval();
+        final Task task = new Task(timerTask, ejbComponentInjectedValue.getValue().getControlPoint());
+        // the scheduling happens while the mapping is locked, so that it cannot race with a concurrent cancellation
+        this.scheduledTimerFutures.compute(timer.getId(), (id, current) -> {
+            if (!newTimer && current == null) {
+                //this timer has been cancelled by another thread
+                return null;
             }
-            long intervalDuration = timer.getInterval();
-            final Task task = new Task(timerTask, ejbComponentInjectedValue.getValue().getControlPoint());
+            final TimeoutScheduler scheduler = this.timeoutSchedulerInjectedValue.getValue();
             if (intervalDuration > 0) {
                 EJB3_TIMER_LOGGER.debugv("Scheduling timer {0} at fixed rate, starting at {1} milliseconds from now with repeated interval={2}",
                         timer, delay, intervalDuration);
                 // schedule the task
-                this.timerInjectedValue.getValue().scheduleAtFixedRate(task, delay, intervalDuration);
-                // maintain it in timerservice for future use (like cancellation)
-                this.scheduledTimerFutures.put(timer.getId(), task);
+                task.timeout = scheduler.scheduleAtFixedRate(task, delay, intervalDuration);
             } else {
                 EJB3_TIMER_LOGGER.debugv("Scheduling a single action timer {0} starting at {1} milliseconds from now", timer, delay);
                 // schedule the task
-                this.timerInjectedValue.getValue().schedule(task, delay);
-                // maintain it in timerservice for future use (like cancellation)
-                this.scheduledTimerFutures.put(timer.getId(), task);
-
+                task.timeout = scheduler.schedule(task, delay);
             }
-        }
+            // maintain it in timerservice for future use (like cancellation)
+            return task;
+        });
     }
 
     /**
-     * Cancels any scheduled {@link java.util.concurrent.Future} corresponding to the passed <code>timer</code>
+     * Cancels any scheduled {@link Task} corresponding to the passed <code>timer</code>
      *
      * @param timer
      */
     protected void cancelTimeout(final TimerImpl timer) {
-        synchronized (this.scheduledTimerFutures) {
-            java.util.TimerTask timerTask = this.scheduledTimerFutures.remove(timer.getId());
-            if (timerTask != null) {
-                timerTask.cancel();
-            }
+        Task task = this.scheduledTimerFutures.remove(timer.getId());
+        if (task != null) {
+            task.cancel();
         }
     }
 
     public boolean isScheduled(final String tid){
-        synchronized (this.scheduledTimerFutures) {
-            return this.scheduledTimerFutures.containsKey(tid);
-        }
+        return this.scheduledTimerFutures.containsKey(tid);
     }
 
     /**
@@ -1066,8 +1064,8 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         return executorServiceInjectedValue;
     }
 
-    public InjectedValue<java.util.Timer> getTimerInjectedValue() {
-        return timerInjectedValue;
+    public InjectedValue<TimeoutScheduler> getTimeoutSchedulerInjectedValue() {
+        return timeoutSchedulerInjectedValue;
     }
 
     public InjectedValue<TimerPersistence> getTimerPersistence() {
@@ -1185,7 +1183,7 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
         }
     }
 
-    private class Task extends java.util.TimerTask {
+    private class Task implements Runnable {
 
         private final TimerTask<?> delegate;
         private final ControlPoint controlPoint;
@@ -1194,6 +1192,10 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
          * used to stop timer tasks banking up when the container is suspended.
          */
         private volatile boolean queued = false;
+        /**
+         * The handle of this task in the {@link TimeoutScheduler}
+         */
+        volatile ScheduledTimeout timeout;
 
         public Task(final TimerTask<?> delegate, ControlPoint controlPoint) {
             this.delegate = delegate;
@@ -1221,10 +1223,10 @@ public class TimerServiceImpl implements TimerService, Service<TimerService> {
             }
         }
 
-        @Override
         public boolean cancel() {
             delegate.cancel();
-            return super.cancel();
+            final ScheduledTimeout timeout = this.timeout;
+            return timeout != null && timeout.cancel();
         }
     }
 
@@ -39,16 +39,17 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Base64;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.sql.DataSource;
@@ -56,8 +57,11 @@ import javax.transaction.HeuristicMixedException;
 import javax.transaction.HeuristicRollbackException;
 import javax.transaction.NotSupportedException;
 import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
 import javax.transaction.SystemException;
 import javax.transaction.TransactionManager;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.jboss.as.ejb3.logging.EjbLogger;
 import org.jboss.as.ejb3.timerservice.CalendarTimer;
@@ -95,11 +99,15 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
 
     private final InjectedValue<ManagedReferenceFactory> dataSourceInjectedValue = new InjectedValue<ManagedReferenceFactory>();
     private final InjectedValue<ModuleLoader> moduleLoader = new InjectedValue<ModuleLoader>();
-    private final Map<String, TimerChangeListener> changeListeners = Collections.synchronizedMap(new HashMap<String, TimerChangeListener>());
+    private final Map<String, TimerChangeListener> changeListeners = new ConcurrentHashMap<String, TimerChangeListener>();
 
     private final InjectedValue<java.util.Timer> timerInjectedValue = new InjectedValue<java.util.Timer>();
+    private final InjectedValue<TransactionSynchronizationRegistry> transactionSynchronizationRegistry = new InjectedValue<TransactionSynchronizationRegistry>();
 
-    private final Map<String, Set<String>> knownTimerIds = new HashMap<>();
+    /** The ids of the timers known to this node, sharded by timed object id */
+    private final ConcurrentMap<String, Set<String>> knownTimerIds = new ConcurrentHashMap<>();
+    /** The write behind batches of the transactions that did not complete yet */
+    private final Set<WriteBehindBatch> openBatches = ConcurrentHashMap.newKeySet();
 
     /** Identifier for the database dialect to be used for the timer-sql.properties */
     private String database;
@@ -113,6 +121,8 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
     private final int refreshInterval;
     /** Flag whether this instance should execute persistent timers*/
     private final boolean allowExecution;
+    /** Flag whether timer changes made within a transaction are written in batches when the transaction completes*/
+    private final boolean writeBehind;
     private volatile ManagedReference managedReference;
     private volatile DataSource dataSource;
     private volatile Properties sql;
@@ -125,16 +135,26 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
     private static final String CREATE_TIMER = "create-timer";
     private static final String UPDATE_TIMER = "update-timer";
     private static final String LOAD_ALL_TIMERS = "load-all-timers";
+    private static final String LOAD_TIMER_IDS = "load-timer-ids";
     private static final String LOAD_TIMER = "load-timer";
+    private static final String LOAD_TIMERS = "load-timers";
     private static final String DELETE_TIMER = "delete-timer";
     private static final String UPDATE_RUNNING = "update-running";
 
+    /** Maximum number of timer ids bound to a single IN list, well below the limits of the supported databases*/
+    private static final int MAX_TIMER_IDS_PER_QUERY = 100;
+
     public DatabaseTimerPersistence(final String database, String partition, String nodeName, int refreshInterval, boolean allowExecution) {
+        this(database, partition, nodeName, refreshInterval, allowExecution, false);
+    }
+
+    public DatabaseTimerPersistence(final String database, String partition, String nodeName, int refreshInterval, boolean allowExecution, boolean writeBehind) {
         this.database = database;
         this.partition = partition;
         this.nodeName = nodeName;
         this.refreshInterval = refreshInterval;
         this.allowExecution = allowExecution;
+        this.writeBehind = writeBehind;
     }
 
     @Override
@@ -169,6 +189,12 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         if (refreshTask != null) {
             refreshTask.cancel();
         }
+        // the changes of transactions that are still active cannot be written within them once the data source is gone;
+        // writing them outside of their transaction would keep them even if the transaction rolls back
+        for (WriteBehindBatch batch : openBatches) {
+            batch.discard();
+        }
+        openBatches.clear();
         knownTimerIds.clear();
         managedReference.release();
         managedReference = null;
@@ -314,14 +340,17 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
 
     @Override
     public void addTimer(final TimerImpl timerEntity) {
+        knownTimerIds.get(timerEntity.getTimedObjectId()).add(timerEntity.getId());
+        final WriteBehindBatch batch = this.getWriteBehindBatch();
+        if (batch != null) {
+            batch.add(timerEntity, true);
+            return;
+        }
         String createTimer = sql(CREATE_TIMER);
         Connection connection = null;
         PreparedStatement statement = null;
         ResultSet resultSet = null;
         try {
-            synchronized (this) {
-                knownTimerIds.get(timerEntity.getTimedObjectId()).add(timerEntity.getId());
-            }
             connection = dataSource.getConnection();
             statement = connection.prepareStatement(createTimer);
             statementParameters(timerEntity, statement);
@@ -337,48 +366,84 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
 
     @Override
     public void persistTimer(final TimerImpl timerEntity) {
+        final boolean removed = isRemoved(timerEntity);
+        if (removed) {
+            knownTimerIds.get(timerEntity.getTimedObjectId()).remove(timerEntity.getId());
+        } else {
+            knownTimerIds.get(timerEntity.getTimedObjectId()).add(timerEntity.getId());
+        }
+        final WriteBehindBatch batch = this.getWriteBehindBatch();
+        if (batch != null) {
+            batch.add(timerEntity, false);
+            return;
+        }
         Connection connection = null;
         PreparedStatement statement = null;
-        ResultSet resultSet = null;
         try {
             connection = dataSource.getConnection();
-            if (timerEntity.getState() == TimerState.CANCELED ||
-                    timerEntity.getState() == TimerState.EXPIRED) {
-                String deleteTimer = sql(DELETE_TIMER);
-                statement = connection.prepareStatement(deleteTimer);
-                statement.setString(1, timerEntity.getTimedObjectId());
-                statement.setString(2, timerEntity.getId());
-                statement.setString(3, partition);
-                statement.execute();
-                synchronized (this) {
-                    knownTimerIds.get(timerEntity.getTimedObjectId()).remove(timerEntity.getId());
-                }
+            if (removed) {
+                statement = connection.prepareStatement(sql(DELETE_TIMER));
+                deleteParameters(timerEntity, statement);
             } else {
-                synchronized (this) {
-                    knownTimerIds.get(timerEntity.getTimedObjectId()).add(timerEntity.getId());
-                }
-                String updateTimer = sql(UPDATE_TIMER);
-                statement = connection.prepareStatement(updateTimer);
-                statement.setTimestamp(1, timestamp(timerEntity.getNextExpiration()));
-                statement.setTimestamp(2, timestamp(timerEntity.getPreviousRun()));
-                statement.setString(3, timerEntity.getState().name());
-                setNodeName(timerEntity.getState(), statement, 4);
-                // WHERE CLAUSE
-                statement.setString(5, timerEntity.getTimedObjectId());
-                statement.setString(6, timerEntity.getId());
-                statement.setString(7, partition);
-                statement.setString(8, nodeName);   // only persist if this node or empty
-                statement.execute();
+                statement = connection.prepareStatement(sql(UPDATE_TIMER));
+                updateParameters(timerEntity, statement);
             }
+            statement.execute();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         } finally {
-            safeClose(resultSet);
             safeClose(statement);
             safeClose(connection);
         }
     }
 
+    private static boolean isRemoved(final TimerImpl timerEntity) {
+        return timerEntity.getState() == TimerState.CANCELED || timerEntity.getState() == TimerState.EXPIRED;
+    }
+
+    private void deleteParameters(final TimerImpl timerEntity, final PreparedStatement statement) throws SQLException {
+        statement.setString(1, timerEntity.getTimedObjectId());
+        statement.setString(2, timerEntity.getId());
+        statement.setString(3, partition);
+    }
+
+    private void updateParameters(final TimerImpl timerEntity, final PreparedStatement statement) throws SQLException {
+        statement.setTimestamp(1, timestamp(timerEntity.getNextExpiration()));
+        statement.setTimestamp(2, timestamp(timerEntity.getPreviousRun()));
+        statement.setString(3, timerEntity.getState().name());
+        setNodeName(timerEntity.getState(), statement, 4);
+        // WHERE CLAUSE
+        statement.setString(5, timerEntity.getTimedObjectId());
+        statement.setString(6, timerEntity.getId());
+        statement.setString(7, partition);
+        statement.setString(8, nodeName);   // only persist if this node or empty
+    }
+
+    /**
+     * Returns the batch collecting the timer changes of the current transaction, or null if the changes must be
+     * written immediately, i.e. if write behind is disabled or there is no active transaction.
+     */
+    private WriteBehindBatch getWriteBehindBatch() {
+        if (!writeBehind) {
+            return null;
+        }
+        final TransactionSynchronizationRegistry tsr = transactionSynchronizationRegistry.getOptionalValue();
+        if (tsr == null || tsr.getTransactionKey() == null || tsr.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return null;
+        }
+        WriteBehindBatch batch = (WriteBehindBatch) tsr.getResource(this);
+        if (batch == null) {
+            batch = new WriteBehindBatch();
+            tsr.putResource(this, batch);
+            tsr.registerInterposedSynchronization(batch);
+            openBatches.add(batch);
+        } else if (batch.flushed) {
+            // a change made by a synchronization that ran after the batch was written
+            return null;
+        }
+        return batch;
+    }
+
     @Override
     public boolean shouldRun(TimerImpl timer, TransactionManager tm) {
         if (!allowExecution) {
@@ -430,7 +495,7 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
     }
 
     @Override
-    public synchronized void timerUndeployed(final String timedObjectId) {
+    public void timerUndeployed(final String timedObjectId) {
         knownTimerIds.remove(timedObjectId);
     }
 
@@ -465,23 +530,21 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
                     EjbLogger.EJB3_TIMER_LOGGER.timerReinstatementFailed(resultSet.getString(2), resultSet.getString(1), e);
                 }
             }
-            synchronized (this) {
-                Set<String> ids = new HashSet<>();
-                for (Holder timer : timers) {
-                    ids.add(timer.timer.getId());
-                }
-                knownTimerIds.put(timedObjectId, ids);
-                for(Holder timer : timers) {
-                    if(timer.requiresReset) {
-                        TimerImpl ret = timer.timer;
-                        EjbLogger.DEPLOYMENT_LOGGER.loadedPersistentTimerInTimeout(ret.getId(), ret.getTimedObjectId());
-                        if(ret.getNextExpiration() == null) {
-                            ret.setTimerState(TimerState.CANCELED);
-                            persistTimer(ret);
-                        } else {
-                            ret.setTimerState(TimerState.ACTIVE);
-                            persistTimer(ret);
-                        }
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            for (Holder timer : timers) {
+                ids.add(timer.timer.getId());
+            }
+            knownTimerIds.put(timedObjectId, ids);
+            for(Holder timer : timers) {
+                if(timer.requiresReset) {
+                    TimerImpl ret = timer.timer;
+                    EjbLogger.DEPLOYMENT_LOGGER.loadedPersistentTimerInTimeout(ret.getId(), ret.getTimedObjectId());
+                    if(ret.getNextExpiration() == null) {
+                        ret.setTimerState(TimerState.CANCELED);
+                        persistTimer(ret);
+                    } else {
+                        ret.setTimerState(TimerState.ACTIVE);
+                        persistTimer(ret);
                     }
                 }
             }
@@ -712,6 +775,10 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         return timerInjectedValue;
     }
 
+    public InjectedValue<TransactionSynchronizationRegistry> getTransactionSynchronizationRegistry() {
+        return transactionSynchronizationRegistry;
+    }
+
     private static void safeClose(final Closeable resource) {
         try {
             if (resource != null) {
@@ -752,6 +819,21 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         }
     }
 
+    /**
+     * Returns the statement loading the timers of a timed object with the specified number of ids.
+     */
+    private String loadTimers(final int ids) {
+        final StringBuilder builder = new StringBuilder(sql(LOAD_TIMERS)).append(" (?");
+        for (int i = 1; i < ids; i++) {
+            builder.append(", ?");
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Picks up the timers added or removed by other nodes. Only the ids of the timers are polled, the full timers are
+     * only loaded, with one query per {@value #MAX_TIMER_IDS_PER_QUERY} ids, for ids this node does not know about yet.
+     */
     private class RefreshTask extends TimerTask {
 
         private volatile AtomicBoolean running = new AtomicBoolean();
@@ -760,52 +842,67 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         public void run() {
             if (running.compareAndSet(false, true)) {
                 try {
-                    Set<String> timedObjects;
-                    synchronized (DatabaseTimerPersistence.this) {
-                        timedObjects = new HashSet<>(knownTimerIds.keySet());
-                    }
-                    for (String timedObjectId : timedObjects) {
+                    for (Map.Entry<String, Set<String>> entry : knownTimerIds.entrySet()) {
+                        final String timedObjectId = entry.getKey();
                         TimerChangeListener listener = changeListeners.get(timedObjectId);
                         if (listener == null) {
                             continue;
                         }
-                        final Set<String> existing;
-                        synchronized (DatabaseTimerPersistence.this) {
-                            existing = new HashSet<>(knownTimerIds.get(timedObjectId));
-                        }
-                        String loadTimer = sql(LOAD_ALL_TIMERS);
+                        final Set<String> known = entry.getValue();
+                        final Set<String> existing = new HashSet<>(known);
+                        final List<String> added = new ArrayList<>();
                         Connection connection = null;
                         PreparedStatement statement = null;
                         ResultSet resultSet = null;
                         try {
                             connection = dataSource.getConnection();
-                            statement = connection.prepareStatement(loadTimer);
+                            statement = connection.prepareStatement(sql(LOAD_TIMER_IDS));
                             statement.setString(1, timedObjectId);
                             statement.setString(2, partition);
                             resultSet = statement.executeQuery();
                             while (resultSet.next()) {
-                                try {
-                                    String id = resultSet.getString(1);
-                                    if (!existing.remove(id)) {
-                                        synchronized (DatabaseTimerPersistence.this) {
-                                            knownTimerIds.get(timedObjectId).add(id);
-                                        }
-                                        final Holder holder = timerFromResult(resultSet, listener.getTimerService());
-                                        if(holder != null) {
-                                            listener.timerAdded(holder.timer);
+                                String id = resultSet.getString(1);
+                                if (!existing.remove(id)) {
+                                    added.add(id);
+                                }
+                            }
+                            safeClose(resultSet);
+                            resultSet = null;
+                            safeClose(statement);
+                            statement = null;
+
+                            for (int start = 0; start < added.size(); start += MAX_TIMER_IDS_PER_QUERY) {
+                                final List<String> ids = added.subList(start, Math.min(start + MAX_TIMER_IDS_PER_QUERY, added.size()));
+                                statement = connection.prepareStatement(loadTimers(ids.size()));
+                                statement.setString(1, timedObjectId);
+                                statement.setString(2, partition);
+                                int index = 3;
+                                for (String id : ids) {
+                                    statement.setString(index++, id);
+                                }
+                                resultSet = statement.executeQuery();
+                                while (resultSet.next()) {
+                                    final String id = resultSet.getString(1);
+                                    try {
+                                        if (known.add(id)) {
+                                            final Holder holder = timerFromResult(resultSet, listener.getTimerService());
+                                            if (holder != null) {
+                                                listener.timerAdded(holder.timer);
+                                            }
                                         }
+                                    } catch (Exception e) {
+                                        EjbLogger.EJB3_TIMER_LOGGER.timerReinstatementFailed(timedObjectId, id, e);
                                     }
-                                } catch (Exception e) {
-                                    EjbLogger.EJB3_TIMER_LOGGER.timerReinstatementFailed(resultSet.getString(2), resultSet.getString(1), e);
                                 }
+                                safeClose(resultSet);
+                                resultSet = null;
+                                safeClose(statement);
+                                statement = null;
                             }
 
-                            synchronized (DatabaseTimerPersistence.this) {
-                                Set<String> timers = knownTimerIds.get(timedObjectId);
-                                for (String timer : existing) {
-                                    timers.remove(timer);
-                                    listener.timerRemoved(timer);
-                                }
+                            for (String timer : existing) {
+                                known.remove(timer);
+                                listener.timerRemoved(timer);
                             }
                         } catch (SQLException e) {
                             EjbLogger.EJB3_TIMER_LOGGER.failedToRefreshTimers(timedObjectId);
@@ -823,6 +920,124 @@ public class DatabaseTimerPersistence implements TimerPersistence, Service<Datab
         }
     }
 
+    /**
+     * The timer changes made within a transaction. Each timer is written once, with the state it has when the
+     * transaction completes; the inserts, updates and deletes are each sent as a single JDBC batch. The changes of a
+     * transaction that is still active when the store stops are discarded by {@link #stop(StopContext)}, and the
+     * transaction fails to commit.
+     */
+    private class WriteBehindBatch implements Synchronization {
+
+        private final Map<String, Pending> pending = new LinkedHashMap<>();
+        volatile boolean flushed;
+        private boolean discarded;
+
+        synchronized void add(final TimerImpl timer, final boolean created) {
+            final Pending current = pending.get(timer.getId());
+            if (current == null) {
+                pending.put(timer.getId(), new Pending(timer, created));
+            } else {
+                current.timer = timer;
+            }
+        }
+
+        @Override
+        public void beforeCompletion() {
+            openBatches.remove(this);
+            flush();
+        }
+
+        synchronized void discard() {
+            if (flushed) {
+                return;
+            }
+            flushed = true;
+            discarded = true;
+            if (!pending.isEmpty()) {
+                EjbLogger.EJB3_TIMER_LOGGER.discardedTimerChanges(pending.size());
+                pending.clear();
+            }
+        }
+
+        synchronized void flush() {
+            if (discarded) {
+                throw EjbLogger.EJB3_TIMER_LOGGER.timerStoreStoppedBeforeCompletion();
+            }
+            if (flushed) {
+                return;
+            }
+            flushed = true;
+            if (pending.isEmpty()) {
+                return;
+            }
+            Connection connection = null;
+            PreparedStatement insert = null;
+            PreparedStatement update = null;
+            PreparedStatement delete = null;
+            try {
+                connection = dataSource.getConnection();
+                for (Pending change : pending.values()) {
+                    final TimerImpl timer = change.timer;
+                    if (change.created) {
+                        if (isRemoved(timer)) {
+                            // created and removed within the same transaction
+                            continue;
+                        }
+                        if (insert == null) {
+                            insert = connection.prepareStatement(sql(CREATE_TIMER));
+                        }
+                        statementParameters(timer, insert);
+                        insert.addBatch();
+                    } else if (isRemoved(timer)) {
+                        if (delete == null) {
+                            delete = connection.prepareStatement(sql(DELETE_TIMER));
+                        }
+                        deleteParameters(timer, delete);
+                        delete.addBatch();
+                    } else {
+                        if (update == null) {
+                            update = connection.prepareStatement(sql(UPDATE_TIMER));
+                        }
+                        updateParameters(timer, update);
+                        update.addBatch();
+                    }
+                }
+                if (insert != null) {
+                    insert.executeBatch();
+                }
+                if (update != null) {
+                    update.executeBatch();
+                }
+                if (delete != null) {
+                    delete.executeBatch();
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            } finally {
+                pending.clear();
+                safeClose(insert);
+                safeClose(update);
+                safeClose(delete);
+                safeClose(connection);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // a rolled back transaction does not call beforeCompletion
+            openBatches.remove(this);
+        }
+    }
+
+    private static final class Pending {
+        final boolean created;
+        TimerImpl timer;
+
+        Pending(TimerImpl timer, boolean created) {
+            this.timer = timer;
+            this.created = created;
+        }
+    }
 
     static final class Holder {
         final TimerImpl timer;
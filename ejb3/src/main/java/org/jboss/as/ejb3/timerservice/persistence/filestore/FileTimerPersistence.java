@@ -47,19 +47,17 @@ import javax.transaction.TransactionManager;
 import javax.transaction.TransactionSynchronizationRegistry;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.FilePermission;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -74,6 +72,10 @@ import static org.jboss.as.ejb3.logging.EjbLogger.EJB3_TIMER_LOGGER;
 /**
  * File based persistent timer store.
  * <p/>
+ * The timers of each timed object are kept in memory and every change is appended to a {@link TimerJournal} in the
+ * directory of the timed object. Timers stored in the previous one file per timer XML format, or in the legacy
+ * serialized format, are migrated into the journal the first time the timed object is loaded.
+ * <p/>
  * TODO: this is fairly hackey at the moment, it should be registered as an XA resource to support proper XA semantics
  *
  * @author Stuart Douglas
@@ -97,6 +99,15 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
 
     private final ConcurrentMap<String, Lock> locks = new ConcurrentHashMap<String, Lock>();
     private final ConcurrentMap<String, String> directories = new ConcurrentHashMap<String, String>();
+    private final ConcurrentMap<String, Map<String, TimerImpl>> timers = new ConcurrentHashMap<String, Map<String, TimerImpl>>();
+    private final ConcurrentMap<String, TimerJournal> journals = new ConcurrentHashMap<String, TimerJournal>();
+    private TimerRecordCodec codec;
+
+    /**
+     * The journal of a timed object is compacted once it holds more than this many records, and more than twice as
+     * many records as live timers.
+     */
+    private static final int COMPACTION_THRESHOLD = 1024;
 
     public FileTimerPersistence(final boolean createIfNotExists, final String path, final String pathRelativeTo) {
         final SecurityManager sm = System.getSecurityManager();
@@ -129,6 +140,7 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
 
         this.configuration = configuration;
         this.factory = factory;
+        this.codec = new TimerRecordCodec(factory, configuration);
         if (pathRelativeTo != null) {
             callbackHandle = pathManager.getValue().registerCallback(pathRelativeTo, PathManager.ReloadServerCallback.create(), PathManager.Event.UPDATED, PathManager.Event.REMOVED);
         }
@@ -149,6 +161,11 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
 
     @Override
     public void stop(final StopContext context) {
+        for (TimerJournal journal : journals.values()) {
+            safeClose(journal);
+        }
+        journals.clear();
+        timers.clear();
         locks.clear();
         directories.clear();
         if (callbackHandle != null) {
@@ -156,6 +173,7 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         }
         factory = null;
         configuration = null;
+        codec = null;
     }
 
     @Override
@@ -252,6 +270,8 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
             lock.lock();
             locks.remove(timedObjectId);
             directories.remove(timedObjectId);
+            timers.remove(timedObjectId);
+            safeClose(journals.remove(timedObjectId));
         } finally {
             lock.unlock();
         }
@@ -271,6 +291,8 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         final Lock lock = getLock(timedObjectId);
         try {
             lock.lock();
+            // always hand out fresh instances, as the previous file based implementation did
+            this.timers.remove(timedObjectId);
             final Map<String, TimerImpl> timers = getTimers(timedObjectId, timerService);
 
             final List<TimerImpl> entities = new ArrayList<TimerImpl>();
@@ -330,7 +352,12 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
      * @return The timers for the object
      */
     private Map<String, TimerImpl> getTimers(final String timedObjectId, final TimerServiceImpl timerService) {
-        return loadTimersFromFile(timedObjectId, timerService);
+        Map<String, TimerImpl> map = timers.get(timedObjectId);
+        if (map == null) {
+            map = loadTimersFromFile(timedObjectId, timerService);
+            timers.put(timedObjectId, map);
+        }
+        return map;
     }
 
     private Map<String, TimerImpl> loadTimersFromFile(String timedObjectId, TimerServiceImpl timerService) {
@@ -338,10 +365,8 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         String directory = getDirectory(timedObjectId);
 
         timers.putAll(LegacyFileStore.loadTimersFromFile(timedObjectId, timerService, directory, factory, configuration));
-        for(Map.Entry<String, TimerImpl> entry : timers.entrySet()) {
-            writeFile(entry.getValue()); //write legacy timers into the new format
-            //the legacy code handling code will write a marker file, to make sure that the old timers will not be loaded on next restart.
-        }
+        //the legacy code handling code will write a marker file, to make sure that the old timers will not be loaded on next restart.
+        boolean migrate = !timers.isEmpty();
         final File file = new File(directory);
         if (!file.exists()) {
             //no timers exist yet
@@ -351,12 +376,59 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
             return timers;
         }
 
+        final List<File> xmlFiles = loadTimersFromXmlFiles(file, timers, timerService);
+        migrate |= !xmlFiles.isEmpty();
+
+        safeClose(journals.remove(timedObjectId));
+        final TimerJournal journal = new TimerJournal(file);
+        journals.put(timedObjectId, journal);
+        final ClassLoader classLoader = timerService.getTimedObjectInvoker().getValue().getClassLoader();
+        try {
+            // the journal is more recent than any file it was migrated from
+            for (Map.Entry<String, ByteBuffer> entry : journal.replay().entrySet()) {
+                if (entry.getValue() == null) {
+                    timers.remove(entry.getKey());
+                    continue;
+                }
+                try {
+                    final TimerImpl timer = codec.decode(entry.getValue(), timerService, classLoader);
+                    if (timer != null) {
+                        timers.put(timer.getId(), timer);
+                    } else {
+                        //the timeout method no longer exists
+                        timers.remove(entry.getKey());
+                        journal.delete(entry.getKey());
+                    }
+                } catch (Exception e) {
+                    EJB3_TIMER_LOGGER.timerReinstatementFailed(timedObjectId, entry.getKey(), e);
+                }
+            }
+            if (migrate && compact(journal, timers)) {
+                for (File xmlFile : xmlFiles) {
+                    xmlFile.delete();
+                }
+            }
+        } catch (IOException e) {
+            EJB3_TIMER_LOGGER.failToRestoreTimersForObjectId(timedObjectId, e);
+        }
+        return timers;
+    }
+
+    /**
+     * Loads the timers stored in the XML format, which is no longer written.
+     *
+     * @return the XML files that were found
+     */
+    private List<File> loadTimersFromXmlFiles(File file, Map<String, TimerImpl> timers, TimerServiceImpl timerService) {
+        final List<File> xmlFiles = new ArrayList<>();
+
         final XMLMapper mapper = createMapper(timerService);
 
         for (File timerFile : file.listFiles()) {
             if (!timerFile.getName().endsWith(".xml")) {
                 continue;
             }
+            xmlFiles.add(timerFile);
             FileInputStream in = null;
 
             try {
@@ -391,7 +463,7 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
                 }
             }
         }
-        return timers;
+        return xmlFiles;
     }
 
     private XMLMapper createMapper(TimerServiceImpl timerService) {
@@ -400,11 +472,6 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
         return mapper;
     }
 
-
-    private File fileName(String timedObjectId, String timerId) {
-        return new File(getDirectory(timedObjectId) + File.separator + timerId.replace(File.separator, "-") + ".xml");
-    }
-
     /**
      * Gets the directory for a given timed object, making sure it exists.
      *
@@ -483,31 +550,53 @@ public class FileTimerPersistence implements TimerPersistence, Service<FileTimer
     }
 
     private void writeFile(TimerImpl timer) {
-        final File file = fileName(timer.getTimedObjectId(), timer.getId());
-
-        //if the timer is expired or cancelled delete the file
-        if (timer.getState() == TimerState.CANCELED ||
-                timer.getState() == TimerState.EXPIRED) {
-            if (file.exists()) {
-                file.delete();
-            }
+        final Map<String, TimerImpl> map = getTimers(timer.getTimedObjectId(), timer.getTimerService());
+        final TimerJournal journal = journals.get(timer.getTimedObjectId());
+        if (journal == null) {
+            //the directory of the timed object could not be created
             return;
         }
         try {
-            FileOutputStream out = new FileOutputStream(file);
+            //if the timer is expired or cancelled it is removed from the journal
+            if (timer.getState() == TimerState.CANCELED ||
+                    timer.getState() == TimerState.EXPIRED) {
+                journal.delete(timer.getId());
+            } else {
+                final byte[] record;
+                try {
+                    record = codec.encode(timer);
+                } catch (IOException e) {
+                    EJB3_TIMER_LOGGER.failedToPersistTimer(timer, e);
+                    return;
+                }
+                journal.put(record);
+            }
+            if (journal.getRecordCount() > COMPACTION_THRESHOLD && journal.getRecordCount() > 2 * map.size()) {
+                compact(journal, map);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    /**
+     * Rewrites the journal so that it only contains the given timers. The journal is left untouched if any of the timers
+     * cannot be encoded.
+     *
+     * @return {@code true} if the journal was compacted
+     */
+    private boolean compact(TimerJournal journal, Map<String, TimerImpl> timers) throws IOException {
+        final List<byte[]> records = new ArrayList<>(timers.size());
+        for (TimerImpl timer : timers.values()) {
             try {
-                XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
-                XMLMapper mapper = createMapper(timer.getTimerService());
-                mapper.deparseDocument(new EjbTimerXmlPersister(factory, configuration), Collections.singletonList(timer), writer);
-                writer.flush();
-                writer.close();
-            } finally {
-                safeClose(out);
+                records.add(codec.encode(timer));
+            } catch (IOException e) {
+                EJB3_TIMER_LOGGER.failedToPersistTimer(timer, e);
+                return false;
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+        journal.compact(records);
+        return true;
     }
 
     public InjectedValue<TransactionManager> getTransactionManager() {
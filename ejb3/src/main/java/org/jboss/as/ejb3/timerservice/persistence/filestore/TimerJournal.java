@@ -0,0 +1,281 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.filestore;
+
+import static org.jboss.as.ejb3.logging.EjbLogger.EJB3_TIMER_LOGGER;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only journal holding the timers of a single timed object.
+ * <p/>
+ * A record is laid out as {@code [length][crc32][type][payload]}, where the payload always starts with the timer id,
+ * see {@link TimerRecordCodec}. Records are appended to the active segment, which is rolled over once it exceeds the
+ * segment size. Segments are read into heap buffers when the journal is replayed, so no file mapping outlives the replay;
+ * a torn or corrupt record ends the replay of its segment, and appends continue in a fresh segment. Compaction rewrites
+ * the live timers into a single new segment, which starts with a base record, and deletes every older one. Replay
+ * discards everything it read before a base record, so an older segment that could not be deleted cannot bring back
+ * timers that were removed before the compaction.
+ * <p/>
+ * This class is not thread safe, callers are expected to hold the lock of the timed object.
+ */
+final class TimerJournal implements Closeable {
+
+    static final String SEGMENT_SUFFIX = ".journal";
+    static final long DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte BASE = 3;
+    private static final int HEADER_SIZE = 8;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("\\d+" + Pattern.quote(SEGMENT_SUFFIX));
+
+    private final File directory;
+    private final long segmentSize;
+    private long segment = -1;
+    private FileChannel channel;
+    private int records;
+
+    TimerJournal(File directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    TimerJournal(File directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Replays every segment of the journal, in order.
+     *
+     * @return the payload of the last record of each timer, keyed by timer id, a {@code null} value denotes a deleted timer
+     */
+    Map<String, ByteBuffer> replay() throws IOException {
+        this.close();
+        final Map<String, ByteBuffer> timers = new LinkedHashMap<>();
+        final List<File> superseded = new ArrayList<>();
+        final List<File> replayed = new ArrayList<>();
+        boolean torn = false;
+        this.records = 0;
+        this.segment = -1;
+        for (File file : this.segments()) {
+            try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                final ByteBuffer buffer = read(in);
+                torn = false;
+                while (buffer.hasRemaining()) {
+                    final ByteBuffer record = this.nextRecord(buffer);
+                    if (record == null) {
+                        EJB3_TIMER_LOGGER.timerJournalTruncated(file, buffer.position());
+                        torn = true;
+                        break;
+                    }
+                    final byte type = record.get();
+                    if (type == BASE) {
+                        // a compacted segment supersedes every segment before it
+                        timers.clear();
+                        this.records = 0;
+                        superseded.addAll(replayed);
+                        replayed.clear();
+                        continue;
+                    }
+                    final ByteBuffer payload = record.slice();
+                    timers.put(TimerRecordCodec.readId(payload), (type == PUT) ? payload : null);
+                    this.records++;
+                }
+            }
+            replayed.add(file);
+            this.segment = index(file);
+        }
+        if (torn) {
+            // never append behind a corrupt record
+            this.segment++;
+        }
+        for (File file : superseded) {
+            deleteSegment(file);
+        }
+        return timers;
+    }
+
+    /**
+     * @return the number of records in the journal, live or not
+     */
+    int getRecordCount() {
+        return this.records;
+    }
+
+    void put(byte[] timer) throws IOException {
+        this.append(PUT, timer);
+        this.rollIfNecessary();
+    }
+
+    void delete(String timerId) throws IOException {
+        this.append(DELETE, TimerRecordCodec.encodeId(timerId));
+        this.rollIfNecessary();
+    }
+
+    /**
+     * Rewrites the given live timers into a new segment and deletes all previous segments. The new segment is only made
+     * visible once it is complete, so a failure leaves the journal untouched. Its leading base record makes replay ignore
+     * any previous segment that could not be deleted.
+     */
+    void compact(Collection<byte[]> timers) throws IOException {
+        this.close();
+        final long next = this.segment + 1;
+        final File target = this.segmentFile(next);
+        final File temp = new File(this.directory, target.getName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(out, BASE, new byte[0]);
+            for (byte[] timer : timers) {
+                write(out, PUT, timer);
+            }
+            out.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        for (File file : this.segments()) {
+            if (index(file) < next) {
+                deleteSegment(file);
+            }
+        }
+        this.segment = next;
+        this.records = timers.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.channel != null) {
+            try {
+                this.channel.force(false);
+            } finally {
+                this.channel.close();
+                this.channel = null;
+            }
+        }
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        if (this.channel == null) {
+            if (this.segment < 0) {
+                this.segment = 0;
+            }
+            this.channel = FileChannel.open(this.segmentFile(this.segment).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        write(this.channel, type, payload);
+        this.records++;
+    }
+
+    private void rollIfNecessary() throws IOException {
+        if (this.channel.size() >= this.segmentSize) {
+            this.close();
+            this.segment++;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // keep reading until the buffer is full or the end of the segment is reached
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void deleteSegment(File file) {
+        // a superseded segment left behind is skipped on replay, and deletion is retried by the next replay
+        if (!file.delete()) {
+            EJB3_TIMER_LOGGER.debugf("Could not delete superseded timer journal segment %s", file);
+        }
+    }
+
+    private static void write(FileChannel channel, byte type, byte[] payload) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 1 + payload.length);
+        buffer.putInt(1 + payload.length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.put(payload);
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, 1 + payload.length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads the next record, advancing the buffer past it.
+     *
+     * @return the record starting at its type, or {@code null} if the record is incomplete or corrupt
+     */
+    private ByteBuffer nextRecord(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        final int length = buffer.getInt(buffer.position());
+        final int checksum = buffer.getInt(buffer.position() + 4);
+        if (length < 1 || length > buffer.remaining() - HEADER_SIZE) {
+            return null;
+        }
+        final ByteBuffer record = buffer.duplicate();
+        record.position(buffer.position() + HEADER_SIZE);
+        record.limit(record.position() + length);
+        final CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        buffer.position(record.limit());
+        return record.slice();
+    }
+
+    private File[] segments() {
+        final File[] files = this.directory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, (file1, file2) -> Long.compare(index(file1), index(file2)));
+        return files;
+    }
+
+    private File segmentFile(long index) {
+        return new File(this.directory, String.format("%016d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static long index(File segment) {
+        final String name = segment.getName();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.filestore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import javax.ejb.ScheduleExpression;
+
+import org.jboss.as.ejb3.logging.EjbLogger;
+import org.jboss.as.ejb3.timerservice.CalendarTimer;
+import org.jboss.as.ejb3.timerservice.TimerImpl;
+import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
+import org.jboss.as.ejb3.timerservice.TimerState;
+import org.jboss.as.ejb3.timerservice.persistence.TimeoutMethod;
+import org.jboss.marshalling.ByteBufferInput;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.MarshallerFactory;
+import org.jboss.marshalling.MarshallingConfiguration;
+import org.jboss.marshalling.OutputStreamByteOutput;
+import org.jboss.marshalling.Unmarshaller;
+
+/**
+ * Binary encoding of a timer, as stored in the {@link TimerJournal}. Every record starts with the timer id, so that the
+ * journal can index records without decoding them. The timer info and the primary key are marshalled the same way as in
+ * the XML format.
+ */
+final class TimerRecordCodec {
+
+    private static final byte VERSION = 1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+
+    private final MarshallerFactory factory;
+    private final MarshallingConfiguration configuration;
+
+    TimerRecordCodec(MarshallerFactory factory, MarshallingConfiguration configuration) {
+        this.factory = factory;
+        this.configuration = configuration;
+    }
+
+    byte[] encode(TimerImpl timer) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(timer.getId());
+        out.writeByte(VERSION);
+        out.writeUTF(timer.getTimedObjectId());
+        out.writeUTF(timer.getState().name());
+        writeDate(out, timer.getInitialExpiration());
+        out.writeLong(timer.getInterval());
+        writeDate(out, timer.getNextExpiration());
+        writeDate(out, timer.getPreviousRun());
+        writeObject(out, timer.getTimerInfo());
+        writeObject(out, timer.getPrimaryKey());
+        final boolean calendarTimer = timer instanceof CalendarTimer;
+        out.writeBoolean(calendarTimer);
+        if (calendarTimer) {
+            final CalendarTimer calendar = (CalendarTimer) timer;
+            final ScheduleExpression schedule = calendar.getScheduleExpression();
+            writeString(out, schedule.getSecond());
+            writeString(out, schedule.getMinute());
+            writeString(out, schedule.getHour());
+            writeString(out, schedule.getDayOfWeek());
+            writeString(out, schedule.getDayOfMonth());
+            writeString(out, schedule.getMonth());
+            writeString(out, schedule.getYear());
+            writeDate(out, schedule.getStart());
+            writeDate(out, schedule.getEnd());
+            writeString(out, schedule.getTimezone());
+            out.writeBoolean(calendar.isAutoTimer());
+            if (calendar.isAutoTimer()) {
+                final Method timeoutMethod = calendar.getTimeoutMethod();
+                out.writeUTF(timeoutMethod.getDeclaringClass().getName());
+                out.writeUTF(timeoutMethod.getName());
+                final Class<?>[] params = timeoutMethod.getParameterTypes();
+                out.writeShort(params.length);
+                for (Class<?> param : params) {
+                    out.writeUTF(param.getName());
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a timer.
+     *
+     * @return the timer, or {@code null} if it is an auto timer whose timeout method no longer exists
+     */
+    TimerImpl decode(ByteBuffer record, TimerServiceImpl timerService, ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        final DataInputStream in = new DataInputStream(new ByteBufferInputStream(record.duplicate()));
+        final String id = in.readUTF();
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported timer record version " + version);
+        }
+        final String timedObjectId = in.readUTF();
+        final TimerState state = TimerState.valueOf(in.readUTF());
+        final Date initialDate = readDate(in);
+        final long repeatInterval = in.readLong();
+        final Date nextDate = readDate(in);
+        final Date previousRun = readDate(in);
+        final Serializable info = (Serializable) readObject(in);
+        final Object primaryKey = readObject(in);
+
+        final TimerImpl.Builder builder;
+        if (in.readBoolean()) {
+            final CalendarTimer.Builder calendar = CalendarTimer.builder();
+            calendar.setScheduleExprSecond(readString(in));
+            calendar.setScheduleExprMinute(readString(in));
+            calendar.setScheduleExprHour(readString(in));
+            calendar.setScheduleExprDayOfWeek(readString(in));
+            calendar.setScheduleExprDayOfMonth(readString(in));
+            calendar.setScheduleExprMonth(readString(in));
+            calendar.setScheduleExprYear(readString(in));
+            calendar.setScheduleExprStartDate(readDate(in));
+            calendar.setScheduleExprEndDate(readDate(in));
+            calendar.setScheduleExprTimezone(readString(in));
+            if (in.readBoolean()) {
+                final String className = in.readUTF();
+                final String methodName = in.readUTF();
+                final String[] params = new String[in.readShort()];
+                for (int i = 0; i < params.length; i++) {
+                    params[i] = in.readUTF();
+                }
+                final Method timeoutMethod = CalendarTimer.getTimeoutMethod(new TimeoutMethod(className, methodName, params), classLoader);
+                if (timeoutMethod == null) {
+                    EjbLogger.EJB3_TIMER_LOGGER.timerReinstatementFailed(timedObjectId, id, null);
+                    return null;
+                }
+                calendar.setAutoTimer(true);
+                calendar.setTimeoutMethod(timeoutMethod);
+            }
+            builder = calendar;
+        } else {
+            builder = TimerImpl.builder();
+        }
+        builder.setId(id);
+        builder.setTimedObjectId(timedObjectId);
+        builder.setTimerState(state);
+        builder.setInitialDate(initialDate);
+        builder.setRepeatInterval(repeatInterval);
+        builder.setNextDate(nextDate);
+        builder.setPreviousRun(previousRun);
+        builder.setInfo(info);
+        builder.setPrimaryKey(primaryKey);
+        builder.setPersistent(true);
+        return builder.build(timerService);
+    }
+
+    /**
+     * Reads the timer id every record starts with.
+     */
+    static String readId(ByteBuffer record) throws IOException {
+        return new DataInputStream(new ByteBufferInputStream(record.duplicate())).readUTF();
+    }
+
+    static byte[] encodeId(String id) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(id.length() + 2);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(id);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeObject(DataOutput out, Object object) throws IOException {
+        if (object == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Marshaller marshaller = factory.createMarshaller(configuration);
+        marshaller.start(new OutputStreamByteOutput(bytes));
+        marshaller.writeObject(object);
+        marshaller.finish();
+        marshaller.flush();
+        out.writeInt(bytes.size());
+        out.write(bytes.toByteArray());
+    }
+
+    private Object readObject(DataInput in) throws IOException, ClassNotFoundException {
+        final int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] data = new byte[length];
+        in.readFully(data);
+        final Unmarshaller unmarshaller = factory.createUnmarshaller(configuration);
+        unmarshaller.start(new ByteBufferInput(ByteBuffer.wrap(data)));
+        try {
+            return unmarshaller.readObject();
+        } finally {
+            unmarshaller.close();
+        }
+    }
+
+    private static void writeDate(DataOutput out, Date date) throws IOException {
+        out.writeLong(date == null ? NULL_DATE : date.getTime());
+    }
+
+    private static Date readDate(DataInput in) throws IOException {
+        final long time = in.readLong();
+        return time == NULL_DATE ? null : new Date(time);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.schedule;
+
+import static org.jboss.as.ejb3.logging.EjbLogger.EJB3_TIMER_LOGGER;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.chrono.IsoChronology;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ejb.ScheduleExpression;
+
+import org.jboss.as.ejb3.timerservice.schedule.attribute.DayOfMonth;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.DayOfWeek;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.Hour;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.IntegerBasedExpression;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.Minute;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.Month;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.Second;
+import org.jboss.as.ejb3.timerservice.schedule.attribute.Year;
+
+/**
+ * Immutable, compiled form of the calendar fields of a {@link ScheduleExpression}: second, minute, hour, day-of-month,
+ * day-of-week, month, year and timezone. The start and end dates are not part of the compiled form, so that all timers
+ * using the same expression share a single instance, see {@link #compile(ScheduleExpression)}.
+ * <p/>
+ * Each field is compiled into a bit set. The days of a month matching the day-of-month and day-of-week fields are kept
+ * in a table per month, filled lazily for the years following the compilation. The next timeout is found by walking the
+ * local date and time fields as primitives. For a timezone with transitions, the offsets in effect between the two
+ * transitions around the last passed time are cached, so that {@code java.time} objects are only created when a timeout
+ * is computed from, or falls into, another period between transitions.
+ */
+public final class CompiledScheduleExpression {
+
+    /**
+     * Returned by {@link #getNextTimeout(long)} if the expression has no more timeouts.
+     */
+    public static final long NO_TIMEOUT = Long.MIN_VALUE;
+
+    private static final int MAX_INTERNED = 1024;
+    private static final ConcurrentMap<String, CompiledScheduleExpression> INTERNED = new ConcurrentHashMap<>();
+
+    private static final int TABLE_YEARS = 32;
+    // bit 0 marks a computed entry of the day table, bits 1 to 31 are the days of the month
+    private static final int COMPUTED = 1;
+    private static final int ALL_DAYS = ~COMPUTED;
+
+    private final long seconds;
+    private final long minutes;
+    private final int hours;
+    private final int months;
+    /**
+     * The matching years, null for a wildcard
+     */
+    private final BitSet years;
+    /**
+     * The day-of-month expression, null for a wildcard
+     */
+    private final DayOfMonth dayOfMonth;
+    /**
+     * The matching days of week, Monday being bit 1
+     */
+    private final int daysOfWeek;
+    private final boolean anyDayOfWeek;
+    private final TimeZone timezone;
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final ZoneOffset fixedOffset;
+    /**
+     * The offsets around the last passed time, null for a fixed offset timezone
+     */
+    private volatile OffsetWindow offsetWindow;
+    private final int tableBaseYear;
+    private final int[] dayTable = new int[TABLE_YEARS * 12];
+
+    /**
+     * Compiles the calendar fields of the passed schedule, or returns the instance already compiled for the same
+     * fields.
+     *
+     * @param schedule The schedule
+     * @return the compiled expression
+     */
+    public static CompiledScheduleExpression compile(ScheduleExpression schedule) {
+        final String key = schedule.getSecond() + '\u0000' + schedule.getMinute() + '\u0000' + schedule.getHour() + '\u0000'
+                + schedule.getDayOfMonth() + '\u0000' + schedule.getDayOfWeek() + '\u0000' + schedule.getMonth() + '\u0000'
+                + schedule.getYear() + '\u0000' + schedule.getTimezone();
+        CompiledScheduleExpression compiled = INTERNED.get(key);
+        if (compiled == null) {
+            compiled = new CompiledScheduleExpression(schedule);
+            // programmatic timers may use any number of distinct expressions, start over rather than growing without bound
+            if (INTERNED.size() >= MAX_INTERNED) {
+                INTERNED.clear();
+            }
+            final CompiledScheduleExpression existing = INTERNED.putIfAbsent(key, compiled);
+            if (existing != null) {
+                compiled = existing;
+            }
+        }
+        return compiled;
+    }
+
+    private CompiledScheduleExpression(ScheduleExpression schedule) {
+        this.seconds = bits(new Second(schedule.getSecond()), 0, 59);
+        this.minutes = bits(new Minute(schedule.getMinute()), 0, 59);
+        this.hours = (int) bits(new Hour(schedule.getHour()), 0, 23);
+        final DayOfMonth dayOfMonth = new DayOfMonth(schedule.getDayOfMonth());
+        this.dayOfMonth = dayOfMonth.isWildcard() ? null : dayOfMonth;
+        final DayOfWeek dayOfWeek = new DayOfWeek(schedule.getDayOfWeek());
+        this.anyDayOfWeek = dayOfWeek.isWildcard();
+        int daysOfWeek = 0;
+        for (int day : dayOfWeek.getAbsoluteValues()) {
+            // the expression uses 0 for Sunday
+            daysOfWeek |= 1 << ((day == 0) ? 7 : day);
+        }
+        this.daysOfWeek = daysOfWeek;
+        this.months = (int) bits(new Month(schedule.getMonth()), 1, 12);
+        final Year year = new Year(schedule.getYear());
+        if (year.isWildcard()) {
+            this.years = null;
+        } else {
+            this.years = new BitSet(Year.MAX_YEAR + 1);
+            for (int value : year.getAbsoluteValues()) {
+                this.years.set(value);
+            }
+        }
+
+        String timezoneId = schedule.getTimezone();
+        if (timezoneId != null && !(timezoneId = timezoneId.trim()).isEmpty()) {
+            // If the timezone ID wasn't valid, then Timezone.getTimeZone returns
+            // GMT, which may not always be desirable.
+            // So we first check to see if the timezone id specified is available in
+            // timezone ids in the system. If it's available then we log a WARN message
+            // and fallback on the server's timezone.
+            String[] availableTimeZoneIDs = TimeZone.getAvailableIDs();
+            if (availableTimeZoneIDs != null && Arrays.asList(availableTimeZoneIDs).contains(timezoneId)) {
+                this.timezone = TimeZone.getTimeZone(timezoneId);
+            } else {
+                // use server's timezone
+                this.timezone = TimeZone.getDefault();
+                EJB3_TIMER_LOGGER.unknownTimezoneId(timezoneId, this.timezone.getID());
+            }
+        } else {
+            this.timezone = TimeZone.getDefault();
+        }
+        this.zone = this.timezone.toZoneId();
+        this.rules = this.zone.getRules();
+        this.fixedOffset = this.rules.isFixedOffset() ? this.rules.getOffset(Instant.EPOCH) : null;
+        this.tableBaseYear = LocalDate.now(this.zone).getYear() - 1;
+    }
+
+    /**
+     * @return the timezone the expression is evaluated in
+     */
+    public TimeZone getTimezone() {
+        return this.timezone;
+    }
+
+    public int getFirstSecond() {
+        return Long.numberOfTrailingZeros(this.seconds);
+    }
+
+    public int getFirstMinute() {
+        return Long.numberOfTrailingZeros(this.minutes);
+    }
+
+    public int getFirstHour() {
+        return Integer.numberOfTrailingZeros(this.hours);
+    }
+
+    /**
+     * Returns the first timeout at or after the passed time. The time is matched with a precision of one second; the
+     * millisecond part of the passed time is retained in the returned timeout.
+     *
+     * @param from the time, in milliseconds since the epoch
+     * @return the timeout, in milliseconds since the epoch, or {@link #NO_TIMEOUT} if there is none
+     */
+    public long getNextTimeout(final long from) {
+        final long millis = Math.floorMod(from, 1000L);
+        final long fromSecond = Math.floorDiv(from, 1000L);
+        final OffsetWindow window;
+        final int offset;
+        if (this.fixedOffset != null) {
+            window = null;
+            offset = this.fixedOffset.getTotalSeconds();
+        } else {
+            window = this.offsetWindow(fromSecond);
+            offset = window.offset;
+        }
+        final long local = fromSecond + offset;
+
+        // civil date of the local epoch day
+        final long epochDay = Math.floorDiv(local, 86400L);
+        final long z = epochDay + 719468L;
+        final long era = Math.floorDiv(z, 146097L);
+        final long dayOfEra = z - era * 146097L;
+        final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int d = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int mo = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int y = (int) (yearOfEra + era * 400 + (mo <= 2 ? 1 : 0));
+        final int secondOfDay = (int) Math.floorMod(local, 86400L);
+        int h = secondOfDay / 3600;
+        int mi = (secondOfDay / 60) % 60;
+        int s = secondOfDay % 60;
+
+        for (;;) {
+            // carry over fields advanced past their maximum
+            if (s > 59) {
+                s = 0;
+                mi++;
+            }
+            if (mi > 59) {
+                mi = 0;
+                h++;
+            }
+            if (h > 23) {
+                h = 0;
+                d++;
+            }
+            if (d > lengthOfMonth(y, mo)) {
+                d = 1;
+                mo++;
+            }
+            if (mo > 12) {
+                mo = 1;
+                y++;
+            }
+            if (y > Year.MAX_YEAR) {
+                return NO_TIMEOUT;
+            }
+            if (this.years != null && !this.years.get(y)) {
+                final int next = this.years.nextSetBit(y + 1);
+                if (next < 0) {
+                    return NO_TIMEOUT;
+                }
+                y = next;
+                mo = 1;
+                d = 1;
+                h = mi = s = 0;
+                continue;
+            }
+            if ((this.months & (1 << mo)) == 0) {
+                final int next = nextBit(this.months, mo + 1);
+                if (next < 0) {
+                    y++;
+                    mo = 1;
+                } else {
+                    mo = next;
+                }
+                d = 1;
+                h = mi = s = 0;
+                continue;
+            }
+            final int days = this.days(y, mo);
+            if ((days & (1 << d)) == 0) {
+                final int next = nextBit(days, d + 1);
+                if (next < 0) {
+                    mo++;
+                    d = 1;
+                } else {
+                    d = next;
+                }
+                h = mi = s = 0;
+                continue;
+            }
+            if ((this.hours & (1 << h)) == 0) {
+                final int next = nextBit(this.hours, h + 1);
+                if (next < 0) {
+                    d++;
+                    h = 0;
+                } else {
+                    h = next;
+                }
+                mi = s = 0;
+                continue;
+            }
+            if ((this.minutes & (1L << mi)) == 0) {
+                final int next = nextBit(this.minutes, mi + 1);
+                if (next < 0) {
+                    h++;
+                    mi = 0;
+                } else {
+                    mi = next;
+                }
+                s = 0;
+                continue;
+            }
+            if ((this.seconds & (1L << s)) == 0) {
+                final int next = nextBit(this.seconds, s + 1);
+                if (next < 0) {
+                    mi++;
+                    s = 0;
+                } else {
+                    s = next;
+                }
+                continue;
+            }
+            final long timeout = this.toEpochSecond(window, y, mo, d, h, mi, s);
+            if (timeout < fromSecond) {
+                // cannot match a local time before the passed time, whatever its offset
+                s++;
+                continue;
+            }
+            return timeout * 1000L + millis;
+        }
+    }
+
+    private long toEpochSecond(OffsetWindow window, int year, int month, int day, int hour, int minute, int second) {
+        final long local = epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+        if (window == null) {
+            return local - this.fixedOffset.getTotalSeconds();
+        }
+        // as with java.util.Calendar, local times in a gap are moved forward by the length of the gap, and local times
+        // which occur twice are interpreted as standard time
+        final long epochSecond = local - window.offset;
+        if (epochSecond >= window.start) {
+            final long nextEpochSecond = local - window.nextOffset;
+            if (epochSecond < window.end) {
+                // the local time occurs twice if it also falls after the next transition, take the later offset
+                return nextEpochSecond >= window.end ? nextEpochSecond : epochSecond;
+            }
+            if (nextEpochSecond < window.end) {
+                // in the gap of the next transition, moving forward by the length of the gap keeps the earlier offset
+                return epochSecond;
+            }
+        }
+        return ZonedDateTime.of(LocalDateTime.of(year, month, day, hour, minute, second), this.zone).withLaterOffsetAtOverlap().toEpochSecond();
+    }
+
+    /**
+     * @return the offsets around the passed time, cached until a time outside of the window is passed
+     */
+    private OffsetWindow offsetWindow(long epochSecond) {
+        final OffsetWindow window = this.offsetWindow;
+        if (window != null && epochSecond >= window.start && epochSecond < window.end) {
+            return window;
+        }
+        final Instant instant = Instant.ofEpochSecond(epochSecond);
+        final ZoneOffsetTransition previous = this.rules.previousTransition(instant.plusSeconds(1));
+        final ZoneOffsetTransition next = this.rules.nextTransition(instant);
+        final int offset = this.rules.getOffset(instant).getTotalSeconds();
+        final OffsetWindow result = new OffsetWindow((previous != null) ? previous.toEpochSecond() : Long.MIN_VALUE,
+                (next != null) ? next.toEpochSecond() : Long.MAX_VALUE, offset,
+                (next != null) ? next.getOffsetAfter().getTotalSeconds() : offset);
+        this.offsetWindow = result;
+        return result;
+    }
+
+    /**
+     * @return the days of the month matching the expression, as a bit set
+     */
+    private int days(int year, int month) {
+        if (this.dayOfMonth == null && this.anyDayOfWeek) {
+            return ALL_DAYS;
+        }
+        final int index = (year - this.tableBaseYear) * 12 + month - 1;
+        if (index < 0 || index >= this.dayTable.length) {
+            return this.computeDays(year, month);
+        }
+        // racing threads compute the same value
+        int days = this.dayTable[index];
+        if (days == 0) {
+            days = this.computeDays(year, month);
+            this.dayTable[index] = days;
+        }
+        return days;
+    }
+
+    private int computeDays(int year, int month) {
+        final int length = lengthOfMonth(year, month);
+        int days = COMPUTED;
+        if (this.dayOfMonth != null) {
+            final Calendar calendar = new GregorianCalendar(this.timezone);
+            calendar.clear();
+            calendar.set(year, month - 1, 1);
+            for (int day : this.dayOfMonth.getEligibleDaysOfMonth(calendar)) {
+                if (day >= 1 && day <= length) {
+                    days |= 1 << day;
+                }
+            }
+        }
+        // if both day-of-month and day-of-week are specified, a day matching either of them matches
+        if (!this.anyDayOfWeek) {
+            int dayOfWeek = (int) Math.floorMod(epochDay(year, month, 1) + 3, 7L) + 1;
+            for (int day = 1; day <= length; day++) {
+                if ((this.daysOfWeek & (1 << dayOfWeek)) != 0) {
+                    days |= 1 << day;
+                }
+                dayOfWeek = (dayOfWeek == 7) ? 1 : dayOfWeek + 1;
+            }
+        }
+        return days;
+    }
+
+    private static long epochDay(int year, int month, int day) {
+        final long y = (month <= 2) ? year - 1 : year;
+        final long era = Math.floorDiv(y, 400L);
+        final long yearOfEra = y - era * 400;
+        final long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        final long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long bits(IntegerBasedExpression expression, int min, int max) {
+        long bits = 0;
+        if (expression.isWildcard()) {
+            for (int i = min; i <= max; i++) {
+                bits |= 1L << i;
+            }
+        } else {
+            for (int value : expression.getAbsoluteValues()) {
+                bits |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    private static int nextBit(long bits, int from) {
+        if (from >= 64) {
+            return -1;
+        }
+        final long remaining = bits & (-1L << from);
+        return (remaining == 0) ? -1 : Long.numberOfTrailingZeros(remaining);
+    }
+
+    private static int nextBit(int bits, int from) {
+        if (from >= 32) {
+            return -1;
+        }
+        final int remaining = bits & (-1 << from);
+        return (remaining == 0) ? -1 : Integer.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * The offset in effect between two transitions of a timezone, and the offset following the later transition.
+     */
+    private static final class OffsetWindow {
+        /**
+         * The first second of the window, inclusive
+         */
+        final long start;
+        /**
+         * The second of the next transition, exclusive
+         */
+        final long end;
+        final int offset;
+        final int nextOffset;
+
+        OffsetWindow(long start, long end, int offset, int nextOffset) {
+            this.start = start;
+            this.end = end;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+        }
+    }
+}
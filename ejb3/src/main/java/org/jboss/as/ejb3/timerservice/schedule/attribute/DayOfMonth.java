@@ -196,7 +196,14 @@ public class DayOfMonth extends IntegerBasedExpression {
         return true;
     }
 
-    private SortedSet<Integer> getEligibleDaysOfMonth(Calendar cal) {
+    /**
+     * Returns the days of month matched by this expression, in the month of the passed calendar. Relative values such as
+     * "last" or "2nd Fri" are resolved against that month.
+     *
+     * @param cal a calendar set to the month
+     * @return the matching days of month, which may exceed the length of the month
+     */
+    public SortedSet<Integer> getEligibleDaysOfMonth(Calendar cal) {
         if (this.hasRelativeDayOfMonth() == false) {
             return this.absoluteValues;
         }
@@ -30,6 +30,7 @@ import org.jboss.as.ejb3.timerservice.schedule.value.ScheduleExpressionType;
 import org.jboss.as.ejb3.timerservice.schedule.value.ScheduleValue;
 import org.jboss.as.ejb3.timerservice.schedule.value.SingleValue;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.SortedSet;
@@ -213,4 +214,21 @@ public abstract class IntegerBasedExpression {
 
     public abstract boolean isRelativeValue(String value);
 
+    /**
+     * @return true if this expression is a wildcard, i.e. it matches every value
+     */
+    public boolean isWildcard() {
+        return this.scheduleExpressionType == ScheduleExpressionType.WILDCARD;
+    }
+
+    /**
+     * Returns the values of this expression which do not depend on the calendar. Relative values are not included, and
+     * the set is empty for a wildcard.
+     *
+     * @return the absolute values, in ascending order
+     */
+    public SortedSet<Integer> getAbsoluteValues() {
+        return Collections.unmodifiableSortedSet(this.absoluteValues);
+    }
+
 }
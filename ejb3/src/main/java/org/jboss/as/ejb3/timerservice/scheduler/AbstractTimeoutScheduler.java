@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base class of the {@link TimeoutScheduler}s, keeps track of the firing lag.
+ */
+public abstract class AbstractTimeoutScheduler implements TimeoutScheduler {
+
+    private final LongAdder firedTimeouts = new LongAdder();
+    private final LongAdder totalLag = new LongAdder();
+    private final LongAccumulator maxLag = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Records that a timeout was fired.
+     *
+     * @param lag the delay in milliseconds between the time the timeout was due and now
+     */
+    protected void fired(long lag) {
+        final long value = Math.max(0L, lag);
+        this.firedTimeouts.increment();
+        this.totalLag.add(value);
+        this.maxLag.accumulate(value);
+    }
+
+    @Override
+    public long getFiredTimeouts() {
+        return this.firedTimeouts.sum();
+    }
+
+    @Override
+    public long getAverageLag() {
+        final long fired = this.firedTimeouts.sum();
+        return (fired == 0L) ? 0L : this.totalLag.sum() / fired;
+    }
+
+    @Override
+    public long getMaxLag() {
+        return this.maxLag.get();
+    }
+}
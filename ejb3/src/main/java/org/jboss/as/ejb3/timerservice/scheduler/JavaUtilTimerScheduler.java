@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * {@link TimeoutScheduler} which fires all timeouts from the single thread of a {@link Timer}.
+ */
+public class JavaUtilTimerScheduler extends AbstractTimeoutScheduler {
+
+    private final Timer timer;
+
+    public JavaUtilTimerScheduler(Timer timer) {
+        this.timer = timer;
+    }
+
+    @Override
+    public ScheduledTimeout schedule(Runnable task, long delay) {
+        final Timeout timeout = new Timeout(task);
+        this.timer.schedule(timeout, delay);
+        return timeout;
+    }
+
+    @Override
+    public ScheduledTimeout scheduleAtFixedRate(Runnable task, long delay, long period) {
+        final Timeout timeout = new Timeout(task);
+        this.timer.scheduleAtFixedRate(timeout, delay, period);
+        return timeout;
+    }
+
+    @Override
+    public void purge() {
+        this.timer.purge();
+    }
+
+    private class Timeout extends TimerTask implements ScheduledTimeout {
+
+        private final Runnable task;
+
+        Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            fired(System.currentTimeMillis() - this.scheduledExecutionTime());
+            this.task.run();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+/**
+ * Fires the timeouts of the timers created through a {@link org.jboss.as.ejb3.timerservice.TimerServiceImpl}.
+ * <p/>
+ * Implementations only trigger the passed tasks; the tasks themselves are expected to hand the actual timeout
+ * invocation off to the timer service executor.
+ */
+public interface TimeoutScheduler {
+
+    /**
+     * Schedules a task for a single execution.
+     *
+     * @param task  the task
+     * @param delay the delay in milliseconds before the task is executed
+     * @return the handle used to cancel the task
+     */
+    ScheduledTimeout schedule(Runnable task, long delay);
+
+    /**
+     * Schedules a task for repeated fixed-rate execution.
+     *
+     * @param task   the task
+     * @param delay  the delay in milliseconds before the task is executed for the first time
+     * @param period the time in milliseconds between successive executions
+     * @return the handle used to cancel the task
+     */
+    ScheduledTimeout scheduleAtFixedRate(Runnable task, long delay, long period);
+
+    /**
+     * Releases the resources held by cancelled tasks.
+     */
+    void purge();
+
+    /**
+     * @return the number of timeouts fired since the scheduler was started
+     */
+    long getFiredTimeouts();
+
+    /**
+     * @return the average delay, in milliseconds, between the time a timeout was due and the time it was fired
+     */
+    long getAverageLag();
+
+    /**
+     * @return the largest delay, in milliseconds, between the time a timeout was due and the time it was fired
+     */
+    long getMaxLag();
+}
@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+import java.util.Timer;
+
+import org.jboss.msc.service.Service;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+import org.jboss.msc.value.InjectedValue;
+
+/**
+ * Service providing the {@link TimeoutScheduler} shared by the timer services of all deployments.
+ */
+public class TimeoutSchedulerService implements Service<TimeoutScheduler> {
+
+    public enum Type {
+        TIMER("timer"), TIMING_WHEEL("timing-wheel");
+
+        private final String value;
+
+        Type(String value) {
+            this.value = value;
+        }
+
+        public String toString() {
+            return value;
+        }
+
+        public static Type fromValue(String value) {
+            for (Type type : values()) {
+                if (type.value.equals(value)) {
+                    return type;
+                }
+            }
+            return valueOf(value);
+        }
+    }
+
+    private final Type type;
+    private final InjectedValue<Timer> timer = new InjectedValue<Timer>();
+
+    private TimeoutScheduler scheduler;
+
+    public TimeoutSchedulerService(Type type) {
+        this.type = type;
+    }
+
+    @Override
+    public synchronized void start(final StartContext context) throws StartException {
+        switch (type) {
+            case TIMING_WHEEL:
+                TimingWheelScheduler wheel = new TimingWheelScheduler("EJB timer wheel");
+                wheel.start();
+                scheduler = wheel;
+                break;
+            default:
+                scheduler = new JavaUtilTimerScheduler(timer.getValue());
+        }
+    }
+
+    @Override
+    public synchronized void stop(final StopContext context) {
+        if (scheduler instanceof TimingWheelScheduler) {
+            ((TimingWheelScheduler) scheduler).stop();
+        }
+        scheduler = null;
+    }
+
+    @Override
+    public synchronized TimeoutScheduler getValue() throws IllegalStateException, IllegalArgumentException {
+        return scheduler;
+    }
+
+    public InjectedValue<Timer> getTimerInjector() {
+        return timer;
+    }
+}
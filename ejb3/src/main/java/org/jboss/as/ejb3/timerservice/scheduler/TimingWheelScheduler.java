@@ -0,0 +1,359 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.as.ejb3.logging.EjbLogger;
+
+/**
+ * {@link TimeoutScheduler} backed by a hierarchical timing wheel.
+ * <p/>
+ * Time is divided in ticks. The wheel consists of {@value #LEVELS} levels of {@value #WHEEL_SIZE} buckets each, every
+ * level covering {@value #WHEEL_SIZE} times the range of the level below it. A timeout is put in the bucket of the lowest
+ * level able to hold it and is moved (cascaded) to the lower levels as time advances, so that inserting and cancelling a
+ * timeout are O(1) regardless of the number of pending timeouts.
+ * <p/>
+ * The buckets are only ever touched by the wheel thread: scheduling and cancelling threads publish their requests through
+ * lock free queues which are drained on every tick. All the timeouts which expire within a tick are fired together, in
+ * a single batch, from the wheel thread.
+ */
+public class TimingWheelScheduler extends AbstractTimeoutScheduler {
+
+    static final int WHEEL_BITS = 8;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    static final int LEVELS = 4;
+    /**
+     * Timeouts further away than this number of ticks are parked in the last bucket they fit in.
+     */
+    static final long MAX_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    public static final long DEFAULT_TICK_DURATION = 10;
+
+    private final long tickNanos;
+    private final Bucket[][] wheel = new Bucket[LEVELS][WHEEL_SIZE];
+    private final Queue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancellations = new ConcurrentLinkedQueue<>();
+    private final String name;
+
+    private volatile long startTime;
+    private volatile Thread worker;
+    /**
+     * The next tick to process, only accessed by the wheel thread.
+     */
+    private long currentTick;
+
+    public TimingWheelScheduler(String name) {
+        this(name, DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    public TimingWheelScheduler(String name, long tickDuration, TimeUnit unit) {
+        this.name = name;
+        this.tickNanos = Math.max(1L, unit.toNanos(tickDuration));
+        for (Bucket[] level : this.wheel) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Bucket();
+            }
+        }
+    }
+
+    public synchronized void start() {
+        if (this.worker != null) {
+            return;
+        }
+        this.startTime = System.nanoTime();
+        this.currentTick = 0;
+        final Thread thread = new Thread(this::run, this.name);
+        thread.setDaemon(true);
+        this.worker = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        final Thread thread = this.worker;
+        if (thread == null) {
+            return;
+        }
+        this.worker = null;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // drop whatever is still pending
+        for (Bucket[] level : this.wheel) {
+            for (Bucket bucket : level) {
+                bucket.clear();
+            }
+        }
+        this.additions.clear();
+        this.cancellations.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ScheduledTimeout schedule(Runnable task, long delay) {
+        return this.add(task, delay, 0L);
+    }
+
+    @Override
+    public ScheduledTimeout scheduleAtFixedRate(Runnable task, long delay, long period) {
+        if (period <= 0L) {
+            throw new IllegalArgumentException(String.valueOf(period));
+        }
+        return this.add(task, delay, period);
+    }
+
+    /**
+     * Cancelled timeouts are unlinked by the wheel thread on the next tick, there is nothing to purge.
+     */
+    @Override
+    public void purge() {
+        // nothing to do
+    }
+
+    private Timeout add(Runnable task, long delay, long period) {
+        if (delay < 0L) {
+            throw new IllegalArgumentException(String.valueOf(delay));
+        }
+        final Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay), TimeUnit.MILLISECONDS.toNanos(period));
+        this.additions.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        final List<Timeout> expired = new ArrayList<>();
+        while (this.worker != null) {
+            final long elapsed = System.nanoTime() - this.startTime;
+            final long targetTick = elapsed / this.tickNanos;
+            while (this.currentTick <= targetTick) {
+                this.tick(expired);
+                this.fire(expired);
+                expired.clear();
+            }
+            final long sleep = this.currentTick * this.tickNanos - (System.nanoTime() - this.startTime);
+            if (sleep > 0L) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    /**
+     * Processes {@link #currentTick}, collecting the timeouts which expire in it.
+     */
+    private void tick(List<Timeout> expired) {
+        for (Timeout timeout = this.cancellations.poll(); timeout != null; timeout = this.cancellations.poll()) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+        for (Timeout timeout = this.additions.poll(); timeout != null; timeout = this.additions.poll()) {
+            if (timeout.state == Timeout.WAITING) {
+                this.place(timeout);
+            }
+        }
+        final int index = (int) (this.currentTick & WHEEL_MASK);
+        if (index == 0) {
+            // level 0 wrapped around, move the next buckets of the higher levels down
+            for (int level = 1; level < LEVELS; level++) {
+                final int slot = (int) ((this.currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+                this.cascade(this.wheel[level][slot]);
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+        this.wheel[0][index].drainTo(expired);
+        this.currentTick++;
+    }
+
+    private void cascade(Bucket bucket) {
+        Timeout timeout = bucket.detach();
+        while (timeout != null) {
+            final Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            timeout.bucket = null;
+            this.place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void place(Timeout timeout) {
+        final long deadlineTick = this.toTick(timeout.deadline);
+        long ticks = deadlineTick - this.currentTick;
+        final Bucket bucket;
+        if (ticks < WHEEL_SIZE) {
+            // overdue timeouts are fired on the tick being processed
+            bucket = this.wheel[0][(int) (Math.max(deadlineTick, this.currentTick) & WHEEL_MASK)];
+        } else {
+            if (ticks > MAX_TICKS) {
+                ticks = MAX_TICKS;
+            }
+            final long expires = this.currentTick + ticks;
+            int level = 1;
+            while (level < LEVELS - 1 && ticks >= (1L << (WHEEL_BITS * (level + 1)))) {
+                level++;
+            }
+            bucket = this.wheel[level][(int) ((expires >>> (WHEEL_BITS * level)) & WHEEL_MASK)];
+        }
+        bucket.add(timeout);
+    }
+
+    private long toTick(long deadline) {
+        final long elapsed = deadline - this.startTime;
+        if (elapsed <= 0L) {
+            return 0L;
+        }
+        // round up, a timeout must never fire before it is due
+        return (elapsed + this.tickNanos - 1) / this.tickNanos;
+    }
+
+    private void fire(List<Timeout> expired) {
+        if (expired.isEmpty()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        for (Timeout timeout : expired) {
+            // periodic timeouts stay waiting while they are scheduled
+            if ((timeout.period == 0L) ? !timeout.fire() : (timeout.state != Timeout.WAITING)) {
+                // cancelled concurrently, e.g. by a timeout fired earlier in this batch
+                continue;
+            }
+            fired(TimeUnit.NANOSECONDS.toMillis(now - timeout.deadline));
+            try {
+                timeout.task.run();
+            } catch (Throwable t) {
+                EjbLogger.EJB3_TIMER_LOGGER.timeoutTaskFailed(timeout.task, t);
+            }
+            if (timeout.period != 0L && timeout.state == Timeout.WAITING) {
+                timeout.deadline += timeout.period;
+                this.place(timeout);
+            }
+        }
+    }
+
+    private final class Timeout implements ScheduledTimeout {
+
+        static final int WAITING = 0;
+        static final int FIRED = 1;
+        static final int CANCELLED = 2;
+
+        final Runnable task;
+        final long period;
+        // accessed by the wheel thread only
+        long deadline;
+        Timeout prev;
+        Timeout next;
+        Bucket bucket;
+
+        volatile int state = WAITING;
+
+        Timeout(Runnable task, long deadline, long period) {
+            this.task = task;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        boolean fire() {
+            return STATE_UPDATER.compareAndSet(this, WAITING, FIRED);
+        }
+
+        @Override
+        public boolean cancel() {
+            if (STATE_UPDATER.compareAndSet(this, WAITING, CANCELLED)) {
+                TimingWheelScheduler.this.cancellations.add(this);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    /**
+     * A doubly linked list of timeouts.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = this.head;
+            if (this.head != null) {
+                this.head.prev = timeout;
+            }
+            this.head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                this.head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        Timeout detach() {
+            final Timeout first = this.head;
+            this.head = null;
+            return first;
+        }
+
+        void drainTo(List<Timeout> expired) {
+            Timeout timeout = this.detach();
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                timeout.bucket = null;
+                expired.add(timeout);
+                timeout = next;
+            }
+        }
+
+        void clear() {
+            this.drainTo(new ArrayList<>());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.tx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time spent by callers waiting to obtain a contended {@link OwnableReentrantLock}.
+ * Uncontended acquisitions are not recorded.
+ */
+public class LockStatistics {
+
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder waitTime = new LongAdder();
+    private final LongAccumulator maxWaitTime = new LongAccumulator(Math::max, 0L);
+    private final LongAdder timeoutCount = new LongAdder();
+
+    void recordWait(long nanos) {
+        this.waitCount.increment();
+        this.waitTime.add(nanos);
+        this.maxWaitTime.accumulate(nanos);
+    }
+
+    void recordTimeout(long nanos) {
+        this.recordWait(nanos);
+        this.timeoutCount.increment();
+    }
+
+    /**
+     * @return the number of acquisitions that had to wait for another owner to release the lock
+     */
+    public long getWaitCount() {
+        return this.waitCount.sum();
+    }
+
+    /**
+     * @return the accumulated time, in milliseconds, spent waiting for the lock
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.waitTime.sum());
+    }
+
+    /**
+     * @return the longest time, in milliseconds, a single caller spent waiting for the lock
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxWaitTime.get());
+    }
+
+    /**
+     * @return the number of callers that gave up waiting for the lock
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount.sum();
+    }
+}
@@ -22,113 +22,111 @@
  */
 package org.jboss.as.ejb3.tx;
 
-
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedLongSynchronizer;
 
 /**
  * A lock that supports reentrancy based on owner (and not on current thread).
+ * <p/>
+ * Waiting callers are queued and granted the lock in arrival order. Reentrant acquisitions by the current owner never wait.
+ * The time spent waiting for a contended lock is reported to a {@link LockStatistics}.
  *
  * @author Stuart Douglas
  */
 public class OwnableReentrantLock {
 
-    private static final long serialVersionUID = 493297473462848792L;
+    // The lock state holds the hold count in its low bits, a releasing flag, and a generation in its high bits.
+    // The generation changes on every transfer of ownership, so that a reentrant acquisition cannot succeed against
+    // a state that has since been released and acquired by another owner.
+    private static final long HOLDS_MASK = 0x7FFFFFFFL;
+    private static final long RELEASING = 0x80000000L;
+    private static final long GENERATION = 0x100000000L;
 
     /**
-     * Current owner
+     * The owner on whose behalf the current thread is acquiring or releasing a lock
      */
-    private Object owner;
-
-    private final Object lock = new Object();
+    private static final ThreadLocal<Object> REQUESTOR = new ThreadLocal<>();
 
-    private int lockCount = 0;
+    private final Sync sync = new Sync();
 
-    private int waiters = 0;
+    private final LockStatistics statistics;
 
     /**
      * Creates a new lock instance.
      */
     public OwnableReentrantLock() {
+        this(new LockStatistics());
+    }
+
+    /**
+     * Creates a new lock instance reporting its wait times to the specified statistics.
+     *
+     * @param statistics the statistics to update on contended acquisitions
+     */
+    public OwnableReentrantLock(LockStatistics statistics) {
+        this.statistics = statistics;
     }
 
     public void lock(Object owner) {
-        synchronized (this.lock) {
-            if (owner == this.owner) {
-                lockCount++;
-            } else if (this.owner == null) {
-                this.owner = owner;
-                lockCount ++;
-            } else {
-                while (this.owner != null) {
-                    try {
-                        waiters++;
-                        try {
-                            lock.wait();
-                        } finally {
-                            --waiters;
-                        }
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
+        REQUESTOR.set(owner);
+        try {
+            if (!this.sync.tryAcquire(1L)) {
+                long start = System.nanoTime();
+                try {
+                    this.sync.acquireInterruptibly(1L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
                 }
-                this.owner = owner;
-                lockCount ++;
+                this.statistics.recordWait(System.nanoTime() - start);
             }
-
+        } finally {
+            REQUESTOR.remove();
         }
     }
 
-
     public boolean tryLock(long timeValue, TimeUnit timeUnit, Object owner) {
-        synchronized (this.lock) {
-            if (owner == this.owner) {
-                lockCount++;
-                return true;
-            } else if (this.owner == null) {
-                this.owner = owner;
-                lockCount ++;
+        REQUESTOR.set(owner);
+        try {
+            if (this.sync.tryAcquire(1L)) {
                 return true;
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = this.sync.tryAcquireNanos(1L, timeUnit.toNanos(timeValue));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            long waited = System.nanoTime() - start;
+            if (acquired) {
+                this.statistics.recordWait(waited);
             } else {
-                long endTime = System.currentTimeMillis() + timeUnit.toMillis(timeValue);
-                while (this.owner != null && System.currentTimeMillis() < endTime) {
-                    try {
-                        waiters++;
-                        try {
-                            lock.wait(endTime - System.currentTimeMillis());
-                        } finally {
-                            waiters--;
-                        }
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-                if(this.owner == null) {
-                    this.owner = owner;
-                    lockCount++;
-                    return true;
-                } else {
-                    return false;
-                }
+                this.statistics.recordTimeout(waited);
             }
-
+            return acquired;
+        } finally {
+            REQUESTOR.remove();
         }
     }
 
     public void unlock(Object owner) {
-        synchronized (this.lock) {
-            if (owner != this.owner) {
-                throw new IllegalMonitorStateException();
-            } else {
-                if (--lockCount == 0) {
-                    this.owner = null;
-                    if (waiters > 0) {
-                        lock.notifyAll();
-                    }
-                }
-            }
+        REQUESTOR.set(owner);
+        try {
+            this.sync.release(1L);
+        } finally {
+            REQUESTOR.remove();
         }
     }
 
+    /**
+     * @return the number of callers currently waiting to obtain this lock
+     */
+    public int getQueueLength() {
+        return this.sync.getQueueLength();
+    }
+
     /**
      * Returns a string identifying this lock, as well as its lock state.  The state, in brackets, includes either the
      * String &quot;Unlocked&quot; or the String &quot;Locked by&quot; followed by the String representation of the lock
@@ -137,8 +135,72 @@ public class OwnableReentrantLock {
      * @return a string identifying this lock, as well as its lock state.
      */
     public String toString() {
+        Object owner = this.sync.owner;
         return super.toString() + ((owner == null) ?
                 "[Unlocked]" :
                 "[Locked by " + owner + "]");
     }
+
+    private static final class Sync extends AbstractQueuedLongSynchronizer {
+        private static final long serialVersionUID = 493297473462848792L;
+
+        /**
+         * Current owner
+         */
+        volatile transient Object owner;
+
+        Sync() {
+        }
+
+        @Override
+        protected boolean tryAcquire(long acquires) {
+            final Object requestor = REQUESTOR.get();
+            for (;;) {
+                long state = this.getState();
+                if ((state & HOLDS_MASK) != 0L) {
+                    Object owner = this.owner;
+                    if (owner == null) {
+                        // The new owner won the lock but is yet to publish itself
+                        continue;
+                    }
+                    if (owner != requestor) {
+                        return false;
+                    }
+                    if (this.compareAndSetState(state, state + acquires)) {
+                        return true;
+                    }
+                } else if (((state & RELEASING) != 0L) || this.hasQueuedPredecessors()) {
+                    return false;
+                } else if (this.compareAndSetState(state, state + GENERATION + acquires)) {
+                    this.owner = requestor;
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        protected boolean tryRelease(long releases) {
+            final Object requestor = REQUESTOR.get();
+            for (;;) {
+                long state = this.getState();
+                long holds = state & HOLDS_MASK;
+                if ((holds == 0L) || (this.owner != requestor)) {
+                    throw new IllegalMonitorStateException();
+                }
+                if (holds > releases) {
+                    if (this.compareAndSetState(state, state - releases)) {
+                        return false;
+                    }
+                } else {
+                    long released = state & ~HOLDS_MASK;
+                    // Block both reentrant and new acquisitions while the owner is cleared
+                    if (this.compareAndSetState(state, released | RELEASING)) {
+                        this.owner = null;
+                        this.setState(released);
+                        return true;
+                    }
+                }
+            }
+        }
+    }
 }
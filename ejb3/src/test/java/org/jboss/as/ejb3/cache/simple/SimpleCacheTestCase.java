@@ -0,0 +1,192 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.cache.simple;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.ejb3.cache.Identifiable;
+import org.jboss.as.ejb3.cache.StatefulObjectFactory;
+import org.jboss.as.ejb3.component.stateful.StatefulTimeoutInfo;
+import org.junit.Test;
+import org.wildfly.clustering.ejb.IdentifierFactory;
+
+/**
+ * Verifies the bucketed expiration and the eviction of idle beans by {@link SimpleCache}.
+ */
+public class SimpleCacheTestCase {
+
+    @Test
+    public void testExpiration() {
+        TestCache cache = new TestCache(new StatefulTimeoutInfo(10, TimeUnit.SECONDS), Integer.MAX_VALUE);
+        Bean a = cache.create();
+        Bean b = cache.create();
+        cache.release(a);
+        cache.release(b);
+
+        cache.now = 5000;
+        assertNotNull(cache.get(b.getId()));
+        cache.release(b);
+
+        // a must not expire early
+        cache.reap(9999);
+        assertTrue(cache.contains(a.getId()));
+
+        cache.reap(11000);
+        assertFalse(cache.contains(a.getId()));
+        assertTrue(cache.contains(b.getId()));
+        assertTrue(cache.factory.destroyed.contains(a.getId()));
+        assertEquals(1, cache.getExpiredCount());
+
+        cache.reap(16000);
+        assertFalse(cache.contains(b.getId()));
+        assertEquals(2, cache.getExpiredCount());
+        assertEquals(0, cache.getCacheSize());
+        assertEquals(0, cache.getEvictedCount());
+    }
+
+    @Test
+    public void testBeanInUseDoesNotExpire() {
+        TestCache cache = new TestCache(new StatefulTimeoutInfo(1, TimeUnit.SECONDS), Integer.MAX_VALUE);
+        Bean bean = cache.create();
+        cache.release(bean);
+        assertNotNull(cache.get(bean.getId()));
+
+        cache.reap(60000);
+        assertTrue(cache.contains(bean.getId()));
+        assertEquals(0, cache.getExpiredCount());
+
+        cache.now = 60000;
+        cache.release(bean);
+        cache.reap(62000);
+        assertFalse(cache.contains(bean.getId()));
+        assertNull(cache.get(bean.getId()));
+        assertEquals(1, cache.getExpiredCount());
+    }
+
+    @Test
+    public void testEviction() {
+        TestCache cache = new TestCache(null, 2);
+        Bean a = cache.create();
+        cache.release(a);
+        cache.now = 2000;
+        Bean b = cache.create();
+        cache.release(b);
+        cache.now = 4000;
+
+        // the least recently released bean makes room for the new one
+        Bean c = cache.create();
+        assertEquals(2, cache.getCacheSize());
+        assertFalse(cache.contains(a.getId()));
+        assertTrue(cache.factory.destroyed.contains(a.getId()));
+
+        Bean d = cache.create();
+        assertFalse(cache.contains(b.getId()));
+        assertEquals(2, cache.getEvictedCount());
+
+        // beans in use are never evicted
+        Bean e = cache.create();
+        assertEquals(3, cache.getCacheSize());
+        assertTrue(cache.contains(c.getId()));
+        assertTrue(cache.contains(d.getId()));
+        assertTrue(cache.contains(e.getId()));
+        assertEquals(2, cache.getEvictedCount());
+        assertEquals(0, cache.getExpiredCount());
+    }
+
+    @Test
+    public void testZeroTimeout() {
+        TestCache cache = new TestCache(new StatefulTimeoutInfo(0, TimeUnit.SECONDS), Integer.MAX_VALUE);
+        Bean bean = cache.create();
+        cache.release(bean);
+        assertFalse(cache.contains(bean.getId()));
+        assertTrue(cache.factory.destroyed.contains(bean.getId()));
+    }
+
+    static class TestCache extends SimpleCache<Integer, Bean> {
+        final BeanFactory factory;
+        volatile long now = 0;
+
+        TestCache(StatefulTimeoutInfo timeout, int maxSize) {
+            this(new BeanFactory(), timeout, maxSize);
+        }
+
+        private TestCache(BeanFactory factory, StatefulTimeoutInfo timeout, int maxSize) {
+            super(factory, factory, timeout, null, null, maxSize);
+            this.factory = factory;
+        }
+
+        @Override
+        public Bean create() {
+            Bean bean = super.create();
+            // the bean is in use until released, as if it were created by an invocation
+            assertNotNull(this.get(bean.getId()));
+            return bean;
+        }
+
+        @Override
+        long currentTime() {
+            return this.now;
+        }
+    }
+
+    static class BeanFactory implements StatefulObjectFactory<Bean>, IdentifierFactory<Integer> {
+        private final AtomicInteger ids = new AtomicInteger();
+        final Set<Integer> destroyed = new HashSet<>();
+
+        @Override
+        public Integer createIdentifier() {
+            return this.ids.incrementAndGet();
+        }
+
+        @Override
+        public Bean createInstance() {
+            return new Bean(this.createIdentifier());
+        }
+
+        @Override
+        public void destroyInstance(Bean instance) {
+            this.destroyed.add(instance.getId());
+        }
+    }
+
+    static class Bean implements Identifiable<Integer> {
+        private final Integer id;
+
+        Bean(Integer id) {
+            this.id = id;
+        }
+
+        @Override
+        public Integer getId() {
+            return this.id;
+        }
+    }
+}
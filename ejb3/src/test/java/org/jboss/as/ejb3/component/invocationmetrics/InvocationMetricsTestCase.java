@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.component.invocationmetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class InvocationMetricsTestCase {
+
+    @Test
+    public void buckets() {
+        int previous = -1;
+        for (long micros = 0; micros < (1L << 20); micros = (micros < 64) ? micros + 1 : micros + (micros >> 4)) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(bucket >= previous);
+            long lower = LatencyHistogram.lowerBound(bucket);
+            assertTrue(micros + " in bucket starting at " + lower, lower <= micros);
+            // relative error is bounded by the sub-bucket resolution
+            assertTrue(micros - lower <= micros / LatencyHistogram.SUB_BUCKETS);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0d, histogram.getQuantile(0.99d), 0d);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertEquals(500d, histogram.getQuantile(0.5d), 500d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(990d, histogram.getQuantile(0.99d), 990d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(999d, histogram.getQuantile(0.999d), 999d / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void concurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            long latency = TimeUnit.MILLISECONDS.toNanos(10 * (i + 1));
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(latency);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // shards are summed on read, so no recording is lost
+        assertEquals(10d, histogram.getQuantile(0.25d), 10d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(20d, histogram.getQuantile(0.5d), 20d / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(40d, histogram.getQuantile(1d), 40d / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    public void shardLimit() {
+        assertEquals(1, LatencyHistogram.shardLimit(1));
+        assertEquals(2, LatencyHistogram.shardLimit(2));
+        assertEquals(4, LatencyHistogram.shardLimit(3));
+        assertEquals(8, LatencyHistogram.shardLimit(8));
+    }
+
+    @Test
+    public void invocations() throws NoSuchMethodException {
+        InvocationMetrics metrics = new InvocationMetrics();
+        Method toString = Object.class.getMethod("toString");
+        Method hashCode = Object.class.getMethod("hashCode");
+        InvocationMetrics.Values toStringValues = metrics.getValues(toString);
+        assertSame(toStringValues, metrics.getValues(toString));
+        InvocationMetrics.Values hashCodeValues = metrics.getValues(hashCode);
+
+        metrics.startInvocation();
+        metrics.startInvocation();
+        assertEquals(2L, metrics.getConcurrent());
+        metrics.finishInvocation(toStringValues, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.finishInvocation(hashCodeValues, TimeUnit.MILLISECONDS.toNanos(2), TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.startInvocation();
+        metrics.finishInvocation(toStringValues, 0L, TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertEquals(0L, metrics.getConcurrent());
+        assertEquals(2L, metrics.getPeakConcurrent());
+        assertEquals(3L, metrics.getInvocations());
+        assertEquals(60L, metrics.getExecutionTime());
+        assertEquals(3L, metrics.getWaitTime());
+
+        assertEquals(2, metrics.getMethods().size());
+        InvocationMetrics.Values values = metrics.getMethods().get("toString");
+        assertEquals(2L, values.getInvocations());
+        assertEquals(40L, values.getExecutionTime());
+        assertEquals(1L, values.getWaitTime());
+        assertEquals(30d, values.getExecutionTime(0.99d), 30d / LatencyHistogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.concurrency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import javax.ejb.IllegalLoopbackException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link StripedReadWriteLock}
+ */
+public class StripedReadWriteLockTest {
+
+    private StripedReadWriteLock lock;
+
+    @Before
+    public void beforeTest() {
+        this.lock = new StripedReadWriteLock(4);
+    }
+
+    /**
+     * Test that a {@link IllegalLoopbackException} is thrown when the thread owning a read lock
+     * tries to obtain a write lock, including after a reentrant read
+     */
+    @Test
+    public void testIllegalLoopBack() throws Exception {
+        Lock readLock = this.lock.readLock();
+        readLock.lock();
+        readLock.lock();
+        readLock.unlock();
+        try {
+            this.lock.writeLock().tryLock(1, TimeUnit.SECONDS);
+            Assert.fail("Unexpected acquired write lock");
+        } catch (IllegalLoopbackException expected) {
+            // expected
+        } finally {
+            readLock.unlock();
+        }
+        Assert.assertEquals(0, this.lock.getReadLockCount());
+        // no longer holding a read lock
+        Assert.assertTrue(this.lock.writeLock().tryLock());
+        this.lock.writeLock().unlock();
+    }
+
+    /**
+     * Tests that readers wait for a writer, and a writer for readers, no longer than the timeout
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            this.lock.writeLock().lock();
+            try {
+                Assert.assertFalse(executor.submit(() -> this.lock.readLock().tryLock(100, TimeUnit.MILLISECONDS)).get());
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            this.lock.readLock().lock();
+            try {
+                Assert.assertFalse(executor.submit(() -> this.lock.writeLock().tryLock(100, TimeUnit.MILLISECONDS)).get());
+                // an abandoned writer must not block subsequent readers
+                Assert.assertTrue(executor.submit(() -> {
+                    boolean acquired = this.lock.readLock().tryLock(0, TimeUnit.MILLISECONDS);
+                    if (acquired) {
+                        this.lock.readLock().unlock();
+                    }
+                    return acquired;
+                }).get());
+            } finally {
+                this.lock.readLock().unlock();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a thread can first get a write lock and at a later point in time, get a read lock,
+     * and that reentrant reads are not blocked by a pending writer
+     */
+    @Test
+    public void testReentrancy() throws Exception {
+        Lock writeLock = this.lock.writeLock();
+        Lock readLock = this.lock.readLock();
+        writeLock.lock();
+        Assert.assertTrue(writeLock.tryLock());
+        Assert.assertTrue(readLock.tryLock(0, TimeUnit.SECONDS));
+        readLock.unlock();
+        writeLock.unlock();
+        writeLock.unlock();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            readLock.lock();
+            CountDownLatch writing = new CountDownLatch(1);
+            Future<Boolean> writer = executor.submit(() -> {
+                writing.countDown();
+                boolean acquired = writeLock.tryLock(5, TimeUnit.SECONDS);
+                if (acquired) {
+                    writeLock.unlock();
+                }
+                return acquired;
+            });
+            writing.await();
+            Thread.sleep(50);
+            // pending writer must not block a reentrant read
+            Assert.assertTrue(readLock.tryLock(0, TimeUnit.SECONDS));
+            readLock.unlock();
+            readLock.unlock();
+            Assert.assertTrue(writer.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that writers are mutually exclusive with readers and with each other
+     */
+    @Test
+    public void testExclusion() throws Exception {
+        int threads = 8;
+        int iterations = 20000;
+        long[] value = new long[2];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                final boolean writer = (i % 4) == 0;
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        if (writer) {
+                            this.lock.writeLock().lock();
+                            try {
+                                value[0]++;
+                                value[1]++;
+                            } finally {
+                                this.lock.writeLock().unlock();
+                            }
+                        } else {
+                            this.lock.readLock().lock();
+                            try {
+                                Assert.assertEquals(value[0], value[1]);
+                            } finally {
+                                this.lock.readLock().unlock();
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(2 * iterations, value[0]);
+        Assert.assertEquals(0, this.lock.getReadLockCount());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.pool.striped;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.ejb3.logging.EjbLogger;
+import org.jboss.as.ejb3.pool.StatelessObjectFactory;
+import org.jboss.as.ejb3.pool.common.MockBean;
+import org.jboss.as.ejb3.pool.common.MockFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Verifies that {@link StripedMaxPool} honours the same {@link org.jboss.as.ejb3.pool.Pool} contract as
+ * {@link org.jboss.as.ejb3.pool.strictmax.StrictMaxPool}.
+ */
+public class StripedMaxPoolUnitTestCase {
+
+    @Before
+    public void setUp() {
+        MockBean.reset();
+    }
+
+    @Test
+    public void testGetRelease() {
+        StatelessObjectFactory<MockBean> factory = new MockFactory();
+        StripedMaxPool<MockBean> pool = new StripedMaxPool<>(factory, 10, 1, TimeUnit.SECONDS, 4);
+        pool.start();
+
+        assertEquals(4, pool.getStripeCount());
+        assertEquals(10, pool.getAvailableCount());
+
+        MockBean[] beans = new MockBean[10];
+        for (int i = 0; i < beans.length; i++) {
+            beans[i] = pool.get();
+        }
+        assertEquals(0, pool.getAvailableCount());
+        // a single thread has to steal the permits of the other stripes
+        assertTrue(pool.getStealCount() > 0);
+
+        for (int i = 0; i < beans.length; i++) {
+            pool.release(beans[i]);
+            beans[i] = null;
+        }
+        assertEquals(10, pool.getAvailableCount());
+
+        // released instances are reused rather than created
+        for (int i = 0; i < beans.length; i++) {
+            beans[i] = pool.get();
+        }
+        for (int i = 0; i < beans.length; i++) {
+            pool.release(beans[i]);
+        }
+
+        pool.stop();
+
+        assertEquals(10, MockBean.getPostConstructs());
+        assertEquals(10, MockBean.getPreDestroys());
+    }
+
+    /**
+     * More threads than the pool size.
+     */
+    @Test
+    public void testMultiThread() throws Exception {
+        StatelessObjectFactory<MockBean> factory = new MockFactory();
+        final StripedMaxPool<MockBean> pool = new StripedMaxPool<>(factory, 10, 60, TimeUnit.SECONDS, 4);
+        pool.start();
+
+        final AtomicInteger used = new AtomicInteger(0);
+        final AtomicInteger inUse = new AtomicInteger(0);
+        final AtomicInteger maxInUse = new AtomicInteger(0);
+        final CountDownLatch in = new CountDownLatch(1);
+        final CountDownLatch ready = new CountDownLatch(10);
+
+        Callable<Void> task = new Callable<Void>() {
+            public Void call() throws Exception {
+                MockBean bean = pool.get();
+                maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                ready.countDown();
+                in.await();
+                inUse.decrementAndGet();
+                pool.release(bean);
+
+                used.incrementAndGet();
+
+                return null;
+            }
+        };
+
+        ExecutorService service = Executors.newFixedThreadPool(20);
+        List<Future<Void>> results = new ArrayList<>(20);
+        for (int i = 0; i < 20; i++) {
+            results.add(service.submit(task));
+        }
+
+        ready.await(120, TimeUnit.SECONDS);
+        in.countDown();
+
+        for (Future<Void> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        service.shutdown();
+
+        pool.stop();
+
+        assertEquals(20, used.intValue());
+        assertTrue(maxInUse.get() <= 10);
+        assertEquals(10, MockBean.getPostConstructs());
+        assertEquals(10, MockBean.getPreDestroys());
+        assertTrue(pool.getWaitCount() > 0);
+    }
+
+    @Test
+    public void testTooMany() {
+        StatelessObjectFactory<MockBean> factory = new MockFactory();
+        StripedMaxPool<MockBean> pool = new StripedMaxPool<>(factory, 10, 1, TimeUnit.SECONDS, 4);
+        pool.start();
+
+        MockBean[] beans = new MockBean[10];
+        for (int i = 0; i < beans.length; i++) {
+            beans[i] = pool.get();
+        }
+
+        try {
+            pool.get();
+            fail("should have thrown an exception");
+        } catch (Exception e) {
+            assertEquals(EjbLogger.ROOT_LOGGER.failedToAcquirePermit(1, TimeUnit.SECONDS).getMessage(), e.getMessage());
+        }
+        assertEquals(1, pool.getTimeoutCount());
+
+        for (int i = 0; i < beans.length; i++) {
+            pool.release(beans[i]);
+            beans[i] = null;
+        }
+
+        pool.stop();
+
+        assertEquals(10, MockBean.getPostConstructs());
+        assertEquals(10, MockBean.getPreDestroys());
+    }
+
+    @Test
+    public void testDiscard() {
+        StatelessObjectFactory<MockBean> factory = new MockFactory();
+        StripedMaxPool<MockBean> pool = new StripedMaxPool<>(factory, 2, 1, TimeUnit.SECONDS, 4);
+        pool.start();
+
+        // never more stripes than permits
+        assertEquals(2, pool.getStripeCount());
+
+        MockBean bean = pool.get();
+        pool.discard(bean);
+        assertEquals(2, pool.getAvailableCount());
+        assertEquals(0, pool.getCurrentSize());
+
+        pool.stop();
+
+        assertEquals(1, MockBean.getPostConstructs());
+        assertEquals(1, MockBean.getPreDestroys());
+    }
+}
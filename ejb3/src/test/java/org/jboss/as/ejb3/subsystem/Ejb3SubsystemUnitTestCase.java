@@ -128,6 +128,28 @@ public class Ejb3SubsystemUnitTestCase extends AbstractSubsystemBaseTest {
 
     }
 
+    @Test
+    public void testPoolNameConflict() throws Exception {
+        final KernelServices ks = createKernelServicesBuilder(AdditionalInitialization.MANAGEMENT).setSubsystemXml(getSubsystemXml()).build();
+        Assert.assertTrue("Subsystem boot failed!", ks.isSuccessfulBoot());
+
+        PathAddress subsystemAddress = PathAddress.pathAddress("subsystem", "ejb3");
+
+        // Strict and striped pools share their service names, so neither may reuse the name of the other
+        ModelNode addStriped = Util.createAddOperation(subsystemAddress.append("striped-max-bean-instance-pool", "slsb-strict-max-pool"));
+        addStriped.get("max-pool-size").set(10);
+        ks.executeForFailure(addStriped);
+
+        ModelNode addStrict = Util.createAddOperation(subsystemAddress.append("strict-max-bean-instance-pool", "slsb-striped-max-pool"));
+        addStrict.get("max-pool-size").set(10);
+        ks.executeForFailure(addStrict);
+
+        addStriped = Util.createAddOperation(subsystemAddress.append("striped-max-bean-instance-pool", "another-striped-max-pool"));
+        addStriped.get("max-pool-size").set(10);
+        ModelNode response = ks.executeOperation(addStriped);
+        Assert.assertEquals(response.toString(), "success", response.get("outcome").asString());
+    }
+
     private void validatePoolConfig(KernelServices ks, PathAddress pa) {
         ModelNode ra = Util.createEmptyOperation("read-attribute", pa);
         ra.get("name").set("max-pool-size");
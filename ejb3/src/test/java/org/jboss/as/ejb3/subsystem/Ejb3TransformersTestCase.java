@@ -210,7 +210,7 @@ public class Ejb3TransformersTestCase extends AbstractSubsystemBaseTest {
             config.addFailedAttribute(subsystemAddress.append(EJB3SubsystemModel.TIMER_SERVICE_PATH, PathElement.pathElement(EJB3SubsystemModel.FILE_DATA_STORE, "file-data-store-rejected")),
                     FailedOperationTransformationConfig.REJECTED_RESOURCE);
 
-            // reject the resource /subsystem=ejb3/service=timer-service/database-data-store=*
+            // reject the resource /subsystem=ejb3/service=timer-service/database-data-store=*, including the one using write-behind
             PathAddress databaseDataStore = subsystemAddress.append(EJB3SubsystemModel.TIMER_SERVICE_PATH, EJB3SubsystemModel.DATABASE_DATA_STORE_PATH);
             config.addFailedAttribute(databaseDataStore, FailedOperationTransformationConfig.REJECTED_RESOURCE);
 
@@ -234,6 +234,12 @@ public class Ejb3TransformersTestCase extends AbstractSubsystemBaseTest {
             // reject the resource /subsystem=ejb3/service=identity
             config.addFailedAttribute(subsystemAddress.append(EJB3SubsystemModel.IDENTITY_PATH), FailedOperationTransformationConfig.REJECTED_RESOURCE);
 
+            // reject the resource /subsystem=ejb3/striped-max-bean-instance-pool=striped-pool
+            config.addFailedAttribute(subsystemAddress.append(PathElement.pathElement(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL, "striped-pool")), FailedOperationTransformationConfig.REJECTED_RESOURCE);
+
+            // reject the attribute 'max-size' from resource /subsystem=ejb3/cache=simple
+            config.addFailedAttribute(subsystemAddress.append(PathElement.pathElement(EJB3SubsystemModel.CACHE, "simple")), new FailedOperationTransformationConfig.NewAttributesConfig(CacheFactoryResourceDefinition.MAX_SIZE));
+
 
             //Special handling for this test!!!!
             //Don't transform the resulting composite, instead rather transform the individual steps
@@ -257,11 +263,18 @@ public class Ejb3TransformersTestCase extends AbstractSubsystemBaseTest {
             // discard new attributes default-sfsb-passivation-disabled-cache, disable-default-ejb-permissions
             config.addFailedAttribute(subsystemAddress, chainedConfig);
 
+            // reject the attribute 'timeout-scheduler' from resource /subsystem=ejb3/service=timer-service
+            config.addFailedAttribute(subsystemAddress.append(EJB3SubsystemModel.TIMER_SERVICE_PATH), new FailedOperationTransformationConfig.NewAttributesConfig(TimerServiceResourceDefinition.TIMEOUT_SCHEDULER));
+
             // reject the attributes allow execution, refresh interval from resource /subsystem=ejb3/service=timer-service/database-data-store=*
             PathAddress databaseDataStore = subsystemAddress.append(EJB3SubsystemModel.TIMER_SERVICE_PATH, EJB3SubsystemModel.DATABASE_DATA_STORE_PATH);
             // config.addFailedAttribute(databaseDataStore, new FailedOperationTransformationConfig.NewAttributesConfig(DatabaseDataStoreResourceDefinition.ALLOW_EXECUTION, DatabaseDataStoreResourceDefinition.REFRESH_INTERVAL));
             config.addFailedAttribute(databaseDataStore, FailedOperationTransformationConfig.REJECTED_RESOURCE);
 
+            // reject the attribute 'write-behind' from resource /subsystem=ejb3/service=timer-service/database-data-store=database-data-store-write-behind
+            config.addFailedAttribute(subsystemAddress.append(EJB3SubsystemModel.TIMER_SERVICE_PATH, PathElement.pathElement(EJB3SubsystemModel.DATABASE_DATA_STORE, "database-data-store-write-behind")),
+                    new FailedOperationTransformationConfig.NewAttributesConfig(DatabaseDataStoreResourceDefinition.WRITE_BEHIND));
+
             // reject the resource /subsystem=ejb3/mdb-delivery-group=delivery-group-name
             config.addFailedAttribute(subsystemAddress.append(PathElement.pathElement(EJB3SubsystemModel.MDB_DELIVERY_GROUP, "delivery-group-name")), FailedOperationTransformationConfig.REJECTED_RESOURCE);
 
@@ -281,6 +294,12 @@ public class Ejb3TransformersTestCase extends AbstractSubsystemBaseTest {
 
             // reject the resource /subsystem=ejb3/service=identity
             config.addFailedAttribute(subsystemAddress.append(EJB3SubsystemModel.IDENTITY_PATH), FailedOperationTransformationConfig.REJECTED_RESOURCE);
+
+            // reject the resource /subsystem=ejb3/striped-max-bean-instance-pool=striped-pool
+            config.addFailedAttribute(subsystemAddress.append(PathElement.pathElement(EJB3SubsystemModel.STRIPED_MAX_BEAN_INSTANCE_POOL, "striped-pool")), FailedOperationTransformationConfig.REJECTED_RESOURCE);
+
+            // reject the attribute 'max-size' from resource /subsystem=ejb3/cache=simple
+            config.addFailedAttribute(subsystemAddress.append(PathElement.pathElement(EJB3SubsystemModel.CACHE, "simple")), new FailedOperationTransformationConfig.NewAttributesConfig(CacheFactoryResourceDefinition.MAX_SIZE));
         }
 
         return config;
@@ -21,6 +21,12 @@
  */
 package org.jboss.as.ejb3.timer.schedule;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -31,6 +37,7 @@ import java.util.TimeZone;
 import javax.ejb.ScheduleExpression;
 
 import org.jboss.as.ejb3.timerservice.schedule.CalendarBasedTimeout;
+import org.jboss.as.ejb3.timerservice.schedule.CompiledScheduleExpression;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -678,6 +685,76 @@ public class CalendarBasedTimeoutTestCase {
         Assert.assertEquals(0, firstTimeout.get(Calendar.SECOND));
     }
 
+    /**
+     * A day-of-week restricted schedule must still match the day of week after rolling over into the next matching month.
+     * Uses expression dayOfWeek=Sat-Sun month=Nov-Feb, starting after the last weekend of February 2019.
+     * Expected next timeout is SAT 2019-11-02 0:00:00
+     */
+    @Test
+    public void testDayOfWeekAfterMonthRollover() {
+        TimeZone timeZone = TimeZone.getTimeZone("UTC");
+        ScheduleExpression expression = new ScheduleExpression().dayOfWeek("Sat-Sun").month("Nov-Feb").hour("0").minute("0").second("0").timezone("UTC");
+        CalendarBasedTimeout calendarTimeout = new CalendarBasedTimeout(expression);
+
+        Calendar current = new GregorianCalendar(timeZone);
+        current.clear();
+        current.set(2019, Calendar.FEBRUARY, 26, 6, 21, 41);
+        Calendar nextTimeout = calendarTimeout.getNextTimeout(current);
+        Assert.assertNotNull(nextTimeout);
+        Assert.assertEquals(2019, nextTimeout.get(Calendar.YEAR));
+        Assert.assertEquals(Calendar.NOVEMBER, nextTimeout.get(Calendar.MONTH));
+        Assert.assertEquals(2, nextTimeout.get(Calendar.DAY_OF_MONTH));
+        Assert.assertEquals(Calendar.SATURDAY, nextTimeout.get(Calendar.DAY_OF_WEEK));
+        Assert.assertEquals(0, nextTimeout.get(Calendar.HOUR_OF_DAY));
+    }
+
+    /**
+     * Timeouts created from the same expression share its compiled form, whatever their start and end dates.
+     */
+    @Test
+    public void testCompiledExpressionIsShared() {
+        ScheduleExpression expression = new ScheduleExpression().dayOfWeek("Mon-Fri").hour("8").minute("15");
+        ScheduleExpression otherStart = new ScheduleExpression().dayOfWeek("Mon-Fri").hour("8").minute("15").start(new Date());
+        Assert.assertSame(CompiledScheduleExpression.compile(expression), CompiledScheduleExpression.compile(otherStart));
+        Assert.assertNotSame(CompiledScheduleExpression.compile(expression), CompiledScheduleExpression.compile(expression.timezone("UTC")));
+    }
+
+    /**
+     * The offsets cached between the transitions of a timezone must give the same timeouts as {@code java.time}, also
+     * for local times in a gap or occurring twice. Timeouts are computed every 20 minutes over two years, so that both
+     * the cached and the recomputed offsets are used.
+     */
+    @Test
+    public void testTimeoutsAroundTransitions() {
+        for (String id : new String[] { "Europe/Paris", "America/Sao_Paulo", "Australia/Lord_Howe" }) {
+            final ZoneId zone = ZoneId.of(id);
+            final CompiledScheduleExpression compiled = CompiledScheduleExpression.compile(new ScheduleExpression()
+                    .hour("2").minute("0, 30").second("0").timezone(id));
+            final long end = ZonedDateTime.of(2021, 1, 1, 0, 0, 0, 0, zone).toEpochSecond();
+            for (long from = ZonedDateTime.of(2019, 1, 1, 0, 0, 0, 0, zone).toEpochSecond(); from < end; from += 1200) {
+                Assert.assertEquals(id + " from " + Instant.ofEpochSecond(from), expectedTimeout(zone, from) * 1000L,
+                        compiled.getNextTimeout(from * 1000L));
+            }
+        }
+    }
+
+    private static long expectedTimeout(ZoneId zone, long from) {
+        // the local times are walked from the local time of the passed time
+        final LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochSecond(from), zone);
+        for (LocalDate day = local.toLocalDate(); ; day = day.plusDays(1)) {
+            for (int minute : new int[] { 0, 30 }) {
+                final LocalDateTime candidate = LocalDateTime.of(day, LocalTime.of(2, minute));
+                if (candidate.isBefore(local)) {
+                    continue;
+                }
+                final long timeout = ZonedDateTime.of(candidate, zone).withLaterOffsetAtOverlap().toEpochSecond();
+                if (timeout >= from) {
+                    return timeout;
+                }
+            }
+        }
+    }
+
     private ScheduleExpression getTimezoneSpecificScheduleExpression() {
         ScheduleExpression scheduleExpression = new ScheduleExpression().timezone(this.timezone.getID());
         GregorianCalendar start = new GregorianCalendar(this.timezone);
@@ -0,0 +1,362 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.UUID;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.jboss.as.ejb3.timerservice.TimerImpl;
+import org.jboss.as.ejb3.timerservice.TimerServiceImpl;
+import org.jboss.as.ejb3.timerservice.TimerState;
+import org.jboss.as.ejb3.timerservice.persistence.TimerPersistence;
+import org.jboss.as.ejb3.timerservice.spi.TimedObjectInvoker;
+import org.jboss.as.naming.ImmediateManagedReferenceFactory;
+import org.jboss.modules.Module;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the write behind batches and the refresh of {@link DatabaseTimerPersistence} against an in-memory H2 database.
+ */
+public class DatabaseTimerPersistenceTestCase {
+
+    private static final String TIMED_OBJECT_ID = "timed-object";
+
+    private JdbcDataSource dataSource;
+    private Connection connection;
+    private TimerServiceImpl timerService;
+    private TestTransactionSynchronizationRegistry transactions;
+    private final List<DatabaseTimerPersistence> started = new ArrayList<>();
+    private final Map<DatabaseTimerPersistence, ScheduleCapturingTimer> timers = new HashMap<>();
+
+    @Before
+    public void setUp() throws SQLException {
+        this.dataSource = new JdbcDataSource();
+        this.dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        // keeps the in-memory database open until the test is done
+        this.connection = this.dataSource.getConnection();
+        TimedObjectInvoker invoker = mock(TimedObjectInvoker.class);
+        when(invoker.getTimedObjectId()).thenReturn(TIMED_OBJECT_ID);
+        this.timerService = mock(TimerServiceImpl.class);
+        when(this.timerService.getInvoker()).thenReturn(invoker);
+        this.transactions = new TestTransactionSynchronizationRegistry();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        for (DatabaseTimerPersistence persistence : this.started) {
+            persistence.stop(null);
+        }
+        for (Timer timer : this.timers.values()) {
+            timer.cancel();
+        }
+        try (Statement statement = this.connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        this.connection.close();
+    }
+
+    @Test
+    public void writeBehindCreateAndCancel() throws SQLException {
+        DatabaseTimerPersistence persistence = this.start("node1", true);
+        TimerImpl existing = this.timer("existing");
+        // written immediately outside of a transaction
+        persistence.addTimer(existing);
+        assertEquals(Collections.singleton("existing"), this.rows());
+
+        this.transactions.begin();
+        TimerImpl created = this.timer("created");
+        persistence.addTimer(created);
+        TimerImpl cancelled = this.timer("cancelled");
+        persistence.addTimer(cancelled);
+        cancelled.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(cancelled);
+        existing.setTimerState(TimerState.IN_TIMEOUT);
+        persistence.persistTimer(existing);
+        existing.setTimerState(TimerState.CANCELED);
+        persistence.persistTimer(existing);
+        // nothing is written before the transaction completes
+        assertEquals(Collections.singleton("existing"), this.rows());
+
+        this.transactions.commit();
+        // the timer created and cancelled within the transaction is never written, the last change of a timer wins
+        assertEquals(Collections.singleton("created"), this.rows());
+    }
+
+    @Test
+    public void writeBehindRollback() throws SQLException {
+        DatabaseTimerPersistence persistence = this.start("node1", true);
+        this.transactions.begin();
+        persistence.addTimer(this.timer("created"));
+        this.transactions.rollback();
+        assertEquals(Collections.emptySet(), this.rows());
+    }
+
+    @Test
+    public void writeBehindDiscardOnStop() throws SQLException {
+        DatabaseTimerPersistence persistence = this.start("node1", true);
+        this.transactions.begin();
+        persistence.addTimer(this.timer("created"));
+        assertEquals(Collections.emptySet(), this.rows());
+
+        this.started.remove(persistence);
+        persistence.stop(null);
+        // nothing is written outside of the transaction
+        assertEquals(Collections.emptySet(), this.rows());
+
+        // the transaction fails, since its changes were discarded
+        try {
+            this.transactions.commit();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(Collections.emptySet(), this.rows());
+    }
+
+    @Test
+    public void refreshPicksUpChanges() {
+        DatabaseTimerPersistence persistence = this.start("node1", false);
+        DatabaseTimerPersistence other = this.start("node2", false);
+        RecordingListener listener = new RecordingListener();
+        persistence.registerChangeListener(TIMED_OBJECT_ID, listener);
+
+        persistence.addTimer(this.timer("local"));
+        TimerImpl remote = this.timer("remote");
+        other.addTimer(remote);
+        this.refresh(persistence);
+        // timers created by this node are already known
+        assertEquals(Collections.singletonList("remote"), listener.added);
+        assertEquals(Collections.emptyList(), listener.removed);
+
+        // unchanged rows are not reported again
+        this.refresh(persistence);
+        assertEquals(1, listener.added.size());
+        assertEquals(Collections.emptyList(), listener.removed);
+
+        remote.setTimerState(TimerState.CANCELED);
+        other.persistTimer(remote);
+        this.refresh(persistence);
+        assertEquals(1, listener.added.size());
+        assertEquals(Collections.singletonList("remote"), listener.removed);
+    }
+
+    @Test
+    public void refreshLoadsInBatches() {
+        DatabaseTimerPersistence persistence = this.start("node1", false);
+        DatabaseTimerPersistence other = this.start("node2", false);
+        RecordingListener listener = new RecordingListener();
+        persistence.registerChangeListener(TIMED_OBJECT_ID, listener);
+
+        // one more than fits in a single query
+        for (int i = 0; i < 101; i++) {
+            other.addTimer(this.timer("timer-" + i));
+        }
+        this.refresh(persistence);
+        assertEquals(101, listener.added.size());
+        assertEquals(101, new HashSet<>(listener.added).size());
+
+        // spans three queries, but only the new timers are loaded
+        for (int i = 101; i < 301; i++) {
+            other.addTimer(this.timer("timer-" + i));
+        }
+        this.refresh(persistence);
+        assertEquals(301, listener.added.size());
+        assertEquals(301, new HashSet<>(listener.added).size());
+        assertTrue(listener.removed.isEmpty());
+    }
+
+    private DatabaseTimerPersistence start(String nodeName, boolean writeBehind) {
+        DatabaseTimerPersistence persistence = new DatabaseTimerPersistence(null, "partition", nodeName, 60000, true, writeBehind);
+        persistence.getDataSourceInjectedValue().inject(new ImmediateManagedReferenceFactory(this.dataSource));
+        persistence.getModuleLoader().inject(Module.getBootModuleLoader());
+        ScheduleCapturingTimer timer = new ScheduleCapturingTimer();
+        this.timers.put(persistence, timer);
+        persistence.getTimerInjectedValue().inject(timer);
+        persistence.getTransactionSynchronizationRegistry().inject(this.transactions);
+        try {
+            persistence.start(null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        this.started.add(persistence);
+        persistence.loadActiveTimers(TIMED_OBJECT_ID, this.timerService);
+        return persistence;
+    }
+
+    private void refresh(DatabaseTimerPersistence persistence) {
+        this.timers.get(persistence).task.run();
+    }
+
+    private TimerImpl timer(String id) {
+        return TimerImpl.builder()
+                .setId(id)
+                .setTimedObjectId(TIMED_OBJECT_ID)
+                .setInitialDate(new Date(System.currentTimeMillis() + 3600000L))
+                .setRepeatInterval(0L)
+                .setTimerState(TimerState.ACTIVE)
+                .setPersistent(true)
+                .build(this.timerService);
+    }
+
+    private Set<String> rows() throws SQLException {
+        Set<String> ids = new HashSet<>();
+        try (Statement statement = this.connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT ID FROM JBOSS_EJB_TIMER")) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Keeps the refresh task rather than scheduling it, so that tests can run it on demand.
+     */
+    private static class ScheduleCapturingTimer extends Timer {
+        TimerTask task;
+
+        @Override
+        public void schedule(TimerTask task, long delay, long period) {
+            this.task = task;
+        }
+    }
+
+    private class RecordingListener implements TimerPersistence.TimerChangeListener {
+        final List<String> added = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+
+        @Override
+        public void timerAdded(TimerImpl timer) {
+            this.added.add(timer.getId());
+        }
+
+        @Override
+        public void timerRemoved(String timerId) {
+            this.removed.add(timerId);
+        }
+
+        @Override
+        public TimerServiceImpl getTimerService() {
+            return DatabaseTimerPersistenceTestCase.this.timerService;
+        }
+    }
+
+    /**
+     * A registry for a single transaction at a time, which is completed by the test.
+     */
+    private static class TestTransactionSynchronizationRegistry implements TransactionSynchronizationRegistry {
+        private final Map<Object, Object> resources = new HashMap<>();
+        private final List<Synchronization> synchronizations = new ArrayList<>();
+        private Object key;
+        private boolean rollbackOnly;
+
+        void begin() {
+            this.key = new Object();
+            this.rollbackOnly = false;
+        }
+
+        void commit() {
+            try {
+                for (Synchronization synchronization : this.synchronizations) {
+                    synchronization.beforeCompletion();
+                }
+            } catch (RuntimeException e) {
+                this.complete(Status.STATUS_ROLLEDBACK);
+                throw e;
+            }
+            this.complete(Status.STATUS_COMMITTED);
+        }
+
+        void rollback() {
+            this.complete(Status.STATUS_ROLLEDBACK);
+        }
+
+        private void complete(int status) {
+            this.key = null;
+            for (Synchronization synchronization : this.synchronizations) {
+                synchronization.afterCompletion(status);
+            }
+            this.synchronizations.clear();
+            this.resources.clear();
+        }
+
+        @Override
+        public Object getTransactionKey() {
+            return this.key;
+        }
+
+        @Override
+        public void putResource(Object key, Object value) {
+            this.resources.put(key, value);
+        }
+
+        @Override
+        public Object getResource(Object key) {
+            return this.resources.get(key);
+        }
+
+        @Override
+        public void registerInterposedSynchronization(Synchronization synchronization) {
+            this.synchronizations.add(synchronization);
+        }
+
+        @Override
+        public int getTransactionStatus() {
+            return (this.key == null) ? Status.STATUS_NO_TRANSACTION : Status.STATUS_ACTIVE;
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            this.rollbackOnly = true;
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return this.rollbackOnly;
+        }
+    }
+}
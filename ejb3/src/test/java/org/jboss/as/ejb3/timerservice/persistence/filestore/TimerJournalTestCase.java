@@ -0,0 +1,196 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.persistence.filestore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TimerJournal}.
+ */
+public class TimerJournalTestCase {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = File.createTempFile("timer-journal", "");
+        assertTrue(this.directory.delete());
+        assertTrue(this.directory.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : this.directory.listFiles()) {
+            file.delete();
+        }
+        this.directory.delete();
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            journal.replay();
+            journal.put(record("timer-1", 1));
+            journal.put(record("timer-2", 2));
+            journal.put(record("timer-1", 3));
+            journal.delete("timer-2");
+        }
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(2, timers.size());
+            assertArrayEquals(record("timer-1", 3), bytes(timers.get("timer-1")));
+            assertTrue(timers.containsKey("timer-2"));
+            assertNull(timers.get("timer-2"));
+            assertEquals(4, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    public void testSegmentRolling() throws IOException {
+        try (TimerJournal journal = new TimerJournal(this.directory, 64)) {
+            journal.replay();
+            for (int i = 0; i < 10; i++) {
+                journal.put(record("timer-" + i, i));
+            }
+        }
+        assertTrue(segments().length > 1);
+        try (TimerJournal journal = new TimerJournal(this.directory, 64)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(10, timers.size());
+            for (int i = 0; i < 10; i++) {
+                assertArrayEquals(record("timer-" + i, i), bytes(timers.get("timer-" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        try (TimerJournal journal = new TimerJournal(this.directory, 64)) {
+            journal.replay();
+            for (int i = 0; i < 10; i++) {
+                journal.put(record("timer-" + i, i));
+                journal.delete("timer-" + i);
+            }
+            journal.put(record("timer-live", 42));
+            journal.compact(Arrays.asList(record("timer-live", 42)));
+            assertEquals(1, journal.getRecordCount());
+            assertEquals(1, segments().length);
+            // appends continue after the compacted segment
+            journal.put(record("timer-new", 7));
+        }
+        try (TimerJournal journal = new TimerJournal(this.directory, 64)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(2, timers.size());
+            assertArrayEquals(record("timer-live", 42), bytes(timers.get("timer-live")));
+            assertArrayEquals(record("timer-new", 7), bytes(timers.get("timer-new")));
+        }
+    }
+
+    @Test
+    public void testUndeletedSegmentAfterCompaction() throws IOException {
+        final File survivor = new File(this.directory, "survivor");
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            journal.replay();
+            journal.put(record("timer-1", 1));
+            journal.put(record("timer-2", 2));
+            journal.close();
+            final File segment = segments()[0];
+            Files.copy(segment.toPath(), survivor.toPath());
+            journal.delete("timer-1");
+            journal.compact(Arrays.asList(record("timer-2", 2)));
+            // simulate a segment whose deletion failed during compaction
+            Files.move(survivor.toPath(), segment.toPath());
+            assertEquals(2, segments().length);
+        }
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(1, timers.size());
+            assertFalse(timers.containsKey("timer-1"));
+            assertArrayEquals(record("timer-2", 2), bytes(timers.get("timer-2")));
+            assertEquals(1, journal.getRecordCount());
+        }
+        // the superseded segment is deleted by the replay
+        assertEquals(1, segments().length);
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            journal.replay();
+            journal.put(record("timer-1", 1));
+            journal.put(record("timer-2", 2));
+        }
+        final File segment = segments()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(1, timers.size());
+            assertArrayEquals(record("timer-1", 1), bytes(timers.get("timer-1")));
+            journal.put(record("timer-3", 3));
+        }
+        assertEquals(2, segments().length);
+        try (TimerJournal journal = new TimerJournal(this.directory)) {
+            final Map<String, ByteBuffer> timers = journal.replay();
+            assertEquals(2, timers.size());
+            assertArrayEquals(record("timer-3", 3), bytes(timers.get("timer-3")));
+        }
+    }
+
+    private File[] segments() {
+        return this.directory.listFiles((dir, name) -> name.endsWith(TimerJournal.SEGMENT_SUFFIX));
+    }
+
+    private static byte[] record(String id, long value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(id);
+        out.writeLong(value);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.timerservice.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TimingWheelScheduler}.
+ */
+public class TimingWheelSchedulerTestCase {
+
+    private TimingWheelScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        // small ticks, so that the higher levels of the wheel are exercised quickly
+        this.scheduler = new TimingWheelScheduler("test-wheel", 10, TimeUnit.MICROSECONDS);
+        this.scheduler.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.scheduler.stop();
+    }
+
+    @Test
+    public void testSingleAction() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        this.scheduler.schedule(latch::countDown, 50);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertEquals(1, this.scheduler.getFiredTimeouts());
+    }
+
+    @Test
+    public void testCascade() throws InterruptedException {
+        // 300ms and 1s are held in the second and third level of the wheel respectively
+        final CountDownLatch latch = new CountDownLatch(2);
+        final long start = System.nanoTime();
+        this.scheduler.schedule(latch::countDown, 300);
+        this.scheduler.schedule(latch::countDown, 1000);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 1000);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger fired = new AtomicInteger();
+        final ScheduledTimeout timeout = this.scheduler.schedule(fired::incrementAndGet, 100);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.scheduler.schedule(latch::countDown, 200);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(5);
+        final ScheduledTimeout timeout = this.scheduler.scheduleAtFixedRate(latch::countDown, 0, 20);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(timeout.cancel());
+        final long fired = this.scheduler.getFiredTimeouts();
+        Thread.sleep(100);
+        assertEquals(fired, this.scheduler.getFiredTimeouts());
+    }
+
+    @Test
+    public void testFixedRateCancelledWithinBatch() throws InterruptedException {
+        // coarse ticks, so that both timeouts expire within the same tick
+        final TimingWheelScheduler scheduler = new TimingWheelScheduler("test-coarse-wheel", 100, TimeUnit.MILLISECONDS);
+        scheduler.start();
+        try {
+            final AtomicInteger fired = new AtomicInteger();
+            final ScheduledTimeout timeout = scheduler.scheduleAtFixedRate(fired::incrementAndGet, 50, 1000);
+            final CountDownLatch latch = new CountDownLatch(1);
+            // fired first, as it was placed last
+            scheduler.schedule(() -> {
+                timeout.cancel();
+                latch.countDown();
+            }, 50);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(0, fired.get());
+            assertEquals(1, scheduler.getFiredTimeouts());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testFailingTask() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.scheduler.schedule(() -> {
+            throw new IllegalStateException();
+        }, 0);
+        this.scheduler.schedule(latch::countDown, 10);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
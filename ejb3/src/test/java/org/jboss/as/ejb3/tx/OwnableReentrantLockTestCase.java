@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.ejb3.tx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link OwnableReentrantLock}.
+ */
+public class OwnableReentrantLockTestCase {
+
+    @Test
+    public void testReentrancyByOwner() throws Exception {
+        LockStatistics statistics = new LockStatistics();
+        OwnableReentrantLock lock = new OwnableReentrantLock(statistics);
+        Object owner = new Object();
+        lock.lock(owner);
+        assertTrue(lock.tryLock(0, TimeUnit.MILLISECONDS, owner));
+
+        // Same owner from another thread, e.g. a transaction spanning threads, must not wait
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(executor.submit(() -> lock.tryLock(0, TimeUnit.MILLISECONDS, owner)).get());
+            lock.unlock(owner);
+            lock.unlock(owner);
+            // Another owner must wait until the last unlock
+            assertFalse(executor.submit(() -> lock.tryLock(10, TimeUnit.MILLISECONDS, new Object())).get());
+            lock.unlock(owner);
+            assertTrue(executor.submit(() -> lock.tryLock(0, TimeUnit.MILLISECONDS, new Object())).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, statistics.getWaitCount());
+        assertEquals(1, statistics.getTimeoutCount());
+        assertTrue(lock.toString().contains("Locked by"));
+    }
+
+    @Test
+    public void testUnlockByNonOwner() {
+        OwnableReentrantLock lock = new OwnableReentrantLock();
+        Object owner = new Object();
+        lock.lock(owner);
+        try {
+            lock.unlock(new Object());
+            fail("Expected IllegalMonitorStateException");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+        lock.unlock(owner);
+        try {
+            lock.unlock(owner);
+            fail("Expected IllegalMonitorStateException");
+        } catch (IllegalMonitorStateException expected) {
+            // expected
+        }
+        assertTrue(lock.toString().endsWith("[Unlocked]"));
+    }
+
+    @Test
+    public void testFairHandOff() throws Exception {
+        LockStatistics statistics = new LockStatistics();
+        OwnableReentrantLock lock = new OwnableReentrantLock(statistics);
+        Object owner = new Object();
+        lock.lock(owner);
+
+        int waiters = 5;
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(waiters);
+        try {
+            Future<?>[] futures = new Future<?>[waiters];
+            for (int i = 0; i < waiters; i++) {
+                final int index = i;
+                final CountDownLatch started = new CountDownLatch(1);
+                futures[i] = executor.submit(() -> {
+                    Object waiter = new Object();
+                    started.countDown();
+                    lock.lock(waiter);
+                    order.add(index);
+                    lock.unlock(waiter);
+                });
+                started.await();
+                // Make sure each waiter is queued before submitting the next
+                while (lock.getQueueLength() <= i) {
+                    Thread.sleep(1);
+                }
+            }
+            Thread.sleep(20);
+            lock.unlock(owner);
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (int i = 0; i < waiters; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertEquals(waiters, statistics.getWaitCount());
+        assertEquals(0, statistics.getTimeoutCount());
+        assertTrue(statistics.getMaxWaitTime() >= 20);
+        assertTrue(statistics.getWaitTime() >= statistics.getMaxWaitTime());
+    }
+
+    @Test
+    public void testMutualExclusion() throws Exception {
+        OwnableReentrantLock lock = new OwnableReentrantLock();
+        int threads = 8;
+        int iterations = 10000;
+        int[] counter = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        Object owner = new Object();
+                        lock.lock(owner);
+                        try {
+                            // reenter to exercise the hold count under contention
+                            lock.lock(owner);
+                            counter[0]++;
+                            lock.unlock(owner);
+                        } finally {
+                            lock.unlock(owner);
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * iterations, counter[0]);
+        assertTrue(lock.toString().endsWith("[Unlocked]"));
+    }
+}
@@ -23,8 +23,9 @@ package org.wildfly.iiop.openjdk.rmi.marshal;
 
 import java.io.Externalizable;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 import javax.rmi.CORBA.Util;
 import javax.rmi.PortableRemoteObject;
@@ -256,8 +257,46 @@ public class CDRStream {
 
     /**
      * Returns the <code>CDRStreamReader</code> for a given <code>Class</code>.
+     * The reader is computed once per class and cached afterwards.
      */
     public static CDRStreamReader readerFor(Class clz) {
+        return READERS.get(clz);
+    }
+
+    /**
+     * Returns the <code>CDRStreamWriter</code> for a given <code>Class</code>.
+     * The writer is computed once per class and cached afterwards.
+     */
+    public static CDRStreamWriter writerFor(Class clz) {
+        return WRITERS.get(clz);
+    }
+
+    // Private -----------------------------------------------------------------
+
+    /**
+     * Caches the readers per class, so that the class is only inspected
+     * (which involves reflection over all its methods for remote and
+     * abstract interfaces) the first time it is seen. Entries do not prevent
+     * class unloading.
+     */
+    private static final ClassValue<CDRStreamReader> READERS = new ClassValue<CDRStreamReader>() {
+        @Override
+        protected CDRStreamReader computeValue(Class<?> clz) {
+            return createReader(clz);
+        }
+    };
+
+    /**
+     * Caches the writers per class, see {@link #READERS}.
+     */
+    private static final ClassValue<CDRStreamWriter> WRITERS = new ClassValue<CDRStreamWriter>() {
+        @Override
+        protected CDRStreamWriter computeValue(Class<?> clz) {
+            return createWriter(clz);
+        }
+    };
+
+    private static CDRStreamReader createReader(Class clz) {
         if (clz == Boolean.TYPE) {
             return BooleanReader.instance;
         } else if (clz == Byte.TYPE) {
@@ -301,10 +340,7 @@ public class CDRStream {
         }
     }
 
-    /**
-     * Returns the <code>CDRStreamWriter</code> for a given <code>Class</code>.
-     */
-    public static CDRStreamWriter writerFor(Class clz) {
+    private static CDRStreamWriter createWriter(Class clz) {
         if (clz == Boolean.TYPE) {
             return BooleanWriter.instance;
         } else if (clz == Byte.TYPE) {
@@ -348,8 +384,6 @@ public class CDRStream {
         }
     }
 
-    // Private -----------------------------------------------------------------
-
     // Static inner classes (all of them private) ------------------------------
 
     /**
@@ -364,7 +398,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Boolean(in.read_boolean());
+            return Boolean.valueOf(in.read_boolean());
         }
     }
 
@@ -380,7 +414,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Byte(in.read_octet());
+            return Byte.valueOf(in.read_octet());
         }
     }
 
@@ -396,7 +430,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Character(in.read_wchar());
+            return Character.valueOf(in.read_wchar());
         }
     }
 
@@ -412,7 +446,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Double(in.read_double());
+            return Double.valueOf(in.read_double());
         }
     }
 
@@ -428,7 +462,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Float(in.read_float());
+            return Float.valueOf(in.read_float());
         }
     }
 
@@ -444,7 +478,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Integer(in.read_long());
+            return Integer.valueOf(in.read_long());
         }
     }
 
@@ -460,7 +494,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Long(in.read_longlong());
+            return Long.valueOf(in.read_longlong());
         }
     }
 
@@ -476,7 +510,7 @@ public class CDRStream {
         }
 
         public Object read(InputStream in) {
-            return new Short(in.read_short());
+            return Short.valueOf(in.read_short());
         }
     }
 
@@ -592,8 +626,9 @@ public class CDRStream {
             implements CDRStreamReader {
         private static Class[] paramTypes = {org.omg.CORBA.portable.InputStream.class};
 
-        // The readMethod for this IdlInterfaceReader.
-        private Method readMethod = null;
+        // The read method of the helper class for this IdlInterfaceReader,
+        // as a method handle to avoid reflective dispatch per invocation.
+        private final MethodHandle readMethod;
 
         IdlInterfaceReader(Class clz) {
             String helperClassName = clz.getName() + "Helper";
@@ -601,21 +636,22 @@ public class CDRStream {
             try {
                 Class helperClass =
                         clz.getClassLoader().loadClass(helperClassName);
-                readMethod = helperClass.getMethod("read", paramTypes);
+                readMethod = MethodHandles.publicLookup().unreflect(helperClass.getMethod("read", paramTypes))
+                        .asType(MethodType.methodType(Object.class, InputStream.class));
             } catch (ClassNotFoundException e) {
                 throw IIOPLogger.ROOT_LOGGER.errorLoadingClass(helperClassName, e);
             } catch (NoSuchMethodException e) {
                 throw IIOPLogger.ROOT_LOGGER.noReadMethodInHelper(helperClassName, e);
+            } catch (IllegalAccessException e) {
+                throw IIOPLogger.ROOT_LOGGER.unexpectedException(e);
             }
         }
 
         public Object read(InputStream in) {
             try {
-                return readMethod.invoke(null, new Object[]{in});
-            } catch (IllegalAccessException e) {
-                throw IIOPLogger.ROOT_LOGGER.unexpectedException(e);
-            } catch (InvocationTargetException e) {
-                throw IIOPLogger.ROOT_LOGGER.errorUnmarshaling(org.omg.CORBA.Object.class, e.getTargetException());
+                return readMethod.invokeExact(in);
+            } catch (Throwable e) {
+                throw IIOPLogger.ROOT_LOGGER.errorUnmarshaling(org.omg.CORBA.Object.class, e);
             }
         }
     }
@@ -892,8 +928,9 @@ public class CDRStream {
      */
     private static final class IdlInterfaceWriter
             implements CDRStreamWriter {
-        // The writeMethod for this IdlInterfaceReader.
-        private Method writeMethod = null;
+        // The write method of the helper class for this IdlInterfaceWriter,
+        // as a method handle to avoid reflective dispatch per invocation.
+        private final MethodHandle writeMethod;
 
         IdlInterfaceWriter(Class clz) {
             String helperClassName = clz.getName() + "Helper";
@@ -905,21 +942,22 @@ public class CDRStream {
                         org.omg.CORBA.portable.OutputStream.class,
                         clz
                 };
-                writeMethod = helperClass.getMethod("write", paramTypes);
+                writeMethod = MethodHandles.publicLookup().unreflect(helperClass.getMethod("write", paramTypes))
+                        .asType(MethodType.methodType(void.class, OutputStream.class, Object.class));
             } catch (ClassNotFoundException e) {
                 throw IIOPLogger.ROOT_LOGGER.errorLoadingClass(helperClassName, e);
             } catch (NoSuchMethodException e) {
                 throw IIOPLogger.ROOT_LOGGER.noWriteMethodInHelper(helperClassName, e);
+            } catch (IllegalAccessException e) {
+                throw IIOPLogger.ROOT_LOGGER.unexpectedException(e);
             }
         }
 
         public void write(OutputStream out, Object obj) {
             try {
-                writeMethod.invoke(null, new Object[]{out, obj});
-            } catch (IllegalAccessException e) {
-                throw IIOPLogger.ROOT_LOGGER.unexpectedException(e);
-            } catch (InvocationTargetException e) {
-                throw IIOPLogger.ROOT_LOGGER.errorMarshaling(org.omg.CORBA.Object.class, e.getTargetException());
+                writeMethod.invokeExact(out, obj);
+            } catch (Throwable e) {
+                throw IIOPLogger.ROOT_LOGGER.errorMarshaling(org.omg.CORBA.Object.class, e);
             }
         }
     }
@@ -47,6 +47,8 @@ import org.jboss.javax.rmi.RemoteObjectSubstitutionManager;
  * @version $Revision: 81018 $
  */
 public class SkeletonStrategy {
+    private static final Object[] NO_PARAMS = new Object[0];
+
     /**
      * Each <code>CDRStreamReader</code> in the array unmarshals a method
      * parameter.
@@ -119,6 +121,10 @@ public class SkeletonStrategy {
      */
     public Object[] readParams(InputStream in) {
         int len = paramReaders.length;
+        if (len == 0) {
+            // an empty array is immutable, so it can be shared between invocations
+            return NO_PARAMS;
+        }
         Object[] params = new Object[len];
         for (int i = 0; i < len; i++) {
             params[i] = paramReaders[i].read(in);
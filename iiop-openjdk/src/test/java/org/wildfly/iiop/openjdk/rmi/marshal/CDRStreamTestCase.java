@@ -0,0 +1,86 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.iiop.openjdk.rmi.marshal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Properties;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.omg.CORBA.ORB;
+import org.omg.CORBA_2_3.portable.InputStream;
+import org.omg.CORBA_2_3.portable.OutputStream;
+
+public class CDRStreamTestCase {
+
+    private static ORB orb;
+
+    @BeforeClass
+    public static void init() {
+        Properties properties = new Properties();
+        properties.setProperty("org.omg.CORBA.ORBClass", "com.sun.corba.se.impl.orb.ORBImpl");
+        properties.setProperty("org.omg.CORBA.ORBSingletonClass", "com.sun.corba.se.impl.orb.ORBSingleton");
+        orb = ORB.init(new String[0], properties);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        orb.destroy();
+    }
+
+    @Test
+    public void cached() {
+        for (Class<?> type : new Class<?>[] { int.class, String.class, long[].class, Object.class, java.util.HashMap.class }) {
+            assertSame(CDRStream.readerFor(type), CDRStream.readerFor(type));
+            assertSame(CDRStream.writerFor(type), CDRStream.writerFor(type));
+        }
+        assertNull(CDRStream.readerFor(void.class));
+        assertNull(CDRStream.writerFor(void.class));
+    }
+
+    @Test
+    public void roundTrip() {
+        assertEquals(Boolean.TRUE, roundTrip(boolean.class, Boolean.TRUE));
+        assertEquals(Byte.valueOf((byte) 7), roundTrip(byte.class, (byte) 7));
+        assertEquals(Character.valueOf('x'), roundTrip(char.class, 'x'));
+        assertEquals(Double.valueOf(1.5d), roundTrip(double.class, 1.5d));
+        assertEquals(Float.valueOf(2.5f), roundTrip(float.class, 2.5f));
+        assertEquals(Integer.valueOf(42), roundTrip(int.class, 42));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), roundTrip(long.class, Long.MAX_VALUE));
+        assertEquals(Short.valueOf((short) 3), roundTrip(short.class, (short) 3));
+        assertEquals("value", roundTrip(String.class, "value"));
+        assertArrayEquals(new long[] { 1L, 2L, 3L }, (long[]) roundTrip(long[].class, new long[] { 1L, 2L, 3L }));
+        // Small boxed values come from the valueOf caches
+        assertSame(Integer.valueOf(42), roundTrip(int.class, 42));
+    }
+
+    private static Object roundTrip(Class<?> type, Object value) {
+        OutputStream out = (OutputStream) orb.create_output_stream();
+        CDRStream.writerFor(type).write(out, value);
+        return CDRStream.readerFor(type).read((InputStream) out.create_input_stream());
+    }
+}
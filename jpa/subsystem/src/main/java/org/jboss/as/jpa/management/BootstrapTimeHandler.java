@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.jpa.management;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADDRESS;
+
+import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.PathAddress;
+import org.jboss.as.jpa.service.PersistenceUnitServiceImpl;
+import org.jboss.as.jpa.subsystem.PersistenceUnitRegistryImpl;
+import org.jboss.dmr.ModelNode;
+import org.jipijapa.plugin.spi.PersistenceUnitService;
+
+/**
+ * Reads the time it took to build the entity manager factory of the persistence unit the operation is addressed to.
+ * The value is undefined until the persistence unit has been started.
+ */
+public class BootstrapTimeHandler extends AbstractRuntimeOnlyHandler {
+
+    public static final BootstrapTimeHandler INSTANCE = new BootstrapTimeHandler();
+
+    private BootstrapTimeHandler() {
+    }
+
+    @Override
+    protected void executeRuntimeStep(final OperationContext context, final ModelNode operation) throws OperationFailedException {
+        // the last element of the address is the scoped persistence unit name
+        final String scopedPersistenceUnitName = PathAddress.pathAddress(operation.get(ADDRESS)).getLastElement().getValue();
+        final PersistenceUnitService persistenceUnitService = PersistenceUnitRegistryImpl.INSTANCE.getPersistenceUnitService(scopedPersistenceUnitName);
+        if (persistenceUnitService instanceof PersistenceUnitServiceImpl) {
+            final long bootstrapTime = ((PersistenceUnitServiceImpl) persistenceUnitService).getBootstrapTime();
+            if (bootstrapTime >= 0) {
+                context.getResult().set(bootstrapTime);
+            }
+        }
+        context.stepCompleted();
+    }
+}
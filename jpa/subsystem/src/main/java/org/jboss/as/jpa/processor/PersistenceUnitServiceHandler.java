@@ -49,6 +49,7 @@ import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.as.controller.PathElement;
 import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.capability.CapabilityServiceSupport;
+import org.jboss.as.controller.client.helpers.MeasurementUnit;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
 import org.jboss.as.controller.registry.Resource;
 import org.jboss.as.ee.beanvalidation.BeanValidationAttachments;
@@ -127,6 +128,7 @@ public class PersistenceUnitServiceHandler {
 
     private static final AttachmentKey<Map<String,PersistenceProviderAdaptor>> providerAdaptorMapKey = AttachmentKey.create(Map.class);
     public static final AttributeDefinition SCOPED_UNIT_NAME = new SimpleAttributeDefinitionBuilder("scoped-unit-name", ModelType.STRING, true).setStorageRuntime().build();
+    public static final AttributeDefinition BOOTSTRAP_TIME = new SimpleAttributeDefinitionBuilder("bootstrap-time", ModelType.LONG, true).setMeasurementUnit(MeasurementUnit.MILLISECONDS).setStorageRuntime().build();
     private static final String FIRST_PHASE = "__FIRST_PHASE__";
     private static final String EE_DEFAULT_DATASOURCE = "java:comp/DefaultDataSource";
 
@@ -37,6 +37,7 @@ import org.jboss.as.controller.descriptions.StandardResourceDescriptionResolver;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.Resource;
 import org.jboss.as.jpa.config.ExtendedPersistenceInheritance;
+import org.jboss.as.jpa.management.BootstrapTimeHandler;
 import org.jboss.as.jpa.management.DynamicManagementStatisticsResource;
 import org.jboss.as.jpa.management.EntityManagerFactoryLookup;
 import org.jboss.as.jpa.management.ManagementResourceDefinition;
@@ -165,10 +166,12 @@ public class JPAService implements Service<Void> {
                 ManagementResourceRegistration providerResource = deploymentSubsystemRegistration.registerSubModel(
                         new ManagementResourceDefinition(PathElement.pathElement(managementAdaptor.getIdentificationLabel()), resourceDescriptionResolver, statistics, entityManagerFactoryLookup));
                 providerResource.registerReadOnlyAttribute(PersistenceUnitServiceHandler.SCOPED_UNIT_NAME, null);
+                providerResource.registerMetric(PersistenceUnitServiceHandler.BOOTSTRAP_TIME, BootstrapTimeHandler.INSTANCE);
 
                 providerResource = subdeploymentSubsystemRegistration.registerSubModel(
                         new ManagementResourceDefinition(PathElement.pathElement(managementAdaptor.getIdentificationLabel()), resourceDescriptionResolver, statistics, entityManagerFactoryLookup));
                 providerResource.registerReadOnlyAttribute(PersistenceUnitServiceHandler.SCOPED_UNIT_NAME, null);
+                providerResource.registerMetric(PersistenceUnitServiceHandler.BOOTSTRAP_TIME, BootstrapTimeHandler.INSTANCE);
 
                 existingResourceDescriptionResolver.add(managementAdaptor.getVersion());
             }
@@ -0,0 +1,141 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.jpa.service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Bounds the number of persistence units that build their entity manager factory at the same time.
+ * <p/>
+ * Persistence unit services start asynchronously on the server executor, which is unbounded. Building the metadata
+ * of a persistence unit is CPU bound, so starting every persistence unit of a large deployment at once only makes them
+ * compete for the same cores. Tasks submitted here are queued and at most {@code concurrency} of them are handed to
+ * their executor at any point in time, across all deployments. Ordering between persistence units (datasources,
+ * phase one before phase two, persistence units that must start during the INSTALL phase) is still expressed through
+ * service dependencies, a task is only submitted once its service is allowed to start.
+ * <p/>
+ * The limit can be configured with the {@value #CONCURRENCY} system property and defaults to the number of available
+ * processors. A value of zero or less disables the limit.
+ */
+final class PersistenceUnitBootstrapLimiter {
+
+    static final String CONCURRENCY = "wildfly.jpa.bootstrap.concurrency";
+
+    static final PersistenceUnitBootstrapLimiter INSTANCE = new PersistenceUnitBootstrapLimiter(
+            Integer.parseInt(WildFlySecurityManager.getPropertyPrivileged(CONCURRENCY, Integer.toString(Runtime.getRuntime().availableProcessors()))));
+
+    private final int concurrency;
+    private final Queue<Task> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    PersistenceUnitBootstrapLimiter(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Runs the task on the given executor as soon as the number of running tasks allows it. If the executor rejects
+     * the task it is run by the calling thread.
+     *
+     * @param executor the executor to run the task on
+     * @param task the task
+     */
+    void execute(Executor executor, Runnable task) {
+        if (concurrency <= 0) {
+            submit(executor, task);
+            return;
+        }
+        pending.add(new Task(executor, task));
+        drain();
+    }
+
+    /**
+     * @return the number of tasks waiting for a slot
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of tasks currently running
+     */
+    int getRunningCount() {
+        return running.get();
+    }
+
+    private void drain() {
+        for (;;) {
+            int current = running.get();
+            if (current >= concurrency) {
+                // one of the running tasks will drain the queue once it completes
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            final Task task = pending.poll();
+            if (task == null) {
+                running.decrementAndGet();
+                // re-check, a task may have been queued while we held the slot
+                if (pending.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            submit(task.executor, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.task.run();
+                    } finally {
+                        running.decrementAndGet();
+                        drain();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void submit(Executor executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private static final class Task {
+        final Executor executor;
+        final Runnable task;
+
+        Task(Executor executor, Runnable task) {
+            this.executor = executor;
+            this.task = task;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.spi.BeanManager;
 import javax.persistence.EntityManagerFactory;
@@ -89,6 +90,7 @@ public class PersistenceUnitServiceImpl implements Service<PersistenceUnitServic
 
     private volatile EntityManagerFactory entityManagerFactory;
     private volatile ProxyBeanManager proxyBeanManager;
+    private volatile long bootstrapTime = -1L;
     private final SetupAction javaNamespaceSetup;
 
     public PersistenceUnitServiceImpl(
@@ -133,6 +135,7 @@ public class PersistenceUnitServiceImpl implements Service<PersistenceUnitServic
                                     javaNamespaceSetup.setup(Collections.<String, Object>emptyMap());
                                 }
 
+                                final long start = System.nanoTime();
                                 try {
                                     PhaseOnePersistenceUnitServiceImpl phaseOnePersistenceUnitService = phaseOnePersistenceUnitServiceInjectedValue.getOptionalValue();
                                     WritableServiceBasedNamingStore.pushOwner(deploymentUnitServiceName);
@@ -186,6 +189,8 @@ public class PersistenceUnitServiceImpl implements Service<PersistenceUnitServic
                                         }
                                         entityManagerFactory = createContainerEntityManagerFactory();
                                     }
+                                    bootstrapTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                                    ROOT_LOGGER.debugf("Persistence unit %s bootstrapped in %d ms", pu.getScopedPersistenceUnitName(), bootstrapTime);
                                     persistenceUnitRegistry.add(getScopedPersistenceUnitName(), getValue());
                                     if(wrapperBeanManagerLifeCycle != null) {
                                         beanManagerAfterDeploymentValidation.register(persistenceProviderAdaptor, wrapperBeanManagerLifeCycle);
@@ -212,9 +217,8 @@ public class PersistenceUnitServiceImpl implements Service<PersistenceUnitServic
 
         };
         try {
-            executor.execute(task);
-        } catch (RejectedExecutionException e) {
-            task.run();
+            // bound the number of entity manager factories being built concurrently
+            PersistenceUnitBootstrapLimiter.INSTANCE.execute(executor, task);
         } finally {
             context.asynchronous();
         }
@@ -288,6 +292,15 @@ public class PersistenceUnitServiceImpl implements Service<PersistenceUnitServic
         }
     }
 
+    /**
+     * Get the time it took to build the entity manager factory
+     *
+     * @return the bootstrap time in milliseconds, or -1 if the persistence unit has not been started
+     */
+    public long getBootstrapTime() {
+        return bootstrapTime;
+    }
+
     public InjectedValue<ExecutorService> getExecutorInjector() {
         return executorInjector;
     }
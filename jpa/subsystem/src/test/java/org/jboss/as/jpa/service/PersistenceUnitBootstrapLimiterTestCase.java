@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.as.jpa.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PersistenceUnitBootstrapLimiterTestCase {
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        final PersistenceUnitBootstrapLimiter limiter = new PersistenceUnitBootstrapLimiter(2);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(6);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            for (int i = 0; i < 6; i++) {
+                limiter.execute(executor, new Runnable() {
+                    @Override
+                    public void run() {
+                        int current = running.incrementAndGet();
+                        maxRunning.accumulateAndGet(current, Math::max);
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            running.decrementAndGet();
+                            done.countDown();
+                        }
+                    }
+                });
+            }
+            assertEquals(4, limiter.getPendingCount());
+            assertEquals(2, limiter.getRunningCount());
+
+            release.countDown();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertEquals(2, maxRunning.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedTaskRunsInline() {
+        final PersistenceUnitBootstrapLimiter limiter = new PersistenceUnitBootstrapLimiter(1);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            limiter.execute(task -> {
+                throw new RejectedExecutionException();
+            }, count::incrementAndGet);
+        }
+        assertEquals(3, count.get());
+        assertEquals(0, limiter.getPendingCount());
+        assertEquals(0, limiter.getRunningCount());
+    }
+
+    @Test
+    public void testUnbounded() {
+        final PersistenceUnitBootstrapLimiter limiter = new PersistenceUnitBootstrapLimiter(0);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            limiter.execute(Runnable::run, count::incrementAndGet);
+        }
+        assertEquals(3, count.get());
+        assertEquals(0, limiter.getRunningCount());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.mod_cluster;
+
+/**
+ * Request level statistics of a web container {@link org.jboss.modcluster.container.Engine} that cannot be obtained
+ * through the mod_cluster container SPI, e.g. latency distribution and worker saturation. Engines implementing this
+ * interface can be used with {@link RequestLatencyLoadMetric} and {@link WorkerQueueLoadMetric}.
+ */
+public interface EngineStatistics {
+
+    /**
+     * Returns the given quantile of the recent request latency of the most loaded context of this engine.
+     *
+     * @param quantile a value between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return the latency in milliseconds, or 0 if no requests were recently recorded
+     */
+    double getRequestLatency(double quantile);
+
+    /**
+     * @return the number of tasks currently waiting for a worker thread
+     */
+    int getWorkerQueueSize();
+}
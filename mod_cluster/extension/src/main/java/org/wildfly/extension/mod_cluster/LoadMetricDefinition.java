@@ -33,6 +33,7 @@ import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
 import org.jboss.as.controller.operations.validation.EnumValidator;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.transform.description.RejectAttributeChecker;
 import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
@@ -75,7 +76,12 @@ public class LoadMetricDefinition extends SimpleResourceDefinition {
     };
 
     static void buildTransformation(ModelVersion version, ResourceTransformationDescriptionBuilder builder) {
-        // Nothing to transform since 1.4.0
+        if (ModClusterModel.VERSION_4_1_0.requiresTransformation(version)) {
+            builder.addChildResource(PATH).getAttributeBuilder()
+                    .addRejectCheck(new RejectAttributeChecker.SimpleRejectAttributeChecker(new ModelNode(LoadMetricEnum.REQUEST_LATENCY.getType())), TYPE)
+                    .addRejectCheck(new RejectAttributeChecker.SimpleRejectAttributeChecker(new ModelNode(LoadMetricEnum.WORKER_QUEUE.getType())), TYPE)
+                    .end();
+        }
     }
 
     private LoadMetricDefinition() {
@@ -44,7 +44,9 @@ public enum LoadMetricEnum {
     RECEIVE_TRAFFIC("receive-traffic", ReceiveTrafficLoadMetric.class),
     SEND_TRAFFIC("send-traffic", SendTrafficLoadMetric.class),
     REQUEST_COUNT("requests", RequestCountLoadMetric.class),
-    BUSY_CONNECTORS("busyness", BusyConnectorsLoadMetric.class),;
+    BUSY_CONNECTORS("busyness", BusyConnectorsLoadMetric.class),
+    REQUEST_LATENCY("latency", RequestLatencyLoadMetric.class),
+    WORKER_QUEUE("worker-queue", WorkerQueueLoadMetric.class),;
 
     private final String type;
     private final Class<? extends LoadMetric> loadMetricClass;
@@ -0,0 +1,53 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.mod_cluster;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.AbstractLoadMetric;
+
+/**
+ * {@link org.jboss.modcluster.load.metric.LoadMetric} based on a quantile (by default the 99th percentile) of the
+ * recent request latency of the most loaded context. The capacity is the latency in milliseconds at which the node is
+ * considered fully loaded.
+ */
+public class RequestLatencyLoadMetric extends AbstractLoadMetric {
+
+    public static final double DEFAULT_QUANTILE = 0.99;
+
+    private volatile double quantile = DEFAULT_QUANTILE;
+
+    public double getQuantile() {
+        return this.quantile;
+    }
+
+    public void setQuantile(double quantile) {
+        if ((quantile <= 0) || (quantile > 1)) {
+            throw new IllegalArgumentException(String.valueOf(quantile));
+        }
+        this.quantile = quantile;
+    }
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        return (engine instanceof EngineStatistics) ? ((EngineStatistics) engine).getRequestLatency(this.quantile) : 0;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.mod_cluster;
+
+import org.jboss.modcluster.container.Engine;
+import org.jboss.modcluster.load.metric.impl.AbstractLoadMetric;
+
+/**
+ * {@link org.jboss.modcluster.load.metric.LoadMetric} based on the number of tasks waiting for a worker thread. Unlike
+ * the number of running requests, a non-empty queue indicates that the node is actually saturated. The capacity is
+ * the queue depth at which the node is considered fully loaded.
+ */
+public class WorkerQueueLoadMetric extends AbstractLoadMetric {
+
+    @Override
+    public double getLoad(Engine engine) throws Exception {
+        return (engine instanceof EngineStatistics) ? ((EngineStatistics) engine).getWorkerQueueSize() : 0;
+    }
+}
@@ -22,6 +22,8 @@
 
 package org.wildfly.extension.mod_cluster;
 
+import java.util.EnumSet;
+
 import org.jboss.as.controller.ModelVersion;
 import org.jboss.as.controller.PathAddress;
 import org.jboss.as.controller.capability.registry.RuntimeCapabilityRegistry;
@@ -182,12 +184,20 @@ public class ModClusterTransformersTestCase extends AbstractSubsystemTest {
      * - proxies configuration
      * - status-interval is rejected if set to value other than 10
      * - session-draining-strategy configuration
+     * - latency and worker-queue load metric types
      */
     private static FailedOperationTransformationConfig createFailedOperationConfig(ModelVersion version) {
         FailedOperationTransformationConfig config = new FailedOperationTransformationConfig();
 
         PathAddress subsystemAddress = PathAddress.pathAddress(ModClusterSubsystemResourceDefinition.PATH);
         PathAddress configurationAddress = subsystemAddress.append(ModClusterConfigResourceDefinition.PATH);
+        PathAddress loadProviderAddress = configurationAddress.append(DynamicLoadProviderDefinition.PATH);
+
+        if (ModClusterModel.VERSION_4_1_0.requiresTransformation(version)) {
+            for (LoadMetricEnum metric : EnumSet.of(LoadMetricEnum.REQUEST_LATENCY, LoadMetricEnum.WORKER_QUEUE)) {
+                config.addFailedAttribute(loadProviderAddress.append(LoadMetricDefinition.PATH.getKey(), metric.getType()), new LoadMetricTypeConfig(CommonAttributes.TYPE));
+            }
+        }
 
         if (ModClusterModel.VERSION_3_0_0.requiresTransformation(version)) {
             config.addFailedAttribute(configurationAddress, FailedOperationTransformationConfig.ChainedConfig.createBuilder(CommonAttributes.STATUS_INTERVAL, CommonAttributes.PROXIES)
@@ -207,6 +217,27 @@ public class ModClusterTransformersTestCase extends AbstractSubsystemTest {
         return config;
     }
 
+    private static class LoadMetricTypeConfig extends FailedOperationTransformationConfig.AttributesPathAddressConfig<LoadMetricTypeConfig> {
+        public LoadMetricTypeConfig(String... attributes) {
+            super(attributes);
+        }
+
+        @Override
+        protected boolean isAttributeWritable(String attributeName) {
+            return true;
+        }
+
+        @Override
+        protected boolean checkValue(String attrName, ModelNode attribute, boolean isWriteAttribute) {
+            return attribute.equals(new ModelNode(LoadMetricEnum.REQUEST_LATENCY.getType())) || attribute.equals(new ModelNode(LoadMetricEnum.WORKER_QUEUE.getType()));
+        }
+
+        @Override
+        protected ModelNode correctValue(ModelNode toResolve, boolean isWriteAttribute) {
+            return new ModelNode(LoadMetricEnum.BUSY_CONNECTORS.getType());
+        }
+    }
+
     private static class SessionDrainingStrategyConfig extends FailedOperationTransformationConfig.AttributesPathAddressConfig<SessionDrainingStrategyConfig> {
         public SessionDrainingStrategyConfig(String... attributes) {
             super(attributes);
@@ -26,6 +26,7 @@ import java.util.Set;
 
 import io.undertow.server.HandlerWrapper;
 import io.undertow.server.HttpHandler;
+import org.jboss.as.server.deployment.AttachmentKey;
 import org.jboss.as.server.deployment.Attachments;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
@@ -36,10 +37,14 @@ import org.jboss.modcluster.load.metric.impl.BusyConnectorsLoadMetric;
 import org.jboss.modcluster.load.metric.impl.ReceiveTrafficLoadMetric;
 import org.jboss.modcluster.load.metric.impl.RequestCountLoadMetric;
 import org.jboss.modcluster.load.metric.impl.SendTrafficLoadMetric;
+import org.wildfly.extension.mod_cluster.RequestLatencyLoadMetric;
 import org.wildfly.extension.undertow.deployment.UndertowAttachments;
 import org.wildfly.mod_cluster.undertow.metric.BytesReceivedHttpHandler;
 import org.wildfly.mod_cluster.undertow.metric.BytesSentHttpHandler;
+import org.wildfly.mod_cluster.undertow.metric.ContextMetrics;
+import org.wildfly.mod_cluster.undertow.metric.ContextMetricsRegistry;
 import org.wildfly.mod_cluster.undertow.metric.RequestCountHttpHandler;
+import org.wildfly.mod_cluster.undertow.metric.RequestLatencyHttpHandler;
 import org.wildfly.mod_cluster.undertow.metric.RunningRequestsHttpHandler;
 
 /**
@@ -52,7 +57,10 @@ import org.wildfly.mod_cluster.undertow.metric.RunningRequestsHttpHandler;
  * <li>{@link org.wildfly.mod_cluster.undertow.metric.RunningRequestsHttpHandler}</li>
  * <li>{@link org.wildfly.mod_cluster.undertow.metric.BytesReceivedHttpHandler}</li>
  * <li>{@link org.wildfly.mod_cluster.undertow.metric.BytesSentHttpHandler}</li>
+ * <li>{@link org.wildfly.mod_cluster.undertow.metric.RequestLatencyHttpHandler}</li>
  * </ul>
+ * If the latency metric is enabled, each deployment records its latency into its own {@link ContextMetrics}, registered
+ * for the lifetime of the deployment.
  *
  * @author Radoslav Husar
  * @version Oct 2014
@@ -60,6 +68,8 @@ import org.wildfly.mod_cluster.undertow.metric.RunningRequestsHttpHandler;
  */
 public class ModClusterUndertowDeploymentProcessor implements DeploymentUnitProcessor {
 
+    private static final AttachmentKey<ContextMetrics> CONTEXT_METRICS = AttachmentKey.create(ContextMetrics.class);
+
     private final Set<LoadMetric> enabledMetrics;
 
     public ModClusterUndertowDeploymentProcessor(Set<LoadMetric> enabledMetrics) {
@@ -113,11 +123,32 @@ public class ModClusterUndertowDeploymentProcessor implements DeploymentUnitProc
             });
         }
 
+        // Latency histogram, outer chain so that time spent waiting for a worker thread is included
+        if (isMetricEnabled(RequestLatencyLoadMetric.class)) {
+            final ContextMetrics metrics = ContextMetricsRegistry.register(getContextMetricsName(deploymentUnit));
+            deploymentUnit.putAttachment(CONTEXT_METRICS, metrics);
+            deploymentUnit.addToAttachmentList(UndertowAttachments.UNDERTOW_OUTER_HANDLER_CHAIN_WRAPPERS, new HandlerWrapper() {
+                @Override
+                public HttpHandler wrap(final HttpHandler handler) {
+                    return new RequestLatencyHttpHandler(handler, metrics);
+                }
+            });
+        }
+
     }
 
     @Override
     public void undeploy(DeploymentUnit context) {
-        // Do nothing.
+        ContextMetrics metrics = context.removeAttachment(CONTEXT_METRICS);
+        if (metrics != null) {
+            ContextMetricsRegistry.unregister(metrics);
+        }
+    }
+
+    private static String getContextMetricsName(DeploymentUnit deploymentUnit) {
+        // Qualify sub-deployments (e.g. web modules of an ear) by their parent
+        DeploymentUnit parent = deploymentUnit.getParent();
+        return (parent != null) ? parent.getName() + "/" + deploymentUnit.getName() : deploymentUnit.getName();
     }
 
     /**
@@ -23,23 +23,31 @@
 package org.wildfly.mod_cluster.undertow;
 
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.jboss.modcluster.container.Connector;
 import org.jboss.modcluster.container.Engine;
 import org.jboss.modcluster.container.Host;
 import org.jboss.modcluster.container.Server;
+import org.wildfly.extension.mod_cluster.EngineStatistics;
+import org.wildfly.extension.undertow.ListenerService;
 import org.wildfly.extension.undertow.SessionCookieConfig;
 import org.wildfly.extension.undertow.UndertowListener;
 import org.wildfly.extension.undertow.UndertowService;
+import org.wildfly.mod_cluster.undertow.metric.ContextMetricsRegistry;
+import org.xnio.XnioWorker;
 
 /**
- * Adapts {@link org.wildfly.extension.undertow.Server} to an {@link Engine}.
+ * Adapts {@link org.wildfly.extension.undertow.Server} to an {@link Engine}, also exposing the {@link EngineStatistics}
+ * used by the latency and worker queue load metrics.
  *
  * @author Radoslav Husar
  * @since 8.0
  */
-public class UndertowEngine implements Engine {
+public class UndertowEngine implements Engine, EngineStatistics {
 
     private final org.wildfly.extension.undertow.Server server;
     private final UndertowService service;
@@ -176,6 +184,36 @@ public class UndertowEngine implements Engine {
         return this.server.getDefaultHost();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return the latency quantile of the slowest context on this node
+     */
+    @Override
+    public double getRequestLatency(double quantile) {
+        return ContextMetricsRegistry.getRequestLatency(quantile);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the number of queued tasks of all distinct workers used by the listeners of this server
+     */
+    @Override
+    public int getWorkerQueueSize() {
+        Set<XnioWorker> workers = Collections.newSetFromMap(new IdentityHashMap<>());
+        int size = 0;
+        for (UndertowListener listener : this.server.getListeners()) {
+            if (listener instanceof ListenerService) {
+                XnioWorker worker = ((ListenerService) listener).getWorker().getOptionalValue();
+                if ((worker != null) && workers.add(worker)) {
+                    size += worker.getMXBean().getWorkerQueueSize();
+                }
+            }
+        }
+        return size;
+    }
+
     @Override
     public String toString() {
         return this.getName();
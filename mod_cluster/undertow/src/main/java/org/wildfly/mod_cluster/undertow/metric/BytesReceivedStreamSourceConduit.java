@@ -50,39 +50,45 @@ public class BytesReceivedStreamSourceConduit extends AbstractSourceConduit impl
     }
 
     public BytesReceivedStreamSourceConduit(StreamSourceConduit next, long alreadyReceivedBytes) {
-        super(next);
-        this.next = next;
-        bytesReceived.add(alreadyReceivedBytes);
+        this(next);
+        this.record(alreadyReceivedBytes);
     }
 
     @Override
     public long transferTo(long position, long count, FileChannel target) throws IOException {
         long bytes = next.transferTo(position, count, target);
-        bytesReceived.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
     @Override
     public long transferTo(long count, ByteBuffer throughBuffer, StreamSinkChannel target) throws IOException {
         long bytes = next.transferTo(count, throughBuffer, target);
-        bytesReceived.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
     @Override
     public int read(ByteBuffer dst) throws IOException {
         int bytes = next.read(dst);
-        bytesReceived.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
     @Override
     public long read(ByteBuffer[] dsts, int offs, int len) throws IOException {
         long bytes = next.read(dsts, offs, len);
-        bytesReceived.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
+    private void record(long bytes) {
+        // Negative values signal end of stream
+        if (bytes > 0) {
+            bytesReceived.add(bytes);
+        }
+    }
+
     public static long getBytesReceived() {
         return bytesReceived.longValue();
     }
@@ -52,7 +52,7 @@ public class BytesSentStreamSinkConduit extends AbstractSinkConduit implements S
     @Override
     public long transferFrom(FileChannel src, long position, long count) throws IOException {
         long bytes = next.transferFrom(src, position, count);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
@@ -60,7 +60,7 @@ public class BytesSentStreamSinkConduit extends AbstractSinkConduit implements S
     @Override
     public long transferFrom(StreamSourceChannel source, long count, ByteBuffer throughBuffer) throws IOException {
         long bytes = next.transferFrom(source, count, throughBuffer);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
@@ -68,7 +68,7 @@ public class BytesSentStreamSinkConduit extends AbstractSinkConduit implements S
     @Override
     public int write(ByteBuffer src) throws IOException {
         int bytes = next.write(src);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
@@ -76,24 +76,30 @@ public class BytesSentStreamSinkConduit extends AbstractSinkConduit implements S
     @Override
     public long write(ByteBuffer[] srcs, int offs, int len) throws IOException {
         long bytes = next.write(srcs, offs, len);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
     @Override
     public int writeFinal(ByteBuffer src) throws IOException {
         int bytes = next.writeFinal(src);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
     @Override
     public long writeFinal(ByteBuffer[] srcs, int offset, int length) throws IOException {
         long bytes = next.writeFinal(srcs, offset, length);
-        bytesSent.add(bytes);
+        this.record(bytes);
         return bytes;
     }
 
+    private void record(long bytes) {
+        if (bytes > 0) {
+            bytesSent.add(bytes);
+        }
+    }
+
     public static long getBytesSent() {
         return bytesSent.longValue();
     }
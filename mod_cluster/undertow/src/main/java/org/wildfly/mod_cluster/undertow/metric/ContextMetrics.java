@@ -0,0 +1,60 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.mod_cluster.undertow.metric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request metrics of a single deployment (i.e. web context), so that a slow context can be told apart from the node
+ * wide totals kept by the metric handlers. Only the latency is kept per context, as it is the only per context value
+ * read by a load metric.
+ */
+public class ContextMetrics {
+
+    /**
+     * Half-life of the latency histogram, comparable to the default mod_cluster status interval.
+     */
+    static final long LATENCY_HALF_LIFE = 10;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram(LATENCY_HALF_LIFE, TimeUnit.SECONDS);
+
+    public ContextMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return the decaying latency histogram of this context
+     */
+    public LatencyHistogram getLatency() {
+        return this.latency;
+    }
+
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
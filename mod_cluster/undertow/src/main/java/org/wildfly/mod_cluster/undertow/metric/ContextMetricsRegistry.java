@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.mod_cluster.undertow.metric;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link ContextMetrics} of all deployments on this node.
+ */
+public final class ContextMetricsRegistry {
+
+    private static final Map<String, ContextMetrics> contexts = new ConcurrentHashMap<>();
+
+    /**
+     * Registers new metrics for the given deployment, replacing the metrics of a previous deployment of the same name.
+     *
+     * @param name the deployment name
+     * @return the metrics of the deployment
+     */
+    public static ContextMetrics register(String name) {
+        ContextMetrics metrics = new ContextMetrics(name);
+        contexts.put(name, metrics);
+        return metrics;
+    }
+
+    /**
+     * Unregisters the given metrics, unless they were already replaced by the metrics of a later deployment.
+     *
+     * @param metrics the metrics returned by {@link #register(String)}
+     */
+    public static void unregister(ContextMetrics metrics) {
+        contexts.remove(metrics.getName(), metrics);
+    }
+
+    public static ContextMetrics getContextMetrics(String name) {
+        return contexts.get(name);
+    }
+
+    public static Collection<ContextMetrics> getContextMetrics() {
+        return Collections.unmodifiableCollection(contexts.values());
+    }
+
+    /**
+     * @param quantile a value between 0 and 1
+     * @return the given latency quantile, in milliseconds, of the slowest context
+     */
+    public static double getRequestLatency(double quantile) {
+        double latency = 0d;
+        for (ContextMetrics metrics : contexts.values()) {
+            latency = Math.max(latency, metrics.getLatency().getQuantile(quantile));
+        }
+        return latency;
+    }
+
+    private ContextMetricsRegistry() {
+        // Hide
+    }
+}
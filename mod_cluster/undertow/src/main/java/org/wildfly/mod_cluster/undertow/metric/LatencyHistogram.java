@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.mod_cluster.undertow.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Exponentially decaying histogram of request latencies with logarithmic (power of two) microsecond buckets.
+ * <p/>
+ * Recording is a single atomic increment. Every time a half-life elapses, all counts are halved so that quantiles and
+ * the mean reflect recent traffic rather than the whole uptime of the server; decay is applied lazily by whichever
+ * thread next records or reads.
+ */
+public class LatencyHistogram {
+
+    // bucket 0 holds latencies below 1us, bucket i holds latencies in [2^(i-1), 2^i) us, the last bucket is unbounded
+    static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final long halfLife;
+    private final AtomicLong lastDecay;
+
+    public LatencyHistogram(long halfLife, TimeUnit unit) {
+        this.halfLife = Math.max(1L, unit.toNanos(halfLife));
+        this.lastDecay = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Records the latency of a single request.
+     *
+     * @param latency the latency in nanoseconds
+     */
+    public void record(long latency) {
+        this.decay(System.nanoTime());
+        long micros = Math.max(0L, TimeUnit.NANOSECONDS.toMicros(latency));
+        this.counts.incrementAndGet(bucket(micros));
+        this.sum.addAndGet(micros);
+    }
+
+    /**
+     * @return the decayed number of recorded requests
+     */
+    public long getCount() {
+        this.decay(System.nanoTime());
+        long count = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the decayed mean latency in milliseconds, or 0 if nothing was recently recorded
+     */
+    public double getMean() {
+        long count = this.getCount();
+        return (count > 0) ? (double) this.sum.get() / count / 1000d : 0d;
+    }
+
+    /**
+     * Estimates the given quantile by linear interpolation within the matching bucket.
+     *
+     * @param quantile a value between 0 and 1
+     * @return the latency in milliseconds, or 0 if nothing was recently recorded
+     */
+    public double getQuantile(double quantile) {
+        this.decay(System.nanoTime());
+        long[] snapshot = new long[BUCKETS];
+        long total = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = this.counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0L) return 0d;
+
+        double rank = Math.max(1d, Math.ceil(quantile * total));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = snapshot[i];
+            if ((count > 0) && (cumulative + count >= rank)) {
+                long lower = (i == 0) ? 0L : 1L << (i - 1);
+                long upper = (i == BUCKETS - 1) ? lower << 1 : 1L << i;
+                double micros = lower + (upper - lower) * (rank - cumulative) / count;
+                return micros / 1000d;
+            }
+            cumulative += count;
+        }
+        return 0d;
+    }
+
+    private void decay(long now) {
+        long last = this.lastDecay.get();
+        long periods = (now - last) / this.halfLife;
+        // Only the thread that advances the decay timestamp halves the counts
+        if ((periods > 0) && this.lastDecay.compareAndSet(last, last + periods * this.halfLife)) {
+            int shift = (int) Math.min(periods, Long.SIZE - 1);
+            for (int i = 0; i < BUCKETS; i++) {
+                this.counts.getAndUpdate(i, count -> count >>> shift);
+            }
+            this.sum.getAndUpdate(value -> value >>> shift);
+        }
+    }
+
+    static int bucket(long micros) {
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+}
@@ -21,6 +21,7 @@
  */
 package org.wildfly.mod_cluster.undertow;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -29,6 +30,7 @@ import static org.mockito.Mockito.mock;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import org.jboss.modcluster.container.Connector;
 import org.jboss.modcluster.container.Engine;
@@ -36,7 +38,10 @@ import org.junit.Test;
 import org.wildfly.extension.undertow.Host;
 import org.wildfly.extension.undertow.HttpsListenerService;
 import org.wildfly.extension.undertow.Server;
+import org.wildfly.extension.mod_cluster.EngineStatistics;
 import org.wildfly.extension.undertow.UndertowService;
+import org.wildfly.mod_cluster.undertow.metric.ContextMetrics;
+import org.wildfly.mod_cluster.undertow.metric.ContextMetricsRegistry;
 import org.xnio.OptionMap;
 
 public class UndertowEngineTestCase {
@@ -66,6 +71,32 @@ public class UndertowEngineTestCase {
         assertFalse(results.hasNext());
     }
 
+    @Test
+    public void getRequestLatency() {
+        EngineStatistics statistics = (EngineStatistics) this.engine;
+        assertEquals(0d, statistics.getRequestLatency(0.99), 0d);
+
+        ContextMetrics fast = ContextMetricsRegistry.register("fast.war");
+        ContextMetrics slow = ContextMetricsRegistry.register("slow.war");
+        try {
+            fast.getLatency().record(TimeUnit.MILLISECONDS.toNanos(1));
+            slow.getLatency().record(TimeUnit.MILLISECONDS.toNanos(100));
+
+            // Slowest context wins, within the resolution of the power of two buckets
+            double latency = statistics.getRequestLatency(0.99);
+            assertTrue(String.valueOf(latency), (latency >= 65d) && (latency <= 132d));
+        } finally {
+            ContextMetricsRegistry.unregister(fast);
+            ContextMetricsRegistry.unregister(slow);
+        }
+    }
+
+    @Test
+    public void getWorkerQueueSize() {
+        // Listener has no worker injected
+        assertEquals(0, ((EngineStatistics) this.engine).getWorkerQueueSize());
+    }
+
     @Test
     public void getConnectors() {
         Iterator<org.jboss.modcluster.container.Connector> results = this.engine.getConnectors().iterator();
@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.mod_cluster.undertow.metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTestCase {
+
+    @Test
+    public void empty() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0d, histogram.getMean(), 0d);
+        assertEquals(0d, histogram.getQuantile(0.99), 0d);
+    }
+
+    @Test
+    public void bucket() {
+        assertEquals(0, LatencyHistogram.bucket(0L));
+        assertEquals(1, LatencyHistogram.bucket(1L));
+        assertEquals(2, LatencyHistogram.bucket(2L));
+        assertEquals(2, LatencyHistogram.bucket(3L));
+        assertEquals(11, LatencyHistogram.bucket(1024L));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void quantile() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.HOURS);
+        for (int i = 0; i < 990; ++i) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 10; ++i) {
+            histogram.record(TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(1000L, histogram.getCount());
+
+        // 1ms = 1000us falls into [512, 1024)
+        double median = histogram.getQuantile(0.5);
+        assertTrue(String.valueOf(median), (median >= 0.512d) && (median <= 1.024d));
+        double p99 = histogram.getQuantile(0.99);
+        assertTrue(String.valueOf(p99), (p99 >= 0.512d) && (p99 <= 1.024d));
+        // 1s = 1000000us falls into [524288, 1048576)
+        double p999 = histogram.getQuantile(0.999);
+        assertTrue(String.valueOf(p999), (p999 >= 524.288d) && (p999 <= 1048.576d));
+
+        assertEquals(10.99d, histogram.getMean(), 0.01d);
+    }
+
+    @Test
+    public void decay() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(50, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 1024; ++i) {
+            histogram.record(TimeUnit.SECONDS.toNanos(1));
+        }
+        Thread.sleep(120);
+        // At least two half-lives elapsed
+        long count = histogram.getCount();
+        assertTrue(String.valueOf(count), count <= 256L);
+
+        for (int i = 0; i < 4096; ++i) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        // Recent fast requests now dominate the older slow ones
+        double p90 = histogram.getQuantile(0.9);
+        assertTrue(String.valueOf(p90), p90 <= 1.024d);
+    }
+}
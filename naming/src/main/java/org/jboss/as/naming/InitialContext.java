@@ -230,6 +230,50 @@ public class InitialContext extends InitialLdapContext {
             };
         }
 
+        @Override
+        public Object lookup(final String name, boolean dereference) throws NamingException {
+            final Object result = lookupCached(name);
+            return (result != null) ? result : super.lookup(name, dereference);
+        }
+
+        /**
+         * Looks up a java: name through the lookup cache of its namespace context, skipping name parsing.
+         *
+         * @return the bound object, or null if the name must be parsed and looked up the regular way
+         */
+        private Object lookupCached(final String name) throws NamingException {
+            if (!name.startsWith("java:") || !isPlain(name)) {
+                return null;
+            }
+            final int slash = name.indexOf('/', 5);
+            if (slash < 0) {
+                return null;
+            }
+            final String namespace = name.substring(5, slash);
+            final String remaining = name.substring(slash + 1);
+            if (namespace.isEmpty() || remaining.isEmpty() || remaining.startsWith("java:")
+                    || (namespace.equals("jboss") && (remaining.equals("exported") || remaining.startsWith("exported/")))) {
+                return null;
+            }
+            final NamespaceContextSelector selector = NamespaceContextSelector.getCurrentSelector();
+            if (selector == null) {
+                return null;
+            }
+            final Context namespaceContext = selector.getContext(namespace);
+            // namespace lookups always dereference, see lookup(Name, boolean)
+            return (namespaceContext instanceof NamingContext) ? ((NamingContext) namespaceContext).lookupCached(remaining, true) : null;
+        }
+
+        private static boolean isPlain(final String name) {
+            for (int i = 0; i < name.length(); i++) {
+                final char c = name.charAt(i);
+                if (c == '\\' || c == '"' || c == '\'') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public Object lookup(final Name name, boolean dereference) throws NamingException {
             final ParsedName parsedName = parse(name);
             final Context namespaceContext = findContext(name, parsedName);
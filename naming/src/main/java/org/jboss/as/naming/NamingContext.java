@@ -246,6 +246,27 @@ public class NamingContext implements EventContext {
         return result;
     }
 
+    /**
+     * Looks up a name relative to this context through the lookup cache of its naming store, without parsing the name.
+     *
+     * @param name a name relative to this context, free of quotes and escapes
+     * @param dereference whether to dereference managed reference factories
+     * @return the object bound to the name, or null if the name must be looked up through {@link #lookup(Name, boolean)}
+     * @throws NamingException if the bound object cannot be retrieved
+     */
+    Object lookupCached(final String name, boolean dereference) throws NamingException {
+        if (!prefix.isEmpty() || !(namingStore instanceof ServiceBasedNamingStore)) {
+            return null;
+        }
+        if (System.getSecurityManager() != null && WildFlySecurityManager.isChecking()) {
+            // permissions are checked against the parsed name
+            return null;
+        }
+        final Object result = ((ServiceBasedNamingStore) namingStore).lookupCached(name, dereference);
+        // references and links are resolved against the parsed name
+        return (result instanceof Reference) ? null : result;
+    }
+
     /** {@inheritDoc} */
     public void bind(final Name name, final Object object) throws NamingException {
         check(name, JndiPermission.ACTION_BIND);
@@ -25,11 +25,14 @@ package org.jboss.as.naming;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 
 import javax.naming.Binding;
@@ -65,6 +68,12 @@ public class ServiceBasedNamingStore implements NamingStore {
 
     private ConcurrentSkipListSet<ServiceName> boundServices = new ConcurrentSkipListSet<ServiceName>();
 
+    /**
+     * The controllers of bound services, by their canonical name relative to this store, see {@link #cacheKey(ServiceName)}.
+     * Entries are evicted as soon as their binder service is removed from this store.
+     */
+    private final ConcurrentMap<String, ServiceController<?>> lookupCache = new ConcurrentHashMap<String, ServiceController<?>>();
+
     public ServiceBasedNamingStore(final ServiceRegistry serviceRegistry, final ServiceName serviceNameBase) {
         this.serviceRegistry = serviceRegistry;
         this.serviceNameBase = serviceNameBase;
@@ -124,30 +133,78 @@ public class ServiceBasedNamingStore implements NamingStore {
         return cpe;
     }
 
+    /**
+     * Looks up an object directly bound to this store by its raw string name, without parsing the name.
+     * The name must be relative to this store, and must not contain quotes or escapes.
+     *
+     * @param name the name, components separated by '/'
+     * @param dereference whether to dereference managed reference factories
+     * @return the bound object, or null if the name is not directly bound, in which case the caller must fall back
+     * to {@link #lookup(Name, boolean)}
+     * @throws NamingException if the bound object cannot be retrieved
+     */
+    Object lookupCached(final String name, boolean dereference) throws NamingException {
+        ServiceController<?> controller = lookupCache.get(name);
+        if (controller != null) {
+            LookupCacheStatistics.hit();
+        } else {
+            LookupCacheStatistics.miss();
+            final ServiceName lookupName = buildServiceName(name);
+            if (!boundServices.contains(lookupName)) {
+                return null;
+            }
+            controller = serviceRegistry.getService(lookupName);
+            if (controller == null) {
+                return null;
+            }
+            // only canonical names are cached, so that unbinding can evict the single entry of a service
+            if (isCanonical(name)) {
+                lookupCache.putIfAbsent(name, controller);
+                // the binder may have been removed concurrently, before the entry could be evicted
+                if (!boundServices.contains(lookupName)) {
+                    lookupCache.remove(name, controller);
+                }
+            }
+        }
+        return lookup(name, controller, dereference);
+    }
+
+    private static boolean isCanonical(final String name) {
+        return !name.isEmpty() && name.charAt(0) != '/' && name.charAt(name.length() - 1) != '/' && !name.contains("//");
+    }
+
+    /**
+     * @return the canonical name, relative to this store, under which the given bound service is cached
+     */
+    private String cacheKey(final ServiceName serviceName) {
+        final String[] parts = serviceName.toArray();
+        return String.join("/", Arrays.asList(parts).subList(serviceNameBase.toArray().length, parts.length));
+    }
+
     private Object lookup(final String name, final ServiceName lookupName, boolean dereference) throws NamingException {
+        final ServiceController<?> controller = serviceRegistry.getService(lookupName);
+        return (controller != null) ? lookup(name, controller, dereference) : null;
+    }
+
+    private Object lookup(final String name, final ServiceController<?> controller, boolean dereference) throws NamingException {
         try {
-            final ServiceController<?> controller = serviceRegistry.getService(lookupName);
-            if (controller != null) {
-                final Object object = controller.getValue();
-                if (dereference && object instanceof ManagedReferenceFactory) {
-                    if(WildFlySecurityManager.isChecking()) {
-                        //WFLY-3487 JNDI lookups should be executed in a clean access control context
-                        return AccessController.doPrivileged(new PrivilegedAction<Object>() {
-                            @Override
-                            public Object run() {
-                                final ManagedReference managedReference = ManagedReferenceFactory.class.cast(object).getReference();
-                                return managedReference != null ? managedReference.getInstance() : null;
-                            }
-                        });
-                    } else {
-                        final ManagedReference managedReference = ManagedReferenceFactory.class.cast(object).getReference();
-                        return managedReference != null ? managedReference.getInstance() : null;
-                    }
+            final Object object = controller.getValue();
+            if (dereference && object instanceof ManagedReferenceFactory) {
+                if(WildFlySecurityManager.isChecking()) {
+                    //WFLY-3487 JNDI lookups should be executed in a clean access control context
+                    return AccessController.doPrivileged(new PrivilegedAction<Object>() {
+                        @Override
+                        public Object run() {
+                            final ManagedReference managedReference = ManagedReferenceFactory.class.cast(object).getReference();
+                            return managedReference != null ? managedReference.getInstance() : null;
+                        }
+                    });
                 } else {
-                    return object;
+                    final ManagedReference managedReference = ManagedReferenceFactory.class.cast(object).getReference();
+                    return managedReference != null ? managedReference.getInstance() : null;
                 }
             } else {
-                return null;
+                return object;
             }
         } catch (IllegalStateException e) {
             NameNotFoundException n = new NameNotFoundException(name);
@@ -257,6 +314,7 @@ public class ServiceBasedNamingStore implements NamingStore {
 
     public void close() throws NamingException {
         boundServices.clear();
+        lookupCache.clear();
     }
 
     public void addNamingListener(Name target, int scope, NamingListener listener) {
@@ -275,6 +333,10 @@ public class ServiceBasedNamingStore implements NamingStore {
 
     public void remove(final ServiceName serviceName) {
         boundServices.remove(serviceName);
+        // contexts are never cached, and each binder below this service is removed by its own call
+        if (serviceNameBase.isParentOf(serviceName) && !serviceNameBase.equals(serviceName)) {
+            lookupCache.remove(cacheKey(serviceName));
+        }
     }
 
     protected ServiceName buildServiceName(final Name name) {
@@ -289,6 +351,22 @@ public class ServiceBasedNamingStore implements NamingStore {
         return current;
     }
 
+    private ServiceName buildServiceName(final String name) {
+        ServiceName current = serviceNameBase;
+        int start = 0;
+        while (start <= name.length()) {
+            int end = name.indexOf('/', start);
+            if (end < 0) {
+                end = name.length();
+            }
+            if (end > start) {
+                current = current.append(name.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return current;
+    }
+
     private Name convert(ServiceName serviceName) {
         String[] c = serviceName.toArray();
         CompositeName name = new CompositeName();
@@ -25,16 +25,21 @@ package org.jboss.as.naming.subsystem;
 import java.util.EnumSet;
 
 import org.jboss.as.controller.PathElement;
+import org.jboss.as.controller.SimpleAttributeDefinition;
+import org.jboss.as.controller.SimpleAttributeDefinitionBuilder;
 import org.jboss.as.controller.SimpleOperationDefinition;
 import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
 import org.jboss.as.controller.SimpleResourceDefinition;
 import org.jboss.as.controller.capability.RuntimeCapability;
 import org.jboss.as.controller.descriptions.ModelDescriptionConstants;
+import org.jboss.as.controller.registry.AttributeAccess;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.OperationEntry;
+import org.jboss.as.naming.LookupCacheStatistics;
 import org.jboss.as.naming.NamingStore;
 import org.jboss.as.naming.management.JndiViewOperation;
 import org.jboss.as.naming.service.NamingService;
+import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
 
 /**
@@ -65,12 +70,28 @@ public class NamingSubsystemRootResourceDefinition extends SimpleResourceDefinit
             .setReplyValueType(ModelType.STRING)
             .build();
 
+    static final SimpleAttributeDefinition LOOKUP_CACHE_HIT_COUNT = new SimpleAttributeDefinitionBuilder(NamingSubsystemModel.LOOKUP_CACHE_HIT_COUNT, ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0L))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
+    static final SimpleAttributeDefinition LOOKUP_CACHE_MISS_COUNT = new SimpleAttributeDefinitionBuilder(NamingSubsystemModel.LOOKUP_CACHE_MISS_COUNT, ModelType.LONG)
+            .setUndefinedMetricValue(new ModelNode(0L))
+            .setFlags(AttributeAccess.Flag.STORAGE_RUNTIME)
+            .build();
+
     NamingSubsystemRootResourceDefinition() {
         super(PathElement.pathElement(ModelDescriptionConstants.SUBSYSTEM, NamingExtension.SUBSYSTEM_NAME),
                 NamingExtension.getResourceDescriptionResolver(NamingExtension.SUBSYSTEM_NAME),
                 new NamingSubsystemAdd(), new NamingSubsystemRemove());
     }
 
+    @Override
+    public void registerAttributes(ManagementResourceRegistration registration) {
+        registration.registerMetric(LOOKUP_CACHE_HIT_COUNT, (context, operation) -> context.getResult().set(LookupCacheStatistics.getHitCount()));
+        registration.registerMetric(LOOKUP_CACHE_MISS_COUNT, (context, operation) -> context.getResult().set(LookupCacheStatistics.getMissCount()));
+    }
+
     @Override
     public void registerCapabilities(ManagementResourceRegistration registration) {
         EnumSet.allOf(Capability.class).stream().map(Capability::getDefinition).forEach(capability -> registration.registerCapability(capability));
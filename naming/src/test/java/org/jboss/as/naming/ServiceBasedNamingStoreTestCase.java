@@ -35,6 +35,7 @@ import javax.naming.NameParser;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 
+import org.jboss.as.naming.context.NamespaceContextSelector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceContainer;
 import org.jboss.msc.service.ServiceName;
@@ -44,6 +45,7 @@ import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.Values;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -98,6 +100,58 @@ public class ServiceBasedNamingStoreTestCase {
         assertEquals(value, obj);
     }
 
+    @Test
+    public void testLookupCached() throws Exception {
+        final ServiceName bindingName = ServiceName.JBOSS.append("foo", "bar");
+        final Object value = new Object();
+        bindObject(bindingName, value);
+
+        final long misses = LookupCacheStatistics.getMissCount();
+        assertEquals(value, store.lookupCached("foo/bar", true));
+        assertEquals(misses + 1, LookupCacheStatistics.getMissCount());
+
+        final long hits = LookupCacheStatistics.getHitCount();
+        assertEquals(value, store.lookupCached("foo/bar", true));
+        assertEquals(hits + 1, LookupCacheStatistics.getHitCount());
+
+        // contexts and unbound names are left to the regular lookup
+        assertNull(store.lookupCached("foo", true));
+        assertNull(store.lookupCached("foo/baz", true));
+
+        // names which are not canonical are resolved, but not cached
+        assertEquals(value, store.lookupCached("foo//bar", true));
+        assertEquals(value, store.lookupCached("/foo/bar/", true));
+
+        // unbinding evicts the cached entry
+        store.remove(bindingName);
+        assertNull(store.lookupCached("foo/bar", true));
+        assertNull(store.lookupCached("foo//bar", true));
+        assertNull(store.lookupCached("/foo/bar/", true));
+    }
+
+    @Test
+    public void testLookupCachedThroughInitialContext() throws Exception {
+        final Object value = new Object();
+        bindObject(ServiceName.JBOSS.append("foo", "bar"), value);
+        NamespaceContextSelector.pushCurrentSelector(new NamespaceContextSelector() {
+            @Override
+            public Context getContext(String identifier) {
+                return "comp".equals(identifier) ? new NamingContext(store, null) : null;
+            }
+        });
+        try {
+            final InitialContext context = new InitialContext(null);
+            assertEquals(value, context.lookup("java:comp/foo/bar"));
+            final long hits = LookupCacheStatistics.getHitCount();
+            assertEquals(value, context.lookup("java:comp/foo/bar"));
+            assertEquals(hits + 1, LookupCacheStatistics.getHitCount());
+            assertTrue(context.lookup("java:comp/foo") instanceof Context);
+            assertTrue(context.lookup("java:comp/foo/") instanceof Context);
+        } finally {
+            NamespaceContextSelector.popCurrentSelector();
+        }
+    }
+
     @Test
     public void testLookupParentContext() throws Exception {
         final ServiceName bindingName = ServiceName.JBOSS.append("foo", "bar");
@@ -22,11 +22,13 @@
 package org.jboss.as.security;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.jboss.as.controller.AbstractRuntimeOnlyHandler;
@@ -48,7 +50,9 @@ import org.jboss.as.controller.operations.common.Util;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
 import org.jboss.as.controller.registry.OperationEntry;
 import org.jboss.as.controller.registry.Resource;
+import org.jboss.as.controller.transform.description.RejectAttributeChecker;
 import org.jboss.as.controller.transform.description.ResourceTransformationDescriptionBuilder;
+import org.jboss.as.security.lfu.TinyLFUCache;
 import org.jboss.as.security.logging.SecurityLogger;
 import org.jboss.as.security.plugins.SecurityDomainContext;
 import org.jboss.as.security.service.SecurityDomainService;
@@ -68,12 +72,27 @@ class SecurityDomainResourceDefinition extends SimpleResourceDefinition {
 
     static final String CACHE_CONTAINER_NAME = "security";
     static final String INFINISPAN_CACHE_TYPE = "infinispan";
+    static final String TINYLFU_CACHE_TYPE = "tinylfu";
     // Private capability used for Infinispan cache-container capability reference
     static final RuntimeCapability<Void> CACHE_CONTAINER = RuntimeCapability.Builder.of("org.wildfly.security.legacy-domain.cache-container", true).build();
 
     public static final SimpleAttributeDefinition CACHE_TYPE = new SimpleAttributeDefinitionBuilder(Constants.CACHE_TYPE, ModelType.STRING, true)
             .setAllowExpression(true)
-            .setAllowedValues("default", INFINISPAN_CACHE_TYPE)
+            .setAllowedValues("default", INFINISPAN_CACHE_TYPE, TINYLFU_CACHE_TYPE)
+            .build();
+
+    // Authentication cache statistics, only defined for the tinylfu cache type
+    static final SimpleAttributeDefinition CACHE_HIT_COUNT = new SimpleAttributeDefinitionBuilder("cache-hit-count", ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+    static final SimpleAttributeDefinition CACHE_MISS_COUNT = new SimpleAttributeDefinitionBuilder("cache-miss-count", ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+    static final SimpleAttributeDefinition CACHE_EVICTION_COUNT = new SimpleAttributeDefinitionBuilder("cache-eviction-count", ModelType.LONG, true)
+            .setStorageRuntime()
+            .build();
+    static final SimpleAttributeDefinition CACHE_EXPIRATION_COUNT = new SimpleAttributeDefinitionBuilder("cache-expiration-count", ModelType.LONG, true)
+            .setStorageRuntime()
             .build();
 
     private final boolean registerRuntimeOnly;
@@ -101,6 +120,12 @@ class SecurityDomainResourceDefinition extends SimpleResourceDefinition {
     @Override
     public void registerAttributes(final ManagementResourceRegistration resourceRegistration) {
         resourceRegistration.registerReadWriteAttribute(CACHE_TYPE, null, new SecurityDomainReloadWriteHandler());
+        if (registerRuntimeOnly) {
+            resourceRegistration.registerMetric(CACHE_HIT_COUNT, CacheStatisticsHandler.INSTANCE);
+            resourceRegistration.registerMetric(CACHE_MISS_COUNT, CacheStatisticsHandler.INSTANCE);
+            resourceRegistration.registerMetric(CACHE_EVICTION_COUNT, CacheStatisticsHandler.INSTANCE);
+            resourceRegistration.registerMetric(CACHE_EXPIRATION_COUNT, CacheStatisticsHandler.INSTANCE);
+        }
     }
 
     @Override
@@ -212,6 +237,35 @@ class SecurityDomainResourceDefinition extends SimpleResourceDefinition {
         }
     }
 
+    static final class CacheStatisticsHandler extends AbstractRuntimeOnlyHandler {
+        static final CacheStatisticsHandler INSTANCE = new CacheStatisticsHandler();
+
+        @Override
+        protected void executeRuntimeStep(OperationContext context, ModelNode operation) throws OperationFailedException {
+            final String securityDomain = context.getCurrentAddressValue();
+            final String attributeName = operation.require(NAME).asString();
+
+            ServiceController<SecurityDomainContext> controller = getSecurityDomainService(context, securityDomain);
+            if (controller.getState() == ServiceController.State.UP) {
+                Map<Principal, ?> cache = controller.getValue().getAuthenticationCache();
+                if (cache instanceof TinyLFUCache) {
+                    TinyLFUCache<Principal, ?> statistics = (TinyLFUCache<Principal, ?>) cache;
+                    ModelNode result = context.getResult();
+                    if (CACHE_HIT_COUNT.getName().equals(attributeName)) {
+                        result.set(statistics.getHitCount());
+                    } else if (CACHE_MISS_COUNT.getName().equals(attributeName)) {
+                        result.set(statistics.getMissCount());
+                    } else if (CACHE_EVICTION_COUNT.getName().equals(attributeName)) {
+                        result.set(statistics.getEvictionCount());
+                    } else if (CACHE_EXPIRATION_COUNT.getName().equals(attributeName)) {
+                        result.set(statistics.getExpirationCount());
+                    }
+                }
+            }
+            context.completeStep(OperationContext.RollbackHandler.NOOP_ROLLBACK_HANDLER);
+        }
+    }
+
     /**
      * Wait for the required service to start up and fail otherwise. This method is necessary when a runtime operation
      * uses a service that might have been created within a composite operation.
@@ -242,6 +296,9 @@ class SecurityDomainResourceDefinition extends SimpleResourceDefinition {
 
     static void registerTransformers_1_3_0(ResourceTransformationDescriptionBuilder parentBuilder) {
         ResourceTransformationDescriptionBuilder builder = parentBuilder.addChildResource(SecurityExtension.SECURITY_DOMAIN_PATH);
+        builder.getAttributeBuilder()
+                .addRejectCheck(new RejectAttributeChecker.SimpleRejectAttributeChecker(new ModelNode(TINYLFU_CACHE_TYPE)), CACHE_TYPE)
+                .end();
         AuditResourceDefinition.registerTransformers_1_3_0(builder);
     }
 
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.security.lfu;
+
+/**
+ * A count-min sketch estimating the popularity of keys within a time window, using 4-bit counters.
+ * <p/>
+ * Each key maps to one counter in each of four rows; its estimated frequency is the minimum of those counters. Once the
+ * number of recorded increments reaches ten times the capacity of the cache, all counters are halved so that the sketch
+ * favours recent popularity. This class is not thread safe, callers must serialize access.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long COUNTER_MASK = 0xfL;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int maximumSize) {
+        int capacity = Math.max(1, maximumSize);
+        // each long holds 16 counters, so this provides 16 counters per cached entry
+        int length = (capacity <= 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (capacity > Integer.MAX_VALUE / 10) ? Integer.MAX_VALUE : 10 * capacity;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of the specified key, up to a maximum of 15.
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = this.indexOf(hash, i);
+            int count = (int) ((this.table[index] >>> ((start + i) << 2)) & COUNTER_MASK);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an occurrence of the specified key.
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= this.incrementAt(this.indexOf(hash, i), start + i);
+        }
+        if (added && (++this.size == this.sampleSize)) {
+            this.reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = COUNTER_MASK << offset;
+        if ((this.table[index] & mask) != mask) {
+            this.table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < this.table.length; i++) {
+            this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+        }
+        this.size >>>= 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        long value = (hash + SEEDS[row]) * SEEDS[row];
+        value += value >>> 32;
+        return ((int) value) & this.tableMask;
+    }
+
+    // Guards against poor hash codes, e.g. of principals
+    private static int spread(int hash) {
+        int value = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        value = ((value >>> 16) ^ value) * 0x45d9f3b;
+        return (value >>> 16) ^ value;
+    }
+}
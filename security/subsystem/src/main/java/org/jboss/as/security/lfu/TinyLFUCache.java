@@ -0,0 +1,656 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.security.lfu;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.jboss.as.security.lru.RemoveCallback;
+
+/**
+ * A bounded cache using the Window-TinyLFU eviction policy, with an optional lifespan per entry.
+ * <p/>
+ * <p>New entries enter a small LRU window. Entries leaving the window compete for a place in the main space with the
+ * least recently used entry of its probation segment, and are only admitted if a {@link FrequencySketch} estimates them
+ * to be more popular. A burst of keys that are requested only once, e.g. during credential stuffing, therefore cannot
+ * flush popular entries out of the cache. Entries accessed again while on probation are promoted to a protected segment.</p>
+ * <p>Reads never block: policy updates are skipped if another thread is updating the policy.</p>
+ * <p>The value of a removed entry is cleared atomically, so that exactly one of the threads racing to replace or remove
+ * a value passes it to the remove callback.</p>
+ */
+public class TinyLFUCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private static final int WINDOW_PERCENTAGE = 1;
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+    private final AccessOrderDeque<K, V> protectedSegment = new AccessOrderDeque<>();
+    private final int maxEntries;
+    private final int maxWindow;
+    private final int maxProtected;
+    private final long lifespan;
+    private final RemoveCallback<K, V> removeCallback;
+    private final LongSupplier ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public TinyLFUCache(int maxEntries) {
+        this(maxEntries, 0L, TimeUnit.MILLISECONDS, null);
+    }
+
+    /**
+     * @param maxEntries the maximum number of entries of the cache
+     * @param lifespan the time after which an entry expires, relative to its last write; 0 if entries never expire
+     * @param unit the unit of the lifespan
+     * @param removeCallback notified of entries that were removed, evicted or expired; may be null
+     */
+    public TinyLFUCache(int maxEntries, long lifespan, TimeUnit unit, RemoveCallback<K, V> removeCallback) {
+        this(maxEntries, lifespan, unit, removeCallback, System::nanoTime);
+    }
+
+    /**
+     * @param ticker the source of the current time in nanoseconds
+     */
+    TinyLFUCache(int maxEntries, long lifespan, TimeUnit unit, RemoveCallback<K, V> removeCallback, LongSupplier ticker) {
+        this.ticker = ticker;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxWindow = Math.max(1, this.maxEntries * WINDOW_PERCENTAGE / 100);
+        this.maxProtected = (this.maxEntries - this.maxWindow) * PROTECTED_PERCENTAGE / 100;
+        this.lifespan = unit.toNanos(lifespan);
+        this.removeCallback = removeCallback;
+        this.sketch = new FrequencySketch(this.maxEntries);
+    }
+
+    @Override
+    public V get(Object key) {
+        @SuppressWarnings("SuspiciousMethodCalls")
+        Node<K, V> node = this.data.get(key);
+        if (node == null) {
+            this.misses.increment();
+            return null;
+        }
+        if (this.isExpired(node, this.ticker.getAsLong())) {
+            this.expire(node);
+            this.misses.increment();
+            return null;
+        }
+        V value = node.value;
+        if (value == null) {
+            // Removed concurrently
+            this.misses.increment();
+            return null;
+        }
+        this.hits.increment();
+        this.onAccess(node);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        @SuppressWarnings("SuspiciousMethodCalls")
+        Node<K, V> node = this.data.get(key);
+        return (node != null) && !this.isExpired(node, this.ticker.getAsLong());
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return this.put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return this.put(key, value, true);
+    }
+
+    private V put(K key, V value, boolean ifAbsent) {
+        Node<K, V> node = new Node<>(key, value, this.expirationTime());
+        for (;;) {
+            Node<K, V> existing = this.data.putIfAbsent(key, node);
+            if (existing == null) {
+                this.onInsert(node);
+                return null;
+            }
+            if (this.isExpired(existing, this.ticker.getAsLong())) {
+                this.expire(existing);
+                continue;
+            }
+            if (ifAbsent) {
+                V current = existing.value;
+                if (current == null) {
+                    this.data.remove(key, existing);
+                    continue;
+                }
+                this.onAccess(existing);
+                return current;
+            }
+            V old = existing.replaceValue(value);
+            if (old == null) {
+                // Removed concurrently, make room for our node
+                this.data.remove(key, existing);
+                continue;
+            }
+            existing.expiration = node.expiration;
+            this.onAccess(existing);
+            if (old != value) {
+                this.notifyRemoved(key, old);
+            }
+            return old;
+        }
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Node<K, V> node = this.data.get(key);
+        if ((node == null) || this.isExpired(node, this.ticker.getAsLong())) {
+            return null;
+        }
+        V old = node.replaceValue(value);
+        if (old == null) {
+            // Removed concurrently
+            return null;
+        }
+        node.expiration = this.expirationTime();
+        this.onAccess(node);
+        if (old != value) {
+            this.notifyRemoved(key, old);
+        }
+        return old;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Node<K, V> node = this.data.get(key);
+        if ((node == null) || this.isExpired(node, this.ticker.getAsLong())) {
+            return false;
+        }
+        V current;
+        do {
+            current = node.value;
+            if ((current == null) || !current.equals(oldValue)) {
+                return false;
+            }
+        } while (!node.setValue(current, newValue));
+        node.expiration = this.expirationTime();
+        this.onAccess(node);
+        if (current != newValue) {
+            this.notifyRemoved(key, current);
+        }
+        return true;
+    }
+
+    @Override
+    public V remove(Object key) {
+        @SuppressWarnings("SuspiciousMethodCalls")
+        Node<K, V> node = this.data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        this.unlink(node);
+        V value = node.removeValue();
+        if (value != null) {
+            this.notifyRemoved(node.key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        @SuppressWarnings("SuspiciousMethodCalls")
+        Node<K, V> node = this.data.get(key);
+        if ((node == null) || (value == null)) {
+            return false;
+        }
+        V current;
+        do {
+            current = node.value;
+            if ((current == null) || !current.equals(value)) {
+                return false;
+            }
+        } while (!node.setValue(current, null));
+        this.data.remove(key, node);
+        this.unlink(node);
+        this.notifyRemoved(node.key, current);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : this.data.keySet()) {
+            this.remove(key);
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.data.size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * @return the number of lookups that found an unexpired entry
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find an entry, or found an expired one
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return the number of entries evicted to keep the cache within its maximum size
+     */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return the number of entries removed because their lifespan elapsed
+     */
+    public long getExpirationCount() {
+        return this.expirations.sum();
+    }
+
+    private long expirationTime() {
+        return (this.lifespan > 0L) ? this.ticker.getAsLong() + this.lifespan : 0L;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (this.lifespan > 0L) && (now - node.expiration >= 0L);
+    }
+
+    private void expire(Node<K, V> node) {
+        if (this.data.remove(node.key, node)) {
+            this.expirations.increment();
+            this.unlink(node);
+            V value = node.removeValue();
+            if (value != null) {
+                this.notifyRemoved(node.key, value);
+            }
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        // Skip the policy update rather than wait, the sketch and recency order only need to be approximate
+        if (this.evictionLock.tryLock()) {
+            try {
+                this.sketch.increment(node.key);
+                switch (node.segment) {
+                    case WINDOW:
+                        this.window.moveToBack(node);
+                        break;
+                    case PROBATION:
+                        this.probation.remove(node);
+                        node.segment = Segment.PROTECTED;
+                        this.protectedSegment.add(node);
+                        while (this.protectedSegment.size() > this.maxProtected) {
+                            Node<K, V> demoted = this.protectedSegment.poll();
+                            demoted.segment = Segment.PROBATION;
+                            this.probation.add(demoted);
+                        }
+                        break;
+                    case PROTECTED:
+                        this.protectedSegment.moveToBack(node);
+                        break;
+                    default:
+                        // Not yet inserted, or already removed
+                }
+            } finally {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    private void onInsert(Node<K, V> node) {
+        List<Node<K, V>> evicted;
+        this.evictionLock.lock();
+        try {
+            this.sketch.increment(node.key);
+            if (node.segment != Segment.NEW) {
+                // Removed before we could add it
+                return;
+            }
+            node.segment = Segment.WINDOW;
+            this.window.add(node);
+            evicted = this.evict();
+        } finally {
+            this.evictionLock.unlock();
+        }
+        for (Node<K, V> victim : evicted) {
+            V value = victim.removeValue();
+            if (value != null) {
+                this.notifyRemoved(victim.key, value);
+            }
+        }
+    }
+
+    private List<Node<K, V>> evict() {
+        while (this.window.size() > this.maxWindow) {
+            Node<K, V> node = this.window.poll();
+            node.segment = Segment.PROBATION;
+            this.probation.add(node);
+        }
+        List<Node<K, V>> evicted = Collections.emptyList();
+        long now = this.ticker.getAsLong();
+        while (this.window.size() + this.probation.size() + this.protectedSegment.size() > this.maxEntries) {
+            Node<K, V> victim = this.probation.peekFirst();
+            Node<K, V> candidate = this.probation.peekLast();
+            Node<K, V> node;
+            if (victim == null) {
+                // Everything else is protected or in the window
+                node = (this.protectedSegment.size() > 0) ? this.protectedSegment.peekFirst() : this.window.peekFirst();
+            } else if ((victim == candidate) || this.isExpired(victim, now)) {
+                node = victim;
+            } else {
+                // Admit the candidate only if it is more popular than the entry it would replace
+                node = (this.sketch.frequency(candidate.key) > this.sketch.frequency(victim.key)) ? victim : candidate;
+            }
+            this.unlinkLocked(node);
+            if (this.data.remove(node.key, node)) {
+                if (this.isExpired(node, now)) {
+                    this.expirations.increment();
+                } else {
+                    this.evictions.increment();
+                }
+                if (evicted.isEmpty()) {
+                    evicted = new ArrayList<>(1);
+                }
+                evicted.add(node);
+            }
+        }
+        return evicted;
+    }
+
+    private void unlink(Node<K, V> node) {
+        this.evictionLock.lock();
+        try {
+            this.unlinkLocked(node);
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    private void unlinkLocked(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                this.window.remove(node);
+                break;
+            case PROBATION:
+                this.probation.remove(node);
+                break;
+            case PROTECTED:
+                this.protectedSegment.remove(node);
+                break;
+            default:
+        }
+        node.segment = Segment.REMOVED;
+    }
+
+    private void notifyRemoved(K key, V value) {
+        if (this.removeCallback != null) {
+            this.removeCallback.afterRemove(key, value);
+        }
+    }
+
+    private enum Segment {
+        NEW, WINDOW, PROBATION, PROTECTED, REMOVED
+    }
+
+    static final class Node<K, V> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Node, Object> valueUpdater = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+        final K key;
+        volatile V value;
+        volatile long expiration;
+
+        // guarded by the eviction lock
+        Segment segment = Segment.NEW;
+        Node<K, V> previous;
+        Node<K, V> next;
+
+        Node(K key, V value, long expiration) {
+            this.key = key;
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        /**
+         * Replaces the given instance of the current value.
+         */
+        boolean setValue(V oldValue, V newValue) {
+            return valueUpdater.compareAndSet(this, oldValue, newValue);
+        }
+
+        /**
+         * Replaces the current value, unless the node was removed.
+         *
+         * @return the previous value, or null if the node was removed
+         */
+        V replaceValue(V value) {
+            for (;;) {
+                V current = this.value;
+                if ((current == null) || this.setValue(current, value)) {
+                    return current;
+                }
+            }
+        }
+
+        /**
+         * Clears the value of a removed node.
+         *
+         * @return the value, or null if it was already cleared by another thread
+         */
+        @SuppressWarnings("unchecked")
+        V removeValue() {
+            return (V) valueUpdater.getAndSet(this, null);
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes, ordered from least to most recently used.
+     */
+    static final class AccessOrderDeque<K, V> {
+        private Node<K, V> first;
+        private Node<K, V> last;
+        private int size;
+
+        int size() {
+            return this.size;
+        }
+
+        Node<K, V> peekFirst() {
+            return this.first;
+        }
+
+        Node<K, V> peekLast() {
+            return this.last;
+        }
+
+        void add(Node<K, V> node) {
+            node.previous = this.last;
+            node.next = null;
+            if (this.last == null) {
+                this.first = node;
+            } else {
+                this.last.next = node;
+            }
+            this.last = node;
+            this.size += 1;
+        }
+
+        Node<K, V> poll() {
+            Node<K, V> node = this.first;
+            if (node != null) {
+                this.remove(node);
+            }
+            return node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.previous == null) {
+                this.first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                this.last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            this.size -= 1;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != this.last) {
+                this.remove(node);
+                this.add(node);
+            }
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator(TinyLFUCache.this.data.values().iterator());
+        }
+
+        @Override
+        public int size() {
+            return TinyLFUCache.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            @SuppressWarnings("SuspiciousMethodCalls")
+            Node<K, V> node = TinyLFUCache.this.data.get(e.getKey());
+            return (node != null) && !TinyLFUCache.this.isExpired(node, TinyLFUCache.this.ticker.getAsLong()) && Objects.equals(node.value, e.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Entry))
+                return false;
+            Entry<?, ?> e = (Entry<?, ?>) o;
+            return TinyLFUCache.this.remove(e.getKey()) != null;
+        }
+
+        @Override
+        public void clear() {
+            TinyLFUCache.this.clear();
+        }
+    }
+
+    /**
+     * Iterates over the unexpired entries of the cache.
+     */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Node<K, V>> nodes;
+        private final long now = TinyLFUCache.this.ticker.getAsLong();
+        private Node<K, V> next;
+        private Node<K, V> last;
+
+        EntryIterator(Iterator<Node<K, V>> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((this.next == null) && this.nodes.hasNext()) {
+                Node<K, V> node = this.nodes.next();
+                if (!TinyLFUCache.this.isExpired(node, this.now)) {
+                    this.next = node;
+                }
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Node<K, V> node = this.next;
+            this.next = null;
+            this.last = node;
+            return new Entry<K, V>() {
+                @Override
+                public K getKey() {
+                    return node.key;
+                }
+
+                @Override
+                public V getValue() {
+                    return node.value;
+                }
+
+                @Override
+                public V setValue(V value) {
+                    return node.replaceValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (this.last == null) {
+                throw new IllegalStateException("next() not called");
+            }
+            TinyLFUCache.this.remove(this.last.key);
+            this.last = null;
+        }
+    }
+}
@@ -22,6 +22,9 @@
 
 package org.jboss.as.security.plugins;
 
+import java.security.Principal;
+import java.util.Map;
+
 import javax.naming.NamingException;
 import javax.security.auth.Subject;
 import javax.security.jacc.PolicyContext;
@@ -59,6 +62,7 @@ public class SecurityDomainContext {
     MappingManager mappingMgr;
     IdentityTrustManager identityTrustMgr;
     JSSESecurityDomain jsseSecurityDomain;
+    Map<Principal, ?> authenticationCache;
 
     private static final String SUBJECT_CONTEXT_KEY = "javax.security.auth.Subject.container";
 
@@ -147,4 +151,15 @@ public class SecurityDomainContext {
     public void setJSSE(JSSESecurityDomain jsseSecurityDomain) {
         this.jsseSecurityDomain = jsseSecurityDomain;
     }
+
+    /**
+     * @return the cache of the authentication manager, or null if authentication results are not cached
+     */
+    public Map<Principal, ?> getAuthenticationCache() {
+        return authenticationCache;
+    }
+
+    public void setAuthenticationCache(Map<Principal, ?> authenticationCache) {
+        this.authenticationCache = authenticationCache;
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.security.plugins;
+
+import java.security.Principal;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.security.lfu.TinyLFUCache;
+import org.jboss.security.authentication.JBossCachedAuthenticationManager.DomainInfo;
+import org.wildfly.security.manager.WildFlySecurityManager;
+
+/**
+ * Factory that creates {@link TinyLFUCache}s for authentication cache.
+ * <p/>
+ * The size and lifespan of the caches can be adjusted through the {@value #MAX_ENTRIES} and {@value #LIFESPAN} system
+ * properties, the latter in milliseconds.
+ */
+public class TinyLFUAuthenticationCacheFactory implements AuthenticationCacheFactory {
+
+    public static final String MAX_ENTRIES = "org.jboss.as.security.tinylfu-cache.max-entries";
+    public static final String LIFESPAN = "org.jboss.as.security.tinylfu-cache.lifespan";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_LIFESPAN = TimeUnit.MINUTES.toMillis(30);
+
+    private final int maxEntries;
+    private final long lifespan;
+
+    public TinyLFUAuthenticationCacheFactory() {
+        this(Integer.parseInt(WildFlySecurityManager.getPropertyPrivileged(MAX_ENTRIES, Integer.toString(DEFAULT_MAX_ENTRIES))),
+                Long.parseLong(WildFlySecurityManager.getPropertyPrivileged(LIFESPAN, Long.toString(DEFAULT_LIFESPAN))));
+    }
+
+    /**
+     * @param maxEntries the maximum number of cached principals
+     * @param lifespan the time, in milliseconds, after which a cached principal must authenticate again; 0 to never expire
+     */
+    public TinyLFUAuthenticationCacheFactory(int maxEntries, long lifespan) {
+        this.maxEntries = maxEntries;
+        this.lifespan = lifespan;
+    }
+
+    /**
+     * Returns a cache implementation
+     *
+     * @return cache implementation
+     */
+    public ConcurrentMap<Principal, DomainInfo> getCache() {
+        return new TinyLFUCache<>(this.maxEntries, this.lifespan, TimeUnit.MILLISECONDS, (key, value) -> {
+            if (value != null) {
+                value.logout();
+            }
+        });
+    }
+}
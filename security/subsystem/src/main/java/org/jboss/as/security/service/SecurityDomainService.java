@@ -31,6 +31,7 @@ import org.jboss.as.security.plugins.DefaultAuthenticationCacheFactory;
 import org.jboss.as.security.plugins.InfinispanAuthenticationCacheFactory;
 import org.jboss.as.security.plugins.JNDIBasedSecurityManagement;
 import org.jboss.as.security.plugins.SecurityDomainContext;
+import org.jboss.as.security.plugins.TinyLFUAuthenticationCacheFactory;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
@@ -91,6 +92,8 @@ public class SecurityDomainService implements Service<SecurityDomainContext> {
             cacheFactory = new InfinispanAuthenticationCacheFactory(cacheManagerValue.getValue(), name);
         } else if ("default".equals(cacheType)) {
             cacheFactory = new DefaultAuthenticationCacheFactory();
+        } else if ("tinylfu".equals(cacheType)) {
+            cacheFactory = new TinyLFUAuthenticationCacheFactory();
         }
         try {
             securityDomainContext = securityManagement.createSecurityDomainContext(name, cacheFactory);
@@ -0,0 +1,182 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.as.security.lfu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TinyLFUCache}.
+ */
+public class TinyLFUCacheTestCase {
+
+    @Test
+    public void testBounded() {
+        List<String> removed = new ArrayList<>();
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100, 0L, TimeUnit.MILLISECONDS, (key, value) -> removed.add(key));
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        Assert.assertEquals(100, cache.size());
+        Assert.assertEquals(900, cache.getEvictionCount());
+        Assert.assertEquals(900, removed.size());
+    }
+
+    @Test
+    public void testScanResistance() {
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100);
+        // establish a set of popular keys
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                String key = "hot" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        // a burst of keys that are only seen once, while the popular keys remain in use
+        for (int i = 0; i < 10000; i++) {
+            String key = "cold" + i;
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+            key = "hot" + (i % 50);
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.containsKey("hot" + i)) {
+                retained += 1;
+            }
+        }
+        Assert.assertEquals(50, retained);
+        Assert.assertTrue(cache.getHitCount() >= 10000);
+        Assert.assertTrue(cache.getMissCount() >= 10050);
+    }
+
+    @Test
+    public void testExpiration() {
+        List<String> removed = new ArrayList<>();
+        AtomicLong time = new AtomicLong();
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(100, 200L, TimeUnit.MILLISECONDS, (key, value) -> removed.add(key), time::get);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        Assert.assertEquals("1", cache.get("a"));
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(120));
+        // a write renews the lifespan of an entry
+        cache.put("b", "3");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(120));
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals("3", cache.get("b"));
+        Assert.assertFalse(cache.keySet().contains("a"));
+        Assert.assertEquals(1, cache.getExpirationCount());
+        // the replaced value of "b", and the expired "a"
+        Assert.assertEquals(Arrays.asList("b", "a"), removed);
+        // an expired entry can be replaced
+        Assert.assertNull(cache.putIfAbsent("a", "4"));
+        Assert.assertEquals("4", cache.get("a"));
+    }
+
+    @Test
+    public void testConcurrentMap() {
+        List<String> removed = new ArrayList<>();
+        TinyLFUCache<String, String> cache = new TinyLFUCache<>(10, 0L, TimeUnit.MILLISECONDS, (key, value) -> removed.add(value));
+        Assert.assertNull(cache.putIfAbsent("a", "1"));
+        Assert.assertEquals("1", cache.putIfAbsent("a", "2"));
+        Assert.assertEquals("1", cache.put("a", "3"));
+        Assert.assertFalse(cache.replace("a", "1", "4"));
+        // values are compared by equality
+        Assert.assertTrue(cache.replace("a", new String("3"), "4"));
+        Assert.assertEquals("4", cache.replace("a", "5"));
+        Assert.assertNull(cache.replace("b", "1"));
+        Assert.assertEquals("5", cache.remove("a"));
+        Assert.assertNull(cache.remove("a"));
+        cache.put("b", "6");
+        cache.put("c", "7");
+        cache.keySet().remove("b");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertFalse(cache.remove("c", "8"));
+        Assert.assertTrue(cache.remove("c", new String("7")));
+        cache.put("d", "9");
+        // putting the same value again does not remove it
+        cache.put("d", "9");
+        cache.clear();
+        Assert.assertTrue(cache.isEmpty());
+        Assert.assertEquals(0, cache.getEvictionCount());
+        // values replaced or removed are passed to the callback, e.g. to log them out
+        Assert.assertEquals(Arrays.asList("1", "3", "4", "5", "6", "7", "9"), removed);
+    }
+
+    @Test
+    public void testConcurrentReplace() throws InterruptedException {
+        List<Integer> removed = Collections.synchronizedList(new ArrayList<>());
+        TinyLFUCache<String, Integer> cache = new TinyLFUCache<>(10, 0L, TimeUnit.MILLISECONDS, (key, value) -> removed.add(value));
+        cache.put("a", -1);
+        AtomicInteger values = new AtomicInteger();
+        AtomicInteger stored = new AtomicInteger(1);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < 10000; j++) {
+                    Integer value = values.getAndIncrement();
+                    if ((j % 100) == 0) {
+                        cache.remove("a");
+                        if (cache.putIfAbsent("a", value) == null) {
+                            stored.incrementAndGet();
+                        }
+                    } else if (cache.replace("a", value) != null) {
+                        stored.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        cache.clear();
+        // every value that entered the cache is passed to the callback exactly once
+        List<Integer> notified = new ArrayList<>(removed);
+        Assert.assertEquals(stored.get(), notified.size());
+        Assert.assertEquals(notified.size(), notified.stream().distinct().count());
+        Assert.assertTrue(notified.contains(-1));
+    }
+}
@@ -69,18 +69,7 @@ public abstract class AbstractPersistentSessionManager implements SessionPersist
             try {
                 final Map<String, SessionEntry> serializedData = new HashMap<String, SessionEntry>();
                 for (Map.Entry<String, PersistentSession> sessionEntry : sessionData.entrySet()) {
-                    Map<String, byte[]> data = new HashMap<String, byte[]>();
-                    for (Map.Entry<String, Object> sessionAttribute : sessionEntry.getValue().getSessionData().entrySet()) {
-                        try {
-                            final ByteArrayOutputStream out = new ByteArrayOutputStream();
-                            marshaller.start(new OutputStreamByteOutput(out));
-                            marshaller.writeObject(sessionAttribute.getValue());
-                            marshaller.finish();
-                            data.put(sessionAttribute.getKey(), out.toByteArray());
-                        } catch (Exception e) {
-                            UndertowLogger.ROOT_LOGGER.failedToPersistSessionAttribute(sessionAttribute.getKey(), sessionAttribute.getValue(), sessionEntry.getKey(), e);
-                        }
-                    }
+                    Map<String, byte[]> data = serializeSessionAttributes(marshaller, sessionEntry.getKey(), sessionEntry.getValue());
                     serializedData.put(sessionEntry.getKey(), new SessionEntry(sessionEntry.getValue().getExpiration(), data));
                 }
                 persistSerializedSessions(deploymentName, serializedData);
@@ -110,9 +99,7 @@ public abstract class AbstractPersistentSessionManager implements SessionPersist
                         if (sessionEntry.getValue().expiry.getTime() > time) {
                             Map<String, Object> session = new HashMap<String, Object>();
                             for (Map.Entry<String, byte[]> sessionAttribute : sessionEntry.getValue().data.entrySet()) {
-                                unmarshaller.start(new ByteBufferInput(ByteBuffer.wrap(sessionAttribute.getValue())));
-                                session.put(sessionAttribute.getKey(), unmarshaller.readObject());
-                                unmarshaller.finish();
+                                session.put(sessionAttribute.getKey(), deserializeSessionAttribute(unmarshaller, ByteBuffer.wrap(sessionAttribute.getValue())));
                             }
                             ret.put(sessionEntry.getKey(), new PersistentSession(sessionEntry.getValue().expiry, session));
                         }
@@ -128,6 +115,46 @@ public abstract class AbstractPersistentSessionManager implements SessionPersist
         return null;
     }
 
+    /**
+     * Serializes the attributes of a single session. Attributes that cannot be serialized are logged and skipped.
+     *
+     * @param marshaller the marshaller to use
+     * @param sessionId the id of the session
+     * @param session the session
+     * @return the serialized attributes, keyed by attribute name
+     */
+    protected Map<String, byte[]> serializeSessionAttributes(Marshaller marshaller, String sessionId, PersistentSession session) {
+        Map<String, byte[]> data = new HashMap<String, byte[]>();
+        for (Map.Entry<String, Object> sessionAttribute : session.getSessionData().entrySet()) {
+            try {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                marshaller.start(new OutputStreamByteOutput(out));
+                marshaller.writeObject(sessionAttribute.getValue());
+                marshaller.finish();
+                data.put(sessionAttribute.getKey(), out.toByteArray());
+            } catch (Exception e) {
+                UndertowLogger.ROOT_LOGGER.failedToPersistSessionAttribute(sessionAttribute.getKey(), sessionAttribute.getValue(), sessionId, e);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Reads a single session attribute value that was written by {@link #serializeSessionAttributes}.
+     *
+     * @param unmarshaller the unmarshaller to use
+     * @param buffer the serialized value
+     * @return the attribute value
+     */
+    protected Object deserializeSessionAttribute(Unmarshaller unmarshaller, ByteBuffer buffer) throws IOException, ClassNotFoundException {
+        unmarshaller.start(new ByteBufferInput(buffer));
+        try {
+            return unmarshaller.readObject();
+        } finally {
+            unmarshaller.finish();
+        }
+    }
+
     protected Marshaller createMarshaller() throws IOException {
         return factory.createMarshaller(configuration);
     }
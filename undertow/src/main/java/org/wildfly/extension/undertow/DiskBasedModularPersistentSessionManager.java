@@ -21,10 +21,10 @@
  */
 package org.wildfly.extension.undertow;
 
+import io.undertow.servlet.UndertowServletLogger;
 import org.jboss.as.controller.services.path.PathManager;
 import org.jboss.marshalling.InputStreamByteInput;
 import org.jboss.marshalling.Marshaller;
-import org.jboss.marshalling.OutputStreamByteOutput;
 import org.jboss.marshalling.Unmarshaller;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
@@ -33,18 +33,40 @@ import org.jboss.msc.value.InjectedValue;
 import org.wildfly.extension.undertow.logging.UndertowLogger;
 import org.xnio.IoUtils;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Persistent session manager that stores persistent session information to disk
+ * Persistent session manager that stores persistent session information to disk.
+ * <p/>
+ * Sessions are streamed to the file one at a time, so persisting them never needs more than a single serialized session
+ * in memory. On restore only the serialized body of each session is read; the attributes of a session are deserialized
+ * the first time Undertow asks for them, i.e. when the session is first accessed after the restart. Files written in the
+ * previous format (a single marshalled map) are still read.
  *
  * @author Stuart Douglas
  */
 public class DiskBasedModularPersistentSessionManager extends AbstractPersistentSessionManager {
+
+    private static final int MAGIC = 0x57465053; // "WFPS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
     private final String path;
     private final String pathRelativeTo;
     private File baseDir;
@@ -82,23 +104,101 @@ public class DiskBasedModularPersistentSessionManager extends AbstractPersistent
         }
     }
 
+    @Override
+    public void persistSessions(String deploymentName, Map<String, PersistentSession> sessionData) {
+        try {
+            final SessionFileWriter writer = new SessionFileWriter(new File(baseDir, deploymentName));
+            try {
+                final Marshaller marshaller = createMarshaller();
+                try {
+                    for (Map.Entry<String, PersistentSession> sessionEntry : sessionData.entrySet()) {
+                        Map<String, byte[]> data = serializeSessionAttributes(marshaller, sessionEntry.getKey(), sessionEntry.getValue());
+                        writer.write(sessionEntry.getKey(), sessionEntry.getValue().getExpiration().getTime(), data);
+                    }
+                } finally {
+                    marshaller.close();
+                }
+                writer.commit();
+            } finally {
+                writer.close();
+            }
+        } catch (Exception e) {
+            UndertowServletLogger.ROOT_LOGGER.failedToPersistSessions(e);
+        }
+    }
 
     @Override
     protected void persistSerializedSessions(String deploymentName, Map<String, SessionEntry> serializedData) throws IOException {
+        final SessionFileWriter writer = new SessionFileWriter(new File(baseDir, deploymentName));
+        try {
+            for (Map.Entry<String, SessionEntry> sessionEntry : serializedData.entrySet()) {
+                writer.write(sessionEntry.getKey(), sessionEntry.getValue().getExpiry().getTime(), sessionEntry.getValue().getData());
+            }
+            writer.commit();
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Override
+    public Map<String, PersistentSession> loadSessionAttributes(String deploymentName, ClassLoader classLoader) {
         File file = new File(baseDir, deploymentName);
-        FileOutputStream out = new FileOutputStream(file, false);
+        if (!file.exists()) {
+            return null;
+        }
+        if (file.length() < HEADER_SIZE) {
+            // truncated before the header could be written, there is nothing to restore
+            return null;
+        }
         try {
-            Marshaller marshaller = createMarshaller();
-            try {
-                marshaller.start(new OutputStreamByteOutput(out));
-                marshaller.writeObject(serializedData);
-                marshaller.finish();
-            } finally {
-                marshaller.close();
+            Map<String, PersistentSession> sessions = loadSessions(file);
+            if (sessions != null) {
+                return sessions;
+            }
+        } catch (Exception e) {
+            UndertowServletLogger.ROOT_LOGGER.failedtoLoadPersistentSessions(e);
+            return null;
+        }
+        // written in the previous format
+        return super.loadSessionAttributes(deploymentName, classLoader);
+    }
+
+    /**
+     * Reads the sessions of the given file. The serialized body of each session is copied into memory, so no file
+     * handle or mapping is held once this returns, but session attributes are only deserialized once the session data
+     * is requested.
+     *
+     * @return the sessions that have not expired yet, or {@code null} if the file is not in the streaming format
+     */
+    private Map<String, PersistentSession> loadSessions(File file) throws IOException {
+        final long time = System.currentTimeMillis();
+        final Map<String, PersistentSession> sessions = new HashMap<String, PersistentSession>();
+        final FileInputStream input = new FileInputStream(file);
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(String.valueOf(version));
+            }
+            while (in.readBoolean()) {
+                final String sessionId = in.readUTF();
+                final long expiry = in.readLong();
+                final int length = in.readInt();
+                if (expiry > time) {
+                    final byte[] body = new byte[length];
+                    in.readFully(body);
+                    sessions.put(sessionId, new LazyPersistentSession(new Date(expiry), ByteBuffer.wrap(body)));
+                } else {
+                    skipFully(in, length);
+                }
             }
         } finally {
-            IoUtils.safeClose(out);
+            IoUtils.safeClose(input);
         }
+        return sessions;
     }
 
     @Override
@@ -131,4 +231,122 @@ public class DiskBasedModularPersistentSessionManager extends AbstractPersistent
     public InjectedValue<PathManager> getPathManager() {
         return pathManager;
     }
+
+    private static void skipFully(DataInputStream in, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                // make sure a truncated file is reported rather than looping forever
+                in.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * A session whose attributes are deserialized from its serialized body on first access.
+     */
+    private class LazyPersistentSession extends PersistentSession {
+        private ByteBuffer body;
+        private Map<String, Object> sessionData;
+
+        LazyPersistentSession(Date expiration, ByteBuffer body) {
+            super(expiration, null);
+            this.body = body;
+        }
+
+        @Override
+        public synchronized Map<String, Object> getSessionData() {
+            if (sessionData == null) {
+                try {
+                    sessionData = readSessionData(body);
+                } catch (Exception e) {
+                    UndertowServletLogger.ROOT_LOGGER.failedtoLoadPersistentSessions(e);
+                    sessionData = Collections.emptyMap();
+                }
+                // release the serialized body
+                body = null;
+            }
+            return sessionData;
+        }
+    }
+
+    private Map<String, Object> readSessionData(ByteBuffer body) throws IOException, ClassNotFoundException {
+        final ByteBuffer buffer = body.duplicate();
+        final int count = buffer.getInt();
+        final Map<String, Object> data = new HashMap<String, Object>(count * 4 / 3 + 1);
+        final Unmarshaller unmarshaller = createUnmarshaller();
+        try {
+            for (int i = 0; i < count; i++) {
+                final byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                final int length = buffer.getInt();
+                final ByteBuffer value = buffer.duplicate();
+                value.limit(value.position() + length);
+                data.put(new String(name, StandardCharsets.UTF_8), deserializeSessionAttribute(unmarshaller, value.slice()));
+                buffer.position(buffer.position() + length);
+            }
+        } finally {
+            unmarshaller.close();
+        }
+        return data;
+    }
+
+    /**
+     * Writes sessions to a temporary file that replaces the target file on commit.
+     * <p/>
+     * File format: magic, version, then for every session a {@code true} marker, the session id, the expiry time, the
+     * body length and the body (attribute count, then name and serialized value of each attribute), terminated by a
+     * {@code false} marker.
+     */
+    private static final class SessionFileWriter {
+        private final File file;
+        private final File temp;
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bodyBytes);
+        private boolean committed;
+
+        SessionFileWriter(File file) throws IOException {
+            this.file = file;
+            this.temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp, false)));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+
+        void write(String sessionId, long expiry, Map<String, byte[]> data) throws IOException {
+            bodyBytes.reset();
+            body.writeInt(data.size());
+            for (Map.Entry<String, byte[]> attribute : data.entrySet()) {
+                final byte[] name = attribute.getKey().getBytes(StandardCharsets.UTF_8);
+                body.writeInt(name.length);
+                body.write(name);
+                body.writeInt(attribute.getValue().length);
+                body.write(attribute.getValue());
+            }
+            body.flush();
+            out.writeBoolean(true);
+            out.writeUTF(sessionId);
+            out.writeLong(expiry);
+            out.writeInt(bodyBytes.size());
+            bodyBytes.writeTo(out);
+        }
+
+        void commit() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        void close() {
+            IoUtils.safeClose(out);
+            if (!committed) {
+                temp.delete();
+            }
+        }
+    }
 }
@@ -0,0 +1,286 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.undertow.deployment;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import javax.servlet.DispatcherType;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.RangeAwareResource;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.servlet.handlers.ServletRequestContext;
+import io.undertow.util.AttachmentKey;
+import io.undertow.util.ETag;
+import io.undertow.util.HeaderMap;
+import io.undertow.util.HeaderValues;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.MimeMappings;
+
+/**
+ * Resource that serves a compressed variant of the underlying resource, obtained from its
+ * {@link PrecompressedResourceManager}, if the client accepts it.
+ * <p/>
+ * The compressed response carries a weak version of the ETag of the underlying resource, so that conditional requests
+ * still match. Every response that could have been compressed carries {@code Vary: Accept-Encoding}, including the
+ * uncompressed ones, so that shared caches do not serve a compressed variant to clients that did not ask for it. A HEAD
+ * request is answered without serving the resource, so its headers are negotiated when its content length is requested.
+ * Ranges are served from the uncompressed content.
+ */
+public class PrecompressedResource implements Resource, RangeAwareResource {
+
+    private static final AttachmentKey<Variant> HEAD_VARIANT = AttachmentKey.create(Variant.class);
+
+    private final PrecompressedResourceManager resourceManager;
+    private final Resource underlying;
+
+    public PrecompressedResource(PrecompressedResourceManager resourceManager, Resource underlying) {
+        this.resourceManager = resourceManager;
+        this.underlying = underlying;
+    }
+
+    @Override
+    public void serve(Sender sender, HttpServerExchange exchange, IoCallback completionCallback) {
+        if (isCompressionAllowed(exchange)) {
+            Variant variant = this.negotiate(exchange);
+            if (variant != null) {
+                this.setVariantHeaders(exchange, variant.coding, variant.length);
+                if (variant.resource != null) {
+                    variant.resource.serve(sender, exchange, completionCallback);
+                } else {
+                    sender.send(ByteBuffer.wrap(variant.data), completionCallback);
+                }
+                return;
+            }
+        }
+        this.underlying.serve(sender, exchange, completionCallback);
+    }
+
+    /**
+     * Returns the content length of the response to the given exchange, which is the length of the compressed variant
+     * that a HEAD request would be served by, if any. The headers of that variant are set as a side effect, as they would
+     * be by {@link #serve(Sender, HttpServerExchange, IoCallback)} for a GET request.
+     */
+    Long getContentLength(HttpServerExchange exchange) {
+        if (Methods.HEAD.equals(exchange.getRequestMethod()) && !exchange.getRequestHeaders().contains(Headers.RANGE)) {
+            // The length may be requested more than once
+            Variant variant = exchange.getAttachment(HEAD_VARIANT);
+            if ((variant != null) && variant.path.equals(this.getPath())) {
+                return variant.length;
+            }
+            if (isCompressionAllowed(exchange)) {
+                variant = this.negotiate(exchange);
+                if (variant != null) {
+                    this.setVariantHeaders(exchange, variant.coding, variant.length);
+                    exchange.putAttachment(HEAD_VARIANT, variant);
+                    return variant.length;
+                }
+            }
+        }
+        return this.underlying.getContentLength();
+    }
+
+    /**
+     * Selects the compressed variant accepted by the client of the given exchange. Adds {@code Vary: Accept-Encoding}
+     * to the response, whatever the outcome.
+     *
+     * @return the variant, or null if the uncompressed content is to be served
+     */
+    private Variant negotiate(HttpServerExchange exchange) {
+        addVary(exchange.getResponseHeaders());
+        try {
+            for (String coding : new String[] { PrecompressedResourceManager.BROTLI, PrecompressedResourceManager.GZIP }) {
+                if (accepts(exchange, coding)) {
+                    Resource variant = this.resourceManager.getProvidedVariant(this.underlying, coding);
+                    if ((variant != null) && (variant.getContentLength() != null)) {
+                        return new Variant(this.getPath(), coding, variant.getContentLength(), variant, null);
+                    }
+                }
+            }
+            if (accepts(exchange, PrecompressedResourceManager.GZIP)) {
+                byte[] data = this.resourceManager.getCompressedContent(this.underlying);
+                if (data != null) {
+                    return new Variant(this.getPath(), PrecompressedResourceManager.GZIP, data.length, null, data);
+                }
+            }
+        } catch (IOException e) {
+            // Fall back to the uncompressed content
+        }
+        return null;
+    }
+
+    private static void addVary(HeaderMap headers) {
+        HeaderValues vary = headers.get(Headers.VARY);
+        if ((vary == null) || !vary.contains(Headers.ACCEPT_ENCODING_STRING)) {
+            headers.add(Headers.VARY, Headers.ACCEPT_ENCODING_STRING);
+        }
+    }
+
+    private void setVariantHeaders(HttpServerExchange exchange, String coding, long length) {
+        HeaderMap headers = exchange.getResponseHeaders();
+        headers.put(Headers.CONTENT_ENCODING, coding);
+        headers.put(Headers.CONTENT_LENGTH, length);
+        ETag etag = this.underlying.getETag();
+        if (etag != null) {
+            headers.put(Headers.ETAG, new ETag(true, etag.getTag()).toString());
+        }
+    }
+
+    private static boolean isCompressionAllowed(HttpServerExchange exchange) {
+        if (exchange.isResponseStarted() || exchange.getResponseHeaders().contains(Headers.CONTENT_ENCODING)) {
+            return false;
+        }
+        // An included resource is only part of the response
+        ServletRequestContext context = exchange.getAttachment(ServletRequestContext.ATTACHMENT_KEY);
+        return (context == null) || (context.getServletRequest().getDispatcherType() != DispatcherType.INCLUDE);
+    }
+
+    static boolean accepts(HttpServerExchange exchange, String coding) {
+        HeaderValues values = exchange.getRequestHeaders().get(Headers.ACCEPT_ENCODING);
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            for (String element : value.split(",")) {
+                int index = element.indexOf(';');
+                String name = ((index < 0) ? element : element.substring(0, index)).trim();
+                if (name.equalsIgnoreCase(coding)) {
+                    // An explicit q=0 means not acceptable
+                    return (index < 0) || !element.substring(index + 1).replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void serveRange(Sender sender, HttpServerExchange exchange, long start, long end, IoCallback completionCallback) {
+        ((RangeAwareResource) this.underlying).serveRange(sender, exchange, start, end, completionCallback);
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+        return (this.underlying instanceof RangeAwareResource) && ((RangeAwareResource) this.underlying).isRangeSupported();
+    }
+
+    @Override
+    public String getPath() {
+        return this.underlying.getPath();
+    }
+
+    @Override
+    public Date getLastModified() {
+        return this.underlying.getLastModified();
+    }
+
+    @Override
+    public String getLastModifiedString() {
+        return this.underlying.getLastModifiedString();
+    }
+
+    @Override
+    public ETag getETag() {
+        return this.underlying.getETag();
+    }
+
+    @Override
+    public String getName() {
+        return this.underlying.getName();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return this.underlying.isDirectory();
+    }
+
+    @Override
+    public List<Resource> list() {
+        return this.underlying.list();
+    }
+
+    @Override
+    public String getContentType(MimeMappings mimeMappings) {
+        return this.underlying.getContentType(mimeMappings);
+    }
+
+    @Override
+    public Long getContentLength() {
+        ServletRequestContext context = ServletRequestContext.current();
+        return (context != null) ? this.getContentLength(context.getExchange()) : this.underlying.getContentLength();
+    }
+
+    @Override
+    public String getCacheKey() {
+        return this.underlying.getCacheKey();
+    }
+
+    @Override
+    public File getFile() {
+        return this.underlying.getFile();
+    }
+
+    @Override
+    public Path getFilePath() {
+        return this.underlying.getFilePath();
+    }
+
+    @Override
+    public File getResourceManagerRoot() {
+        return this.underlying.getResourceManagerRoot();
+    }
+
+    @Override
+    public Path getResourceManagerRootPath() {
+        return this.underlying.getResourceManagerRootPath();
+    }
+
+    @Override
+    public URL getUrl() {
+        return this.underlying.getUrl();
+    }
+
+    private static class Variant {
+        final String path;
+        final String coding;
+        final long length;
+        // either the variant provided by the deployment, or the computed gzip content
+        final Resource resource;
+        final byte[] data;
+
+        Variant(String path, String coding, long length, Resource resource, byte[] data) {
+            this.path = path;
+            this.coding = coding;
+            this.length = length;
+            this.resource = resource;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.undertow.deployment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceChangeListener;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.MimeMappings;
+import org.wildfly.extension.undertow.logging.UndertowLogger;
+
+/**
+ * Resource manager that serves compressed variants of static resources to clients that accept them.
+ * <p/>
+ * Variants produced by the build, i.e. {@code foo.js.br} or {@code foo.js.gz} next to {@code foo.js}, are used as is;
+ * this is the only way to serve brotli, as there is no brotli encoder on the server side. Otherwise a gzip variant of
+ * compressible resources (text, scripts, styles, json, xml, svg) is computed on first request and kept in memory, up to
+ * a per deployment budget. Resources that do not compress well, or that no longer fit into the budget, are remembered
+ * as such, so that they are not compressed again on every request. A variant is recomputed whenever the size or
+ * modification time of its resource changes, so that exploded deployments stay consistent; variants produced by the build
+ * that are older than their resource are ignored.
+ * <p/>
+ * The uncompressed content continues to be cached by the {@link ResourceManager} this one wraps; range requests are
+ * always served from the uncompressed content.
+ */
+public class PrecompressedResourceManager implements ResourceManager {
+
+    static final String BROTLI = "br";
+    static final String GZIP = "gzip";
+
+    // Below this size the gzip header and trailer outweigh the savings
+    private static final long MIN_COMPRESSIBLE_SIZE = 1024;
+
+    private final ResourceManager resourceManager;
+    private final long maxFileSize;
+    private final long maxTotalSize;
+    private final Map<String, Future<CompressedContent>> variants = new ConcurrentHashMap<>();
+    private final AtomicLong totalSize = new AtomicLong();
+
+    /**
+     * @param resourceManager the resource manager serving the uncompressed content
+     * @param maxFileSize the maximum size of a resource for which a gzip variant is computed
+     * @param maxTotalSize the maximum total size of the computed variants of this deployment
+     */
+    public PrecompressedResourceManager(ResourceManager resourceManager, long maxFileSize, long maxTotalSize) {
+        this.resourceManager = resourceManager;
+        this.maxFileSize = maxFileSize;
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    @Override
+    public Resource getResource(String path) throws IOException {
+        Resource resource = this.resourceManager.getResource(path);
+        if ((resource == null) || resource.isDirectory() || path.endsWith(".gz") || path.endsWith(".br")) {
+            return resource;
+        }
+        return new PrecompressedResource(this, resource);
+    }
+
+    /**
+     * Returns a variant of the given resource produced by the build for the given content coding.
+     *
+     * @return the variant, or null if the deployment does not contain one or it is older than the resource
+     */
+    Resource getProvidedVariant(Resource resource, String coding) throws IOException {
+        Resource variant = this.resourceManager.getResource(resource.getPath() + (coding.equals(BROTLI) ? ".br" : ".gz"));
+        if ((variant == null) || variant.isDirectory()) {
+            return null;
+        }
+        // In an exploded deployment, the resource may have been updated without its variant
+        Date lastModified = resource.getLastModified();
+        Date variantLastModified = variant.getLastModified();
+        if ((lastModified != null) && (variantLastModified != null) && variantLastModified.before(lastModified)) {
+            return null;
+        }
+        return variant;
+    }
+
+    /**
+     * Returns the gzip compressed content of the given resource, computing it if necessary.
+     *
+     * @return the compressed content, or null if the resource is not worth compressing or the budget is exhausted
+     */
+    byte[] getCompressedContent(Resource resource) {
+        Long length = resource.getContentLength();
+        if ((length == null) || (length < MIN_COMPRESSIBLE_SIZE) || (length > this.maxFileSize) || !isCompressible(resource)) {
+            return null;
+        }
+        String path = resource.getPath();
+        Date lastModified = resource.getLastModified();
+        long modified = (lastModified != null) ? lastModified.getTime() : 0L;
+
+        Future<CompressedContent> task = this.variants.get(path);
+        if (task != null) {
+            CompressedContent content = get(task);
+            if ((content != null) && content.isValid(length, modified)) {
+                return content.getData();
+            }
+            if (!task.isDone()) {
+                // Interrupted while waiting
+                return null;
+            }
+            // Stale variant of a changed resource
+            if (this.variants.remove(path, task) && (content != null)) {
+                this.release(content);
+            }
+        }
+        // Concurrent requests for the same resource wait for a single compression, which runs outside of the map
+        FutureTask<CompressedContent> created = new FutureTask<>(() -> this.compress(resource, length, modified));
+        task = this.variants.putIfAbsent(path, created);
+        if (task == null) {
+            task = created;
+            created.run();
+        }
+        CompressedContent content = get(task);
+        if (content == null) {
+            if (task.isDone()) {
+                // Could not be read, try again on the next request
+                this.variants.remove(path, task);
+            }
+            return null;
+        }
+        return content.isValid(length, modified) ? content.getData() : null;
+    }
+
+    private static CompressedContent get(Future<CompressedContent> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the gzip variant of the given resource within the budget.
+     *
+     * @return the variant, a variant without data if the resource is not worth compressing or the budget is exhausted,
+     *         or null if the resource could not be read
+     */
+    private CompressedContent compress(Resource resource, long length, long modified) {
+        if (this.totalSize.get() >= this.maxTotalSize) {
+            return new CompressedContent(null, length, modified);
+        }
+        byte[] data;
+        try {
+            data = compress(resource);
+        } catch (IOException e) {
+            UndertowLogger.ROOT_LOGGER.debugf(e, "Failed to compress %s", resource.getPath());
+            return null;
+        }
+        // Do not keep variants that do not pay off
+        if (data.length >= length) {
+            return new CompressedContent(null, length, modified);
+        }
+        if (this.totalSize.addAndGet(data.length) > this.maxTotalSize) {
+            this.totalSize.addAndGet(-data.length);
+            return new CompressedContent(null, length, modified);
+        }
+        return new CompressedContent(data, length, modified);
+    }
+
+    private void release(CompressedContent content) {
+        byte[] data = content.getData();
+        if (data != null) {
+            this.totalSize.addAndGet(-data.length);
+        }
+    }
+
+    /**
+     * @return the total size of the computed variants of this deployment
+     */
+    public long getCompressedSize() {
+        return this.totalSize.get();
+    }
+
+    @Override
+    public boolean isResourceChangeListenerSupported() {
+        return this.resourceManager.isResourceChangeListenerSupported();
+    }
+
+    @Override
+    public void registerResourceChangeListener(ResourceChangeListener listener) {
+        this.resourceManager.registerResourceChangeListener(listener);
+    }
+
+    @Override
+    public void removeResourceChangeListener(ResourceChangeListener listener) {
+        this.resourceManager.removeResourceChangeListener(listener);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.variants.clear();
+        this.totalSize.set(0L);
+        this.resourceManager.close();
+    }
+
+    private static boolean isCompressible(Resource resource) {
+        String type = resource.getContentType(MimeMappings.DEFAULT);
+        if (type == null) {
+            return false;
+        }
+        return type.startsWith("text/") || type.equals("application/javascript") || type.equals("application/json")
+                || type.endsWith("/xml") || type.endsWith("+xml");
+    }
+
+    private static byte[] compress(Resource resource) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(resource.getContentLength().intValue() / 4);
+        try (InputStream input = resource.getUrl().openStream(); GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                gzip.write(buffer, 0, read);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static class CompressedContent {
+        // null if the resource is not served compressed
+        private final byte[] data;
+        private final long length;
+        private final long lastModified;
+
+        CompressedContent(byte[] data, long length, long lastModified) {
+            this.data = data;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        byte[] getData() {
+            return this.data;
+        }
+
+        boolean isValid(long length, long lastModified) {
+            return (this.length == length) && (this.lastModified == lastModified);
+        }
+    }
+}
@@ -158,6 +158,7 @@ import org.wildfly.extension.undertow.security.jaspi.JASPICSecureResponseHandler
 import org.wildfly.extension.undertow.security.jaspi.JASPICSecurityContextFactory;
 import org.wildfly.extension.undertow.session.CodecSessionConfigWrapper;
 import org.wildfly.extension.undertow.session.SharedSessionManagerConfig;
+import org.wildfly.security.manager.WildFlySecurityManager;
 import org.xnio.IoUtils;
 
 import javax.servlet.Filter;
@@ -211,6 +212,23 @@ public class UndertowDeploymentInfoService implements Service<DeploymentInfo> {
     public static final String NEW_URI_PREFIX = "http://xmlns.jcp.org";
     public static final String UNDERTOW = "undertow";
 
+    /**
+     * Maximum number of resources whose metadata is cached per deployment
+     */
+    public static final String RESOURCE_CACHE_MAX_ENTRIES = "org.wildfly.undertow.resource-cache.max-entries";
+    /**
+     * Maximum size of a resource whose content is cached in the buffer cache of the servlet container
+     */
+    public static final String RESOURCE_CACHE_MAX_FILE_SIZE = "org.wildfly.undertow.resource-cache.max-file-size";
+    /**
+     * Enables serving gzip/brotli variants of static resources, see {@link PrecompressedResourceManager}
+     */
+    public static final String PRECOMPRESSED_RESOURCES = "org.wildfly.undertow.precompressed-resources";
+    /**
+     * Maximum total size of the gzip variants computed per deployment
+     */
+    public static final String PRECOMPRESSED_RESOURCES_MAX_SIZE = "org.wildfly.undertow.precompressed-resources.max-size";
+
     private DeploymentInfo deploymentInfo;
     private Registration registration;
 
@@ -590,12 +608,17 @@ public class UndertowDeploymentInfoService implements Service<DeploymentInfo> {
 
             final ServletContainerService servletContainer = container.getValue();
             try {
-                //TODO: make the caching limits configurable
                 List<String> externalOverlays = mergedMetaData.getOverlays();
 
                 ResourceManager resourceManager = new ServletResourceManager(deploymentRoot, overlays, explodedDeployment, mergedMetaData.isSymbolicLinkingEnabled(), servletContainer.isDisableFileWatchService(), externalOverlays);
 
-                resourceManager = new CachingResourceManager(100, 10 * 1024 * 1024, servletContainer.getBufferCache(), resourceManager, explodedDeployment ? 2000 : -1);
+                int maxEntries = Integer.parseInt(WildFlySecurityManager.getPropertyPrivileged(RESOURCE_CACHE_MAX_ENTRIES, "100"));
+                long maxFileSize = Long.parseLong(WildFlySecurityManager.getPropertyPrivileged(RESOURCE_CACHE_MAX_FILE_SIZE, Long.toString(10 * 1024 * 1024)));
+                resourceManager = new CachingResourceManager(maxEntries, maxFileSize, servletContainer.getBufferCache(), resourceManager, explodedDeployment ? 2000 : -1);
+                if (Boolean.parseBoolean(WildFlySecurityManager.getPropertyPrivileged(PRECOMPRESSED_RESOURCES, "false"))) {
+                    long maxCompressedSize = Long.parseLong(WildFlySecurityManager.getPropertyPrivileged(PRECOMPRESSED_RESOURCES_MAX_SIZE, Long.toString(10 * 1024 * 1024)));
+                    resourceManager = new PrecompressedResourceManager(resourceManager, maxFileSize, maxCompressedSize);
+                }
                 if(externalResources != null && !externalResources.isEmpty()) {
                     //TODO: we don't cache external deployments, as they are intended for development use
                     //should be make this configurable or something?
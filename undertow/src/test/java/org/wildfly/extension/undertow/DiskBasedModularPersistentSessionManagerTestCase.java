@@ -0,0 +1,159 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.extension.undertow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.undertow.servlet.api.SessionPersistenceManager.PersistentSession;
+import org.jboss.as.controller.services.path.PathManagerService;
+import org.jboss.marshalling.Marshaller;
+import org.jboss.marshalling.OutputStreamByteOutput;
+import org.jboss.modules.Module;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for {@link DiskBasedModularPersistentSessionManager}
+ */
+public class DiskBasedModularPersistentSessionManagerTestCase {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DiskBasedModularPersistentSessionManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        this.manager = new DiskBasedModularPersistentSessionManager(this.folder.getRoot().getAbsolutePath(), null);
+        this.manager.getPathManager().inject(new PathManagerService() {
+        });
+        this.manager.getModuleLoaderInjectedValue().inject(Module.getBootModuleLoader());
+        this.manager.start(null);
+    }
+
+    @After
+    public void tearDown() {
+        this.manager.stop(null);
+    }
+
+    @Test
+    public void persistAndLoad() {
+        long expiry = System.currentTimeMillis() + 60000L;
+        Map<String, PersistentSession> sessions = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("counter", i);
+            data.put("name", "session-" + i);
+            data.put("été", new Date(i));
+            sessions.put("id" + i, new PersistentSession(new Date(expiry), data));
+        }
+        sessions.put("expired", new PersistentSession(new Date(System.currentTimeMillis() - 1000L), new HashMap<>()));
+
+        this.manager.persistSessions("test.war", sessions);
+        assertFalse(new File(this.folder.getRoot(), "test.war.tmp").exists());
+
+        Map<String, PersistentSession> loaded = this.manager.loadSessionAttributes("test.war", this.getClass().getClassLoader());
+        assertNotNull(loaded);
+        assertEquals(100, loaded.size());
+        assertFalse(loaded.containsKey("expired"));
+        for (int i = 0; i < 100; i++) {
+            PersistentSession session = loaded.get("id" + i);
+            assertEquals(expiry, session.getExpiration().getTime());
+            Map<String, Object> data = session.getSessionData();
+            assertEquals(3, data.size());
+            assertEquals(i, data.get("counter"));
+            assertEquals("session-" + i, data.get("name"));
+            assertEquals(new Date(i), data.get("été"));
+            // deserialized once
+            assertTrue(data == session.getSessionData());
+        }
+    }
+
+    @Test
+    public void loadPreviousFormat() throws IOException {
+        // the previous format is a single marshalled map of session entries
+        Marshaller marshaller = this.manager.createMarshaller();
+        FileOutputStream out = new FileOutputStream(new File(this.folder.getRoot(), "old.war"));
+        try {
+            marshaller.start(new OutputStreamByteOutput(out));
+            marshaller.writeObject(new HashMap<String, AbstractPersistentSessionManager.SessionEntry>());
+            marshaller.finish();
+        } finally {
+            marshaller.close();
+            out.close();
+        }
+        Map<String, PersistentSession> loaded = this.manager.loadSessionAttributes("old.war", this.getClass().getClassLoader());
+        assertNotNull(loaded);
+        assertTrue(loaded.isEmpty());
+    }
+
+    @Test
+    public void loadTruncated() throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(this.folder.getRoot(), "truncated.war"));
+        try {
+            out.write(new byte[] { 0x57, 0x46 });
+        } finally {
+            out.close();
+        }
+        assertNull(this.manager.loadSessionAttributes("truncated.war", this.getClass().getClassLoader()));
+    }
+
+    @Test
+    public void persistOverRestoredSessions() {
+        long expiry = System.currentTimeMillis() + 60000L;
+        Map<String, Object> data = new HashMap<>();
+        data.put("counter", 1);
+        Map<String, PersistentSession> sessions = new HashMap<>();
+        sessions.put("id", new PersistentSession(new Date(expiry), data));
+        this.manager.persistSessions("test.war", sessions);
+
+        // restored sessions that were never accessed must not keep the file from being replaced
+        Map<String, PersistentSession> restored = this.manager.loadSessionAttributes("test.war", this.getClass().getClassLoader());
+        data.put("counter", 2);
+        this.manager.persistSessions("test.war", sessions);
+        assertFalse(new File(this.folder.getRoot(), "test.war.tmp").exists());
+
+        assertEquals(1, restored.get("id").getSessionData().get("counter"));
+        Map<String, PersistentSession> loaded = this.manager.loadSessionAttributes("test.war", this.getClass().getClassLoader());
+        assertEquals(2, loaded.get("id").getSessionData().get("counter"));
+    }
+
+    @Test
+    public void loadMissing() {
+        assertNull(this.manager.loadSessionAttributes("missing.war", this.getClass().getClassLoader()));
+    }
+}
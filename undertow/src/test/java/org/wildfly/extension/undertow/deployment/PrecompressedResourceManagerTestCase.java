@@ -0,0 +1,319 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2017, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.wildfly.extension.undertow.deployment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.resource.PathResourceManager;
+import io.undertow.server.handlers.resource.Resource;
+import io.undertow.server.handlers.resource.ResourceManager;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class PrecompressedResourceManagerTestCase {
+
+    private Path root;
+    private ResourceManager resourceManager;
+    private PrecompressedResourceManager manager;
+
+    @Before
+    public void init() throws IOException {
+        this.root = Files.createTempDirectory("precompressed");
+        ResourceManager resourceManager = mock(ResourceManager.class);
+        this.resourceManager = resourceManager;
+        // Serving file content requires a live connection, so only record which resource was served
+        PathResourceManager pathResourceManager = new PathResourceManager(this.root);
+        when(resourceManager.getResource(anyString())).then(invocation -> {
+            Resource resource = pathResourceManager.getResource(invocation.getArgumentAt(0, String.class));
+            if (resource == null) {
+                return null;
+            }
+            Resource spy = spy(resource);
+            doNothing().when(spy).serve(any(Sender.class), any(HttpServerExchange.class), any(IoCallback.class));
+            return spy;
+        });
+        this.manager = new PrecompressedResourceManager(resourceManager, 1024 * 1024, 1024 * 1024);
+    }
+
+    @After
+    public void destroy() throws IOException {
+        this.manager.close();
+        for (Path file : Files.newDirectoryStream(this.root)) {
+            Files.delete(file);
+        }
+        Files.delete(this.root);
+    }
+
+    @Test
+    public void accepts() {
+        assertFalse(PrecompressedResource.accepts(exchange(null), "gzip"));
+        assertTrue(PrecompressedResource.accepts(exchange("gzip, deflate, br"), "gzip"));
+        assertTrue(PrecompressedResource.accepts(exchange("gzip, deflate, br"), "br"));
+        assertTrue(PrecompressedResource.accepts(exchange("GZIP;q=0.5"), "gzip"));
+        assertFalse(PrecompressedResource.accepts(exchange("gzip;q=0"), "gzip"));
+        assertFalse(PrecompressedResource.accepts(exchange("deflate"), "gzip"));
+    }
+
+    @Test
+    public void gzip() throws IOException {
+        byte[] content = text(8192);
+        Files.write(this.root.resolve("app.js"), content);
+
+        HttpServerExchange exchange = exchange("gzip");
+        Sender sender = mock(Sender.class);
+        this.manager.getResource("/app.js").serve(sender, exchange, IoCallback.END_EXCHANGE);
+
+        ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(sender).send(captor.capture(), any(IoCallback.class));
+        byte[] compressed = captor.getValue().array();
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals(Headers.ACCEPT_ENCODING_STRING, exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertEquals(Integer.toString(compressed.length), exchange.getResponseHeaders().getFirst(Headers.CONTENT_LENGTH));
+        assertTrue(compressed.length < content.length);
+        assertArrayEquals(content, gunzip(compressed));
+        assertEquals(compressed.length, this.manager.getCompressedSize());
+
+        // Second request is served from memory
+        sender = mock(Sender.class);
+        this.manager.getResource("/app.js").serve(sender, exchange("gzip"), IoCallback.END_EXCHANGE);
+        verify(sender).send(captor.capture(), any(IoCallback.class));
+        assertSame(compressed, captor.getValue().array());
+    }
+
+    @Test
+    public void head() throws IOException {
+        byte[] content = text(8192);
+        Files.write(this.root.resolve("app.js"), content);
+        byte[] compressed = this.manager.getCompressedContent(this.resourceManager.getResource("/app.js"));
+
+        HttpServerExchange exchange = exchange("gzip");
+        exchange.setRequestMethod(Methods.HEAD);
+        PrecompressedResource resource = (PrecompressedResource) this.manager.getResource("/app.js");
+        // Same length and headers as a GET request
+        assertEquals(Long.valueOf(compressed.length), resource.getContentLength(exchange));
+        assertEquals(Long.valueOf(compressed.length), resource.getContentLength(exchange));
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals(1, exchange.getResponseHeaders().count(Headers.VARY));
+
+        exchange = exchange(null);
+        exchange.setRequestMethod(Methods.HEAD);
+        assertEquals(Long.valueOf(content.length), resource.getContentLength(exchange));
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals(Headers.ACCEPT_ENCODING_STRING, exchange.getResponseHeaders().getFirst(Headers.VARY));
+    }
+
+    @Test
+    public void concurrentCompression() throws Exception {
+        Files.write(this.root.resolve("app.js"), text(65536));
+        Resource resource = this.resourceManager.getResource("/app.js");
+        CountDownLatch start = new CountDownLatch(1);
+        byte[][] results = new byte[4][];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                results[index] = this.manager.getCompressedContent(resource);
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Requests racing for the same resource share a single compression
+        verify(resource, times(1)).getUrl();
+        for (byte[] result : results) {
+            assertSame(results[0], result);
+        }
+        assertEquals(results[0].length, this.manager.getCompressedSize());
+    }
+
+    @Test
+    public void invalidate() throws IOException {
+        Path file = this.root.resolve("style.css");
+        Files.write(file, text(4096));
+        Resource resource = this.manager.getResource("/style.css");
+        byte[] original = this.manager.getCompressedContent(resource);
+        assertSame(original, this.manager.getCompressedContent(resource));
+
+        // Exploded deployment content changed
+        byte[] content = text(6000);
+        Files.write(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        resource = this.manager.getResource("/style.css");
+        byte[] updated = this.manager.getCompressedContent(resource);
+        assertArrayEquals(content, gunzip(updated));
+        assertEquals(updated.length, this.manager.getCompressedSize());
+    }
+
+    @Test
+    public void provided() throws IOException {
+        Files.write(this.root.resolve("app.js"), text(8192));
+        Files.write(this.root.resolve("app.js.br"), new byte[] { 1, 2, 3 });
+
+        HttpServerExchange exchange = exchange("gzip, br");
+        Sender sender = mock(Sender.class);
+        this.manager.getResource("/app.js").serve(sender, exchange, IoCallback.END_EXCHANGE);
+
+        assertEquals("br", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        assertEquals("3", exchange.getResponseHeaders().getFirst(Headers.CONTENT_LENGTH));
+        assertEquals(0L, this.manager.getCompressedSize());
+    }
+
+    @Test
+    public void staleProvided() throws IOException {
+        Path file = this.root.resolve("app.js");
+        Files.write(file, text(8192));
+        Path variant = this.root.resolve("app.js.br");
+        Files.write(variant, new byte[] { 1, 2, 3 });
+        // Exploded deployment content changed, but its variant was not rebuilt
+        Files.setLastModifiedTime(variant, FileTime.fromMillis(System.currentTimeMillis() - 10000));
+
+        HttpServerExchange exchange = exchange("gzip, br");
+        Sender sender = mock(Sender.class);
+        this.manager.getResource("/app.js").serve(sender, exchange, IoCallback.END_EXCHANGE);
+
+        assertEquals("gzip", exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        verify(sender).send(any(ByteBuffer.class), any(IoCallback.class));
+    }
+
+    @Test
+    public void budget() throws IOException {
+        Files.write(this.root.resolve("app.js"), text(8192));
+        Files.write(this.root.resolve("style.css"), text(8192));
+        byte[] compressed = this.manager.getCompressedContent(this.resourceManager.getResource("/app.js"));
+        // Budget fits a single variant
+        PrecompressedResourceManager manager = new PrecompressedResourceManager(this.resourceManager, 1024 * 1024, compressed.length);
+
+        assertArrayEquals(compressed, manager.getCompressedContent(this.resourceManager.getResource("/app.js")));
+        assertEquals(compressed.length, manager.getCompressedSize());
+
+        // Budget is exhausted, so the resource is not even compressed
+        Resource resource = this.resourceManager.getResource("/style.css");
+        assertNull(manager.getCompressedContent(resource));
+        assertNull(manager.getCompressedContent(resource));
+        verify(resource, never()).getUrl();
+        assertEquals(compressed.length, manager.getCompressedSize());
+    }
+
+    @Test
+    public void incompressible() throws IOException {
+        byte[] content = new byte[8192];
+        new Random(0L).nextBytes(content);
+        Files.write(this.root.resolve("random.txt"), content);
+
+        Resource resource = this.resourceManager.getResource("/random.txt");
+        assertNull(this.manager.getCompressedContent(resource));
+        // Not compressed again on subsequent requests
+        assertNull(this.manager.getCompressedContent(resource));
+        verify(resource, times(1)).getUrl();
+        assertEquals(0L, this.manager.getCompressedSize());
+    }
+
+    @Test
+    public void uncompressed() throws IOException {
+        // Too small
+        Files.write(this.root.resolve("small.txt"), text(100));
+        assertNull(this.manager.getCompressedContent(this.manager.getResource("/small.txt")));
+        // Not compressible
+        Files.write(this.root.resolve("image.png"), text(8192));
+        assertNull(this.manager.getCompressedContent(this.manager.getResource("/image.png")));
+
+        // Client does not accept gzip
+        Files.write(this.root.resolve("app.js"), text(8192));
+        HttpServerExchange exchange = exchange(null);
+        Sender sender = mock(Sender.class);
+        this.manager.getResource("/app.js").serve(sender, exchange, IoCallback.END_EXCHANGE);
+        verify(sender, never()).send(any(ByteBuffer.class), any(IoCallback.class));
+        assertNull(exchange.getResponseHeaders().getFirst(Headers.CONTENT_ENCODING));
+        // The uncompressed response depends on the request headers as well
+        assertEquals(Headers.ACCEPT_ENCODING_STRING, exchange.getResponseHeaders().getFirst(Headers.VARY));
+        assertEquals(0L, this.manager.getCompressedSize());
+    }
+
+    private static HttpServerExchange exchange(String acceptEncoding) {
+        HttpServerExchange exchange = new HttpServerExchange(null);
+        if (acceptEncoding != null) {
+            exchange.getRequestHeaders().put(Headers.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return exchange;
+    }
+
+    private static byte[] text(int size) {
+        StringBuilder builder = new StringBuilder(size);
+        while (builder.length() < size) {
+            builder.append("function f").append(builder.length()).append("() { return 0; }\n");
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.toByteArray();
+    }
+}